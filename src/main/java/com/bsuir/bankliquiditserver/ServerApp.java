@@ -2,6 +2,8 @@ package com.bsuir.bankliquiditserver;
 
 import com.bsuir.bankliquiditserver.config.ConfigurationManager;
 import com.bsuir.bankliquiditserver.controller.ClientHandler;
+import com.bsuir.bankliquiditserver.dispatch.RequestDispatcher;
+import com.bsuir.bankliquiditserver.service.ServiceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,6 +12,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class ServerApp {
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerApp.class);
@@ -17,9 +20,10 @@ public class ServerApp {
 
     public static void main(String[] args) {
         int port = CONFIG.getIntProperty("server.port", 8080);
-        int threadPoolSize = CONFIG.getIntProperty("server.threadPoolSize", 10);
+        // Потоки соединений только читают запросы и пишут ответы; запросы выполняются в Bulkhead (dispatch.bulkhead.*)
+        int maxConnections = CONFIG.getIntProperty("server.maxConnections", 200);
 
-        ExecutorService executorService = Executors.newFixedThreadPool(threadPoolSize);
+        ExecutorService executorService = Executors.newFixedThreadPool(maxConnections);
 
         try (ServerSocket serverSocket = new ServerSocket(port)) {
             LOGGER.info("Server started on port: {}", port);
@@ -28,6 +32,11 @@ public class ServerApp {
             // Инициализация ServiceFactory (если в нем есть какая-то логика при старте)
             // ServiceFactory.initialize(); // Если бы он был не полностью статическим
 
+            // SIGTERM (остановка при выкатке): узел перестает принимать соединения и выполняет уже принятые запросы.
+            // Сервисы создаются здесь, а не при первом клиенте: иначе остановка узла без клиентов запускала бы их
+            RequestDispatcher dispatcher = ServiceFactory.getRequestDispatcher();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> drain(serverSocket, executorService, dispatcher), "server-drain"));
+
             while (true) {
                 try {
                     Socket clientSocket = serverSocket.accept();
@@ -35,12 +44,12 @@ public class ServerApp {
                     // ClientHandler будет использовать ServiceFactory для доступа к сервисам
                     executorService.submit(new ClientHandler(clientSocket));
                 } catch (IOException e) {
-                    LOGGER.error("Error accepting client connection: {}", e.getMessage(), e);
                     // Если ошибка критическая для серверного сокета, можно прервать цикл
                     if (serverSocket.isClosed()) {
-                        LOGGER.error("Server socket closed, shutting down.");
+                        LOGGER.info("Server socket closed, no longer accepting connections.");
                         break;
                     }
+                    LOGGER.error("Error accepting client connection: {}", e.getMessage(), e);
                 }
             }
         } catch (IOException e) {
@@ -50,4 +59,58 @@ public class ServerApp {
             LOGGER.info("Server shut down.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Остановка без потери запросов: новые соединения не принимаются, клиенты получают SERVER_DRAINING,
+     * исполнители задач перестают забирать новые задачи, уже прочитанные запросы выполняются
+     * (не дольше server.drainTimeoutMs на все этапы вместе), доотправляются оповещения и изменения сущностей,
+     * затем закрываются соединения клиентов, дожидаются выполняющиеся задачи и останавливается InvalidationBus.
+     * Соединения с БД запросы и задачи закрывают сами по завершении; оставшиеся до таймаута - отменяются при закрытии клиентов.
+     */
+    private static void drain(ServerSocket serverSocket, ExecutorService connectionThreads, RequestDispatcher dispatcher) {
+        long timeoutMillis = CONFIG.getIntProperty("server.drainTimeoutMs", 30000);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        LOGGER.info("Draining server, timeout {} ms.", timeoutMillis);
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.warn("Error closing server socket: {}", e.getMessage());
+        }
+        int notified = ClientHandler.beginDrain(timeoutMillis);
+        LOGGER.info("{} client(s) notified to reconnect to another node.", notified);
+        // Выполняющиеся задачи не прерываются: не успевшие завершиться заберут другие узлы по истечении аренды
+        ServiceFactory.getJobWorkerPool().stop();
+        try {
+            if (!ClientHandler.awaitIdle(remainingMillis(deadline), TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Client requests still running after drain timeout, they will be cancelled.");
+            }
+            dispatcher.shutdown();
+            dispatcher.awaitTermination(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+            // Оповещения о записях, выполненных за время остановки, отправляются до закрытия соединений
+            ServiceFactory.getAlertService().stop();
+            ServiceFactory.getEntityChangeService().stop();
+            boolean notificationsSent = ServiceFactory.getAlertService().awaitTermination(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+            notificationsSent &= ServiceFactory.getEntityChangeService().awaitTermination(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+            if (!notificationsSent) {
+                LOGGER.warn("Client notifications still queued after drain timeout, they will be dropped.");
+            }
+            ClientHandler.closeAll();
+            connectionThreads.shutdown();
+
+            if (!ServiceFactory.getJobWorkerPool().awaitTermination(remainingMillis(deadline), TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Jobs still running after drain timeout, their leases will expire.");
+            }
+            ServiceFactory.getInvalidationBus().stop();
+            ServiceFactory.getInvalidationBus().awaitTermination(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+            connectionThreads.awaitTermination(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Server drain interrupted.");
+        }
+        LOGGER.info("Server drained.");
+    }
+
+    private static long remainingMillis(long deadlineNanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+}
@@ -0,0 +1,259 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+import com.bsuir.bankliquiditserver.model.StatementItem;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Расчет Basel III LCR (Liquidity Coverage Ratio) и NSFR (Net Stable Funding Ratio) по таблице весов,
+ * загруженной из basel_weights.properties. Формат файла:
+ * <pre>
+ * hqla1.CA01=1.00        # Активы уровня 1 (вес = 1 - дисконт)
+ * hqla2a.SEC_GOV=0.85    # Уровень 2A
+ * hqla2b.SEC_CORP=0.50   # Уровень 2B
+ * outflow.DEP_RETAIL=0.05  # Коэффициент оттока (run-off)
+ * inflow.LOANS_ST=0.50     # Коэффициент притока
+ * asf.EQUITY01=1.00        # Коэффициент доступного стабильного фондирования
+ * rsf.LOANS_LT=0.85        # Коэффициент требуемого стабильного фондирования
+ * cap.level2=0.40  cap.level2b=0.15  cap.inflow=0.75
+ * </pre>
+ * Ключ статьи - код или @КОД (сумма поддерева по parent_item_id). Одна статья может входить в несколько компонент
+ * (например, депозит - и в отток, и в ASF). Все взвешенные суммы считаются за один проход по статьям.
+ * Объект неизменяемый.
+ */
+public final class BaselCalculator {
+    public static final int DEFAULT_SCALE = 4;
+
+    // Компоненты взвешенных сумм
+    public static final int HQLA_1 = 0;
+    public static final int HQLA_2A = 1;
+    public static final int HQLA_2B = 2;
+    public static final int OUTFLOW = 3;
+    public static final int INFLOW = 4;
+    public static final int ASF = 5;
+    public static final int RSF = 6;
+    private static final String[] COMPONENT_PREFIXES = {"hqla1.", "hqla2a.", "hqla2b.", "outflow.", "inflow.", "asf.", "rsf."};
+    private static final String SUBTREE_PREFIX = "@";
+
+    private static final BigDecimal DEFAULT_LEVEL2_CAP = new BigDecimal("0.40");
+    private static final BigDecimal DEFAULT_LEVEL2B_CAP = new BigDecimal("0.15");
+    private static final BigDecimal DEFAULT_INFLOW_CAP = new BigDecimal("0.75");
+
+    // Вес статьи в одной компоненте
+    private static final class Weight {
+        final int component;
+        final BigDecimal factor;
+
+        Weight(int component, BigDecimal factor) {
+            this.component = component;
+            this.factor = factor;
+        }
+    }
+
+    private final String version;
+    private final Map<String, Weight[]> weightsByCode;
+    private final Map<String, Weight[]> weightsBySubtreeCode;
+    private final BigDecimal level2Cap; // Доля уровня 2 в HQLA
+    private final BigDecimal level2bCap; // Доля уровня 2B в HQLA
+    private final BigDecimal inflowCap; // Притоки не больше этой доли оттоков
+
+    private BaselCalculator(String version, Map<String, Weight[]> weightsByCode, Map<String, Weight[]> weightsBySubtreeCode,
+                            BigDecimal level2Cap, BigDecimal level2bCap, BigDecimal inflowCap) {
+        this.version = version;
+        this.weightsByCode = weightsByCode;
+        this.weightsBySubtreeCode = weightsBySubtreeCode;
+        this.level2Cap = level2Cap;
+        this.level2bCap = level2bCap;
+        this.inflowCap = inflowCap;
+    }
+
+    public static BaselCalculator fromProperties(Properties properties) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            entries.put(key.trim(), properties.getProperty(key).trim());
+        }
+
+        Map<String, List<Weight>> byCode = new HashMap<>();
+        Map<String, List<Weight>> bySubtree = new HashMap<>();
+        int weightCount = 0;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            for (int component = 0; component < COMPONENT_PREFIXES.length; component++) {
+                String prefix = COMPONENT_PREFIXES[component];
+                if (!entry.getKey().startsWith(prefix)) {
+                    continue;
+                }
+                String itemKey = entry.getKey().substring(prefix.length());
+                BigDecimal factor = parseFactor(entry.getKey(), entry.getValue());
+                if (itemKey.startsWith(SUBTREE_PREFIX)) {
+                    String code = itemKey.substring(SUBTREE_PREFIX.length());
+                    if (code.isEmpty()) {
+                        throw new IllegalArgumentException("Item code expected after '" + SUBTREE_PREFIX + "': " + entry.getKey());
+                    }
+                    bySubtree.computeIfAbsent(code, k -> new ArrayList<>()).add(new Weight(component, factor));
+                } else if (!itemKey.isEmpty()) {
+                    byCode.computeIfAbsent(itemKey, k -> new ArrayList<>()).add(new Weight(component, factor));
+                }
+                weightCount++;
+            }
+        }
+        if (weightCount == 0) {
+            throw new IllegalArgumentException("No Basel weights found.");
+        }
+
+        String version = entries.containsKey("version") ? entries.get("version") : checksum(entries);
+        return new BaselCalculator(version, toArrays(byCode), toArrays(bySubtree),
+                entries.containsKey("cap.level2") ? parseFactor("cap.level2", entries.get("cap.level2")) : DEFAULT_LEVEL2_CAP,
+                entries.containsKey("cap.level2b") ? parseFactor("cap.level2b", entries.get("cap.level2b")) : DEFAULT_LEVEL2B_CAP,
+                entries.containsKey("cap.inflow") ? parseFactor("cap.inflow", entries.get("cap.inflow")) : DEFAULT_INFLOW_CAP);
+    }
+
+    private static BigDecimal parseFactor(String key, String value) {
+        BigDecimal factor;
+        try {
+            factor = new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid weight for " + key + ": " + value);
+        }
+        if (factor.signum() < 0 || factor.compareTo(BigDecimal.ONE) > 0) {
+            throw new IllegalArgumentException("Weight for " + key + " must be between 0 and 1: " + value);
+        }
+        return factor;
+    }
+
+    private static Map<String, Weight[]> toArrays(Map<String, List<Weight>> source) {
+        Map<String, Weight[]> result = new HashMap<>();
+        source.forEach((key, weights) -> result.put(key, weights.toArray(new Weight[0])));
+        return result;
+    }
+
+    private static String checksum(SortedMap<String, String> entries) {
+        CRC32 crc = new CRC32();
+        entries.forEach((k, v) -> crc.update((k + "=" + v + "\n").getBytes(StandardCharsets.UTF_8)));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Взвешенные суммы всех компонент за один проход по статьям и LCR/NSFR по ним.
+     */
+    public BaselValues calculate(List<StatementItem> items) {
+        BigDecimal[] sums = new BigDecimal[COMPONENT_PREFIXES.length];
+        Arrays.fill(sums, BigDecimal.ZERO);
+        int mapped = 0;
+        for (StatementItem item : items) {
+            Weight[] weights = item.getItemCode() != null ? weightsByCode.get(item.getItemCode()) : null;
+            if (weights == null || item.getItemValue() == null) {
+                continue;
+            }
+            mapped++;
+            for (Weight weight : weights) {
+                sums[weight.component] = sums[weight.component].add(item.getItemValue().multiply(weight.factor));
+            }
+        }
+        if (!weightsBySubtreeCode.isEmpty()) {
+            // Дерево строим, только если таблица ссылается на поддеревья
+            StatementRollup rollup = StatementRollup.build(items);
+            for (Map.Entry<String, Weight[]> entry : weightsBySubtreeCode.entrySet()) {
+                BigDecimal subtree = rollup.getSubtreeSum(entry.getKey());
+                if (subtree == null) {
+                    continue;
+                }
+                mapped++;
+                for (Weight weight : entry.getValue()) {
+                    sums[weight.component] = sums[weight.component].add(subtree.multiply(weight.factor));
+                }
+            }
+        }
+        return new BaselValues(sums, mapped);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Результат расчета по одному отчету. HQLA - с ограничениями Basel III на долю активов уровня 2 и 2B
+     * (корректировки на 15% и 40%), чистый отток - с ограничением притоков долей оттоков.
+     */
+    public final class BaselValues {
+        private final BigDecimal[] sums;
+        private final int mappedItemCount;
+        private final BigDecimal hqla;
+        private final BigDecimal cappedInflows;
+
+        private BaselValues(BigDecimal[] sums, int mappedItemCount) {
+            this.sums = sums;
+            this.mappedItemCount = mappedItemCount;
+            BigDecimal level1 = sums[HQLA_1], level2a = sums[HQLA_2A], level2b = sums[HQLA_2B];
+            // Корректировка на 15%: max(L2B - 15/85 * (L1 + L2A), L2B - 15/60 * L1, 0)
+            BigDecimal complement2b = BigDecimal.ONE.subtract(level2bCap);
+            BigDecimal complement2 = BigDecimal.ONE.subtract(level2Cap);
+            BigDecimal adjustment15 = max(BigDecimal.ZERO,
+                    level2b.subtract(ratio(level2bCap, complement2b).multiply(level1.add(level2a))),
+                    level2b.subtract(ratio(level2bCap, complement2).multiply(level1)));
+            // Корректировка на 40%: max(L2A + L2B - adj15 - 40/60 * L1, 0)
+            BigDecimal adjustment40 = max(BigDecimal.ZERO,
+                    level2a.add(level2b).subtract(adjustment15).subtract(ratio(level2Cap, complement2).multiply(level1)));
+            this.hqla = level1.add(level2a).add(level2b).subtract(adjustment15).subtract(adjustment40);
+            this.cappedInflows = sums[INFLOW].min(sums[OUTFLOW].multiply(inflowCap));
+        }
+
+        private BigDecimal ratio(BigDecimal a, BigDecimal b) {
+            return b.signum() == 0 ? BigDecimal.ZERO : a.divide(b, MathContext.DECIMAL64);
+        }
+
+        private BigDecimal max(BigDecimal first, BigDecimal... others) {
+            BigDecimal result = first;
+            for (BigDecimal other : others) {
+                result = result.max(other);
+            }
+            return result;
+        }
+
+        public BigDecimal getSum(int component) {
+            return sums[component];
+        }
+
+        public BigDecimal getHqla() {
+            return hqla;
+        }
+
+        public BigDecimal getCappedInflows() {
+            return cappedInflows;
+        }
+
+        public BigDecimal getNetCashOutflows() {
+            return sums[OUTFLOW].subtract(cappedInflows);
+        }
+
+        // null, если чистый отток не положителен
+        public BigDecimal getLcr() {
+            BigDecimal net = getNetCashOutflows();
+            return net.signum() > 0 ? hqla.divide(net, DEFAULT_SCALE, RoundingMode.HALF_UP) : null;
+        }
+
+        // null, если требуемое стабильное фондирование равно нулю
+        public BigDecimal getNsfr() {
+            return sums[RSF].signum() > 0 ? sums[ASF].divide(sums[RSF], DEFAULT_SCALE, RoundingMode.HALF_UP) : null;
+        }
+
+        public int getMappedItemCount() {
+            return mappedItemCount;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+import com.bsuir.bankliquiditserver.model.StatementItem;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Набор определений коэффициентов, загруженный из ratio_definitions.properties и скомпилированный.
+ * Формат файла:
+ * <pre>
+ * group.CURRENT_ASSETS=CA01,CA02,CA03          # группа статей (коды или имена статей)
+ * group.TOTAL_ASSETS=@TOTAL_ASSETS_BALANCE     # @КОД - сумма поддерева статьи по parent_item_id
+ * ratio.LIQUIDITY.CURRENT_RATIO=CURRENT_ASSETS / CURRENT_LIABILITIES
+ * </pre>
+ * Идентификатор в выражении, не объявленный как группа, считается группой из одного кода статьи (или @КОД - поддерева).
+ * Все коэффициенты набора считаются за один проход по статьям отчета: сначала суммы групп, затем выражения.
+ * Объект неизменяемый, поэтому его можно разделять между потоками.
+ */
+public final class RatioDefinitionSet {
+    public static final int DEFAULT_SCALE = 4; // Точность для коэффициентов
+
+    private static final String GROUP_PREFIX = "group.";
+    private static final String RATIO_PREFIX = "ratio.";
+    private static final String SUBTREE_PREFIX = "@";
+    private static final int[] NO_GROUPS = new int[0];
+
+    private final String version;
+    private final String[] groupNames;
+    private final Map<String, Integer> groupIndex;
+    private final Map<String, int[]> groupsByItemKey; // код или имя статьи -> индексы групп
+    private final Map<String, int[]> groupsBySubtreeCode; // код статьи, чье поддерево входит в группы -> индексы групп
+    private final String[] ratioNames;
+    private final String[] ratioCategories;
+    private final RatioExpression[] expressions;
+    private final Map<String, Integer> ratioIndex;
+    private final int[][] ratiosByGroup; // Индекс группы -> коэффициенты, в выражения которых она входит
+
+    private RatioDefinitionSet(String version, List<String> groupNames, Map<String, Set<Integer>> groupsByItemKey,
+                               Map<String, Set<Integer>> groupsBySubtreeCode,
+                               List<String> ratioNames, List<String> ratioCategories, List<RatioExpression> expressions) {
+        this.version = version;
+        this.groupNames = groupNames.toArray(new String[0]);
+        this.groupIndex = new HashMap<>();
+        for (int i = 0; i < this.groupNames.length; i++) {
+            groupIndex.put(this.groupNames[i], i);
+        }
+        this.groupsByItemKey = toIndexArrays(groupsByItemKey);
+        this.groupsBySubtreeCode = toIndexArrays(groupsBySubtreeCode);
+        this.ratioNames = ratioNames.toArray(new String[0]);
+        this.ratioCategories = ratioCategories.toArray(new String[0]);
+        this.expressions = expressions.toArray(new RatioExpression[0]);
+        this.ratioIndex = new HashMap<>();
+        for (int i = 0; i < this.ratioNames.length; i++) {
+            ratioIndex.put(this.ratioNames[i], i);
+        }
+        List<List<Integer>> dependents = new ArrayList<>();
+        for (int g = 0; g < this.groupNames.length; g++) {
+            dependents.add(new ArrayList<>());
+        }
+        for (int r = 0; r < this.expressions.length; r++) {
+            for (int g : this.expressions[r].getGroupIndices()) {
+                dependents.get(g).add(r);
+            }
+        }
+        this.ratiosByGroup = new int[this.groupNames.length][];
+        for (int g = 0; g < this.groupNames.length; g++) {
+            ratiosByGroup[g] = dependents.get(g).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static RatioDefinitionSet fromProperties(Properties properties) {
+        // TreeMap - стабильный порядок групп/коэффициентов и версии независимо от порядка строк в файле
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            entries.put(key.trim(), properties.getProperty(key).trim());
+        }
+
+        List<String> groupNames = new ArrayList<>();
+        Map<String, Integer> groupIndex = new HashMap<>();
+        Map<String, Set<Integer>> groupsByItemKey = new HashMap<>();
+        Map<String, Set<Integer>> groupsBySubtreeCode = new HashMap<>();
+
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (!entry.getKey().startsWith(GROUP_PREFIX)) {
+                continue;
+            }
+            String groupName = entry.getKey().substring(GROUP_PREFIX.length());
+            int index = groupNames.size();
+            groupNames.add(groupName);
+            groupIndex.put(groupName, index);
+            for (String itemKey : entry.getValue().split(",")) {
+                if (!itemKey.trim().isEmpty()) {
+                    addMember(itemKey.trim(), index, groupsByItemKey, groupsBySubtreeCode);
+                }
+            }
+        }
+
+        List<String> ratioNames = new ArrayList<>();
+        List<String> ratioCategories = new ArrayList<>();
+        List<RatioExpression> expressions = new ArrayList<>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (!entry.getKey().startsWith(RATIO_PREFIX)) {
+                continue;
+            }
+            // ratio.<CATEGORY>.<NAME>
+            String rest = entry.getKey().substring(RATIO_PREFIX.length());
+            int dot = rest.indexOf('.');
+            if (dot <= 0 || dot == rest.length() - 1) {
+                throw new IllegalArgumentException("Ratio key must look like 'ratio.<CATEGORY>.<NAME>': " + entry.getKey());
+            }
+            String category = rest.substring(0, dot);
+            String name = rest.substring(dot + 1);
+            if (ratioNames.contains(name)) {
+                throw new IllegalArgumentException("Duplicate ratio name: " + name);
+            }
+            RatioExpression expression = RatioExpression.compile(entry.getValue(), DEFAULT_SCALE, identifier ->
+                    groupIndex.computeIfAbsent(identifier, id -> {
+                        // Неявная группа из одной статьи
+                        int index = groupNames.size();
+                        groupNames.add(id);
+                        addMember(id, index, groupsByItemKey, groupsBySubtreeCode);
+                        return index;
+                    }));
+            ratioNames.add(name);
+            ratioCategories.add(category);
+            expressions.add(expression);
+        }
+        if (ratioNames.isEmpty()) {
+            throw new IllegalArgumentException("No ratio definitions found.");
+        }
+
+        String version = entries.containsKey("version") ? entries.get("version") : checksum(entries);
+        return new RatioDefinitionSet(version, groupNames, groupsByItemKey, groupsBySubtreeCode, ratioNames, ratioCategories, expressions);
+    }
+
+    private static void addMember(String member, int groupIndex, Map<String, Set<Integer>> groupsByItemKey,
+                                  Map<String, Set<Integer>> groupsBySubtreeCode) {
+        if (member.startsWith(SUBTREE_PREFIX)) {
+            String code = member.substring(SUBTREE_PREFIX.length());
+            if (code.isEmpty()) {
+                throw new IllegalArgumentException("Item code expected after '" + SUBTREE_PREFIX + "'.");
+            }
+            groupsBySubtreeCode.computeIfAbsent(code, k -> new LinkedHashSet<>()).add(groupIndex);
+        } else {
+            groupsByItemKey.computeIfAbsent(member, k -> new LinkedHashSet<>()).add(groupIndex);
+        }
+    }
+
+    private static Map<String, int[]> toIndexArrays(Map<String, Set<Integer>> source) {
+        Map<String, int[]> result = new HashMap<>();
+        source.forEach((key, groups) -> result.put(key, groups.stream().mapToInt(Integer::intValue).sorted().toArray()));
+        return result;
+    }
+
+    private static String checksum(SortedMap<String, String> entries) {
+        CRC32 crc = new CRC32();
+        entries.forEach((k, v) -> crc.update((k + "=" + v + "\n").getBytes(StandardCharsets.UTF_8)));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Считает все коэффициенты набора за один проход по статьям.
+     */
+    public RatioValues evaluate(List<StatementItem> items) {
+        Accumulator accumulator = newAccumulator();
+        for (StatementItem item : items) {
+            accumulator.add(item.getItemCode(), item.getItemName(), item.getItemValue());
+        }
+        if (!groupsBySubtreeCode.isEmpty()) {
+            // Дерево строим, только если определения ссылаются на поддеревья
+            accumulator.addSubtrees(StatementRollup.build(items));
+        }
+        return accumulator.finish();
+    }
+
+    /**
+     * Восстанавливает результат из сохраненного снимка той же версии определений без пересчета по статьям.
+     * Отсутствующие в снимке группы считаются нулевыми, коэффициенты - неопределенными.
+     */
+    public RatioValues restore(Map<String, BigDecimal> groupSums, Map<String, BigDecimal> ratios) {
+        BigDecimal[] sums = new BigDecimal[groupNames.length];
+        for (int i = 0; i < groupNames.length; i++) {
+            BigDecimal sum = groupSums.get(groupNames[i]);
+            sums[i] = sum != null ? sum : BigDecimal.ZERO;
+        }
+        BigDecimal[] values = new BigDecimal[ratioNames.length];
+        for (int i = 0; i < ratioNames.length; i++) {
+            values[i] = ratios.get(ratioNames[i]);
+        }
+        return new RatioValues(this, sums, values);
+    }
+
+    public Accumulator newAccumulator() {
+        return new Accumulator();
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getGroupCount() {
+        return groupNames.length;
+    }
+
+    public String getGroupName(int index) {
+        return groupNames[index];
+    }
+
+    public int getGroupIndex(String groupName) {
+        Integer index = groupIndex.get(groupName);
+        return index != null ? index : -1;
+    }
+
+    public int getRatioCount() {
+        return ratioNames.length;
+    }
+
+    public String getRatioName(int index) {
+        return ratioNames[index];
+    }
+
+    public String getRatioCategory(int index) {
+        return ratioCategories[index];
+    }
+
+    public int getRatioIndex(String ratioName) {
+        Integer index = ratioIndex.get(ratioName);
+        return index != null ? index : -1;
+    }
+
+    public List<String> getRatioNames() {
+        return Collections.unmodifiableList(Arrays.asList(ratioNames));
+    }
+
+    // Группы, в которые входит статья с данным кодом или именем
+    int[] groupsOf(String itemKey) {
+        if (itemKey == null) {
+            return NO_GROUPS;
+        }
+        int[] groups = groupsByItemKey.get(itemKey);
+        return groups != null ? groups : NO_GROUPS;
+    }
+
+    // Группы с @КОД: код статьи -> индексы групп
+    Map<String, int[]> subtreeGroups() {
+        return groupsBySubtreeCode;
+    }
+
+    // Коэффициенты, которые нужно пересчитать при изменении суммы группы
+    int[] ratiosUsingGroup(int groupIndex) {
+        return ratiosByGroup[groupIndex];
+    }
+
+    BigDecimal evaluateRatio(int ratioIndex, BigDecimal[] groupSums) {
+        return expressions[ratioIndex].evaluate(groupSums);
+    }
+
+    // Быстрый расчет в double (NaN - не определен), без округления
+    double evaluateRatioDouble(int ratioIndex, double[] groupSums) {
+        return expressions[ratioIndex].evaluateDouble(groupSums);
+    }
+
+    /**
+     * Накопитель сумм групп для одного отчета. Статьи можно подавать по одной (например, прямо из ResultSet).
+     * Не потокобезопасен.
+     */
+    public final class Accumulator {
+        private final BigDecimal[] groupSums = new BigDecimal[groupNames.length];
+        // Метка "статья уже учтена в группе" - чтобы статья, попавшая в группу и по коду, и по имени, не считалась дважды
+        private final int[] touchedBy = new int[groupNames.length];
+        private int itemCounter;
+
+        private Accumulator() {
+            Arrays.fill(groupSums, BigDecimal.ZERO);
+        }
+
+        public void add(String itemCode, String itemName, BigDecimal value) {
+            if (value == null) {
+                return;
+            }
+            int stamp = ++itemCounter;
+            for (int group : groupsOf(itemCode)) {
+                touchedBy[group] = stamp;
+                groupSums[group] = groupSums[group].add(value);
+            }
+            for (int group : groupsOf(itemName)) {
+                if (touchedBy[group] != stamp) {
+                    groupSums[group] = groupSums[group].add(value);
+                }
+            }
+        }
+
+        // Суммы поддеревьев для групп с @КОД; статьи без такого кода не дают вклада
+        public void addSubtrees(StatementRollup rollup) {
+            groupsBySubtreeCode.forEach((code, groups) -> {
+                BigDecimal sum = rollup.getSubtreeSum(code);
+                if (sum != null) {
+                    for (int group : groups) {
+                        groupSums[group] = groupSums[group].add(sum);
+                    }
+                }
+            });
+        }
+
+        public RatioValues finish() {
+            BigDecimal[] sums = groupSums.clone();
+            BigDecimal[] values = new BigDecimal[expressions.length];
+            for (int i = 0; i < expressions.length; i++) {
+                values[i] = expressions[i].evaluate(sums);
+            }
+            return new RatioValues(RatioDefinitionSet.this, sums, values);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+
+/**
+ * Скомпилированное выражение коэффициента над суммами групп статей, например
+ * "(CURRENT_ASSETS - INVENTORY) / CURRENT_LIABILITIES".
+ * Грамматика: числа, имена групп (или @КОД - сумма поддерева статьи), + - * /, скобки и унарный минус.
+ * Выражение разбирается один раз при загрузке определений и превращается в дерево лямбд.
+ * Параллельно строится второе дерево над double - для массовых расчетов (стресс-тесты), где важна скорость, а не точность BigDecimal.
+ */
+public final class RatioExpression {
+
+    @FunctionalInterface
+    interface Node {
+        // null - значение не определено (деление на ноль)
+        BigDecimal eval(BigDecimal[] groupSums);
+    }
+
+    @FunctionalInterface
+    interface DoubleNode {
+        // NaN - значение не определено (деление на ноль)
+        double eval(double[] groupSums);
+    }
+
+    // Узел, разобранный сразу в обоих видах
+    private static final class Term {
+        final Node exact;
+        final DoubleNode fast;
+
+        Term(Node exact, DoubleNode fast) {
+            this.exact = exact;
+            this.fast = fast;
+        }
+    }
+
+    private final String source;
+    private final Node root;
+    private final DoubleNode fastRoot;
+    private final int[] groupIndices; // Группы, от которых зависит выражение, по возрастанию
+
+    private RatioExpression(String source, Node root, DoubleNode fastRoot, int[] groupIndices) {
+        this.source = source;
+        this.root = root;
+        this.fastRoot = fastRoot;
+        this.groupIndices = groupIndices;
+    }
+
+    /**
+     * Разбирает выражение.
+     * @param source текст выражения.
+     * @param scale точность итогового результата (как DEFAULT_SCALE в анализе).
+     * @param groupResolver возвращает индекс группы по имени идентификатора.
+     */
+    public static RatioExpression compile(String source, int scale, ToIntFunction<String> groupResolver) {
+        Parser parser = new Parser(source, scale, groupResolver);
+        Term root = parser.parseTopLevel();
+        return new RatioExpression(source, root.exact, root.fast,
+                parser.referencedGroups.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public BigDecimal evaluate(BigDecimal[] groupSums) {
+        return root.eval(groupSums);
+    }
+
+    /**
+     * То же выражение в double без округления до scale; не создает объектов.
+     * @return значение или NaN, если оно не определено.
+     */
+    public double evaluateDouble(double[] groupSums) {
+        return fastRoot.eval(groupSums);
+    }
+
+    // Индексы групп, входящих в выражение (копия)
+    public int[] getGroupIndices() {
+        return groupIndices.clone();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    // Отдельный класс (а не лямбда), чтобы на верхнем уровне можно было узнать деление
+    private static final class Division implements Node {
+        private final Node numerator;
+        private final Node denominator;
+
+        Division(Node numerator, Node denominator) {
+            this.numerator = numerator;
+            this.denominator = denominator;
+        }
+
+        @Override
+        public BigDecimal eval(BigDecimal[] groupSums) {
+            BigDecimal a = numerator.eval(groupSums), b = denominator.eval(groupSums);
+            if (a == null || b == null || b.signum() == 0) {
+                return null;
+            }
+            return a.divide(b, MathContext.DECIMAL64);
+        }
+    }
+
+    private static final class Parser {
+        private final String text;
+        private final int scale;
+        private final ToIntFunction<String> groupResolver;
+        private final TreeSet<Integer> referencedGroups = new TreeSet<>();
+        private int pos;
+
+        Parser(String text, int scale, ToIntFunction<String> groupResolver) {
+            this.text = text;
+            this.scale = scale;
+            this.groupResolver = groupResolver;
+        }
+
+        Term parseTopLevel() {
+            Term term = parseExpression();
+            Node node = term.exact;
+            skipSpaces();
+            if (pos < text.length()) {
+                throw error("Unexpected character '" + text.charAt(pos) + "'");
+            }
+            // Итоговое деление числитель/знаменатель считаем сразу с нужной точностью (HALF_UP),
+            // чтобы результат совпадал с прежним divide(x, DEFAULT_SCALE, HALF_UP) без двойного округления
+            if (node instanceof Division) {
+                Division division = (Division) node;
+                return new Term(sums -> {
+                    BigDecimal a = division.numerator.eval(sums), b = division.denominator.eval(sums);
+                    if (a == null || b == null || b.signum() == 0) {
+                        return null;
+                    }
+                    return a.divide(b, scale, RoundingMode.HALF_UP);
+                }, term.fast);
+            }
+            Node unscaled = node;
+            return new Term(sums -> {
+                BigDecimal value = unscaled.eval(sums);
+                return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
+            }, term.fast);
+        }
+
+        private Term parseExpression() {
+            Term left = parseTerm();
+            while (true) {
+                skipSpaces();
+                if (match('+')) {
+                    left = combine(left, parseTerm(), '+');
+                } else if (match('-')) {
+                    left = combine(left, parseTerm(), '-');
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Term parseTerm() {
+            Term left = parseFactor();
+            while (true) {
+                skipSpaces();
+                if (match('*')) {
+                    left = combine(left, parseFactor(), '*');
+                } else if (match('/')) {
+                    left = combine(left, parseFactor(), '/');
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Term combine(Term left, Term right, char operator) {
+            Node l = left.exact, r = right.exact;
+            DoubleNode fl = left.fast, fr = right.fast;
+            switch (operator) {
+                case '+':
+                    return new Term(sums -> {
+                        BigDecimal a = l.eval(sums), b = r.eval(sums);
+                        return a == null || b == null ? null : a.add(b);
+                    }, sums -> fl.eval(sums) + fr.eval(sums));
+                case '-':
+                    return new Term(sums -> {
+                        BigDecimal a = l.eval(sums), b = r.eval(sums);
+                        return a == null || b == null ? null : a.subtract(b);
+                    }, sums -> fl.eval(sums) - fr.eval(sums));
+                case '*':
+                    return new Term(sums -> {
+                        BigDecimal a = l.eval(sums), b = r.eval(sums);
+                        return a == null || b == null ? null : a.multiply(b);
+                    }, sums -> fl.eval(sums) * fr.eval(sums));
+                default:
+                    return new Term(new Division(l, r), sums -> {
+                        double b = fr.eval(sums);
+                        return b == 0.0 ? Double.NaN : fl.eval(sums) / b; // NaN в числителе/знаменателе сохраняется
+                    });
+            }
+        }
+
+        private Term parseFactor() {
+            skipSpaces();
+            if (match('(')) {
+                Term inner = parseExpression();
+                skipSpaces();
+                if (!match(')')) {
+                    throw error("Expected ')'");
+                }
+                return inner;
+            }
+            if (match('-')) {
+                Term inner = parseFactor();
+                Node exact = inner.exact;
+                DoubleNode fast = inner.fast;
+                return new Term(sums -> {
+                    BigDecimal v = exact.eval(sums);
+                    return v == null ? null : v.negate();
+                }, sums -> -fast.eval(sums));
+            }
+            int start = pos;
+            if (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                    pos++;
+                }
+                BigDecimal constant = new BigDecimal(text.substring(start, pos));
+                double fastConstant = constant.doubleValue();
+                return new Term(sums -> constant, sums -> fastConstant);
+            }
+            match('@'); // @КОД - ссылка на поддерево статьи, разбирается в RatioDefinitionSet
+            while (pos < text.length() && isIdentifierChar(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos || (text.charAt(start) == '@' && pos == start + 1)) {
+                throw error(pos < text.length() ? "Unexpected character '" + text.charAt(pos) + "'" : "Unexpected end of expression");
+            }
+            int groupIndex = groupResolver.applyAsInt(text.substring(start, pos));
+            referencedGroups.add(groupIndex);
+            return new Term(sums -> sums[groupIndex], sums -> sums[groupIndex]);
+        }
+
+        private boolean isIdentifierChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        private boolean match(char c) {
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in expression '" + text + "'");
+        }
+    }
+}
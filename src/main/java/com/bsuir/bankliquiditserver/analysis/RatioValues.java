@@ -0,0 +1,75 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Результат расчета набора коэффициентов по одному отчету: значения коэффициентов и суммы групп статей.
+ * Значение коэффициента null, если он не может быть рассчитан (например, знаменатель равен нулю).
+ */
+public final class RatioValues {
+    private final RatioDefinitionSet definitions;
+    private final BigDecimal[] groupSums;
+    private final BigDecimal[] values;
+
+    RatioValues(RatioDefinitionSet definitions, BigDecimal[] groupSums, BigDecimal[] values) {
+        this.definitions = definitions;
+        this.groupSums = groupSums;
+        this.values = values;
+    }
+
+    public BigDecimal get(String ratioName) {
+        int index = definitions.getRatioIndex(ratioName);
+        return index >= 0 ? values[index] : null;
+    }
+
+    public BigDecimal getGroupSum(String groupName) {
+        int index = definitions.getGroupIndex(groupName);
+        return index >= 0 ? groupSums[index] : BigDecimal.ZERO;
+    }
+
+    // Коэффициенты одной категории (LIQUIDITY, SOLVENCY, ...) в порядке определений
+    public Map<String, BigDecimal> byCategory(String category) {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if (category.equals(definitions.getRatioCategory(i))) {
+                result.put(definitions.getRatioName(i), values[i]);
+            }
+        }
+        return result;
+    }
+
+    public Map<String, BigDecimal> asMap() {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            result.put(definitions.getRatioName(i), values[i]);
+        }
+        return result;
+    }
+
+    // Суммы всех групп по именам (для сохранения снимка)
+    public Map<String, BigDecimal> groupSumsAsMap() {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int i = 0; i < groupSums.length; i++) {
+            result.put(definitions.getGroupName(i), groupSums[i]);
+        }
+        return result;
+    }
+
+    BigDecimal valueAt(int ratioIndex) {
+        return values[ratioIndex];
+    }
+
+    BigDecimal groupSumAt(int groupIndex) {
+        return groupSums[groupIndex];
+    }
+
+    public RatioDefinitionSet getDefinitions() {
+        return definitions;
+    }
+
+    public String getDefinitionsVersion() {
+        return definitions.getVersion();
+    }
+}
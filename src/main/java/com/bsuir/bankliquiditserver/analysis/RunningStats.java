@@ -0,0 +1,50 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+/**
+ * Среднее и дисперсия потока значений без хранения самих значений (алгоритм Уэлфорда):
+ * count, mean и m2 (сумма квадратов отклонений от среднего) обновляются за O(1) на значение.
+ * С накопленной в item_value_stats статистикой новые значения объединяет UPSERT ItemValueStatsDao (формула Чана) -
+ * атомарно в БД, без чтения и перезаписи при одновременных загрузках.
+ * Не потокобезопасен.
+ */
+public final class RunningStats {
+    private long count;
+    private double mean;
+    private double m2;
+
+    public RunningStats() {}
+
+    public RunningStats(long count, double mean, double m2) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getM2() {
+        return m2;
+    }
+
+    // Выборочная дисперсия; 0, если значений меньше двух
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0.0;
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+}
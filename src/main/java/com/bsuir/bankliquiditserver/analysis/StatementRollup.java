@@ -0,0 +1,203 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+import com.bsuir.bankliquiditserver.model.StatementItem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Дерево статей отчета по parent_item_id и суммы поддеревьев.
+ * Строится за O(n): индексы родителей в int[], списки детей в виде одного массива (как CSR), обход в ширину от корней,
+ * затем подсчет снизу вверх в обратном порядке обхода. Суммы хранятся в копейках (long), item_value - DECIMAL(18, 2).
+ * <p>
+ * Сумма поддерева статьи - сумма ее листьев, т.е. итоговые статьи не обязательно присылать заранее рассчитанными.
+ * Итог без значения или с нулем считается не присланным (рассчитывается). Если итог прислан и не равен сумме
+ * значений непосредственных детей (для рассчитываемых детей - их суммы), статья отмечается как несогласованная.
+ */
+public final class StatementRollup {
+    private static final int SCALE = 2; // Точность item_value
+
+    public enum IssueType {
+        TOTAL_MISMATCH, // Заявленное (ненулевое) значение родителя не равно сумме значений детей
+        UNKNOWN_PARENT, // parent_item_id ссылается на статью не из этого отчета
+        CYCLE // Статья входит в цикл по parent_item_id
+    }
+
+    // Найденная несогласованность
+    public static final class Issue {
+        private final IssueType type;
+        private final StatementItem item;
+        private final BigDecimal declaredValue;
+        private final BigDecimal childrenSum; // null для UNKNOWN_PARENT/CYCLE
+
+        Issue(IssueType type, StatementItem item, BigDecimal declaredValue, BigDecimal childrenSum) {
+            this.type = type;
+            this.item = item;
+            this.declaredValue = declaredValue;
+            this.childrenSum = childrenSum;
+        }
+
+        public IssueType getType() { return type; }
+        public StatementItem getItem() { return item; }
+        public BigDecimal getDeclaredValue() { return declaredValue; }
+        public BigDecimal getChildrenSum() { return childrenSum; }
+    }
+
+    private final List<StatementItem> items;
+    private final int[] parent; // Индекс родителя или -1 для корня
+    private final long[] subtreeCents; // Сумма листьев поддерева
+    private final int rootCount;
+    private final Map<String, Integer> indexByCode;
+    private final List<Issue> issues;
+
+    private StatementRollup(List<StatementItem> items, int[] parent, long[] subtreeCents, int rootCount,
+                            Map<String, Integer> indexByCode, List<Issue> issues) {
+        this.items = items;
+        this.parent = parent;
+        this.subtreeCents = subtreeCents;
+        this.rootCount = rootCount;
+        this.indexByCode = indexByCode;
+        this.issues = issues;
+    }
+
+    public static StatementRollup build(List<StatementItem> items) {
+        int n = items.size();
+        List<Issue> issues = new ArrayList<>();
+        Map<Integer, Integer> indexById = new HashMap<>(n * 2);
+        Map<String, Integer> indexByCode = new HashMap<>(n * 2);
+        long[] own = new long[n];
+        for (int i = 0; i < n; i++) {
+            StatementItem item = items.get(i);
+            indexById.put(item.getId(), i);
+            if (item.getItemCode() != null) {
+                indexByCode.putIfAbsent(item.getItemCode(), i);
+            }
+            own[i] = toCents(item.getItemValue());
+        }
+
+        // Родители и число детей
+        int[] parent = new int[n];
+        int[] childStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Integer parentId = items.get(i).getParentItemId();
+            Integer p = parentId != null ? indexById.get(parentId) : null;
+            if (parentId != null && (p == null || p == i)) {
+                issues.add(new Issue(IssueType.UNKNOWN_PARENT, items.get(i), toDecimal(own[i]), null));
+            }
+            parent[i] = p != null && p != i ? p : -1;
+            if (parent[i] >= 0) {
+                childStart[parent[i] + 1]++;
+            }
+        }
+        // Дети всех узлов подряд в одном массиве: дети узла p - children[childStart[p] .. childStart[p + 1])
+        for (int i = 0; i < n; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        int[] children = new int[n];
+        int[] fill = new int[n];
+        for (int i = 0; i < n; i++) {
+            int p = parent[i];
+            if (p >= 0) {
+                children[childStart[p] + fill[p]++] = i;
+            }
+        }
+
+        // Обход в ширину от корней; каждый узел попадает в order не более одного раза
+        int[] order = new int[n];
+        int tail = 0, rootCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (parent[i] < 0) {
+                order[tail++] = i;
+                rootCount++;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = order[head];
+            for (int c = childStart[node]; c < childStart[node + 1]; c++) {
+                order[tail++] = children[c];
+            }
+        }
+
+        // Снизу вверх: дети обработаны раньше родителей
+        long[] subtree = new long[n];
+        long[] declaredChildren = new long[n];
+        long[] computedChildren = new long[n];
+        for (int k = tail - 1; k >= 0; k--) {
+            int node = order[k];
+            boolean leaf = childStart[node] == childStart[node + 1];
+            if (leaf) {
+                subtree[node] = own[node];
+            } else {
+                subtree[node] = computedChildren[node];
+                if (own[node] != 0 && declaredChildren[node] != own[node]) {
+                    issues.add(new Issue(IssueType.TOTAL_MISMATCH, items.get(node), toDecimal(own[node]), toDecimal(declaredChildren[node])));
+                }
+            }
+            int p = parent[node];
+            if (p >= 0) {
+                // Итог без значения (0) родитель проверяет по рассчитанной сумме
+                long value = !leaf && own[node] == 0 ? subtree[node] : own[node];
+                declaredChildren[p] = Math.addExact(declaredChildren[p], value);
+                computedChildren[p] = Math.addExact(computedChildren[p], subtree[node]);
+            }
+        }
+
+        // Не достижимые от корней узлы лежат на циклах (или под ними): суммы не сворачиваем
+        if (tail < n) {
+            boolean[] reached = new boolean[n];
+            for (int k = 0; k < tail; k++) {
+                reached[order[k]] = true;
+            }
+            for (int i = 0; i < n; i++) {
+                if (!reached[i]) {
+                    subtree[i] = own[i];
+                    issues.add(new Issue(IssueType.CYCLE, items.get(i), toDecimal(own[i]), null));
+                }
+            }
+        }
+        return new StatementRollup(items, parent, subtree, rootCount, indexByCode, issues);
+    }
+
+    // Сумма поддерева статьи с данным кодом (O(1)); null, если такой статьи нет
+    public BigDecimal getSubtreeSum(String itemCode) {
+        Integer index = indexByCode.get(itemCode);
+        return index != null ? toDecimal(subtreeCents[index]) : null;
+    }
+
+    public BigDecimal getSubtreeSumAt(int index) {
+        return toDecimal(subtreeCents[index]);
+    }
+
+    public int getParentIndex(int index) {
+        return parent[index];
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public int getRootCount() {
+        return rootCount;
+    }
+
+    public boolean isConsistent() {
+        return issues.isEmpty();
+    }
+
+    public List<Issue> getIssues() {
+        return Collections.unmodifiableList(issues);
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value == null ? 0L : value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
@@ -0,0 +1,144 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Набор сценариев стресс-теста. Сценарий - список шоков "статья -> изменение в процентах":
+ * <pre>
+ * CL01      -20   # только статья с кодом CL01 (отток депозитов 20%)
+ * @SEC_ALL  -15   # статья SEC_ALL и все ее потомки по parent_item_id (дисконт по активам)
+ * </pre>
+ * Шоки одного сценария на одну статью перемножаются. Хранится в плоских массивах (шоки сценария s -
+ * [shockStart[s], shockStart[s + 1])), чтобы перебор сценариев не создавал объектов. Неизменяемый.
+ */
+public final class StressScenarioSet {
+    private static final String SUBTREE_PREFIX = "@";
+
+    private final String[] names;
+    private final String[] targets; // Различные цели шоков ("КОД" или "@КОД")
+    private final int[] shockStart;
+    private final int[] shockTarget; // Индекс цели в targets
+    private final double[] shockFactor; // 1 + процент / 100
+
+    private StressScenarioSet(String[] names, String[] targets, int[] shockStart, int[] shockTarget, double[] shockFactor) {
+        this.names = names;
+        this.targets = targets;
+        this.shockStart = shockStart;
+        this.shockTarget = shockTarget;
+        this.shockFactor = shockFactor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int scenario) {
+        return names[scenario];
+    }
+
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    public String getTarget(int targetIndex) {
+        return targets[targetIndex];
+    }
+
+    public List<String> getTargets() {
+        return Collections.unmodifiableList(Arrays.asList(targets));
+    }
+
+    static boolean isSubtreeTarget(String target) {
+        return target.startsWith(SUBTREE_PREFIX);
+    }
+
+    static String targetCode(String target) {
+        return isSubtreeTarget(target) ? target.substring(SUBTREE_PREFIX.length()) : target;
+    }
+
+    int shockStart(int scenario) {
+        return shockStart[scenario];
+    }
+
+    int shockEnd(int scenario) {
+        return shockStart[scenario + 1];
+    }
+
+    int shockTarget(int shock) {
+        return shockTarget[shock];
+    }
+
+    double shockFactor(int shock) {
+        return shockFactor[shock];
+    }
+
+    /**
+     * Собирает набор сценариев. Не потокобезопасен.
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<String> targets = new ArrayList<>();
+        private final Map<String, Integer> targetIndex = new HashMap<>();
+        private int[] shockStart = new int[16];
+        private int[] shockTarget = new int[16];
+        private double[] shockFactor = new double[16];
+        private int shockCount;
+
+        private Builder() {}
+
+        public Builder startScenario(String name) {
+            if (names.size() + 1 >= shockStart.length) {
+                shockStart = Arrays.copyOf(shockStart, shockStart.length * 2);
+            }
+            names.add(name);
+            shockStart[names.size() - 1] = shockCount;
+            return this;
+        }
+
+        // Шок текущего (последнего начатого) сценария
+        public Builder addShock(String target, double percent) {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("startScenario must be called before addShock.");
+            }
+            String trimmed = target != null ? target.trim() : "";
+            if (trimmed.isEmpty() || targetCode(trimmed).isEmpty()) {
+                throw new IllegalArgumentException("Shock target must be an item code or @item code.");
+            }
+            if (!(percent >= -100.0) || Double.isInfinite(percent)) { // Шок сильнее -100% сменил бы знак статьи
+                throw new IllegalArgumentException("Shock percent must be a number not less than -100: " + percent + " for " + trimmed);
+            }
+            if (shockCount == shockTarget.length) {
+                shockTarget = Arrays.copyOf(shockTarget, shockCount * 2);
+                shockFactor = Arrays.copyOf(shockFactor, shockCount * 2);
+            }
+            shockTarget[shockCount] = targetIndex.computeIfAbsent(trimmed, t -> {
+                targets.add(t);
+                return targets.size() - 1;
+            });
+            shockFactor[shockCount] = 1.0 + percent / 100.0;
+            shockCount++;
+            return this;
+        }
+
+        public int scenarioCount() {
+            return names.size();
+        }
+
+        public StressScenarioSet build() {
+            int count = names.size();
+            int[] starts = Arrays.copyOf(shockStart, count + 1);
+            starts[count] = shockCount;
+            return new StressScenarioSet(names.toArray(new String[0]), targets.toArray(new String[0]), starts,
+                    Arrays.copyOf(shockTarget, shockCount), Arrays.copyOf(shockFactor, shockCount));
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+import com.bsuir.bankliquiditserver.model.StatementItem;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Копия отчета в примитивных массивах для стресс-теста, подготовленная под набор определений и набор сценариев.
+ * Статьи переупорядочены обходом в глубину от корней, поэтому поддерево любой статьи - непрерывный отрезок массива,
+ * и шок на @КОД - один цикл по отрезку. Для каждой группы заранее известны позиции статей, из которых она складывается
+ * (для @КОД - листья поддерева, как в StatementRollup). Расчет сценария - умножение значений на множители шоков,
+ * суммы групп и выражения в double; объекты не создаются. Неизменяемый; для расчета из нескольких потоков
+ * каждый поток вызывает evaluate со своим диапазоном сценариев.
+ */
+public final class StressStatement {
+    private final RatioDefinitionSet definitions;
+    private final double[] values; // Значения статей в порядке обхода в глубину
+    private final int[] groupStart; // Позиции статей группы g - groupItems[groupStart[g] .. groupStart[g + 1])
+    private final int[] groupItems;
+    private final int[] targetFrom; // Отрезок статей цели шока; -1, если такой статьи в отчете нет
+    private final int[] targetTo;
+
+    private StressStatement(RatioDefinitionSet definitions, double[] values, int[] groupStart, int[] groupItems,
+                            int[] targetFrom, int[] targetTo) {
+        this.definitions = definitions;
+        this.values = values;
+        this.groupStart = groupStart;
+        this.groupItems = groupItems;
+        this.targetFrom = targetFrom;
+        this.targetTo = targetTo;
+    }
+
+    public static StressStatement compile(List<StatementItem> items, RatioDefinitionSet definitions,
+                                          StressScenarioSet scenarios) {
+        int n = items.size();
+        Map<Integer, Integer> indexById = new HashMap<>(n * 2);
+        Map<String, Integer> indexByCode = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            StatementItem item = items.get(i);
+            indexById.put(item.getId(), i);
+            if (item.getItemCode() != null) {
+                indexByCode.putIfAbsent(item.getItemCode(), i);
+            }
+        }
+
+        // Родители и дети в виде CSR, как в StatementRollup
+        int[] parent = new int[n];
+        int[] childStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Integer parentId = items.get(i).getParentItemId();
+            Integer p = parentId != null ? indexById.get(parentId) : null;
+            parent[i] = p != null && p != i ? p : -1;
+            if (parent[i] >= 0) {
+                childStart[parent[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        int[] children = new int[n];
+        int[] fill = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (parent[i] >= 0) {
+                children[childStart[parent[i]] + fill[parent[i]]++] = i;
+            }
+        }
+
+        // Обход в глубину (прямой порядок) без рекурсии
+        int[] order = new int[n];
+        int[] position = new int[n];
+        int[] subtreeSize = new int[n];
+        boolean[] leaf = new boolean[n]; // По позиции
+        Arrays.fill(position, -1);
+        int[] stack = new int[n];
+        int visited = 0;
+        for (int root = 0; root < n; root++) {
+            if (parent[root] >= 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int node = stack[--top];
+                position[node] = visited;
+                order[visited++] = node;
+                // Детей кладем в обратном порядке, чтобы обходить их в исходном
+                for (int c = childStart[node + 1] - 1; c >= childStart[node]; c--) {
+                    stack[top++] = children[c];
+                }
+            }
+        }
+        for (int k = visited - 1; k >= 0; k--) {
+            int node = order[k];
+            subtreeSize[node] += 1;
+            leaf[k] = childStart[node] == childStart[node + 1];
+            if (parent[node] >= 0) {
+                subtreeSize[parent[node]] += subtreeSize[node];
+            }
+        }
+        // Статьи на циклах недостижимы от корней: как в StatementRollup, каждая считается отдельным листом
+        for (int i = 0; i < n; i++) {
+            if (position[i] < 0) {
+                position[i] = visited;
+                order[visited] = i;
+                subtreeSize[i] = 1;
+                leaf[visited++] = true;
+            }
+        }
+
+        double[] values = new double[n];
+        for (int k = 0; k < n; k++) {
+            BigDecimal value = items.get(order[k]).getItemValue();
+            values[k] = value != null ? value.doubleValue() : 0.0;
+        }
+
+        // Пары (группа, позиция статьи) -> CSR по группам
+        int groupCount = definitions.getGroupCount();
+        IntPairs pairs = new IntPairs(n * 2);
+        int[] touchedBy = new int[groupCount];
+        Arrays.fill(touchedBy, -1);
+        for (int k = 0; k < n; k++) {
+            StatementItem item = items.get(order[k]);
+            if (item.getItemValue() == null) {
+                continue;
+            }
+            // Статья, попавшая в группу и по коду, и по имени, учитывается один раз (как в Accumulator)
+            for (int group : definitions.groupsOf(item.getItemCode())) {
+                touchedBy[group] = k;
+                pairs.add(group, k);
+            }
+            for (int group : definitions.groupsOf(item.getItemName())) {
+                if (touchedBy[group] != k) {
+                    pairs.add(group, k);
+                }
+            }
+        }
+        definitions.subtreeGroups().forEach((code, groups) -> {
+            Integer index = indexByCode.get(code);
+            if (index == null) {
+                return;
+            }
+            int from = position[index], to = from + subtreeSize[index];
+            for (int group : groups) {
+                for (int k = from; k < to; k++) {
+                    if (leaf[k]) {
+                        pairs.add(group, k);
+                    }
+                }
+            }
+        });
+        int[] groupStart = new int[groupCount + 1];
+        for (int p = 0; p < pairs.size; p++) {
+            groupStart[pairs.first[p] + 1]++;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            groupStart[g + 1] += groupStart[g];
+        }
+        int[] groupItems = new int[pairs.size];
+        int[] groupFill = new int[groupCount];
+        for (int p = 0; p < pairs.size; p++) {
+            int group = pairs.first[p];
+            groupItems[groupStart[group] + groupFill[group]++] = pairs.second[p];
+        }
+
+        int targetCount = scenarios.getTargetCount();
+        int[] targetFrom = new int[targetCount];
+        int[] targetTo = new int[targetCount];
+        for (int t = 0; t < targetCount; t++) {
+            String target = scenarios.getTarget(t);
+            Integer index = indexByCode.get(StressScenarioSet.targetCode(target));
+            if (index == null) {
+                targetFrom[t] = -1;
+                continue;
+            }
+            targetFrom[t] = position[index];
+            targetTo[t] = position[index] + (StressScenarioSet.isSubtreeTarget(target) ? subtreeSize[index] : 1);
+        }
+        return new StressStatement(definitions, values, groupStart, groupItems, targetFrom, targetTo);
+    }
+
+    // Есть ли в отчете статья - цель шока
+    public boolean hasTarget(int targetIndex) {
+        return targetFrom[targetIndex] >= 0;
+    }
+
+    /**
+     * Считает все коэффициенты для сценариев [fromScenario, toScenario).
+     * Значение коэффициента r по сценарию s записывается в out[r][offset + s]; NaN - не определено.
+     */
+    public void evaluate(StressScenarioSet scenarios, int fromScenario, int toScenario, double[][] out, int offset) {
+        int ratioCount = definitions.getRatioCount();
+        int groupCount = groupStart.length - 1;
+        double[] factors = new double[values.length];
+        double[] sums = new double[groupCount];
+        for (int s = fromScenario; s < toScenario; s++) {
+            Arrays.fill(factors, 1.0);
+            for (int shock = scenarios.shockStart(s), end = scenarios.shockEnd(s); shock < end; shock++) {
+                int target = scenarios.shockTarget(shock);
+                int from = targetFrom[target];
+                if (from < 0) {
+                    continue;
+                }
+                double factor = scenarios.shockFactor(shock);
+                for (int k = from, to = targetTo[target]; k < to; k++) {
+                    factors[k] *= factor;
+                }
+            }
+            for (int g = 0; g < groupCount; g++) {
+                double sum = 0.0;
+                for (int c = groupStart[g], end = groupStart[g + 1]; c < end; c++) {
+                    int k = groupItems[c];
+                    sum += values[k] * factors[k];
+                }
+                sums[g] = sum;
+            }
+            for (int r = 0; r < ratioCount; r++) {
+                out[r][offset + s] = definitions.evaluateRatioDouble(r, sums);
+            }
+        }
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    // Растущий список пар int без упаковки
+    private static final class IntPairs {
+        int[] first;
+        int[] second;
+        int size;
+
+        IntPairs(int capacity) {
+            first = new int[Math.max(capacity, 8)];
+            second = new int[first.length];
+        }
+
+        void add(int a, int b) {
+            if (size == first.length) {
+                first = Arrays.copyOf(first, size * 2);
+                second = Arrays.copyOf(second, size * 2);
+            }
+            first[size] = a;
+            second[size++] = b;
+        }
+    }
+}
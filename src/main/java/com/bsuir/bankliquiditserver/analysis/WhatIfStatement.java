@@ -0,0 +1,260 @@
+package com.bsuir.bankliquiditserver.analysis;
+
+import com.bsuir.bankliquiditserver.model.StatementItem;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Подготовленная копия отчета для расчетов "что если": исходные суммы групп и коэффициенты посчитаны один раз,
+ * а для каждой статьи заранее известно, в суммы каких групп входит ее значение - по коду и имени, как в Accumulator,
+ * и через @КОД предков, если статья - лист дерева (как в StatementRollup). Изменение статьи на delta меняет
+ * только эти группы, пересчитываются только коэффициенты, зависящие от измененных групп; остальные берутся из исходного расчета.
+ * Неизменяемый, поэтому один экземпляр можно использовать из нескольких потоков.
+ */
+public final class WhatIfStatement {
+    private final RatioDefinitionSet definitions;
+    private final BigDecimal[] values; // Исходные значения статей (null - значения нет)
+    private final Map<String, Integer> indexByCode;
+    private final int[] contributionStart; // Группы статьи i - contributionGroups[contributionStart[i] .. contributionStart[i + 1])
+    private final int[] contributionGroups; // Группа повторяется, если статья входит в нее несколькими путями
+    private final RatioValues base;
+
+    private WhatIfStatement(RatioDefinitionSet definitions, BigDecimal[] values, Map<String, Integer> indexByCode,
+                            int[] contributionStart, int[] contributionGroups, RatioValues base) {
+        this.definitions = definitions;
+        this.values = values;
+        this.indexByCode = indexByCode;
+        this.contributionStart = contributionStart;
+        this.contributionGroups = contributionGroups;
+        this.base = base;
+    }
+
+    public static WhatIfStatement compile(List<StatementItem> items, RatioDefinitionSet definitions) {
+        int n = items.size();
+        BigDecimal[] values = new BigDecimal[n];
+        Map<Integer, Integer> indexById = new HashMap<>(n * 2);
+        Map<String, Integer> indexByCode = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            StatementItem item = items.get(i);
+            values[i] = item.getItemValue();
+            indexById.put(item.getId(), i);
+            if (item.getItemCode() != null) {
+                indexByCode.putIfAbsent(item.getItemCode(), i);
+            }
+        }
+
+        // Родители; листья и достижимость от корней - как в StatementRollup (узлы на циклах - отдельные листья без предков)
+        int[] parent = new int[n];
+        int[] childCount = new int[n];
+        for (int i = 0; i < n; i++) {
+            Integer parentId = items.get(i).getParentItemId();
+            Integer p = parentId != null ? indexById.get(parentId) : null;
+            parent[i] = p != null && p != i ? p : -1;
+            if (parent[i] >= 0) {
+                childCount[parent[i]]++;
+            }
+        }
+        boolean[] onCycle = findUnreachable(parent, n);
+
+        // Код статьи, поддерево которой входит в группы: индекс статьи -> группы
+        int[][] subtreeGroupsAt = new int[n][];
+        definitions.subtreeGroups().forEach((code, groups) -> {
+            Integer index = indexByCode.get(code);
+            if (index != null) {
+                subtreeGroupsAt[index] = groups;
+            }
+        });
+
+        int[] contributionStart = new int[n + 1];
+        int[] contributionGroups = new int[Math.max(n, 8)];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            StatementItem item = items.get(i);
+            int[] byCode = definitions.groupsOf(item.getItemCode());
+            for (int group : byCode) {
+                contributionGroups = append(contributionGroups, size++, group);
+            }
+            for (int group : definitions.groupsOf(item.getItemName())) {
+                if (!contains(byCode, group)) {
+                    contributionGroups = append(contributionGroups, size++, group);
+                }
+            }
+            // В сумму поддерева входят только листья: их значения - во всех группах @КОД по цепочке предков
+            if (onCycle[i]) {
+                if (subtreeGroupsAt[i] != null) {
+                    for (int group : subtreeGroupsAt[i]) {
+                        contributionGroups = append(contributionGroups, size++, group);
+                    }
+                }
+            } else if (childCount[i] == 0) {
+                for (int node = i; node >= 0; node = parent[node]) {
+                    if (subtreeGroupsAt[node] != null) {
+                        for (int group : subtreeGroupsAt[node]) {
+                            contributionGroups = append(contributionGroups, size++, group);
+                        }
+                    }
+                }
+            }
+            contributionStart[i + 1] = size;
+        }
+        return new WhatIfStatement(definitions, values, indexByCode, contributionStart,
+                Arrays.copyOf(contributionGroups, size), definitions.evaluate(items));
+    }
+
+    // Узлы, не достижимые от корней (лежат на циклах по parent_item_id или под ними)
+    private static boolean[] findUnreachable(int[] parent, int n) {
+        int[] childStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (parent[i] >= 0) {
+                childStart[parent[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        int[] children = new int[n];
+        int[] fill = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (parent[i] >= 0) {
+                children[childStart[parent[i]] + fill[parent[i]]++] = i;
+            }
+        }
+        boolean[] unreachable = new boolean[n];
+        Arrays.fill(unreachable, true);
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (parent[i] < 0) {
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            unreachable[node] = false;
+            for (int c = childStart[node]; c < childStart[node + 1]; c++) {
+                queue[tail++] = children[c];
+            }
+        }
+        return unreachable;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        int[] target = index < array.length ? array : Arrays.copyOf(array, array.length * 2);
+        target[index] = value;
+        return target;
+    }
+
+    private static boolean contains(int[] array, int value) {
+        for (int element : array) {
+            if (element == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasItem(String itemCode) {
+        return itemCode != null && indexByCode.containsKey(itemCode);
+    }
+
+    // Исходное значение статьи с данным кодом (0, если значения нет); null, если статьи нет
+    public BigDecimal getValue(String itemCode) {
+        Integer index = itemCode != null ? indexByCode.get(itemCode) : null;
+        if (index == null) {
+            return null;
+        }
+        return values[index] != null ? values[index] : BigDecimal.ZERO;
+    }
+
+    // Результат без изменений
+    public RatioValues getBase() {
+        return base;
+    }
+
+    public RatioDefinitionSet getDefinitions() {
+        return definitions;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Пересчет с новыми значениями статей (код -> новое значение). Исходная копия не меняется.
+     * @throws IllegalArgumentException если статьи с таким кодом в отчете нет.
+     */
+    public Result apply(Map<String, BigDecimal> newValues) {
+        BigDecimal[] sums = null;
+        boolean[] touched = null;
+        for (Map.Entry<String, BigDecimal> change : newValues.entrySet()) {
+            Integer index = indexByCode.get(change.getKey());
+            if (index == null) {
+                throw new IllegalArgumentException("Item not found in statement: " + change.getKey());
+            }
+            BigDecimal original = values[index] != null ? values[index] : BigDecimal.ZERO;
+            BigDecimal delta = change.getValue().subtract(original);
+            if (delta.signum() == 0) {
+                continue;
+            }
+            if (sums == null) {
+                sums = new BigDecimal[definitions.getGroupCount()];
+                touched = new boolean[sums.length];
+                for (int g = 0; g < sums.length; g++) {
+                    sums[g] = base.groupSumAt(g);
+                }
+            }
+            for (int c = contributionStart[index], end = contributionStart[index + 1]; c < end; c++) {
+                int group = contributionGroups[c];
+                sums[group] = sums[group].add(delta);
+                touched[group] = true;
+            }
+        }
+        if (sums == null) {
+            return new Result(base, 0, 0);
+        }
+
+        int ratioCount = definitions.getRatioCount();
+        BigDecimal[] ratios = new BigDecimal[ratioCount];
+        boolean[] stale = new boolean[ratioCount];
+        int touchedGroups = 0;
+        for (int g = 0; g < touched.length; g++) {
+            if (touched[g]) {
+                touchedGroups++;
+                for (int r : definitions.ratiosUsingGroup(g)) {
+                    stale[r] = true;
+                }
+            }
+        }
+        int recomputed = 0;
+        for (int r = 0; r < ratioCount; r++) {
+            if (stale[r]) {
+                ratios[r] = definitions.evaluateRatio(r, sums);
+                recomputed++;
+            } else {
+                ratios[r] = base.valueAt(r);
+            }
+        }
+        return new Result(new RatioValues(definitions, sums, ratios), touchedGroups, recomputed);
+    }
+
+    // Результат пересчета и его объем
+    public static final class Result {
+        private final RatioValues values;
+        private final int touchedGroupCount;
+        private final int recomputedRatioCount;
+
+        Result(RatioValues values, int touchedGroupCount, int recomputedRatioCount) {
+            this.values = values;
+            this.touchedGroupCount = touchedGroupCount;
+            this.recomputedRatioCount = recomputedRatioCount;
+        }
+
+        public RatioValues getValues() { return values; }
+        public int getTouchedGroupCount() { return touchedGroupCount; }
+        public int getRecomputedRatioCount() { return recomputedRatioCount; }
+    }
+}
@@ -41,6 +41,10 @@ public class ConfigurationManager {
         return properties.getProperty(key);
     }
 
+    public String getProperty(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
     public int getIntProperty(String key, int defaultValue) {
         String value = properties.getProperty(key);
         if (value != null) {
@@ -53,4 +57,17 @@ public class ConfigurationManager {
         }
         return defaultValue;
     }
+
+    public double getDoubleProperty(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value != null) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Invalid numeric value for key '{}': {}. Using default: {}", key, value, defaultValue);
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.bsuir.bankliquiditserver.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Отдельный .properties файл, который разбирается в объект T и перечитывается "на горячую".
+ * Файл ищется сначала в файловой системе (можно править без передеплоя), затем в classpath.
+ * Проверка изменений делается не чаще, чем раз в checkIntervalMillis, при обращении к get().
+ */
+public class ReloadableProperties<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReloadableProperties.class);
+
+    private final String location;
+    private final Function<Properties, T> parser;
+    private final long checkIntervalMillis;
+    private final List<Consumer<T>> reloadListeners = new CopyOnWriteArrayList<>();
+
+    private volatile T current;
+    private volatile long lastModified;
+    private volatile long lastCheckMillis;
+
+    public ReloadableProperties(String location, Function<Properties, T> parser, long checkIntervalMillis) {
+        this.location = location;
+        this.parser = parser;
+        this.checkIntervalMillis = checkIntervalMillis;
+        Path path = resolvePath();
+        this.lastModified = lastModifiedOf(path);
+        this.lastCheckMillis = System.currentTimeMillis();
+        try {
+            this.current = parser.apply(load(path));
+        } catch (IOException | RuntimeException e) {
+            // Без начальной конфигурации работать нельзя, как и в ConfigurationManager
+            throw new RuntimeException("Unable to load configuration '" + location + "'", e);
+        }
+        LOGGER.info("Configuration '{}' loaded.", location);
+    }
+
+    public T get() {
+        long now = System.currentTimeMillis();
+        if (now - lastCheckMillis >= checkIntervalMillis) {
+            reloadIfModified(now);
+        }
+        return current;
+    }
+
+    public void addReloadListener(Consumer<T> listener) {
+        reloadListeners.add(listener);
+    }
+
+    private synchronized void reloadIfModified(long now) {
+        if (now - lastCheckMillis < checkIntervalMillis) {
+            return; // Другой поток уже проверил
+        }
+        lastCheckMillis = now;
+        Path path = resolvePath();
+        long modified = lastModifiedOf(path);
+        if (path == null || modified == lastModified) {
+            return;
+        }
+        try {
+            T reloaded = parser.apply(load(path));
+            current = reloaded;
+            lastModified = modified;
+            LOGGER.info("Configuration '{}' reloaded.", location);
+            for (Consumer<T> listener : reloadListeners) {
+                try {
+                    listener.accept(reloaded);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Reload listener for '{}' failed: {}", location, e.getMessage(), e);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Ошибочная правка файла не должна ломать работающий сервер: остаемся на старой версии
+            lastModified = modified;
+            LOGGER.error("Failed to reload configuration '{}', keeping previous version: {}", location, e.getMessage());
+        }
+    }
+
+    private Properties load(Path path) throws IOException {
+        Properties properties = new Properties();
+        if (path != null) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            return properties;
+        }
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(location)) {
+            if (input == null) {
+                throw new IOException("Configuration file '" + location + "' not found in file system or classpath.");
+            }
+            properties.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+        return properties;
+    }
+
+    // Путь к файлу, если его можно отслеживать (файл в ФС или classpath-ресурс не внутри jar)
+    private Path resolvePath() {
+        Path fsPath = Paths.get(location);
+        if (Files.isRegularFile(fsPath)) {
+            return fsPath;
+        }
+        URL resource = getClass().getClassLoader().getResource(location);
+        if (resource != null && "file".equals(resource.getProtocol())) {
+            try {
+                return Paths.get(resource.toURI());
+            } catch (URISyntaxException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private long lastModifiedOf(Path path) {
+        if (path == null) {
+            return 0L;
+        }
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
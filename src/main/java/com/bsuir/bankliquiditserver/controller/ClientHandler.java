@@ -1,10 +1,18 @@
 package com.bsuir.bankliquiditserver.controller;
 
+import com.bsuir.bankliquiditserver.config.ConfigurationManager;
+import com.bsuir.bankliquiditserver.db.RequestContext;
+import com.bsuir.bankliquiditserver.dispatch.ActionClass;
+import com.bsuir.bankliquiditserver.dispatch.OverloadedException;
+import com.bsuir.bankliquiditserver.dispatch.RequestDispatcher;
+import com.bsuir.bankliquiditserver.dispatch.RequestPriority;
+import com.bsuir.bankliquiditserver.dispatch.RequestTag;
 import com.bsuir.bankliquiditserver.dto.*;
 import com.bsuir.bankliquiditserver.exception.AuthenticationException;
 import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
 import com.bsuir.bankliquiditserver.exception.ServiceException;
 import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
 import com.bsuir.bankliquiditserver.model.*;
 import com.bsuir.bankliquiditserver.service.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -18,15 +26,39 @@ import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID; // Для простого примера токена
 import java.util.concurrent.ConcurrentHashMap; // Для хранения токенов (упрощенный вариант)
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-public class ClientHandler implements Runnable {
+public class ClientHandler implements Runnable, AlertSink, EntityChangeSink {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientHandler.class);
+    private static final ConfigurationManager CONFIG = ConfigurationManager.getInstance();
     private static final Map<String, User> activeUserSessions = new ConcurrentHashMap<>(); // token -> User
+    private static final Set<ClientHandler> connectedHandlers = ConcurrentHashMap.newKeySet(); // Для остановки узла (beginDrain)
+    private static volatile boolean draining; // Узел останавливается: новые запросы получают BUSY
+    // Запросов, прочитанных до ответа на предыдущие; при заполнении чтение из сокета приостанавливается
+    private static final int MAX_PIPELINED_REQUESTS = CONFIG.getIntProperty("server.maxPipelinedRequests", 32);
+    // Сколько после отключения клиента ждать завершения отмененного запроса перед освобождением сессии
+    private static final long DISCONNECT_WAIT_MS = 5000;
+    // Подсказка повтора, если причина отказа не оценивает ее сама (исполнитель остановлен)
+    private static final long DEFAULT_RETRY_AFTER_MS = 1000;
+    // Отмена запросов по сроку deadlineMs
+    private static final ScheduledExecutorService DEADLINE_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "request-deadline-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final Socket clientSocket;
     private final ObjectMapper objectMapper;
@@ -37,9 +69,34 @@ public class ClientHandler implements Runnable {
     private final FinancialStatementService financialStatementService;
     private final AnalysisService analysisService;
     private final AuditService auditService;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final AlertService alertService;
+    private final EntityChangeService entityChangeService;
+    private final JobService jobService;
+    private final RequestDispatcher dispatcher;
 
-    private User currentUser; // Аутентифицированный пользователь для текущего ClientHandler
+    private volatile User currentUser; // Аутентифицированный пользователь для текущего ClientHandler
     private String clientIpAddress;
+    private volatile PrintWriter writer; // Ответы и оповещения (из потоков рассылки) пишутся под writeLock
+    private final Object writeLock = new Object();
+    private final RequestContext.Session dbSession = new RequestContext.Session(); // Чтение своих записей: после записи - из основной БД
+    // Запросы соединения выполняются по одному, в порядке получения; поток соединения тем временем читает следующие
+    private final Object pendingLock = new Object();
+    private final Deque<PendingRequest> pendingRequests = new ArrayDeque<>(); // под pendingLock
+    private boolean requestInFlight;          // под pendingLock
+    private RequestContext inFlightContext;   // под pendingLock; отменяется при отключении клиента
+    private boolean disconnected;             // под pendingLock
+
+    // Запрос, прочитанный из сокета и ждущий выполнения
+    private static final class PendingRequest {
+        private final String json;
+        private final boolean afterDrain; // Прочитан после начала остановки узла - не выполняется
+
+        private PendingRequest(String json, boolean afterDrain) {
+            this.json = json;
+            this.afterDrain = afterDrain;
+        }
+    }
 
     public ClientHandler(Socket socket) {
         this.clientSocket = socket;
@@ -54,6 +111,11 @@ public class ClientHandler implements Runnable {
         this.financialStatementService = ServiceFactory.getFinancialStatementService();
         this.analysisService = ServiceFactory.getAnalysisService();
         this.auditService = ServiceFactory.getAuditService();
+        this.anomalyDetectionService = ServiceFactory.getAnomalyDetectionService();
+        this.alertService = ServiceFactory.getAlertService();
+        this.entityChangeService = ServiceFactory.getEntityChangeService();
+        this.jobService = ServiceFactory.getJobService();
+        this.dispatcher = ServiceFactory.getRequestDispatcher();
 
         this.clientIpAddress = clientSocket.getInetAddress().getHostAddress();
         LOGGER.info("Client connected: {} ({})", clientSocket.getInetAddress().getHostAddress(), clientSocket.getPort());
@@ -67,27 +129,12 @@ public class ClientHandler implements Runnable {
                 BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
                 PrintWriter writer = new PrintWriter(outputStream, true)
         ) {
+            this.writer = writer;
+            connectedHandlers.add(this);
             String clientMessageJson;
             while ((clientMessageJson = reader.readLine()) != null) {
                 LOGGER.debug("Received from [{}]: {}", clientIpAddress, clientMessageJson);
-                ServerResponseDTO response;
-                ClientRequestDTO request = null;
-                try {
-                    request = objectMapper.readValue(clientMessageJson, ClientRequestDTO.class);
-                    response = processRequest(request);
-                } catch (JsonProcessingException e) {
-                    LOGGER.error("Error parsing JSON request from [{}]: {}", clientIpAddress, clientMessageJson, e);
-                    response = ServerResponseDTO.error("Invalid JSON request format.");
-                    logFailedRequest(request, "PARSE_ERROR", e.getMessage());
-                } catch (Exception e) {
-                    LOGGER.error("Unexpected error processing request from [{}]: {}", clientIpAddress, clientMessageJson, e);
-                    response = ServerResponseDTO.error("Internal server error: " + e.getMessage());
-                    logFailedRequest(request, "INTERNAL_ERROR", e.getMessage());
-                }
-
-                String serverResponseJson = objectMapper.writeValueAsString(response);
-                writer.println(serverResponseJson);
-                LOGGER.debug("Sent to [{}]: {}", clientIpAddress, serverResponseJson);
+                enqueueRequest(clientMessageJson);
             }
         } catch (SocketException e) {
             if ("Connection reset".equalsIgnoreCase(e.getMessage()) || "Socket closed".equalsIgnoreCase(e.getMessage()) || "Broken pipe".equalsIgnoreCase(e.getMessage())) {
@@ -100,7 +147,16 @@ public class ClientHandler implements Runnable {
         }
         catch (IOException e) {
             LOGGER.error("IOException with client {}: {}", clientIpAddress, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.info("Client handler for {} interrupted.", clientIpAddress);
         } finally {
+            connectedHandlers.remove(this);
+            cancelRequestsOnDisconnect();
+            int subscriptions = alertService.unsubscribeAll(this) + entityChangeService.unsubscribeAll(this);
+            if (subscriptions > 0) {
+                LOGGER.info("{} subscription(s) of client {} removed.", subscriptions, clientIpAddress);
+            }
             // Завершение сессии пользователя при отключении
             if (this.currentUser != null) {
                 activeUserSessions.values().remove(this.currentUser); // Удаляем по значению, если токен неизвестен
@@ -111,6 +167,221 @@ public class ClientHandler implements Runnable {
         }
     }
 
+    /**
+     * Начало остановки узла: клиенты получают событие SERVER_DRAINING, запросы, прочитанные после него, - BUSY.
+     * Уже прочитанные запросы выполняются. Возвращает число оповещенных соединений.
+     */
+    public static int beginDrain(long closeAfterMillis) {
+        draining = true;
+        int notified = 0;
+        for (ClientHandler handler : connectedHandlers) {
+            if (handler.sendEvent(new ServerDrainEventDTO(closeAfterMillis))) {
+                notified++;
+            }
+        }
+        return notified;
+    }
+
+    // Ждет, пока у всех соединений не останется принятых и выполняемых запросов; false - время вышло
+    public static boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ClientHandler handler : connectedHandlers) {
+            synchronized (handler.pendingLock) {
+                while (handler.requestInFlight || !handler.pendingRequests.isEmpty()) {
+                    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remainingMillis <= 0) {
+                        return false;
+                    }
+                    handler.pendingLock.wait(remainingMillis);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Закрывает соединения всех клиентов (выполняемые запросы отменяются, как при отключении клиента)
+    public static void closeAll() {
+        connectedHandlers.forEach(ClientHandler::closeClientSocket);
+    }
+
+    private void enqueueRequest(String requestJson) throws InterruptedException {
+        synchronized (pendingLock) {
+            while (pendingRequests.size() >= MAX_PIPELINED_REQUESTS) {
+                pendingLock.wait();
+            }
+            pendingRequests.addLast(new PendingRequest(requestJson, draining));
+            if (requestInFlight) {
+                return; // Запустится после завершения текущего
+            }
+            requestInFlight = true;
+        }
+        startNextRequest();
+    }
+
+    // Запускает следующий запрос из очереди соединения; вызывается потоком соединения или по завершении предыдущего запроса
+    private void startNextRequest() {
+        while (true) {
+            PendingRequest request;
+            synchronized (pendingLock) {
+                request = disconnected ? null : pendingRequests.pollFirst();
+                if (request == null) {
+                    requestInFlight = false;
+                    inFlightContext = null;
+                    pendingLock.notifyAll();
+                    return;
+                }
+                pendingLock.notifyAll(); // Освободилось место для чтения следующих запросов
+            }
+            if (request.afterDrain) {
+                // Ответ по порядку, после уже принятых запросов; клиент повторит запрос на другом узле
+                ServerMetrics.getInstance().increment("requests.rejected.draining");
+                sendResponse(ServerResponseDTO.busy("Server is shutting down, please reconnect to another node.", 0));
+            } else if (submitRequest(request.json)) {
+                return; // Следующий запустит завершение этого
+            }
+        }
+    }
+
+    // false - ответ уже отправлен (ошибка разбора, отказ Bulkhead), можно сразу брать следующий запрос
+    private boolean submitRequest(String requestJson) {
+        ClientRequestDTO request = null;
+        try {
+            request = objectMapper.readValue(requestJson, ClientRequestDTO.class);
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Error parsing JSON request from [{}]: {}", clientIpAddress, requestJson, e);
+            logFailedRequest(null, "PARSE_ERROR", e.getMessage());
+            sendResponse(ServerResponseDTO.error("Invalid JSON request format."));
+            return false;
+        }
+        if (request.getDeadlineMs() != null && request.getDeadlineMs() <= 0) {
+            sendResponse(ServerResponseDTO.badRequest("deadlineMs must be positive."));
+            return false;
+        }
+
+        RequestContext context = RequestContext.create(dbSession, request.getDeadlineMs() != null ? request.getDeadlineMs() : 0,
+                !ActionClass.isWrite(request.getAction()));
+        ActionClass actionClass = ActionClass.of(request.getAction());
+        ClientRequestDTO accepted = request;
+        synchronized (pendingLock) {
+            inFlightContext = context;
+        }
+        try {
+            dispatcher.submit(actionClass, tagOf(request, actionClass), () -> executeInContext(accepted, context))
+                    .whenComplete((response, error) -> {
+                        try {
+                            sendResponse(error == null ? response : busyResponse(accepted, error));
+                        } finally {
+                            startNextRequest();
+                        }
+                    });
+            return true;
+        } catch (RejectedExecutionException e) {
+            sendResponse(busyResponse(request, e));
+            return false;
+        }
+    }
+
+    // Запрос отсечен при перегрузке (при приеме или в очереди) и не выполнялся
+    private ServerResponseDTO busyResponse(ClientRequestDTO request, Throwable error) {
+        // Без записи в аудит: при перегрузке она только добавила бы нагрузки на БД
+        LOGGER.warn("Request {} from [{}] rejected: {}", request.getAction(), clientIpAddress, error.getMessage());
+        long retryAfterMillis = error instanceof OverloadedException
+                ? ((OverloadedException) error).getRetryAfterMillis() : DEFAULT_RETRY_AFTER_MS;
+        return ServerResponseDTO.busy("Server is busy, please retry later.", retryAfterMillis);
+    }
+
+    private ServerResponseDTO executeInContext(ClientRequestDTO request, RequestContext context) {
+        if (context.isCancelled()) {
+            return ServerResponseDTO.error("Request was cancelled."); // Клиент отключился, ответ никто не прочтет
+        }
+        if (context.isDeadlineExceeded()) {
+            // Клиент уже не ждет ответа: не тратим на запрос ни потоки, ни соединения с БД
+            ServerMetrics.getInstance().increment("requests.deadline.expiredInQueue");
+            return ServerResponseDTO.error("Request deadline exceeded before execution.");
+        }
+        ScheduledFuture<?> deadlineTimer = context.hasDeadline() && context.isInterruptible()
+                ? DEADLINE_TIMER.schedule(() -> {
+                    ServerMetrics.getInstance().increment("requests.deadline.cancelledInFlight");
+                    context.cancel();
+                }, context.getRemainingMillis(), TimeUnit.MILLISECONDS)
+                : null;
+        context.attach();
+        try {
+            ServerResponseDTO response = processRequest(request);
+            if (context.isInterruptible() && context.isDeadlineExceeded() && response.getStatus() != ServerResponseDTO.Status.SUCCESS) {
+                return ServerResponseDTO.error("Request deadline exceeded.");
+            }
+            return response;
+        } catch (Exception e) {
+            LOGGER.error("Unexpected error processing request from [{}]: {}", clientIpAddress, request, e);
+            logFailedRequest(request, "INTERNAL_ERROR", e.getMessage());
+            return ServerResponseDTO.error("Internal server error: " + e.getMessage());
+        } finally {
+            context.close();
+            if (deadlineTimer != null) {
+                deadlineTimer.cancel(false);
+            }
+        }
+    }
+
+    private void sendResponse(ServerResponseDTO response) {
+        PrintWriter out = this.writer;
+        try {
+            String serverResponseJson = objectMapper.writeValueAsString(response);
+            synchronized (writeLock) {
+                out.println(serverResponseJson);
+            }
+            LOGGER.debug("Sent to [{}]: {}", clientIpAddress, serverResponseJson);
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Error serializing response for [{}]: {}", clientIpAddress, e.getMessage(), e);
+        }
+    }
+
+    // Клиент отключился: очередь соединения отбрасывается, выполняемый запрос отменяется (запросы к БД прерываются)
+    private void cancelRequestsOnDisconnect() {
+        RequestContext context;
+        synchronized (pendingLock) {
+            disconnected = true;
+            pendingRequests.clear();
+            context = requestInFlight ? inFlightContext : null;
+        }
+        if (context == null) {
+            return;
+        }
+        ServerMetrics.getInstance().increment("requests.cancelled.clientDisconnected");
+        context.cancel();
+        // Сессию пользователя освобождаем после завершения запроса, иначе LOGIN мог бы вернуть ее после очистки
+        long deadline = System.currentTimeMillis() + DISCONNECT_WAIT_MS;
+        synchronized (pendingLock) {
+            try {
+                while (requestInFlight && System.currentTimeMillis() < deadline) {
+                    pendingLock.wait(Math.max(1, deadline - System.currentTimeMillis()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (requestInFlight) {
+                LOGGER.warn("Cancelled request of client {} is still running after {} ms.", clientIpAddress, DISCONNECT_WAIT_MS);
+            }
+        }
+    }
+
+    // Планирование: bankId из payload (шард банка), приоритет действия, поток справедливой очереди - пользователь
+    // (все его соединения делят одну долю) или, до входа, само соединение
+    private RequestTag tagOf(ClientRequestDTO request, ActionClass actionClass) {
+        Integer bankId = null;
+        if (request.getPayload() instanceof Map<?, ?> payload && payload.get("bankId") instanceof Number number) {
+            bankId = number.intValue();
+        }
+        User user = request.getToken() != null ? activeUserSessions.get(request.getToken()) : null;
+        String flowKey = user != null ? "user:" + user.getId() : "connection:" + System.identityHashCode(this);
+        double weight = 1.0;
+        if (user != null && user.getRole() != null) {
+            weight = CONFIG.getDoubleProperty("dispatch.scheduler.weight." + user.getRole().getRoleName(), 1.0);
+        }
+        return new RequestTag(bankId, RequestPriority.of(request.getAction(), actionClass), flowKey, weight);
+    }
+
     private ServerResponseDTO processRequest(ClientRequestDTO request) {
         if (request.getAction() == null) {
             logFailedRequest(request, "BAD_REQUEST", "Action not specified");
@@ -161,6 +432,11 @@ public class ClientHandler implements Runnable {
                 case "CREATE_ROLE" -> requireRole("ADMIN", () -> handleCreateRole(request));
                 // ... другие CRUD для ролей
 
+                // Подписки на изменения (события приходят со статусом EVENT)
+                case "SUBSCRIBE" -> requireAuth(() -> handleSubscribe(request));
+                case "UNSUBSCRIBE" -> requireAuth(() -> handleUnsubscribe(request));
+                case "GET_SUBSCRIPTIONS" -> requireAuth(() -> handleGetSubscriptions(request));
+
                 // Bank operations
                 case "CREATE_BANK" -> requireRole(new String[]{"ADMIN", "ANALYST"}, () -> handleCreateBank(request));
                 case "GET_BANK_BY_ID" -> requireAuth(() -> handleGetBankById(request));
@@ -173,13 +449,25 @@ public class ClientHandler implements Runnable {
                 case "CREATE_FINANCIAL_STATEMENT" -> requireRole(new String[]{"ADMIN", "ANALYST"}, () -> handleCreateFinancialStatement(request));
                 case "GET_FINANCIAL_STATEMENT" -> requireAuth(() -> handleGetFinancialStatement(request)); // с деталями
                 case "GET_BANK_FINANCIAL_STATEMENTS" -> requireAuth(() -> handleGetBankFinancialStatements(request)); // обзоры
+                case "CHECK_STATEMENT_CONSISTENCY" -> requireAuth(() -> handleCheckStatementConsistency(request));
+                case "GET_STATEMENT_ANOMALIES" -> requireAuth(() -> handleGetStatementAnomalies(request));
                 case "DELETE_FINANCIAL_STATEMENT" -> requireRole(new String[]{"ADMIN", "ANALYST"}, () -> handleDeleteFinancialStatement(request));
 
                 // Analysis operations
                 case "CALCULATE_LIQUIDITY" -> requireRole("ANALYST", () -> handleCalculateLiquidity(request));
                 case "CALCULATE_SOLVENCY" -> requireRole("ANALYST", () -> handleCalculateSolvency(request));
+                case "CALCULATE_PORTFOLIO" -> requireRole("ANALYST", () -> handleCalculatePortfolio(request)); // все банки сразу
+                case "CALCULATE_RATIO_TIME_SERIES" -> requireRole("ANALYST", () -> handleCalculateRatioTimeSeries(request));
+                case "RUN_STRESS_TEST" -> requireRole("ANALYST", () -> handleRunStressTest(request));
+                case "GET_PEER_RANKING" -> requireRole("ANALYST", () -> handleGetPeerRanking(request));
+                case "WHAT_IF" -> requireRole("ANALYST", () -> handleWhatIf(request)); // без записи в БД
+                case "SUBSCRIBE_ALERT" -> requireRole("ANALYST", () -> handleSubscribeAlert(request)); // оповещения - со статусом EVENT
+                case "UNSUBSCRIBE_ALERT" -> requireRole("ANALYST", () -> handleUnsubscribeAlert(request));
+                case "GET_ALERT_SUBSCRIPTIONS" -> requireRole("ANALYST", () -> handleGetAlertSubscriptions(request));
+                case "CALCULATE_BASEL_RATIOS" -> requireRole("ANALYST", () -> handleCalculateBaselRatios(request)); // без bankId - все банки
                 case "SAVE_LIQUIDITY_REPORT" -> requireRole("ANALYST", () -> handleSaveLiquidityReport(request));
                 case "SAVE_SOLVENCY_REPORT" -> requireRole("ANALYST", () -> handleSaveSolvencyReport(request));
+                case "SAVE_BASEL_REPORT" -> requireRole("ANALYST", () -> handleSaveBaselReport(request));
                 case "GET_ANALYSIS_REPORT" -> requireAuth(() -> handleGetAnalysisReport(request));
                 case "GET_BANK_ANALYSIS_REPORTS" -> requireAuth(() -> handleGetBankAnalysisReports(request));
                 case "DELETE_ANALYSIS_REPORT" -> requireRole("ADMIN", () -> handleDeleteAnalysisReport(request));
@@ -188,6 +476,15 @@ public class ClientHandler implements Runnable {
                 // Audit operations (admin)
                 case "GET_ALL_AUDIT_LOGS" -> requireRole("ADMIN", () -> handleGetAllAuditLogs(request));
                 case "GET_USER_AUDIT_LOGS" -> requireRole("ADMIN", () -> handleGetUserAuditLogs(request));
+                case "GET_SERVER_METRICS" -> requireRole("ADMIN", () -> handleGetServerMetrics(request));
+
+                // Background jobs (очередь jobs, выполняется исполнителями любого узла)
+                case "ENQUEUE_JOB" -> requireRole(new String[]{"ADMIN", "ANALYST"}, () -> handleEnqueueJob(request));
+                case "GET_JOB" -> requireRole(new String[]{"ADMIN", "ANALYST"}, () -> handleGetJob(request));
+                case "GET_JOBS" -> requireRole(new String[]{"ADMIN", "ANALYST"}, () -> handleGetJobs(request));
+                case "CANCEL_JOB" -> requireRole(new String[]{"ADMIN", "ANALYST"}, () -> handleCancelJob(request));
+                case "GET_JOB_SCHEDULES" -> requireRole("ADMIN", () -> handleGetJobSchedules(request));
+                case "SAVE_JOB_SCHEDULE" -> requireRole("ADMIN", () -> handleSaveJobSchedule(request));
 
 
                 default -> {
@@ -429,6 +726,34 @@ public class ClientHandler implements Runnable {
     }
 
 
+    // --- Entity Change Subscriptions ---
+    private ServerResponseDTO handleSubscribe(ClientRequestDTO request) throws ValidationException {
+        // {"entityType": "FINANCIAL_STATEMENT", "bankId": 1}; без bankId - все банки
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        String entityType = (String) payload.get("entityType");
+        Integer bankId = (Integer) payload.get("bankId");
+
+        entityChangeService.subscribe(this, entityType, bankId);
+        return ServerResponseDTO.success("Subscribed to " + entityType + (bankId != null ? " of bank " + bankId : "") + ".");
+    }
+
+    private ServerResponseDTO handleUnsubscribe(ClientRequestDTO request) throws ValidationException, EntityNotFoundException {
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        String entityType = (String) payload.get("entityType");
+        Integer bankId = (Integer) payload.get("bankId");
+        if (entityType == null) throw new ValidationException("entityType is required.");
+
+        if (!entityChangeService.unsubscribe(this, entityType, bankId)) {
+            throw new EntityNotFoundException("No subscription to " + entityType + (bankId != null ? " of bank " + bankId : "") + ".");
+        }
+        return ServerResponseDTO.success("Unsubscribed.");
+    }
+
+    private ServerResponseDTO handleGetSubscriptions(ClientRequestDTO request) {
+        return ServerResponseDTO.success(entityChangeService.getSubscriptions(this));
+    }
+
+
     // --- Financial Statement Operations ---
     private ServerResponseDTO handleCreateFinancialStatement(ClientRequestDTO request) throws ServiceException, ValidationException, EntityNotFoundException {
         FinancialStatementDTO statementDTO = parsePayload(request.getPayload(), FinancialStatementDTO.class);
@@ -436,24 +761,58 @@ public class ClientHandler implements Runnable {
         auditService.logUserAction(this.currentUser, "CREATE_FIN_STATEMENT",
                 "Financial statement created for bank ID " + newStatement.getBankId() + ", date " + newStatement.getReportDate(), clientIpAddress, true, true);
         // Возвращаем DTO, а не полный объект с элементами, если они большие
-        return ServerResponseDTO.success(new FinancialStatementDTO(newStatement.getId(), newStatement.getBankId(), newStatement.getBank().getName(),
+        FinancialStatementDTO responseDTO = new FinancialStatementDTO(newStatement.getId(), newStatement.getBankId(), newStatement.getBank().getName(),
                 newStatement.getReportDate(), newStatement.getStatementType(), newStatement.getCurrency(),
                 newStatement.getCreatedAt(), newStatement.getCreatedByUserId(),
                 newStatement.getCreatedByUser() != null ? newStatement.getCreatedByUser().getUsername() : null,
-                null)); // null для items в ответе
+                null); // null для items в ответе
+        responseDTO.setAnomalies(newStatement.getAnomalies().stream()
+                .map(StatementAnomalyDTO::fromStatementAnomaly)
+                .collect(Collectors.toList()));
+        return ServerResponseDTO.success(responseDTO);
     }
 
     private ServerResponseDTO handleGetFinancialStatement(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
         Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
         Integer statementId = (Integer) payload.get("statementId");
-        if (statementId == null) throw new ValidationException("statementId is required.");
-
-        FinancialStatement statement = financialStatementService.getFinancialStatementWithItemsById(statementId);
+        Integer bankId = (Integer) payload.get("bankId");
+        if (statementId == null && bankId == null) throw new ValidationException("statementId or bankId is required.");
+
+        FinancialStatement statement;
+        if (statementId != null) {
+            statement = financialStatementService.getFinancialStatementWithItemsById(statementId);
+        } else {
+            // {"bankId": 1, "statementType": "BALANCE_SHEET"} - последний отчет банка этого типа
+            String statementType = (String) payload.getOrDefault("statementType", "BALANCE_SHEET");
+            statement = financialStatementService.getLatestFinancialStatementWithItems(bankId, statementType);
+        }
         FinancialStatementDTO dto = FinancialStatementDTO.fromFinancialStatement(statement, true); // true - include items
-        auditService.logUserAction(this.currentUser, "GET_FIN_STATEMENT", "Retrieved financial statement ID " + statementId, clientIpAddress, true, false);
+        auditService.logUserAction(this.currentUser, "GET_FIN_STATEMENT", "Retrieved financial statement ID " + statement.getId(), clientIpAddress, true, false);
         return ServerResponseDTO.success(dto);
     }
 
+    private ServerResponseDTO handleCheckStatementConsistency(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        Integer statementId = (Integer) payload.get("statementId");
+        if (statementId == null) throw new ValidationException("statementId is required.");
+
+        StatementConsistencyReportDTO report = financialStatementService.checkStatementConsistency(statementId);
+        auditService.logUserAction(this.currentUser, "CHECK_STATEMENT_CONSISTENCY",
+                "Checked financial statement ID " + statementId + ", issues: " + report.getIssues().size(), clientIpAddress, true);
+        return ServerResponseDTO.success(report);
+    }
+
+    private ServerResponseDTO handleGetStatementAnomalies(ClientRequestDTO request) throws ServiceException, ValidationException {
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        Integer statementId = (Integer) payload.get("statementId");
+        if (statementId == null) throw new ValidationException("statementId is required.");
+
+        List<StatementAnomalyDTO> anomalies = anomalyDetectionService.getAnomalies(statementId).stream()
+                .map(StatementAnomalyDTO::fromStatementAnomaly)
+                .collect(Collectors.toList());
+        return ServerResponseDTO.success(anomalies);
+    }
+
     private ServerResponseDTO handleGetBankFinancialStatements(ClientRequestDTO request) throws ServiceException, ValidationException {
         Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
         Integer bankId = (Integer) payload.get("bankId");
@@ -499,6 +858,127 @@ public class ClientHandler implements Runnable {
         return ServerResponseDTO.success(result);
     }
 
+    private ServerResponseDTO handleCalculatePortfolio(ClientRequestDTO request) throws ServiceException, ValidationException {
+        // Payload необязателен: {"reportDate": "yyyy-MM-dd"} - последние отчеты на эту дату
+        Map<String, Object> payload = request.getPayload() != null
+                ? parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {})
+                : Map.of();
+        String dateStr = (String) payload.get("reportDate");
+        LocalDate asOfDate = dateStr != null ? LocalDate.parse(dateStr) : null;
+
+        PortfolioAnalysisResultDTO result = analysisService.calculatePortfolio(asOfDate, this.currentUser, clientIpAddress);
+        return ServerResponseDTO.success(result);
+    }
+
+    private ServerResponseDTO handleCalculateRatioTimeSeries(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        // {"bankId": 1, "fromDate": "yyyy-MM-dd", "toDate": "yyyy-MM-dd", "movingAverageWindow": 4, "includeDeltas": true}
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        Integer bankId = (Integer) payload.get("bankId");
+        if (bankId == null) throw new ValidationException("bankId is required.");
+        String fromStr = (String) payload.get("fromDate");
+        String toStr = (String) payload.get("toDate");
+        LocalDate fromDate = fromStr != null ? LocalDate.parse(fromStr) : null;
+        LocalDate toDate = toStr != null ? LocalDate.parse(toStr) : null;
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new ValidationException("fromDate must not be after toDate.");
+        }
+        Integer window = (Integer) payload.get("movingAverageWindow");
+        if (window != null && window < 0) throw new ValidationException("movingAverageWindow must not be negative.");
+        boolean includeDeltas = Boolean.TRUE.equals(payload.get("includeDeltas"));
+
+        RatioTimeSeriesDTO result = analysisService.calculateRatioTimeSeries(bankId, fromDate, toDate,
+                window != null ? window : 0, includeDeltas, this.currentUser, clientIpAddress);
+        return ServerResponseDTO.success(result);
+    }
+
+    private ServerResponseDTO handleRunStressTest(ClientRequestDTO request) throws ServiceException, ValidationException {
+        // {"bankIds": [1, 2], "reportDate": "yyyy-MM-dd",
+        //  "scenarios": [{"name": "DEPOSIT_RUN", "shocks": [{"target": "CL01", "percent": -20}, {"target": "@SEC", "percent": -15}]}],
+        //  "grid": [{"target": "CL01", "fromPercent": -40, "toPercent": 0, "stepPercent": 5}],
+        //  "thresholds": {"CURRENT_RATIO": {"min": 1.0}, "DEBT_TO_EQUITY_RATIO": {"max": 5}}}
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        String dateStr = (String) payload.get("reportDate");
+        LocalDate asOfDate = dateStr != null ? LocalDate.parse(dateStr) : null;
+        List<Integer> bankIds = payload.get("bankIds") != null
+                ? parsePayload(payload.get("bankIds"), new TypeReference<List<Integer>>() {}) : null;
+        List<StressScenarioDTO> scenarios = payload.get("scenarios") != null
+                ? parsePayload(payload.get("scenarios"), new TypeReference<List<StressScenarioDTO>>() {}) : null;
+        List<StressGridAxisDTO> grid = payload.get("grid") != null
+                ? parsePayload(payload.get("grid"), new TypeReference<List<StressGridAxisDTO>>() {}) : null;
+        Map<String, StressThresholdDTO> thresholds = payload.get("thresholds") != null
+                ? parsePayload(payload.get("thresholds"), new TypeReference<Map<String, StressThresholdDTO>>() {}) : null;
+
+        StressTestResultDTO result = analysisService.runStressTest(bankIds, asOfDate, scenarios, grid, thresholds,
+                this.currentUser, clientIpAddress);
+        return ServerResponseDTO.success(result);
+    }
+
+    private ServerResponseDTO handleGetPeerRanking(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        // {"bankId": 1, "reportDate": "yyyy-MM-dd", "ratio": "CURRENT_RATIO"}; reportDate и ratio необязательны
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        Integer bankId = (Integer) payload.get("bankId");
+        if (bankId == null) throw new ValidationException("bankId is required.");
+        String dateStr = (String) payload.get("reportDate");
+        LocalDate reportDate = dateStr != null ? LocalDate.parse(dateStr) : null;
+        String ratioName = (String) payload.get("ratio");
+
+        PeerRankingDTO result = analysisService.getPeerRanking(bankId, reportDate, ratioName, this.currentUser, clientIpAddress);
+        return ServerResponseDTO.success(result);
+    }
+
+    private ServerResponseDTO handleWhatIf(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        // {"statementId": 5, "changes": [{"itemCode": "CL01", "percent": 10}, {"itemCode": "CA01", "delta": -1000}, {"itemCode": "INV01", "value": 0}]}
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        Integer statementId = (Integer) payload.get("statementId");
+        if (statementId == null) throw new ValidationException("statementId is required.");
+        List<WhatIfChangeDTO> changes = payload.get("changes") != null
+                ? parsePayload(payload.get("changes"), new TypeReference<List<WhatIfChangeDTO>>() {}) : null;
+
+        WhatIfResultDTO result = analysisService.calculateWhatIf(statementId, changes);
+        return ServerResponseDTO.success(result);
+    }
+
+    private ServerResponseDTO handleSubscribeAlert(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        // {"bankId": 1, "ratioName": "CURRENT_RATIO", "operator": "<", "threshold": 1.0, "statementType": "BALANCE_SHEET"}
+        AlertSubscriptionDTO subscriptionDTO = parsePayload(request.getPayload(), AlertSubscriptionDTO.class);
+        if (subscriptionDTO.getBankId() <= 0) throw new ValidationException("bankId is required.");
+
+        AlertSubscriptionDTO subscription = alertService.subscribe(this, subscriptionDTO.getBankId(), subscriptionDTO.getRatioName(),
+                subscriptionDTO.getOperator(), subscriptionDTO.getThreshold(), subscriptionDTO.getStatementType());
+        auditService.logUserAction(this.currentUser, "SUBSCRIBE_ALERT", "Alert subscription " + subscription, clientIpAddress, true);
+        return ServerResponseDTO.success(subscription);
+    }
+
+    private ServerResponseDTO handleUnsubscribeAlert(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        Number subscriptionId = (Number) payload.get("subscriptionId");
+        if (subscriptionId == null) throw new ValidationException("subscriptionId is required.");
+
+        alertService.unsubscribe(this, subscriptionId.longValue());
+        return ServerResponseDTO.success("Alert subscription removed.");
+    }
+
+    private ServerResponseDTO handleGetAlertSubscriptions(ClientRequestDTO request) {
+        return ServerResponseDTO.success(alertService.getSubscriptions(this));
+    }
+
+    private ServerResponseDTO handleCalculateBaselRatios(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        // {"bankId": 1, "reportDate": "yyyy-MM-dd"}; без bankId - последние отчеты всех банков на reportDate
+        Map<String, Object> payload = request.getPayload() != null
+                ? parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {})
+                : Map.of();
+        Integer bankId = (Integer) payload.get("bankId");
+        String dateStr = (String) payload.get("reportDate");
+        LocalDate reportDate = dateStr != null ? LocalDate.parse(dateStr) : null;
+
+        if (bankId == null) {
+            BaselPortfolioResultDTO result = analysisService.calculateBaselPortfolio(reportDate, this.currentUser, clientIpAddress);
+            return ServerResponseDTO.success(result);
+        }
+        BaselRatiosResultDTO result = analysisService.calculateBaselRatios(bankId, reportDate, this.currentUser, clientIpAddress);
+        return ServerResponseDTO.success(result);
+    }
+
     private ServerResponseDTO handleSaveLiquidityReport(ClientRequestDTO request) throws ServiceException, ValidationException {
         LiquidityAnalysisResultDTO resultDTO = parsePayload(request.getPayload(), LiquidityAnalysisResultDTO.class);
         AnalysisReport savedReport = analysisService.saveLiquidityAnalysisReport(resultDTO, this.currentUser);
@@ -511,6 +991,12 @@ public class ClientHandler implements Runnable {
         return ServerResponseDTO.success(AnalysisReportDTO.fromAnalysisReport(savedReport));
     }
 
+    private ServerResponseDTO handleSaveBaselReport(ClientRequestDTO request) throws ServiceException, ValidationException {
+        BaselRatiosResultDTO resultDTO = parsePayload(request.getPayload(), BaselRatiosResultDTO.class);
+        AnalysisReport savedReport = analysisService.saveBaselAnalysisReport(resultDTO, this.currentUser);
+        return ServerResponseDTO.success(AnalysisReportDTO.fromAnalysisReport(savedReport));
+    }
+
     private ServerResponseDTO handleGetAnalysisReport(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
         Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
         Integer reportId = (Integer) payload.get("reportId");
@@ -547,6 +1033,12 @@ public class ClientHandler implements Runnable {
         return ServerResponseDTO.success(dtos);
     }
 
+    private ServerResponseDTO handleGetServerMetrics(ClientRequestDTO request) throws ServiceException {
+        Map<String, Number> metrics = ServerMetrics.getInstance().snapshot();
+        auditService.logUserAction(this.currentUser, "GET_SERVER_METRICS", "Retrieved server metrics", clientIpAddress, true);
+        return ServerResponseDTO.success(metrics);
+    }
+
     private ServerResponseDTO handleGetUserAuditLogs(ClientRequestDTO request) throws ServiceException, ValidationException {
         Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
         Integer targetUserId = (Integer) payload.get("userId");
@@ -558,6 +1050,80 @@ public class ClientHandler implements Runnable {
     }
 
 
+    private ServerResponseDTO handleEnqueueJob(ClientRequestDTO request) throws ServiceException, ValidationException {
+        // {"jobType": "SNAPSHOT_BACKFILL", "payload": {...}, "priority": 0, "maxAttempts": 3, "runAt": "yyyy-MM-ddTHH:mm:ss"}
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        String jobType = (String) payload.get("jobType");
+        Number priority = (Number) payload.get("priority");
+        Number maxAttempts = (Number) payload.get("maxAttempts");
+        String runAtStr = (String) payload.get("runAt");
+        LocalDateTime runAt = runAtStr != null ? LocalDateTime.parse(runAtStr) : null;
+
+        Job job = jobService.enqueue(jobType, jobPayload(payload), priority != null ? priority.intValue() : 0,
+                maxAttempts != null ? maxAttempts.intValue() : null, runAt, this.currentUser);
+        auditService.logUserAction(this.currentUser, "ENQUEUE_JOB", "Job " + job.getId() + " (" + jobType + ") enqueued", clientIpAddress, true);
+        return ServerResponseDTO.success(JobDTO.fromJob(job));
+    }
+
+    private ServerResponseDTO handleGetJob(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        Number jobId = (Number) payload.get("jobId");
+        if (jobId == null) throw new ValidationException("jobId is required.");
+        return ServerResponseDTO.success(JobDTO.fromJob(jobService.getJob(jobId.longValue())));
+    }
+
+    private ServerResponseDTO handleGetJobs(ClientRequestDTO request) throws ServiceException, ValidationException {
+        // {"status": "RUNNING", "limit": 50}; без status - любые
+        Map<String, Object> payload = request.getPayload() != null
+                ? parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {})
+                : Map.of();
+        Number limit = (Number) payload.get("limit");
+        List<JobDTO> jobs = jobService.getJobs((String) payload.get("status"), limit != null ? limit.intValue() : 50).stream()
+                .map(JobDTO::fromJob)
+                .collect(Collectors.toList());
+        return ServerResponseDTO.success(jobs);
+    }
+
+    private ServerResponseDTO handleCancelJob(ClientRequestDTO request) throws ServiceException, EntityNotFoundException, ValidationException {
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        Number jobId = (Number) payload.get("jobId");
+        if (jobId == null) throw new ValidationException("jobId is required.");
+
+        jobService.cancelJob(jobId.longValue());
+        auditService.logUserAction(this.currentUser, "CANCEL_JOB", "Job " + jobId + " cancelled", clientIpAddress, true);
+        return ServerResponseDTO.success("Job cancelled.");
+    }
+
+    private ServerResponseDTO handleGetJobSchedules(ClientRequestDTO request) throws ServiceException {
+        List<JobScheduleDTO> schedules = jobService.getSchedules().stream()
+                .map(JobScheduleDTO::fromJobSchedule)
+                .collect(Collectors.toList());
+        return ServerResponseDTO.success(schedules);
+    }
+
+    private ServerResponseDTO handleSaveJobSchedule(ClientRequestDTO request) throws ServiceException, ValidationException {
+        // {"name": "audit-retention", "jobType": "AUDIT_RETENTION", "payload": {...}, "cronExpression": "0 3 * * *", "enabled": true}
+        Map<String, Object> payload = parsePayload(request.getPayload(), new TypeReference<Map<String, Object>>() {});
+        String name = (String) payload.get("name");
+        Boolean enabled = (Boolean) payload.get("enabled");
+
+        JobSchedule schedule = jobService.saveSchedule(name, (String) payload.get("jobType"), jobPayload(payload),
+                (String) payload.get("cronExpression"), enabled == null || enabled);
+        auditService.logUserAction(this.currentUser, "SAVE_JOB_SCHEDULE", "Job schedule saved: " + schedule, clientIpAddress, true);
+        return ServerResponseDTO.success(JobScheduleDTO.fromJobSchedule(schedule));
+    }
+
+    // Вложенный объект "payload" запроса - параметры задачи
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> jobPayload(Map<String, Object> payload) throws ValidationException {
+        Object jobPayload = payload.get("payload");
+        if (jobPayload != null && !(jobPayload instanceof Map)) {
+            throw new ValidationException("payload must be a JSON object.");
+        }
+        return (Map<String, Object>) jobPayload;
+    }
+
+
     // --- Вспомогательные методы ---
     private <T> T parsePayload(Object payloadObject, Class<T> targetClass) throws ValidationException {
         if (payloadObject == null) {
@@ -607,6 +1173,35 @@ public class ClientHandler implements Runnable {
     }
 
 
+    // Оповещение по подписке этого соединения; вызывается из потока рассылки AlertService
+    @Override
+    public boolean push(AlertEventDTO event) {
+        return sendEvent(event);
+    }
+
+    // Изменение сущности по подписке SUBSCRIBE; вызывается из потока рассылки EntityChangeService
+    @Override
+    public boolean push(EntityChangeEventDTO event) {
+        return sendEvent(event);
+    }
+
+    private boolean sendEvent(Object event) {
+        PrintWriter out = this.writer;
+        if (out == null || clientSocket.isClosed()) {
+            return false;
+        }
+        try {
+            String eventJson = objectMapper.writeValueAsString(ServerResponseDTO.event(event));
+            synchronized (writeLock) {
+                out.println(eventJson);
+                return !out.checkError(); // PrintWriter не бросает IOException
+            }
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Error serializing event for client {}: {}", clientIpAddress, e.getMessage());
+            return true; // Соединение исправно, подписки не снимаем
+        }
+    }
+
     private void closeClientSocket() {
         try {
             if (clientSocket != null && !clientSocket.isClosed()) {
@@ -28,7 +28,7 @@ public class AnalysisReportDao implements GenericDao<AnalysisReport, Integer> {
     @Override
     public Optional<AnalysisReport> findById(Integer id) throws SQLException {
         AnalysisReport report = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_ID)) {
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -45,7 +45,7 @@ public class AnalysisReportDao implements GenericDao<AnalysisReport, Integer> {
     @Override
     public List<AnalysisReport> findAll() throws SQLException {
         List<AnalysisReport> reports = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_ALL);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -60,7 +60,7 @@ public class AnalysisReportDao implements GenericDao<AnalysisReport, Integer> {
 
     public List<AnalysisReport> findByBankId(Integer bankId) throws SQLException {
         List<AnalysisReport> reports = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_BANK_ID)) {
             ps.setInt(1, bankId);
             ResultSet rs = ps.executeQuery();
@@ -76,7 +76,7 @@ public class AnalysisReportDao implements GenericDao<AnalysisReport, Integer> {
 
     public List<AnalysisReport> findByUserId(Integer userId) throws SQLException {
         List<AnalysisReport> reports = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_USER_ID)) {
             ps.setInt(1, userId);
             ResultSet rs = ps.executeQuery();
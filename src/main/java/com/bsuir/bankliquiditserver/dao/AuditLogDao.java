@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -20,13 +21,15 @@ public class AuditLogDao implements GenericDao<AuditLogEntry, Integer> {
     // Для GenericDao они нужны, но можно реализовать их как не поддерживаемые или с ограничениями
     private static final String DELETE_BY_ID = "DELETE FROM audit_log WHERE id = ?;"; // Обычно не используется
     private static final String SELECT_BY_USER_ID = "SELECT id, user_id, action_type, details, ip_address, timestamp, success FROM audit_log WHERE user_id = ? ORDER BY timestamp DESC;";
+    // Пакетами по id, а не одним DELETE по всей таблице
+    private static final String DELETE_OLDER_THAN_BATCH = "DELETE FROM audit_log WHERE id IN (SELECT id FROM audit_log WHERE timestamp < ? ORDER BY id LIMIT ?);";
     private static final String SELECT_BY_ACTION_TYPE = "SELECT id, user_id, action_type, details, ip_address, timestamp, success FROM audit_log WHERE action_type = ? ORDER BY timestamp DESC;";
 
 
     @Override
     public Optional<AuditLogEntry> findById(Integer id) throws SQLException {
         AuditLogEntry entry = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_ID)) {
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -43,7 +46,7 @@ public class AuditLogDao implements GenericDao<AuditLogEntry, Integer> {
     @Override
     public List<AuditLogEntry> findAll() throws SQLException {
         List<AuditLogEntry> entries = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_ALL);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -58,7 +61,7 @@ public class AuditLogDao implements GenericDao<AuditLogEntry, Integer> {
 
     public List<AuditLogEntry> findByUserId(Integer userId) throws SQLException {
         List<AuditLogEntry> entries = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_USER_ID)) {
             ps.setInt(1, userId);
             ResultSet rs = ps.executeQuery();
@@ -74,7 +77,7 @@ public class AuditLogDao implements GenericDao<AuditLogEntry, Integer> {
 
     public List<AuditLogEntry> findByActionType(String actionType) throws SQLException {
         List<AuditLogEntry> entries = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_ACTION_TYPE)) {
             ps.setString(1, actionType);
             ResultSet rs = ps.executeQuery();
@@ -90,7 +93,7 @@ public class AuditLogDao implements GenericDao<AuditLogEntry, Integer> {
 
     @Override
     public AuditLogEntry save(AuditLogEntry entry) throws SQLException {
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement ps = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
             if (entry.getUserId() != null) {
                 ps.setInt(1, entry.getUserId());
@@ -153,6 +156,19 @@ public class AuditLogDao implements GenericDao<AuditLogEntry, Integer> {
         }
     }
 
+    // Удаляет до batchSize самых старых записей раньше before; возвращает число удаленных
+    public int deleteOlderThan(LocalDateTime before, int batchSize) throws SQLException {
+        try (Connection connection = DatabaseConnector.getConnection();
+             PreparedStatement ps = connection.prepareStatement(DELETE_OLDER_THAN_BATCH)) {
+            ps.setTimestamp(1, Timestamp.valueOf(before));
+            ps.setInt(2, batchSize);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.error("Error deleting AuditLogEntries older than {}: {}", before, e.getMessage());
+            throw e;
+        }
+    }
+
     private AuditLogEntry mapResultSetToAuditLogEntry(ResultSet rs) throws SQLException {
         AuditLogEntry entry = new AuditLogEntry();
         entry.setId(rs.getInt("id"));
@@ -24,7 +24,7 @@ public class BankDao implements GenericDao<Bank, Integer> {
     @Override
     public Optional<Bank> findById(Integer id) throws SQLException {
         Bank bank = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_BANK_BY_ID)) {
             preparedStatement.setInt(1, id);
             ResultSet rs = preparedStatement.executeQuery();
@@ -40,7 +40,7 @@ public class BankDao implements GenericDao<Bank, Integer> {
 
     public Optional<Bank> findByName(String name) throws SQLException {
         Bank bank = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_BANK_BY_NAME)) {
             preparedStatement.setString(1, name);
             ResultSet rs = preparedStatement.executeQuery();
@@ -57,7 +57,7 @@ public class BankDao implements GenericDao<Bank, Integer> {
     @Override
     public List<Bank> findAll() throws SQLException {
         List<Bank> banks = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_BANKS);
              ResultSet rs = preparedStatement.executeQuery()) {
             while (rs.next()) {
@@ -145,7 +145,7 @@ public class BankDao implements GenericDao<Bank, Integer> {
 
     public Optional<Bank> findByRegistrationNumber(String registrationNumber) throws SQLException {
         Bank bank = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_BANK_BY_REG_NUMBER)) {
             preparedStatement.setString(1, registrationNumber);
             ResultSet rs = preparedStatement.executeQuery();
@@ -1,7 +1,10 @@
 package com.bsuir.bankliquiditserver.dao;
 
 import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import com.bsuir.bankliquiditserver.model.Bank;
 import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.model.StatementItem;
+import com.bsuir.bankliquiditserver.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,19 +17,57 @@ import java.util.Optional;
 public class FinancialStatementDao implements GenericDao<FinancialStatement, Integer> {
     private static final Logger LOGGER = LoggerFactory.getLogger(FinancialStatementDao.class);
 
-    private static final String SELECT_BY_ID = "SELECT id, bank_id, report_date, statement_type, currency, created_at, created_by_user_id FROM financial_statements WHERE id = ?;";
-    private static final String SELECT_ALL = "SELECT id, bank_id, report_date, statement_type, currency, created_at, created_by_user_id FROM financial_statements;";
+    private static final String SELECT_BY_ID = "SELECT id, bank_id, report_date, statement_type, currency, created_at, created_by_user_id, version FROM financial_statements WHERE id = ?;";
+    private static final String SELECT_ALL = "SELECT id, bank_id, report_date, statement_type, currency, created_at, created_by_user_id, version FROM financial_statements;";
     private static final String INSERT = "INSERT INTO financial_statements (bank_id, report_date, statement_type, currency, created_at, created_by_user_id) VALUES (?, ?, ?, ?, ?, ?);";
-    private static final String UPDATE = "UPDATE financial_statements SET bank_id = ?, report_date = ?, statement_type = ?, currency = ?, created_by_user_id = ? WHERE id = ?;";
+    // Каждое изменение увеличивает версию отчета (по ней сверяются кэшированные результаты анализа)
+    private static final String UPDATE = "UPDATE financial_statements SET bank_id = ?, report_date = ?, statement_type = ?, currency = ?, created_by_user_id = ?, version = version + 1 WHERE id = ? RETURNING version;";
     private static final String DELETE_BY_ID = "DELETE FROM financial_statements WHERE id = ?;";
-    private static final String SELECT_BY_BANK_ID = "SELECT id, bank_id, report_date, statement_type, currency, created_at, created_by_user_id FROM financial_statements WHERE bank_id = ? ORDER BY report_date DESC;";
-    private static final String SELECT_BY_BANK_ID_AND_DATE = "SELECT id, bank_id, report_date, statement_type, currency, created_at, created_by_user_id FROM financial_statements WHERE bank_id = ? AND report_date = ? AND statement_type = ?;";
+    private static final String SELECT_BY_BANK_ID = "SELECT id, bank_id, report_date, statement_type, currency, created_at, created_by_user_id, version FROM financial_statements WHERE bank_id = ? ORDER BY report_date DESC;";
+    private static final String SELECT_BY_BANK_ID_AND_DATE = "SELECT id, bank_id, report_date, statement_type, currency, created_at, created_by_user_id, version FROM financial_statements WHERE bank_id = ? AND report_date = ? AND statement_type = ?;";
+    // Последний отчет заданного типа по каждому банку (на дату или вообще), сразу с данными банка - один запрос на весь портфель
+    private static final String SELECT_LATEST_PER_BANK_AS_OF = "SELECT DISTINCT ON (fs.bank_id) fs.id, fs.bank_id, fs.report_date, fs.statement_type, fs.currency, fs.created_at, fs.created_by_user_id, fs.version, " +
+            "b.name AS bank_name, b.registration_number AS bank_registration_number, b.address AS bank_address " +
+            "FROM financial_statements fs JOIN banks b ON b.id = fs.bank_id " +
+            "WHERE fs.statement_type = ? AND fs.report_date <= ? ORDER BY fs.bank_id, fs.report_date DESC;";
+    private static final String SELECT_LATEST_PER_BANK = "SELECT DISTINCT ON (fs.bank_id) fs.id, fs.bank_id, fs.report_date, fs.statement_type, fs.currency, fs.created_at, fs.created_by_user_id, fs.version, " +
+            "b.name AS bank_name, b.registration_number AS bank_registration_number, b.address AS bank_address " +
+            "FROM financial_statements fs JOIN banks b ON b.id = fs.bank_id " +
+            "WHERE fs.statement_type = ? ORDER BY fs.bank_id, fs.report_date DESC;";
+    // Все отчеты банка заданного типа за период вместе со статьями - один запрос, строки упорядочены по дате
+    private static final String SELECT_BY_BANK_AND_TYPE_WITH_ITEMS = "SELECT fs.id, fs.bank_id, fs.report_date, fs.statement_type, fs.currency, fs.created_at, fs.created_by_user_id, fs.version, " +
+            "b.name AS bank_name, b.registration_number AS bank_registration_number, b.address AS bank_address, " +
+            "si.id AS item_id, si.item_code, si.item_name, si.item_value, si.parent_item_id " +
+            "FROM financial_statements fs JOIN banks b ON b.id = fs.bank_id " +
+            "LEFT JOIN statement_items si ON si.statement_id = fs.id " +
+            "WHERE fs.bank_id = ? AND fs.statement_type = ? " +
+            "AND fs.report_date BETWEEN COALESCE(?::date, '-infinity'::date) AND COALESCE(?::date, 'infinity'::date) " +
+            "ORDER BY fs.report_date, fs.id, si.item_code, si.item_name;";
+    // Последний отчет банка заданного типа со статьями; подзапрос берет одну строку по idx_financial_statements_bank_type_date
+    private static final String SELECT_LATEST_BY_BANK_AND_TYPE_WITH_ITEMS = "WITH latest AS (" +
+            "SELECT id FROM financial_statements WHERE bank_id = ? AND statement_type = ? ORDER BY report_date DESC LIMIT 1) " +
+            "SELECT fs.id, fs.bank_id, fs.report_date, fs.statement_type, fs.currency, fs.created_at, fs.created_by_user_id, fs.version, " +
+            "b.name AS bank_name, b.registration_number AS bank_registration_number, b.address AS bank_address, " +
+            "si.id AS item_id, si.item_code, si.item_name, si.item_value, si.parent_item_id " +
+            "FROM latest l JOIN financial_statements fs ON fs.id = l.id JOIN banks b ON b.id = fs.bank_id " +
+            "LEFT JOIN statement_items si ON si.statement_id = fs.id " +
+            "ORDER BY si.item_code, si.item_name;";
+    // Карточка отчета: отчет, банк, автор и статьи - один запрос вместо четырех (поля отчета повторяются в строке каждой статьи)
+    private static final String SELECT_DETAILS_BY_ID = "SELECT fs.id, fs.bank_id, fs.report_date, fs.statement_type, fs.currency, fs.created_at, fs.created_by_user_id, fs.version, " +
+            "b.name AS bank_name, b.registration_number AS bank_registration_number, b.address AS bank_address, " +
+            "u.username AS user_username, u.full_name AS user_full_name, u.email AS user_email, u.role_id AS user_role_id, u.is_active AS user_is_active, " +
+            "si.id AS item_id, si.item_code, si.item_name, si.item_value, si.parent_item_id " +
+            "FROM financial_statements fs JOIN banks b ON b.id = fs.bank_id " +
+            "LEFT JOIN users u ON u.id = fs.created_by_user_id " +
+            "LEFT JOIN statement_items si ON si.statement_id = fs.id " +
+            "WHERE fs.id = ? " +
+            "ORDER BY si.item_code, si.item_name;";
 
 
     @Override
     public Optional<FinancialStatement> findById(Integer id) throws SQLException {
         FinancialStatement statement = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_ID)) {
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -43,7 +84,7 @@ public class FinancialStatementDao implements GenericDao<FinancialStatement, Int
     @Override
     public List<FinancialStatement> findAll() throws SQLException {
         List<FinancialStatement> statements = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_ALL);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -58,7 +99,7 @@ public class FinancialStatementDao implements GenericDao<FinancialStatement, Int
 
     public List<FinancialStatement> findByBankId(Integer bankId) throws SQLException {
         List<FinancialStatement> statements = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_BANK_ID)) {
             ps.setInt(1, bankId);
             ResultSet rs = ps.executeQuery();
@@ -74,7 +115,7 @@ public class FinancialStatementDao implements GenericDao<FinancialStatement, Int
 
     public Optional<FinancialStatement> findByBankIdAndReportDateAndType(Integer bankId, LocalDate reportDate, String statementType) throws SQLException {
         FinancialStatement statement = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_BANK_ID_AND_DATE)) {
             ps.setInt(1, bankId);
             ps.setDate(2, Date.valueOf(reportDate));
@@ -91,6 +132,110 @@ public class FinancialStatementDao implements GenericDao<FinancialStatement, Int
     }
 
 
+    /**
+     * Последний отчет заданного типа для каждого банка с датой не позже asOfDate (или вообще последний, если дата null).
+     * Объект Bank заполняется из того же запроса.
+     */
+    public List<FinancialStatement> findLatestPerBank(String statementType, LocalDate asOfDate) throws SQLException {
+        List<FinancialStatement> statements = new ArrayList<>();
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(asOfDate != null ? SELECT_LATEST_PER_BANK_AS_OF : SELECT_LATEST_PER_BANK)) {
+            ps.setString(1, statementType);
+            if (asOfDate != null) {
+                ps.setDate(2, Date.valueOf(asOfDate));
+            }
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                FinancialStatement statement = mapResultSetToFinancialStatement(rs);
+                statement.setBank(mapJoinedBank(rs));
+                statements.add(statement);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding latest FinancialStatements per bank, type {}, as of {}: {}", statementType, asOfDate, e.getMessage());
+            throw e;
+        }
+        return statements;
+    }
+
+    /**
+     * Все отчеты банка заданного типа со статьями одним запросом, по возрастанию даты.
+     * Границы периода необязательны (null - без ограничения).
+     */
+    public List<FinancialStatement> findByBankIdAndTypeWithItems(Integer bankId, String statementType, LocalDate fromDate, LocalDate toDate) throws SQLException {
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_BY_BANK_AND_TYPE_WITH_ITEMS)) {
+            ps.setInt(1, bankId);
+            ps.setString(2, statementType);
+            ps.setDate(3, fromDate != null ? Date.valueOf(fromDate) : null);
+            ps.setDate(4, toDate != null ? Date.valueOf(toDate) : null);
+            return mapStatementsWithItems(ps.executeQuery());
+        } catch (SQLException e) {
+            LOGGER.error("Error finding FinancialStatements with items by bank_id {}, type {}: {}", bankId, statementType, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Последний (по report_date) отчет банка заданного типа вместе с банком и статьями - один запрос.
+     */
+    public Optional<FinancialStatement> findLatestByBankIdAndTypeWithItems(Integer bankId, String statementType) throws SQLException {
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_LATEST_BY_BANK_AND_TYPE_WITH_ITEMS)) {
+            ps.setInt(1, bankId);
+            ps.setString(2, statementType);
+            List<FinancialStatement> statements = mapStatementsWithItems(ps.executeQuery());
+            return statements.isEmpty() ? Optional.empty() : Optional.of(statements.get(0));
+        } catch (SQLException e) {
+            LOGGER.error("Error finding latest FinancialStatement with items by bank_id {}, type {}: {}", bankId, statementType, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Отчет вместе с банком, автором (без хэша пароля) и статьями - один запрос на одном соединении.
+     */
+    public Optional<FinancialStatement> findByIdWithDetails(Integer id) throws SQLException {
+        FinancialStatement statement = null;
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_DETAILS_BY_ID)) {
+            ps.setInt(1, id);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                if (statement == null) {
+                    statement = mapResultSetToFinancialStatement(rs);
+                    statement.setBank(mapJoinedBank(rs));
+                    statement.setCreatedByUser(mapJoinedUser(rs));
+                }
+                StatementItem item = mapJoinedStatementItem(rs);
+                if (item != null) {
+                    statement.getItems().add(item);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding FinancialStatement details by id {}: {}", id, e.getMessage());
+            throw e;
+        }
+        return Optional.ofNullable(statement);
+    }
+
+    // Строки "отчет + банк + статья" -> отчеты со статьями; строки одного отчета должны идти подряд
+    private List<FinancialStatement> mapStatementsWithItems(ResultSet rs) throws SQLException {
+        List<FinancialStatement> statements = new ArrayList<>();
+        FinancialStatement current = null;
+        while (rs.next()) {
+            if (current == null || current.getId() != rs.getInt("id")) {
+                current = mapResultSetToFinancialStatement(rs);
+                current.setBank(mapJoinedBank(rs));
+                statements.add(current);
+            }
+            StatementItem item = mapJoinedStatementItem(rs);
+            if (item != null) {
+                current.getItems().add(item);
+            }
+        }
+        return statements;
+    }
+
     @Override
     public FinancialStatement save(FinancialStatement statement) throws SQLException {
         try (Connection connection = DatabaseConnector.getConnection();
@@ -141,10 +286,11 @@ public class FinancialStatementDao implements GenericDao<FinancialStatement, Int
             }
             ps.setInt(6, statement.getId());
 
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows == 0) {
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
                 throw new SQLException("Updating FinancialStatement failed, no rows affected for ID: " + statement.getId());
             }
+            statement.setVersion(rs.getInt("version"));
             LOGGER.info("FinancialStatement updated: {}", statement);
             // Обновление StatementItems должно происходить отдельно
         } catch (SQLException e) {
@@ -173,7 +319,7 @@ public class FinancialStatementDao implements GenericDao<FinancialStatement, Int
         }
     }
 
-    private FinancialStatement mapResultSetToFinancialStatement(ResultSet rs) throws SQLException {
+    static FinancialStatement mapResultSetToFinancialStatement(ResultSet rs) throws SQLException {
         FinancialStatement statement = new FinancialStatement();
         statement.setId(rs.getInt("id"));
         statement.setBankId(rs.getInt("bank_id"));
@@ -185,7 +331,51 @@ public class FinancialStatementDao implements GenericDao<FinancialStatement, Int
             statement.setCreatedAt(createdAtTs.toLocalDateTime());
         }
         statement.setCreatedByUserId(rs.getObject("created_by_user_id", Integer.class)); // getObject для nullable Integer
+        statement.setVersion(rs.getInt("version"));
         // Загрузка Bank и User объектов, а также списка StatementItem'ов - задача сервисного слоя
         return statement;
     }
+
+    // Банк из колонок bank_* запросов с JOIN banks
+    static Bank mapJoinedBank(ResultSet rs) throws SQLException {
+        Bank bank = new Bank();
+        bank.setId(rs.getInt("bank_id"));
+        bank.setName(rs.getString("bank_name"));
+        bank.setRegistrationNumber(rs.getString("bank_registration_number"));
+        bank.setAddress(rs.getString("bank_address"));
+        return bank;
+    }
+
+    // Автор отчета из колонок user_* запроса с LEFT JOIN users; null, если автор не указан или удален
+    private User mapJoinedUser(ResultSet rs) throws SQLException {
+        Integer userId = rs.getObject("created_by_user_id", Integer.class);
+        String username = rs.getString("user_username");
+        if (userId == null || username == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(username);
+        user.setFullName(rs.getString("user_full_name"));
+        user.setEmail(rs.getString("user_email"));
+        user.setRoleId(rs.getInt("user_role_id"));
+        user.setActive(rs.getBoolean("user_is_active"));
+        return user;
+    }
+
+    // Статья из колонок item_* запросов с LEFT JOIN statement_items; null, если у отчета нет статей
+    private StatementItem mapJoinedStatementItem(ResultSet rs) throws SQLException {
+        int itemId = rs.getInt("item_id");
+        if (rs.wasNull()) {
+            return null;
+        }
+        StatementItem item = new StatementItem();
+        item.setId(itemId);
+        item.setStatementId(rs.getInt("id"));
+        item.setItemCode(rs.getString("item_code"));
+        item.setItemName(rs.getString("item_name"));
+        item.setItemValue(rs.getBigDecimal("item_value"));
+        item.setParentItemId(rs.getObject("parent_item_id", Integer.class));
+        return item;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.bsuir.bankliquiditserver.dao;
+
+import com.bsuir.bankliquiditserver.analysis.RunningStats;
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Накопленные по отчетам банка среднее и дисперсия значений статей (таблица item_value_stats)
+public class ItemValueStatsDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ItemValueStatsDao.class);
+
+    private static final String SELECT_BY_BANK_AND_CODES = "SELECT item_code, sample_count, mean, m2 FROM item_value_stats " +
+            "WHERE bank_id = ? AND statement_type = ? AND item_code = ANY(?);";
+    // Объединение статистик по формуле Чана прямо в UPSERT: одновременные загрузки отчетов одного банка не теряют значения.
+    // В SET item_value_stats.* - значения строки до изменения
+    private static final String MERGE = "INSERT INTO item_value_stats (bank_id, statement_type, item_code, sample_count, mean, m2, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (bank_id, statement_type, item_code) DO UPDATE SET " +
+            "sample_count = item_value_stats.sample_count + EXCLUDED.sample_count, " +
+            "mean = item_value_stats.mean + (EXCLUDED.mean - item_value_stats.mean) * EXCLUDED.sample_count " +
+            "/ (item_value_stats.sample_count + EXCLUDED.sample_count), " +
+            "m2 = item_value_stats.m2 + EXCLUDED.m2 + (EXCLUDED.mean - item_value_stats.mean) * (EXCLUDED.mean - item_value_stats.mean) " +
+            "* item_value_stats.sample_count * EXCLUDED.sample_count / (item_value_stats.sample_count + EXCLUDED.sample_count), " +
+            "updated_at = EXCLUDED.updated_at;";
+
+    /**
+     * Статистики банка по заданным кодам статей одним запросом (по первичному ключу, без просмотра истории отчетов).
+     * @return код статьи -> статистика; кодов без истории в карте нет.
+     */
+    public Map<String, RunningStats> findByBankAndCodes(int bankId, String statementType, Collection<String> itemCodes) throws SQLException {
+        Map<String, RunningStats> stats = new HashMap<>();
+        if (itemCodes.isEmpty()) {
+            return stats;
+        }
+        try (Connection connection = DatabaseConnector.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_BY_BANK_AND_CODES)) {
+            ps.setInt(1, bankId);
+            ps.setString(2, statementType);
+            ps.setArray(3, connection.createArrayOf("varchar", itemCodes.toArray()));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                stats.put(rs.getString("item_code"), new RunningStats(rs.getLong("sample_count"), rs.getDouble("mean"), rs.getDouble("m2")));
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding item value stats for bank {}, type {}: {}", bankId, statementType, e.getMessage());
+            throw e;
+        }
+        return stats;
+    }
+
+    /**
+     * Добавляет к статистикам банка значения одного отчета (по коду статьи - статистика этих значений).
+     */
+    public void mergeAll(int bankId, String statementType, Map<String, RunningStats> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try (Connection connection = DatabaseConnector.getConnection();
+             PreparedStatement ps = connection.prepareStatement(MERGE)) {
+            connection.setAutoCommit(false);
+            try {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                // Строки в одном порядке во всех транзакциях - без взаимных блокировок
+                for (Map.Entry<String, RunningStats> entry : new TreeMap<>(batch).entrySet()) {
+                    ps.setInt(1, bankId);
+                    ps.setString(2, statementType);
+                    ps.setString(3, entry.getKey());
+                    ps.setLong(4, entry.getValue().getCount());
+                    ps.setDouble(5, entry.getValue().getMean());
+                    ps.setDouble(6, entry.getValue().getM2());
+                    ps.setTimestamp(7, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                LOGGER.error("Error merging item value stats for bank {}, type {}: {}", bankId, statementType, e.getMessage());
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
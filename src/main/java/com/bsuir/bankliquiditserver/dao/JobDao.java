@@ -0,0 +1,257 @@
+package com.bsuir.bankliquiditserver.dao;
+
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import com.bsuir.bankliquiditserver.model.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Очередь задач в таблице jobs. Все переходы состояния - одиночные UPDATE с условием на текущий статус
+ * и исполнителя, поэтому узлы не мешают друг другу без явных блокировок: задачу забирают через
+ * FOR UPDATE SKIP LOCKED, а результат записывается, только если аренда все еще у того же исполнителя.
+ * Время аренды и повторов считается по часам БД (LOCALTIMESTAMP), а не узла.
+ */
+public class JobDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobDao.class);
+
+    private static final String COLUMNS = "id, job_type, payload, status, priority, attempts, max_attempts, run_at, locked_by, lease_until, " +
+            "progress, progress_message, last_error, result, schedule_name, created_by_user_id, created_at, started_at, finished_at";
+    private static final String INSERT = "INSERT INTO jobs (job_type, payload, priority, max_attempts, run_at, created_by_user_id) " +
+            "VALUES (?, CAST(? AS JSONB), ?, ?, COALESCE(?, LOCALTIMESTAMP), ?) RETURNING " + COLUMNS + ";";
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM jobs WHERE id = ?;";
+    private static final String SELECT_RECENT = "SELECT " + COLUMNS + " FROM jobs ORDER BY id DESC LIMIT ?;";
+    private static final String SELECT_RECENT_BY_STATUS = "SELECT " + COLUMNS + " FROM jobs WHERE status = ? ORDER BY id DESC LIMIT ?;";
+    // Строки, заблокированные другими узлами, пропускаются, а не ждут - каждый узел забирает свою задачу
+    private static final String CLAIM = "UPDATE jobs SET status = 'RUNNING', attempts = attempts + 1, locked_by = ?, " +
+            "lease_until = LOCALTIMESTAMP + ? * INTERVAL '1 second', started_at = COALESCE(started_at, LOCALTIMESTAMP) " +
+            "WHERE id = (SELECT id FROM jobs WHERE status = 'QUEUED' AND run_at <= LOCALTIMESTAMP AND job_type = ANY(?) " +
+            "ORDER BY priority DESC, run_at, id LIMIT 1 FOR UPDATE SKIP LOCKED) RETURNING " + COLUMNS + ";";
+    private static final String RENEW_LEASE = "UPDATE jobs SET lease_until = LOCALTIMESTAMP + ? * INTERVAL '1 second', progress = ?, progress_message = ? " +
+            "WHERE id = ? AND locked_by = ? AND status = 'RUNNING';";
+    private static final String COMPLETE = "UPDATE jobs SET status = 'SUCCEEDED', result = CAST(? AS JSONB), progress = 100, " +
+            "locked_by = NULL, lease_until = NULL, finished_at = LOCALTIMESTAMP WHERE id = ? AND locked_by = ? AND status = 'RUNNING';";
+    // Повтор, если ошибка допускает его и попытки не исчерпаны; иначе - FAILED
+    private static final String FAIL = "UPDATE jobs SET " +
+            "status = CASE WHEN ? AND attempts < max_attempts THEN 'QUEUED' ELSE 'FAILED' END, " +
+            "run_at = CASE WHEN ? AND attempts < max_attempts THEN LOCALTIMESTAMP + ? * INTERVAL '1 second' ELSE run_at END, " +
+            "finished_at = CASE WHEN ? AND attempts < max_attempts THEN NULL ELSE LOCALTIMESTAMP END, " +
+            "last_error = ?, locked_by = NULL, lease_until = NULL WHERE id = ? AND locked_by = ? AND status = 'RUNNING' RETURNING status;";
+    // Исполнитель перестал продлевать аренду (узел упал или завис) - задача снова в очереди
+    private static final String REQUEUE_EXPIRED = "UPDATE jobs SET " +
+            "status = CASE WHEN attempts < max_attempts THEN 'QUEUED' ELSE 'FAILED' END, " +
+            "finished_at = CASE WHEN attempts < max_attempts THEN NULL ELSE LOCALTIMESTAMP END, " +
+            "last_error = 'Lease expired, worker ' || locked_by || ' stopped renewing it', run_at = LOCALTIMESTAMP, " +
+            "locked_by = NULL, lease_until = NULL WHERE status = 'RUNNING' AND lease_until < LOCALTIMESTAMP;";
+    private static final String CANCEL = "UPDATE jobs SET status = 'CANCELLED', locked_by = NULL, lease_until = NULL, finished_at = LOCALTIMESTAMP " +
+            "WHERE id = ? AND status IN ('QUEUED', 'RUNNING');";
+    private static final String DELETE_FINISHED_BEFORE = "DELETE FROM jobs WHERE status IN ('SUCCEEDED', 'FAILED', 'CANCELLED') AND finished_at < ?;";
+
+    public Job insert(Job job) throws SQLException {
+        try (Connection connection = DatabaseConnector.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            ps.setString(1, job.getJobType());
+            ps.setString(2, job.getPayload());
+            ps.setInt(3, job.getPriority());
+            ps.setInt(4, job.getMaxAttempts());
+            ps.setTimestamp(5, job.getRunAt() != null ? Timestamp.valueOf(job.getRunAt()) : null);
+            if (job.getCreatedByUserId() != null) {
+                ps.setInt(6, job.getCreatedByUserId());
+            } else {
+                ps.setNull(6, Types.INTEGER);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Creating job failed, no row returned.");
+                }
+                return mapResultSetToJob(rs);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error inserting job {}: {}", job.getJobType(), e.getMessage());
+            throw e;
+        }
+    }
+
+    public Optional<Job> findById(long id) throws SQLException {
+        Job job = null;
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_BY_ID)) {
+            ps.setLong(1, id);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                job = mapResultSetToJob(rs);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding job by id {}: {}", id, e.getMessage());
+            throw e;
+        }
+        return Optional.ofNullable(job);
+    }
+
+    // Последние задачи (новые первыми); status == null - любые
+    public List<Job> findRecent(String status, int limit) throws SQLException {
+        List<Job> jobs = new ArrayList<>();
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(status != null ? SELECT_RECENT_BY_STATUS : SELECT_RECENT)) {
+            int index = 1;
+            if (status != null) {
+                ps.setString(index++, status);
+            }
+            ps.setInt(index, limit);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                jobs.add(mapResultSetToJob(rs));
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding recent jobs (status {}): {}", status, e.getMessage());
+            throw e;
+        }
+        return jobs;
+    }
+
+    /**
+     * Забирает самую приоритетную готовую задачу одного из типов и выдает аренду на leaseSeconds.
+     * Пустой Optional - готовых задач нет (или все заняты другими узлами).
+     */
+    public Optional<Job> claimNext(String workerId, Collection<String> jobTypes, int leaseSeconds) throws SQLException {
+        Job job = null;
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(CLAIM)) {
+            ps.setString(1, workerId);
+            ps.setInt(2, leaseSeconds);
+            ps.setArray(3, connection.createArrayOf("varchar", jobTypes.toArray()));
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                job = mapResultSetToJob(rs);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error claiming job for worker {}: {}", workerId, e.getMessage());
+            throw e;
+        }
+        return Optional.ofNullable(job);
+    }
+
+    /**
+     * Продлевает аренду и записывает прогресс.
+     * @return false - задача уже не у этого исполнителя (отменена или аренда истекла и задачу забрали).
+     */
+    public boolean renewLease(long id, String workerId, int leaseSeconds, int progress, String progressMessage) throws SQLException {
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(RENEW_LEASE)) {
+            ps.setInt(1, leaseSeconds);
+            ps.setInt(2, progress);
+            ps.setString(3, progressMessage);
+            ps.setLong(4, id);
+            ps.setString(5, workerId);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error renewing lease of job {}: {}", id, e.getMessage());
+            throw e;
+        }
+    }
+
+    // false - результат не записан: задача уже не у этого исполнителя
+    public boolean complete(long id, String workerId, String resultJson) throws SQLException {
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(COMPLETE)) {
+            ps.setString(1, resultJson);
+            ps.setLong(2, id);
+            ps.setString(3, workerId);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error completing job {}: {}", id, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Записывает ошибку. Если retryable и попытки не исчерпаны, задача возвращается в очередь через retryDelaySeconds.
+     * @return Новый статус (QUEUED или FAILED); пустой Optional - задача уже не у этого исполнителя.
+     */
+    public Optional<String> fail(long id, String workerId, String error, boolean retryable, long retryDelaySeconds) throws SQLException {
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(FAIL)) {
+            ps.setBoolean(1, retryable);
+            ps.setBoolean(2, retryable);
+            ps.setLong(3, retryDelaySeconds);
+            ps.setBoolean(4, retryable);
+            ps.setString(5, error);
+            ps.setLong(6, id);
+            ps.setString(7, workerId);
+            ResultSet rs = ps.executeQuery();
+            return rs.next() ? Optional.of(rs.getString("status")) : Optional.empty();
+        } catch (SQLException e) {
+            LOGGER.error("Error recording failure of job {}: {}", id, e.getMessage());
+            throw e;
+        }
+    }
+
+    // Число задач, возвращенных в очередь (или проваленных) из-за истекшей аренды
+    public int requeueExpired() throws SQLException {
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(REQUEUE_EXPIRED)) {
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.error("Error requeueing jobs with expired leases: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    // false - задачи нет или она уже завершена
+    public boolean cancel(long id) throws SQLException {
+        try (Connection connection = DatabaseConnector.getConnection();
+             PreparedStatement ps = connection.prepareStatement(CANCEL)) {
+            ps.setLong(1, id);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error cancelling job {}: {}", id, e.getMessage());
+            throw e;
+        }
+    }
+
+    public int deleteFinishedBefore(LocalDateTime before) throws SQLException {
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(DELETE_FINISHED_BEFORE)) {
+            ps.setTimestamp(1, Timestamp.valueOf(before));
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.error("Error deleting finished jobs before {}: {}", before, e.getMessage());
+            throw e;
+        }
+    }
+
+    private Job mapResultSetToJob(ResultSet rs) throws SQLException {
+        Job job = new Job();
+        job.setId(rs.getLong("id"));
+        job.setJobType(rs.getString("job_type"));
+        job.setPayload(rs.getString("payload"));
+        job.setStatus(rs.getString("status"));
+        job.setPriority(rs.getInt("priority"));
+        job.setAttempts(rs.getInt("attempts"));
+        job.setMaxAttempts(rs.getInt("max_attempts"));
+        job.setRunAt(toLocalDateTime(rs.getTimestamp("run_at")));
+        job.setLockedBy(rs.getString("locked_by"));
+        job.setLeaseUntil(toLocalDateTime(rs.getTimestamp("lease_until")));
+        job.setProgress(rs.getInt("progress"));
+        job.setProgressMessage(rs.getString("progress_message"));
+        job.setLastError(rs.getString("last_error"));
+        job.setResult(rs.getString("result"));
+        job.setScheduleName(rs.getString("schedule_name"));
+        int createdBy = rs.getInt("created_by_user_id");
+        job.setCreatedByUserId(rs.wasNull() ? null : createdBy);
+        job.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        job.setStartedAt(toLocalDateTime(rs.getTimestamp("started_at")));
+        job.setFinishedAt(toLocalDateTime(rs.getTimestamp("finished_at")));
+        return job;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,140 @@
+package com.bsuir.bankliquiditserver.dao;
+
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import com.bsuir.bankliquiditserver.model.JobSchedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+public class JobScheduleDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobScheduleDao.class);
+
+    private static final String COLUMNS = "name, job_type, payload, cron_expression, enabled, next_run_at, last_run_at";
+    private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM job_schedules ORDER BY name;";
+    private static final String UPSERT = "INSERT INTO job_schedules (name, job_type, payload, cron_expression, enabled, next_run_at) " +
+            "VALUES (?, ?, CAST(? AS JSONB), ?, ?, ?) ON CONFLICT (name) DO UPDATE SET job_type = EXCLUDED.job_type, payload = EXCLUDED.payload, " +
+            "cron_expression = EXCLUDED.cron_expression, enabled = EXCLUDED.enabled, next_run_at = EXCLUDED.next_run_at;";
+    // Планировщик один на кластер: блокировка транзакции, освобождается при COMMIT/ROLLBACK, остальные узлы ее не ждут
+    private static final String TRY_SCHEDULER_LOCK = "SELECT pg_try_advisory_xact_lock(hashtext('bankliquidity.job_scheduler'));";
+    private static final String SELECT_DUE = "SELECT " + COLUMNS + ", LOCALTIMESTAMP AS db_now FROM job_schedules " +
+            "WHERE enabled AND (next_run_at IS NULL OR next_run_at <= LOCALTIMESTAMP) FOR UPDATE;";
+    // Новый запуск не ставится, пока предыдущий по этому расписанию не завершен
+    private static final String INSERT_JOB = "INSERT INTO jobs (job_type, payload, schedule_name) SELECT ?, CAST(? AS JSONB), ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM jobs WHERE schedule_name = ? AND status IN ('QUEUED', 'RUNNING'));";
+    private static final String UPDATE_NEXT_RUN = "UPDATE job_schedules SET next_run_at = ?, last_run_at = COALESCE(?, last_run_at) WHERE name = ?;";
+    private static final String DISABLE = "UPDATE job_schedules SET enabled = FALSE WHERE name = ?;";
+
+    public List<JobSchedule> findAll() throws SQLException {
+        List<JobSchedule> schedules = new ArrayList<>();
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_ALL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                schedules.add(mapResultSetToJobSchedule(rs));
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding all job schedules: {}", e.getMessage());
+            throw e;
+        }
+        return schedules;
+    }
+
+    public void upsert(JobSchedule schedule) throws SQLException {
+        try (Connection connection = DatabaseConnector.getConnection();
+             PreparedStatement ps = connection.prepareStatement(UPSERT)) {
+            ps.setString(1, schedule.getName());
+            ps.setString(2, schedule.getJobType());
+            ps.setString(3, schedule.getPayload());
+            ps.setString(4, schedule.getCronExpression());
+            ps.setBoolean(5, schedule.isEnabled());
+            ps.setTimestamp(6, schedule.getNextRunAt() != null ? Timestamp.valueOf(schedule.getNextRunAt()) : null);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.error("Error saving job schedule {}: {}", schedule.getName(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Ставит в очередь задачи наступивших расписаний и переносит их next_run_at - в одной транзакции
+     * под advisory lock, так что одно срабатывание расписания дает одну задачу, сколько бы узлов ни проверяло его.
+     * @param nextRunAt Следующий запуск по расписанию после момента (время БД); null - выражение некорректно, расписание отключается.
+     * @return Число поставленных задач; -1, если планировщик сейчас работает на другом узле.
+     */
+    public int enqueueDue(BiFunction<JobSchedule, LocalDateTime, LocalDateTime> nextRunAt) throws SQLException {
+        try (Connection connection = DatabaseConnector.getPrimaryConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement lock = connection.prepareStatement(TRY_SCHEDULER_LOCK);
+                 ResultSet lockResult = lock.executeQuery()) {
+                if (!lockResult.next() || !lockResult.getBoolean(1)) {
+                    connection.rollback();
+                    return -1;
+                }
+            }
+            try (PreparedStatement selectDue = connection.prepareStatement(SELECT_DUE);
+                 PreparedStatement insertJob = connection.prepareStatement(INSERT_JOB);
+                 PreparedStatement updateNext = connection.prepareStatement(UPDATE_NEXT_RUN);
+                 PreparedStatement disable = connection.prepareStatement(DISABLE)) {
+                int enqueued = 0;
+                ResultSet rs = selectDue.executeQuery();
+                while (rs.next()) {
+                    JobSchedule schedule = mapResultSetToJobSchedule(rs);
+                    LocalDateTime now = rs.getTimestamp("db_now").toLocalDateTime();
+                    LocalDateTime next = nextRunAt.apply(schedule, now);
+                    if (next == null) {
+                        disable.setString(1, schedule.getName());
+                        disable.executeUpdate();
+                        continue;
+                    }
+                    boolean fire = schedule.getNextRunAt() != null; // Новое расписание только получает время первого запуска
+                    if (fire) {
+                        insertJob.setString(1, schedule.getJobType());
+                        insertJob.setString(2, schedule.getPayload());
+                        insertJob.setString(3, schedule.getName());
+                        insertJob.setString(4, schedule.getName());
+                        if (insertJob.executeUpdate() > 0) {
+                            enqueued++;
+                        } else {
+                            LOGGER.info("Schedule '{}' skipped: previous job is still queued or running.", schedule.getName());
+                        }
+                    }
+                    updateNext.setTimestamp(1, Timestamp.valueOf(next));
+                    updateNext.setTimestamp(2, fire ? Timestamp.valueOf(now) : null);
+                    updateNext.setString(3, schedule.getName());
+                    updateNext.executeUpdate();
+                }
+                connection.commit();
+                return enqueued;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error enqueueing due scheduled jobs: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    private JobSchedule mapResultSetToJobSchedule(ResultSet rs) throws SQLException {
+        JobSchedule schedule = new JobSchedule();
+        schedule.setName(rs.getString("name"));
+        schedule.setJobType(rs.getString("job_type"));
+        schedule.setPayload(rs.getString("payload"));
+        schedule.setCronExpression(rs.getString("cron_expression"));
+        schedule.setEnabled(rs.getBoolean("enabled"));
+        Timestamp nextRunAt = rs.getTimestamp("next_run_at");
+        if (nextRunAt != null) {
+            schedule.setNextRunAt(nextRunAt.toLocalDateTime());
+        }
+        Timestamp lastRunAt = rs.getTimestamp("last_run_at");
+        if (lastRunAt != null) {
+            schedule.setLastRunAt(lastRunAt.toLocalDateTime());
+        }
+        return schedule;
+    }
+}
@@ -24,7 +24,7 @@ public class RoleDao implements GenericDao<Role, Integer> {
     @Override
     public Optional<Role> findById(Integer id) throws SQLException {
         Role role = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ROLE_BY_ID)) {
             preparedStatement.setInt(1, id);
             ResultSet rs = preparedStatement.executeQuery();
@@ -40,7 +40,7 @@ public class RoleDao implements GenericDao<Role, Integer> {
 
     public Optional<Role> findByName(String roleName) throws SQLException {
         Role role = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ROLE_BY_NAME)) {
             preparedStatement.setString(1, roleName);
             ResultSet rs = preparedStatement.executeQuery();
@@ -57,7 +57,7 @@ public class RoleDao implements GenericDao<Role, Integer> {
     @Override
     public List<Role> findAll() throws SQLException {
         List<Role> roles = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_ROLES);
              ResultSet rs = preparedStatement.executeQuery()) {
             while (rs.next()) {
@@ -0,0 +1,81 @@
+package com.bsuir.bankliquiditserver.dao;
+
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import com.bsuir.bankliquiditserver.model.StatementAnomaly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StatementAnomalyDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementAnomalyDao.class);
+
+    private static final String INSERT = "INSERT INTO statement_anomalies (statement_id, bank_id, item_code, item_name, item_value, expected_mean, std_dev, z_score, sample_count, detected_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+    private static final String SELECT_BY_STATEMENT_ID = "SELECT id, statement_id, bank_id, item_code, item_name, item_value, expected_mean, std_dev, z_score, sample_count, detected_at " +
+            "FROM statement_anomalies WHERE statement_id = ? ORDER BY ABS(z_score) DESC;";
+
+    public void saveAll(List<StatementAnomaly> anomalies) throws SQLException {
+        if (anomalies.isEmpty()) {
+            return;
+        }
+        try (Connection connection = DatabaseConnector.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            for (StatementAnomaly anomaly : anomalies) {
+                ps.setInt(1, anomaly.getStatementId());
+                ps.setInt(2, anomaly.getBankId());
+                ps.setString(3, anomaly.getItemCode());
+                ps.setString(4, anomaly.getItemName());
+                ps.setBigDecimal(5, anomaly.getItemValue());
+                ps.setDouble(6, anomaly.getExpectedMean());
+                ps.setDouble(7, anomaly.getStdDev());
+                ps.setDouble(8, anomaly.getZScore());
+                ps.setLong(9, anomaly.getSampleCount());
+                ps.setTimestamp(10, Timestamp.valueOf(anomaly.getDetectedAt()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            LOGGER.info("{} anomalies saved for statementId {}", anomalies.size(), anomalies.get(0).getStatementId());
+        } catch (SQLException e) {
+            LOGGER.error("Error saving {} statement anomalies: {}", anomalies.size(), e.getMessage());
+            throw e;
+        }
+    }
+
+    public List<StatementAnomaly> findByStatementId(int statementId) throws SQLException {
+        List<StatementAnomaly> anomalies = new ArrayList<>();
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_BY_STATEMENT_ID)) {
+            ps.setInt(1, statementId);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                anomalies.add(mapResultSetToAnomaly(rs));
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding anomalies by statement_id {}: {}", statementId, e.getMessage());
+            throw e;
+        }
+        return anomalies;
+    }
+
+    private StatementAnomaly mapResultSetToAnomaly(ResultSet rs) throws SQLException {
+        StatementAnomaly anomaly = new StatementAnomaly();
+        anomaly.setId(rs.getInt("id"));
+        anomaly.setStatementId(rs.getInt("statement_id"));
+        anomaly.setBankId(rs.getInt("bank_id"));
+        anomaly.setItemCode(rs.getString("item_code"));
+        anomaly.setItemName(rs.getString("item_name"));
+        anomaly.setItemValue(rs.getBigDecimal("item_value"));
+        anomaly.setExpectedMean(rs.getDouble("expected_mean"));
+        anomaly.setStdDev(rs.getDouble("std_dev"));
+        anomaly.setZScore(rs.getDouble("z_score"));
+        anomaly.setSampleCount(rs.getLong("sample_count"));
+        Timestamp detectedAt = rs.getTimestamp("detected_at");
+        if (detectedAt != null) {
+            anomaly.setDetectedAt(detectedAt.toLocalDateTime());
+        }
+        return anomaly;
+    }
+}
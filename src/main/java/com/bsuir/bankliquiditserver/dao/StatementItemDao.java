@@ -7,7 +7,10 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class StatementItemDao implements GenericDao<StatementItem, Integer> {
@@ -20,12 +23,13 @@ public class StatementItemDao implements GenericDao<StatementItem, Integer> {
     private static final String DELETE_BY_ID = "DELETE FROM statement_items WHERE id = ?;";
     private static final String SELECT_BY_STATEMENT_ID = "SELECT id, statement_id, item_code, item_name, item_value, parent_item_id FROM statement_items WHERE statement_id = ? ORDER BY item_code, item_name;";
     private static final String DELETE_BY_STATEMENT_ID = "DELETE FROM statement_items WHERE statement_id = ?;";
+    private static final String SELECT_BY_STATEMENT_IDS = "SELECT id, statement_id, item_code, item_name, item_value, parent_item_id FROM statement_items WHERE statement_id = ANY(?) ORDER BY statement_id, item_code, item_name;";
 
 
     @Override
     public Optional<StatementItem> findById(Integer id) throws SQLException {
         StatementItem item = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_ID)) {
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -42,7 +46,7 @@ public class StatementItemDao implements GenericDao<StatementItem, Integer> {
     @Override
     public List<StatementItem> findAll() throws SQLException {
         List<StatementItem> items = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getReadConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_ALL);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -57,7 +61,7 @@ public class StatementItemDao implements GenericDao<StatementItem, Integer> {
 
     public List<StatementItem> findByStatementId(Integer statementId) throws SQLException {
         List<StatementItem> items = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_STATEMENT_ID)) {
             ps.setInt(1, statementId);
             ResultSet rs = ps.executeQuery();
@@ -71,6 +75,30 @@ public class StatementItemDao implements GenericDao<StatementItem, Integer> {
         return items;
     }
 
+    /**
+     * Статьи сразу нескольких отчетов одним запросом (вместо findByStatementId в цикле).
+     * @return statement_id -> статьи; для отчетов без статей ключа нет.
+     */
+    public Map<Integer, List<StatementItem>> findByStatementIds(Collection<Integer> statementIds) throws SQLException {
+        Map<Integer, List<StatementItem>> itemsByStatement = new HashMap<>();
+        if (statementIds.isEmpty()) {
+            return itemsByStatement;
+        }
+        try (Connection connection = DatabaseConnector.getReadConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_BY_STATEMENT_IDS)) {
+            ps.setArray(1, connection.createArrayOf("integer", statementIds.toArray()));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                StatementItem item = mapResultSetToStatementItem(rs);
+                itemsByStatement.computeIfAbsent(item.getStatementId(), id -> new ArrayList<>()).add(item);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding StatementItems for {} statements: {}", statementIds.size(), e.getMessage());
+            throw e;
+        }
+        return itemsByStatement;
+    }
+
     @Override
     public StatementItem save(StatementItem item) throws SQLException {
         try (Connection connection = DatabaseConnector.getConnection();
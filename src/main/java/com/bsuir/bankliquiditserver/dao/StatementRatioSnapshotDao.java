@@ -0,0 +1,184 @@
+package com.bsuir.bankliquiditserver.dao;
+
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.model.StatementRatioSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class StatementRatioSnapshotDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementRatioSnapshotDao.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(); // Для JSONB колонок group_sums/ratios
+    private static final TypeReference<LinkedHashMap<String, BigDecimal>> DECIMAL_MAP = new TypeReference<>() {};
+
+    private static final String SELECT_BY_STATEMENT_AND_VERSION = "SELECT statement_id, definitions_version, computed_at, item_count, group_sums, ratios FROM statement_ratio_snapshots WHERE statement_id = ? AND definitions_version = ?;";
+    private static final String UPSERT = "INSERT INTO statement_ratio_snapshots (statement_id, definitions_version, computed_at, item_count, group_sums, ratios) VALUES (?, ?, ?, ?, CAST(? AS JSONB), CAST(? AS JSONB)) " +
+            "ON CONFLICT (statement_id, definitions_version) DO UPDATE SET computed_at = EXCLUDED.computed_at, item_count = EXCLUDED.item_count, group_sums = EXCLUDED.group_sums, ratios = EXCLUDED.ratios;";
+    private static final String DELETE_OTHER_VERSIONS = "DELETE FROM statement_ratio_snapshots WHERE statement_id = ? AND definitions_version <> ?;";
+    // Отчет банка (с данными банка) и его снимок нужной версии одной строкой; колонки снимка NULL, если его нет
+    private static final String SELECT_WITH_STATEMENT_FROM = "SELECT fs.id, fs.bank_id, fs.report_date, fs.statement_type, fs.currency, fs.created_at, fs.created_by_user_id, fs.version, " +
+            "b.name AS bank_name, b.registration_number AS bank_registration_number, b.address AS bank_address, " +
+            "s.definitions_version, s.computed_at AS snapshot_computed_at, s.item_count, s.group_sums, s.ratios " +
+            "FROM financial_statements fs JOIN banks b ON b.id = fs.bank_id " +
+            "LEFT JOIN statement_ratio_snapshots s ON s.statement_id = fs.id AND s.definitions_version = ? ";
+    private static final String SELECT_WITH_STATEMENT = SELECT_WITH_STATEMENT_FROM + "WHERE fs.bank_id = ? AND fs.statement_type = ? ";
+    private static final String SELECT_WITH_STATEMENT_BY_DATE = SELECT_WITH_STATEMENT + "AND fs.report_date = ?;";
+    private static final String SELECT_WITH_STATEMENT_LATEST = SELECT_WITH_STATEMENT + "ORDER BY fs.report_date DESC LIMIT 1;";
+    private static final String SELECT_ALL_WITH_STATEMENT = SELECT_WITH_STATEMENT_FROM + "WHERE fs.statement_type = ? ORDER BY fs.report_date, fs.bank_id;";
+
+    public Optional<StatementRatioSnapshot> findByStatementIdAndVersion(int statementId, String definitionsVersion) throws SQLException {
+        StatementRatioSnapshot snapshot = null;
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_BY_STATEMENT_AND_VERSION)) {
+            ps.setInt(1, statementId);
+            ps.setString(2, definitionsVersion);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                snapshot = new StatementRatioSnapshot();
+                snapshot.setStatementId(rs.getInt("statement_id"));
+                snapshot.setDefinitionsVersion(rs.getString("definitions_version"));
+                Timestamp computedAt = rs.getTimestamp("computed_at");
+                if (computedAt != null) {
+                    snapshot.setComputedAt(computedAt.toLocalDateTime());
+                }
+                snapshot.setItemCount(rs.getInt("item_count"));
+                snapshot.setGroupSums(readDecimalMap(rs.getString("group_sums")));
+                snapshot.setRatios(readDecimalMap(rs.getString("ratios")));
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding ratio snapshot for statement {} version {}: {}", statementId, definitionsVersion, e.getMessage());
+            throw e;
+        }
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * Находит отчет банка (на дату или последний, если reportDate == null) вместе со снимком коэффициентов
+     * указанной версии. Пустой Optional - отчета нет; снимок с definitionsVersion == null - отчет есть, снимка нет.
+     */
+    public Optional<StatementRatioSnapshot> findWithStatement(int bankId, LocalDate reportDate, String statementType,
+                                                              String definitionsVersion) throws SQLException {
+        StatementRatioSnapshot snapshot = null;
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(reportDate != null ? SELECT_WITH_STATEMENT_BY_DATE : SELECT_WITH_STATEMENT_LATEST)) {
+            ps.setString(1, definitionsVersion);
+            ps.setInt(2, bankId);
+            ps.setString(3, statementType);
+            if (reportDate != null) {
+                ps.setDate(4, Date.valueOf(reportDate));
+            }
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                snapshot = mapWithStatement(rs);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding statement with ratio snapshot for bank {}, date {}, type {}: {}",
+                    bankId, reportDate, statementType, e.getMessage());
+            throw e;
+        }
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * Все отчеты заданного типа (с банками) вместе со снимками указанной версии - один запрос.
+     * У отчетов без снимка этой версии definitionsVersion == null.
+     */
+    public List<StatementRatioSnapshot> findAllWithStatements(String statementType, String definitionsVersion) throws SQLException {
+        List<StatementRatioSnapshot> snapshots = new ArrayList<>();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_ALL_WITH_STATEMENT)) {
+            ps.setString(1, definitionsVersion);
+            ps.setString(2, statementType);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                snapshots.add(mapWithStatement(rs));
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error finding statements with ratio snapshots, type {}: {}", statementType, e.getMessage());
+            throw e;
+        }
+        return snapshots;
+    }
+
+    // Строка запросов SELECT_WITH_STATEMENT*: отчет с банком и, если есть, снимок
+    private StatementRatioSnapshot mapWithStatement(ResultSet rs) throws SQLException {
+        FinancialStatement statement = FinancialStatementDao.mapResultSetToFinancialStatement(rs);
+        statement.setBank(FinancialStatementDao.mapJoinedBank(rs));
+        StatementRatioSnapshot snapshot = new StatementRatioSnapshot();
+        snapshot.setStatement(statement);
+        String version = rs.getString("definitions_version");
+        if (version != null) {
+            snapshot.setDefinitionsVersion(version);
+            Timestamp computedAt = rs.getTimestamp("snapshot_computed_at");
+            if (computedAt != null) {
+                snapshot.setComputedAt(computedAt.toLocalDateTime());
+            }
+            snapshot.setItemCount(rs.getInt("item_count"));
+            snapshot.setGroupSums(readDecimalMap(rs.getString("group_sums")));
+            snapshot.setRatios(readDecimalMap(rs.getString("ratios")));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Сохраняет снимок и удаляет снимки этого отчета по другим версиям определений - в одной транзакции.
+     */
+    public void saveReplacingOtherVersions(StatementRatioSnapshot snapshot) throws SQLException {
+        try (Connection connection = DatabaseConnector.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement upsert = connection.prepareStatement(UPSERT);
+                 PreparedStatement deleteOthers = connection.prepareStatement(DELETE_OTHER_VERSIONS)) {
+                upsert.setInt(1, snapshot.getStatementId());
+                upsert.setString(2, snapshot.getDefinitionsVersion());
+                upsert.setTimestamp(3, Timestamp.valueOf(snapshot.getComputedAt() != null ? snapshot.getComputedAt() : LocalDateTime.now()));
+                upsert.setInt(4, snapshot.getItemCount());
+                upsert.setString(5, writeDecimalMap(snapshot.getGroupSums()));
+                upsert.setString(6, writeDecimalMap(snapshot.getRatios()));
+                upsert.executeUpdate();
+
+                deleteOthers.setInt(1, snapshot.getStatementId());
+                deleteOthers.setString(2, snapshot.getDefinitionsVersion());
+                deleteOthers.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error saving ratio snapshot for statement {}: {}", snapshot.getStatementId(), e.getMessage());
+            throw e;
+        }
+    }
+
+    private Map<String, BigDecimal> readDecimalMap(String json) throws SQLException {
+        if (json == null) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            return OBJECT_MAPPER.readValue(json, DECIMAL_MAP);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Malformed JSONB in statement_ratio_snapshots: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private String writeDecimalMap(Map<String, BigDecimal> map) throws SQLException {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(map);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Unable to serialize ratio snapshot: " + e.getOriginalMessage(), e);
+        }
+    }
+}
@@ -35,7 +35,7 @@ public class UserDao implements GenericDao<User, Integer> {
     @Override
     public Optional<User> findById(Integer id) throws SQLException {
         User user = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_ID_SQL)) {
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -52,7 +52,7 @@ public class UserDao implements GenericDao<User, Integer> {
     @Override
     public List<User> findAll() throws SQLException {
         List<User> users = new ArrayList<>();
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_ALL_SQL);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
@@ -159,7 +159,7 @@ public class UserDao implements GenericDao<User, Integer> {
 
     public Optional<User> findByUsername(String username) throws SQLException {
         User user = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_USERNAME_SQL)) {
             ps.setString(1, username);
             ResultSet rs = ps.executeQuery();
@@ -175,7 +175,7 @@ public class UserDao implements GenericDao<User, Integer> {
 
     public Optional<User> findByEmail(String email) throws SQLException {
         User user = null;
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement ps = connection.prepareStatement(SELECT_BY_EMAIL_SQL)) {
             ps.setString(1, email);
             ResultSet rs = ps.executeQuery();
@@ -257,7 +257,7 @@ public class UserDao implements GenericDao<User, Integer> {
     }
 
     public long countUsersByRoleId(int roleId) throws SQLException {
-        try (Connection connection = DatabaseConnector.getConnection();
+        try (Connection connection = DatabaseConnector.getPrimaryConnection();
              PreparedStatement ps = connection.prepareStatement(COUNT_USERS_BY_ROLE_ID_SQL)) {
             ps.setInt(1, roleId);
             ResultSet rs = ps.executeQuery();
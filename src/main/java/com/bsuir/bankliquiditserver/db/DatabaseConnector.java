@@ -1,19 +1,49 @@
 package com.bsuir.bankliquiditserver.db;
 
 import com.bsuir.bankliquiditserver.config.ConfigurationManager;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Соединения с основной БД и, если задан db.replica.url, с репликой только для чтения.
+ * Куда идет чтение, решает место вызова: getReadConnection - можно с реплики, getPrimaryConnection - только основная БД
+ * (данные для кэшей и проверок перед записью), getConnection - запись. Сессия, которая писала, читает из основной БД
+ * еще db.replica.stickyMs после записи, чтобы не увидеть реплику без своих изменений.
+ */
 public class DatabaseConnector {
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseConnector.class);
     private static final ConfigurationManager CONFIG = ConfigurationManager.getInstance();
     private static final String DB_URL = CONFIG.getProperty("db.url");
     private static final String DB_USERNAME = CONFIG.getProperty("db.username");
     private static final String DB_PASSWORD = CONFIG.getProperty("db.password");
+    // Имя узла в application_name соединений: по нему InvalidationBus отличает свои изменения от изменений других узлов
+    private static final String NODE_ID = CONFIG.getProperty("server.nodeId", UUID.randomUUID().toString().substring(0, 8));
+    private static final String APPLICATION_NAME = "bankliquidity-" + NODE_ID;
+    private static final String REPLICA_URL = CONFIG.getProperty("db.replica.url");
+    private static final String REPLICA_USERNAME = CONFIG.getProperty("db.replica.username", DB_USERNAME);
+    private static final String REPLICA_PASSWORD = CONFIG.getProperty("db.replica.password", DB_PASSWORD);
+    private static final long STICKY_NANOS = TimeUnit.MILLISECONDS.toNanos(CONFIG.getIntProperty("db.replica.stickyMs", 5000));
+    private static final long REPLICA_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(CONFIG.getIntProperty("db.replica.retryAfterFailureMs", 10000));
+    private static final ThreadLocal<int[]> PRIMARY_READ_DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    // Реплика недоступна: чтения идут в основную БД до replicaRetryAtNanos
+    private static volatile boolean replicaDown;
+    private static volatile long replicaRetryAtNanos;
+
+    // Вызов DAO, выполняемый в withPrimaryReads
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
 
     // Статическая инициализация драйвера
     static {
@@ -26,12 +56,109 @@ public class DatabaseConnector {
         }
     }
 
+    // Соединение для записи (основная БД); сессия после него читает из основной БД, пока не истечет окно
     public static Connection getConnection() throws SQLException {
-        Connection connection = DriverManager.getConnection(DB_URL, DB_USERNAME, DB_PASSWORD);
+        RequestContext.recordWrite(STICKY_NANOS);
+        ServerMetrics.getInstance().increment("db.connections.write");
+        return open(DB_URL, DB_USERNAME, DB_PASSWORD);
+    }
+
+    // Основная БД без влияния на сессию: чтения, которым нужна последняя версия данных, и записи, которые сессия не перечитывает
+    public static Connection getPrimaryConnection() throws SQLException {
+        ServerMetrics.getInstance().increment("db.connections.primary");
+        return open(DB_URL, DB_USERNAME, DB_PASSWORD);
+    }
+
+    // Соединение для чтения: реплика, если она задана и доступна, а сессия не писала недавно; иначе основная БД
+    public static Connection getReadConnection() throws SQLException {
+        String route;
+        if (REPLICA_URL == null) {
+            route = "noReplica";
+        } else if (PRIMARY_READ_DEPTH.get()[0] > 0) {
+            route = "scoped";
+        } else if (RequestContext.currentSession().isPinnedToPrimary()) {
+            route = "sticky";
+        } else if (replicaDown && System.nanoTime() - replicaRetryAtNanos < 0) {
+            route = "replicaDown";
+        } else {
+            try {
+                Connection connection = open(REPLICA_URL, REPLICA_USERNAME, REPLICA_PASSWORD);
+                if (replicaDown) {
+                    replicaDown = false;
+                    LOGGER.info("Read replica is available again.");
+                }
+                ServerMetrics.getInstance().increment("db.reads.replica");
+                return connection;
+            } catch (SQLException e) {
+                replicaRetryAtNanos = System.nanoTime() + REPLICA_RETRY_NANOS;
+                replicaDown = true;
+                ServerMetrics.getInstance().increment("db.replica.failures");
+                LOGGER.warn("Read replica unavailable, reading from primary for {} ms: {}",
+                        TimeUnit.NANOSECONDS.toMillis(REPLICA_RETRY_NANOS), e.getMessage());
+                route = "replicaDown";
+            }
+        }
+        ServerMetrics.getInstance().increment("db.reads.primary." + route);
+        return open(DB_URL, DB_USERNAME, DB_PASSWORD);
+    }
+
+    // Сессия собирается писать: проверки перед записью и чтения после нее - из основной БД
+    public static void pinToPrimary() {
+        RequestContext.recordWrite(STICKY_NANOS);
+    }
+
+    // Выполняет вызов так, что все чтения в нем идут в основную БД (данные для кэшей)
+    public static <T> T withPrimaryReads(SqlCall<T> call) throws SQLException {
+        int[] depth = PRIMARY_READ_DEPTH.get();
+        depth[0]++;
+        try {
+            return call.call();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    public static boolean isReplicaConfigured() {
+        return REPLICA_URL != null;
+    }
+
+    private static Connection open(String url, String username, String password) throws SQLException {
+        RequestContext context = RequestContext.current();
+        Properties properties = new Properties();
+        if (context != null && context.isInterruptible()) {
+            if (context.isCancelled()) {
+                throw new SQLException("Request was cancelled.");
+            }
+            if (context.hasDeadline()) {
+                long remainingMillis = context.getRemainingMillis();
+                if (remainingMillis == 0) {
+                    ServerMetrics.getInstance().increment("db.deadline.exceeded");
+                    throw new SQLTimeoutException("Request deadline exceeded.");
+                }
+                // Соединение живет один вызов DAO: срок сервер БД проверяет сам для каждого запроса на нем
+                properties.setProperty("options", "-c statement_timeout=" + remainingMillis);
+            }
+        }
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        properties.setProperty("ApplicationName", APPLICATION_NAME);
+        Connection connection = DriverManager.getConnection(url, properties);
+        if (context != null && context.isInterruptible()) {
+            context.registerConnection(connection);
+        }
         LOGGER.debug("Database connection established: {}", connection);
         return connection;
     }
 
+    // application_name соединений этого узла
+    public static String getApplicationName() {
+        return APPLICATION_NAME;
+    }
+
     // Пример использования в try-with-resources:
     // try (Connection conn = DatabaseConnector.getConnection()) {
     //     // ... ваш JDBC код ...
@@ -0,0 +1,208 @@
+package com.bsuir.bankliquiditserver.db;
+
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Инвалидация кэшей между узлами через PostgreSQL LISTEN/NOTIFY. Триггеры на roles, banks, users,
+ * financial_statements и statement_items отправляют NOTIFY в канал entity_invalidation (см. db_schema.sql);
+ * шина слушает канал на отдельном соединении в своем потоке и передает чужие изменения подписчикам.
+ * Уведомления, отправленные, пока соединения не было, теряются, поэтому после переподключения
+ * подписчики получают onResync и сбрасывают все, что кэшировали.
+ */
+public class InvalidationBus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationBus.class);
+    public static final String CHANNEL = "entity_invalidation";
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    // Подписчик шины; вызывается из потока шины
+    public interface Listener {
+
+        // Изменение, сделанное другим узлом
+        void onInvalidation(Invalidation invalidation);
+
+        // Изменения могли быть пропущены: сбросить все локальные копии
+        void onResync();
+    }
+
+    // Одно уведомление; для FINANCIAL_STATEMENT заполнены bankId, reportDate и statementType
+    public static final class Invalidation {
+        private final String entityType; // ROLE, BANK, USER, FINANCIAL_STATEMENT
+        private final char operation; // I, U, D
+        private final int entityId;
+        private final Integer bankId;
+        private final LocalDate reportDate;
+        private final String statementType;
+
+        Invalidation(String entityType, char operation, int entityId, Integer bankId, LocalDate reportDate, String statementType) {
+            this.entityType = entityType;
+            this.operation = operation;
+            this.entityId = entityId;
+            this.bankId = bankId;
+            this.reportDate = reportDate;
+            this.statementType = statementType;
+        }
+
+        public String getEntityType() { return entityType; }
+        public boolean isDeleted() { return operation == 'D'; }
+        public int getEntityId() { return entityId; }
+        public Integer getBankId() { return bankId; }
+        public LocalDate getReportDate() { return reportDate; }
+        public String getStatementType() { return statementType; }
+
+        @Override
+        public String toString() {
+            return entityType + ":" + operation + ":" + entityId;
+        }
+    }
+
+    private final String ownApplicationName;
+    private final int pollIntervalMs;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private volatile boolean connected;
+    private Thread thread;
+
+    public InvalidationBus(String ownApplicationName, int pollIntervalMs) {
+        this.ownApplicationName = ownApplicationName;
+        this.pollIntervalMs = Math.max(1, pollIntervalMs); // 0 в getNotifications - ждать без ограничения
+        ServerMetrics.getInstance().registerGauge("invalidation.connected", () -> connected ? 1 : 0);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listenLoop, "invalidation-bus");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // Ждет, пока поток после stop() закроет соединение LISTEN; false - время вышло
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread listener;
+        synchronized (this) {
+            listener = thread;
+        }
+        if (listener == null) {
+            return true;
+        }
+        listener.join(Math.max(1, unit.toMillis(timeout)));
+        return !listener.isAlive();
+    }
+
+    private void listenLoop() {
+        boolean listenedBefore = false;
+        long reconnectDelay = 1000;
+        while (running) {
+            try (Connection connection = DatabaseConnector.getPrimaryConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                connected = true;
+                reconnectDelay = 1000;
+                // Пока соединения не было (в том числе до первого подключения), уведомления терялись
+                if (listenedBefore) {
+                    LOGGER.warn("Invalidation bus reconnected, flushing local caches.");
+                } else {
+                    LOGGER.info("Invalidation bus listening on channel '{}'.", CHANNEL);
+                }
+                ServerMetrics.getInstance().increment("invalidation.resyncs");
+                listeners.forEach(this::resyncSafely);
+                listenedBefore = true;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollIntervalMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                LOGGER.warn("Invalidation bus connection lost: {}. Reconnecting in {} ms.", e.getMessage(), reconnectDelay);
+            } finally {
+                connected = false;
+            }
+            if (!running) {
+                return; // Остановлен (stop) - соединение LISTEN уже закрыто
+            }
+            try {
+                Thread.sleep(reconnectDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MS);
+        }
+    }
+
+    private void dispatch(String payload) {
+        Invalidation invalidation;
+        try {
+            invalidation = parse(payload);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Malformed invalidation payload '{}': {}", payload, e.getMessage());
+            return;
+        }
+        if (invalidation == null) {
+            return; // Свое изменение: локальные кэши уже сброшены
+        }
+        ServerMetrics.getInstance().increment("invalidation.received");
+        LOGGER.debug("Remote invalidation: {}", invalidation);
+        for (Listener listener : listeners) {
+            try {
+                listener.onInvalidation(invalidation);
+            } catch (RuntimeException e) {
+                LOGGER.error("Invalidation listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+    }
+
+    // null - уведомление этого узла
+    private Invalidation parse(String payload) {
+        String[] parts = payload.split("\\|", -1);
+        if (parts[0].equals(ownApplicationName)) {
+            return null;
+        }
+        if (parts.length < 4) {
+            throw new IllegalArgumentException("expected at least 4 fields");
+        }
+        Integer bankId = parts.length > 4 && !parts[4].isEmpty() ? Integer.valueOf(parts[4]) : null;
+        LocalDate reportDate = parts.length > 5 && !parts[5].isEmpty() ? LocalDate.parse(parts[5]) : null;
+        String statementType = parts.length > 6 && !parts[6].isEmpty() ? parts[6] : null;
+        return new Invalidation(parts[1], parts[2].charAt(0), Integer.parseInt(parts[3]), bankId, reportDate, statementType);
+    }
+
+    private void resyncSafely(Listener listener) {
+        try {
+            listener.onResync();
+        } catch (RuntimeException e) {
+            LOGGER.error("Invalidation listener {} failed to resync: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.bsuir.bankliquiditserver.db;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Контекст запроса клиента для слоя доступа к данным: поток, выполняющий запрос, держит его в ThreadLocal
+ * (ClientHandler создает контекст при приеме запроса и подключает его на время выполнения). Через него в DAO доходят
+ * срок выполнения запроса (statement_timeout соединений) и отмена (cancel - при отключении клиента или по сроку).
+ * Запрос, изменяющий данные, начавшись, не прерывается: его шаги пишут в БД через разные соединения без общей транзакции,
+ * и прерывание между ними оставило бы данные наполовину записанными. Срок и отмена для него проверяются только до начала.
+ * Session живет, пока открыто соединение клиента, и переходит из запроса в запрос, даже если запросы одного
+ * соединения выполняют разные потоки. Вне запросов (фоновые потоки) у каждого потока своя Session.
+ */
+public final class RequestContext implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestContext.class);
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Session> THREAD_SESSION = ThreadLocal.withInitial(Session::new);
+
+    // Состояние соединения клиента между запросами
+    public static final class Session {
+        private volatile boolean pinned;
+        private volatile long pinnedUntilNanos;
+
+        // Чтения сессии идут в основную БД до истечения окна (реплика могла еще не получить ее запись)
+        void pinToPrimary(long windowNanos) {
+            pinnedUntilNanos = System.nanoTime() + windowNanos;
+            pinned = true;
+        }
+
+        boolean isPinnedToPrimary() {
+            return pinned && System.nanoTime() - pinnedUntilNanos < 0;
+        }
+    }
+
+    private final Session session;
+    private final boolean hasDeadline;
+    private final boolean interruptible;
+    private final long deadlineNanos;
+    private final List<Connection> connections = new ArrayList<>(); // Соединения запроса - для отмены выполняемых запросов к БД
+    private volatile boolean cancelled;
+    private RequestContext previous;
+    private Thread thread; // Поток, выполняющий запрос; под this
+    private long writeWindowNanos = -1; // >= 0 - запрос писал в основную БД
+
+    private RequestContext(Session session, long timeoutMillis, boolean interruptible) {
+        this.session = session;
+        this.interruptible = interruptible;
+        this.hasDeadline = timeoutMillis > 0;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+    }
+
+    // Контекст запроса; timeoutMillis <= 0 - без срока (срок отсчитывается от этого вызова)
+    public static RequestContext create(Session session, long timeoutMillis) {
+        return create(session, timeoutMillis, true);
+    }
+
+    // interruptible == false - запрос изменяет данные: срок и отмена не прерывают его после начала
+    public static RequestContext create(Session session, long timeoutMillis, boolean interruptible) {
+        return new RequestContext(session, timeoutMillis, interruptible);
+    }
+
+    // Создает контекст без срока и подключает его в текущем потоке
+    public static RequestContext open(Session session) {
+        return create(session, 0).attach();
+    }
+
+    // Подключает контекст в текущем потоке; закрывать (close) в том же потоке, в finally
+    public RequestContext attach() {
+        previous = CURRENT.get();
+        synchronized (this) {
+            thread = Thread.currentThread();
+        }
+        CURRENT.set(this);
+        return this;
+    }
+
+    // null - поток сейчас не выполняет запрос клиента
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    static Session currentSession() {
+        RequestContext context = CURRENT.get();
+        return context != null ? context.session : THREAD_SESSION.get();
+    }
+
+    static void recordWrite(long windowNanos) {
+        currentSession().pinToPrimary(windowNanos);
+        RequestContext context = CURRENT.get();
+        if (context != null) {
+            context.writeWindowNanos = windowNanos;
+        }
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    public boolean isDeadlineExceeded() {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    // Остаток срока, мс (не меньше 0); Long.MAX_VALUE - срока нет
+    public long getRemainingMillis() {
+        return hasDeadline ? Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())) : Long.MAX_VALUE;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isInterruptible() {
+        return interruptible;
+    }
+
+    /**
+     * Отменяет запрос: новые соединения с БД не открываются, выполняемые запросы к БД прерываются,
+     * поток, выполняющий запрос, получает interrupt (ожидание расчетов в пуле анализа).
+     * Непрерываемый запрос только помечается отмененным: если он еще не начался, он не выполняется.
+     */
+    public void cancel() {
+        cancelled = true;
+        if (!interruptible) {
+            return;
+        }
+        List<Connection> open;
+        synchronized (this) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+            open = new ArrayList<>(connections);
+        }
+        for (Connection connection : open) {
+            try {
+                if (!connection.isClosed()) {
+                    connection.unwrap(PGConnection.class).cancelQuery();
+                }
+            } catch (SQLException e) {
+                LOGGER.debug("Could not cancel query on {}: {}", connection, e.getMessage());
+            }
+        }
+    }
+
+    synchronized void registerConnection(Connection connection) {
+        connections.add(connection);
+    }
+
+    @Override
+    public void close() {
+        if (writeWindowNanos >= 0) {
+            // Окно отсчитывается от конца запроса: долгая транзакция могла зафиксироваться позже, чем началась
+            session.pinToPrimary(writeWindowNanos);
+        }
+        synchronized (this) {
+            thread = null;
+            connections.clear();
+        }
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
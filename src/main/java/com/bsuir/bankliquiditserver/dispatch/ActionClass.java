@@ -0,0 +1,62 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Класс действия клиента: определяет, в каком Bulkhead выполняется запрос.
+ * Размеры - dispatch.bulkhead.&lt;configKey&gt;.threads и .queueCapacity в server.properties.
+ */
+public enum ActionClass {
+    AUTH("auth", 2, 50),                  // Вход, регистрация, профиль - не должны ждать тяжелых запросов
+    INTERACTIVE_READ("interactive", 8, 200), // Короткие чтения и подписки
+    ANALYSIS("analysis", 4, 100),         // Расчеты коэффициентов, стресс-тесты, сравнения
+    BULK_WRITE("bulkWrite", 2, 100),      // Загрузка и изменение отчетов, банков, сохранение анализов
+    ADMIN("admin", 2, 20);                // Аудит, пользователи, роли, расписания задач
+
+    private static final Map<ActionClass, Set<String>> ACTIONS = Map.of(
+            AUTH, Set.of("LOGIN", "REGISTER", "LOGOUT", "GET_USER_PROFILE", "CHANGE_PASSWORD"),
+            ANALYSIS, Set.of("CALCULATE_LIQUIDITY", "CALCULATE_SOLVENCY", "CALCULATE_PORTFOLIO", "CALCULATE_RATIO_TIME_SERIES",
+                    "RUN_STRESS_TEST", "GET_PEER_RANKING", "WHAT_IF", "CALCULATE_BASEL_RATIOS", "CHECK_STATEMENT_CONSISTENCY"),
+            BULK_WRITE, Set.of("CREATE_FINANCIAL_STATEMENT", "DELETE_FINANCIAL_STATEMENT", "CREATE_BANK", "UPDATE_BANK", "DELETE_BANK",
+                    "SAVE_LIQUIDITY_REPORT", "SAVE_SOLVENCY_REPORT", "SAVE_BASEL_REPORT", "DELETE_ANALYSIS_REPORT", "ENQUEUE_JOB"),
+            ADMIN, Set.of("GET_ALL_AUDIT_LOGS", "GET_USER_AUDIT_LOGS", "GET_ALL_USERS", "UPDATE_USER_STATUS", "ASSIGN_USER_ROLE",
+                    "GET_ALL_ROLES", "CREATE_ROLE", "GET_JOB_SCHEDULES", "SAVE_JOB_SCHEDULE"));
+
+    // Действия, изменяющие данные: после начала не прерываются ни сроком, ни отключением клиента (RequestContext)
+    private static final Set<String> WRITE_ACTIONS = Set.of("CREATE_FINANCIAL_STATEMENT", "DELETE_FINANCIAL_STATEMENT",
+            "CREATE_BANK", "UPDATE_BANK", "DELETE_BANK", "SAVE_LIQUIDITY_REPORT", "SAVE_SOLVENCY_REPORT", "SAVE_BASEL_REPORT",
+            "DELETE_ANALYSIS_REPORT", "ENQUEUE_JOB", "CANCEL_JOB", "SAVE_JOB_SCHEDULE", "REGISTER", "CHANGE_PASSWORD",
+            "UPDATE_USER_STATUS", "ASSIGN_USER_ROLE", "CREATE_ROLE");
+
+    private final String configKey;
+    private final int defaultThreads;
+    private final int defaultQueueCapacity;
+
+    ActionClass(String configKey, int defaultThreads, int defaultQueueCapacity) {
+        this.configKey = configKey;
+        this.defaultThreads = defaultThreads;
+        this.defaultQueueCapacity = defaultQueueCapacity;
+    }
+
+    // Действие без явного класса (в т.ч. неизвестное) - INTERACTIVE_READ
+    public static ActionClass of(String action) {
+        if (action != null) {
+            String normalized = action.toUpperCase();
+            for (Map.Entry<ActionClass, Set<String>> entry : ACTIONS.entrySet()) {
+                if (entry.getValue().contains(normalized)) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return INTERACTIVE_READ;
+    }
+
+    public static boolean isWrite(String action) {
+        return action != null && WRITE_ACTIONS.contains(action.toUpperCase());
+    }
+
+    public String getConfigKey() { return configKey; }
+    public int getDefaultThreads() { return defaultThreads; }
+    public int getDefaultQueueCapacity() { return defaultQueueCapacity; }
+}
@@ -0,0 +1,72 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Контроль перегрузки очереди Bulkhead по времени ожидания запросов (по схеме CoDel). Перегрузка - ожидание
+ * в очереди дольше target непрерывно в течение interval: очередь перестала рассасываться, а не просто приняла всплеск.
+ * При перегрузке запросы отсекаются, начиная с низкого приоритета: BATCH не принимаются, NORMAL - только пока
+ * очередь заполнена меньше чем наполовину, а уже ожидающие в очереди BATCH/NORMAL снимаются, не дойдя до БД.
+ * INTERACTIVE ограничивает только емкость очереди. Перегрузка снимается, как только запрос дождался выполнения быстрее target.
+ */
+public class AdmissionController {
+    private final long targetNanos;
+    private final long intervalNanos;
+    private volatile boolean overloaded;
+    private volatile long lastWaitNanos; // Ожидание последнего взятого из очереди запроса - для подсказки повтора
+    private long firstAboveTargetNanos;  // Когда ожидание непрерывно превышает target с interval; 0 - ниже target; под this
+
+    // targetMillis == 0 - без контроля (запросы ограничивает только емкость очереди)
+    public AdmissionController(long targetMillis, long intervalMillis) {
+        if (targetMillis < 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("Admission target must be non-negative and interval positive.");
+        }
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    // Принимать ли новый запрос; queued - ожидающих в очереди
+    boolean admit(RequestPriority priority, int queued, int queueCapacity) {
+        if (!overloaded || queued == 0) {
+            return true; // Пустая очередь: перегрузка снимется, когда этот запрос быстро дождется выполнения
+        }
+        switch (priority) {
+            case BATCH:
+                return false;
+            case NORMAL:
+                return queued * 2 < queueCapacity;
+            default:
+                return true;
+        }
+    }
+
+    // Вызывается при взятии запроса из очереди; true - запрос снимается без выполнения
+    boolean onDequeue(RequestPriority priority, long waitNanos, long nowNanos) {
+        if (targetNanos == 0) {
+            return false;
+        }
+        lastWaitNanos = waitNanos;
+        synchronized (this) {
+            if (waitNanos < targetNanos) {
+                firstAboveTargetNanos = 0;
+                overloaded = false;
+            } else if (firstAboveTargetNanos == 0) {
+                firstAboveTargetNanos = nowNanos + intervalNanos;
+            } else if (nowNanos - firstAboveTargetNanos >= 0) {
+                overloaded = true;
+            }
+        }
+        // Пакетный запрос в перегрузке уже отстоял больше target; обычный снимается, прождав дольше interval
+        return overloaded && (priority == RequestPriority.BATCH && waitNanos >= targetNanos
+                || priority == RequestPriority.NORMAL && waitNanos >= intervalNanos);
+    }
+
+    // Через сколько повторить: не раньше interval и не раньше, чем очередь, судя по текущему ожиданию, рассосется
+    long getRetryAfterMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(intervalNanos, lastWaitNanos));
+    }
+}
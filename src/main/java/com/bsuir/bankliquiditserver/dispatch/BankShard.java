@@ -0,0 +1,78 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Однопоточный исполнитель запросов группы банков. Все запросы банка выполняются одним потоком по очереди,
+ * поэтому данные банка в кэше шарда читаются и меняются без блокировок. Кэш доступен только из потока шарда
+ * (BankShard.current()); сброс из других потоков ставится в очередь шарда и выполняется после уже принятых запросов.
+ */
+public final class BankShard {
+    private static final ThreadLocal<BankShard> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final RequestLane lane;
+    private final Map<Integer, Map<String, Object>> banks; // bankId -> ключ -> значение; LRU по банкам
+
+    BankShard(String name, int maxCachedBanks, long agingNanos) {
+        this.name = name;
+        this.banks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Map<String, Object>> eldest) {
+                return size() > maxCachedBanks;
+            }
+        };
+        this.lane = new RequestLane(name, 1, agingNanos, () -> CURRENT.set(this));
+    }
+
+    // Шард текущего потока; null - запрос выполняется не в шарде (привязка к банкам выключена)
+    public static BankShard current() {
+        return CURRENT.get();
+    }
+
+    // Значение из кэша банка или null
+    public <T> T getCached(int bankId, String key, Class<T> type) {
+        checkThread();
+        Map<String, Object> bank = banks.get(bankId);
+        Object value = bank != null ? bank.get(key) : null;
+        ServerMetrics.getInstance().increment(value != null ? "dispatch.shardCache.hits" : "dispatch.shardCache.misses");
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    public void putCached(int bankId, String key, Object value) {
+        checkThread();
+        banks.computeIfAbsent(bankId, id -> new HashMap<>()).put(key, value);
+    }
+
+    RequestLane getLane() {
+        return lane;
+    }
+
+    // Сброс данных банка: сразу, если вызван из потока шарда, иначе - задачей в очереди шарда
+    void evictBank(int bankId) {
+        runInShard(() -> banks.remove(bankId));
+    }
+
+    void clear() {
+        runInShard(banks::clear);
+    }
+
+    private void runInShard(Runnable action) {
+        if (CURRENT.get() == this) {
+            action.run();
+        } else {
+            lane.offer(action, RequestTag.SYSTEM); // false - шард остановлен, кэш больше никто не читает
+        }
+    }
+
+    private void checkThread() {
+        if (CURRENT.get() != this) {
+            throw new IllegalStateException("Cache of " + name + " accessed from " + Thread.currentThread().getName());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Изолированный исполнитель одного класса действий: свои потоки и своя ограниченная очередь.
+ * Заполненная очередь отклоняет новые запросы этого класса, не затрагивая остальные.
+ * Очередь не FIFO: приоритет классов и справедливость между пользователями (FairRequestQueue).
+ * С привязкой к банкам запрос с bankId идет в однопоточный шард банка (BankShard), остальные - в общие потоки
+ * Bulkhead: медленный запрос без банка (рейтинги, стресс-тесты, списки) не задерживает банки чужого шарда.
+ * При перегрузке (AdmissionController) запросы низкого приоритета отсекаются раньше, чем заполнится очередь.
+ */
+public class Bulkhead {
+    private final String name;
+    private final int threads;
+    private final int workerThreads; // Всего потоков: с привязкой к банкам - шарды и общие потоки
+    private final int queueCapacity;
+    private final RequestLane sharedLane; // Запросы без банка; без привязки к банкам - все запросы
+    private final BankShard[] shards;     // null без привязки к банкам
+    private final AdmissionController admission;
+    private final AtomicInteger inFlight = new AtomicInteger(); // В очереди и выполняются
+
+    // maxCachedBanksPerShard == 0 - без привязки к банкам, иначе threads шардов и threads общих потоков; agingMillis - ожидание, за которое запрос поднимается на класс приоритета выше
+    public Bulkhead(String name, int threads, int queueCapacity, int maxCachedBanksPerShard, long agingMillis,
+                    AdmissionController admission) {
+        if (threads < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Bulkhead '" + name + "': threads must be positive and queue capacity non-negative.");
+        }
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.admission = admission;
+        long agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+        this.sharedLane = new RequestLane("bulkhead-" + name, threads, agingNanos, null);
+        if (maxCachedBanksPerShard > 0) {
+            this.shards = new BankShard[threads];
+            for (int i = 0; i < threads; i++) {
+                shards[i] = new BankShard("bulkhead-" + name + "-shard-" + i, maxCachedBanksPerShard, agingNanos);
+            }
+            this.workerThreads = threads * 2;
+        } else {
+            this.shards = null;
+            this.workerThreads = threads;
+        }
+
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        metrics.registerGauge("bulkhead." + name + ".active", this::getActiveCount);
+        metrics.registerGauge("bulkhead." + name + ".queued", this::getQueuedCount);
+        metrics.registerGauge("bulkhead." + name + ".utilization", this::getUtilization);
+        metrics.registerGauge("bulkhead." + name + ".threads", () -> workerThreads);
+        metrics.registerGauge("bulkhead." + name + ".overloaded", () -> admission.isOverloaded() ? 1 : 0);
+    }
+
+    /**
+     * Результат - ответ задачи; задача, снятая с очереди при перегрузке, завершается OverloadedException.
+     * @throws OverloadedException Очередь заполнена или запрос отсечен при перегрузке.
+     * @throws RejectedExecutionException Исполнитель остановлен.
+     */
+    public <T> CompletableFuture<T> submit(RequestTag tag, Callable<T> task) {
+        RequestPriority priority = tag.getPriority();
+        int accepted = inFlight.incrementAndGet();
+        if (accepted > workerThreads + queueCapacity) {
+            inFlight.decrementAndGet();
+            throw shed("rejected", priority, "Bulkhead '" + name + "' is full.");
+        }
+        if (!admission.admit(priority, Math.max(0, accepted - 1 - getActiveCount()), queueCapacity)) {
+            inFlight.decrementAndGet();
+            throw shed("shed.admission", priority, "Bulkhead '" + name + "' is overloaded.");
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedNanos = System.nanoTime();
+        Runnable queuedTask = () -> {
+            try {
+                long nowNanos = System.nanoTime();
+                if (admission.onDequeue(priority, nowNanos - enqueuedNanos, nowNanos)) {
+                    future.completeExceptionally(shed("shed.queue", priority, "Bulkhead '" + name + "' is overloaded."));
+                    return;
+                }
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+        if (!laneFor(tag.getBankId()).offer(queuedTask, tag)) {
+            inFlight.decrementAndGet();
+            throw new RejectedExecutionException("Bulkhead '" + name + "' is shut down.");
+        }
+        ServerMetrics.getInstance().increment("bulkhead." + name + ".submitted");
+        return future;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActiveCount() {
+        int active = sharedLane.getActiveCount();
+        if (shards != null) {
+            for (BankShard shard : shards) {
+                active += shard.getLane().getActiveCount();
+            }
+        }
+        return active;
+    }
+
+    public int getQueuedCount() {
+        return Math.max(0, inFlight.get() - getActiveCount());
+    }
+
+    // Доля занятых потоков, 0..1
+    public double getUtilization() {
+        return (double) getActiveCount() / workerThreads;
+    }
+
+    void evictBank(int bankId) {
+        if (shards != null) {
+            shards[shardIndex(bankId)].evictBank(bankId);
+        }
+    }
+
+    void clearShardCaches() {
+        if (shards != null) {
+            for (BankShard shard : shards) {
+                shard.clear();
+            }
+        }
+    }
+
+    // Новые запросы не принимаются, принятые выполняются до конца
+    void shutdown() {
+        sharedLane.shutdown();
+        if (shards != null) {
+            for (BankShard shard : shards) {
+                shard.getLane().shutdown();
+            }
+        }
+    }
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = sharedLane.awaitTermination(timeout, unit);
+        if (shards != null) {
+            for (BankShard shard : shards) {
+                terminated &= shard.getLane().awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return terminated;
+    }
+
+    // bulkhead.<name>.<reason> - по всем приоритетам, bulkhead.<name>.<reason>.<приоритет> - по каждому
+    private OverloadedException shed(String reason, RequestPriority priority, String message) {
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        metrics.increment("bulkhead." + name + "." + reason);
+        metrics.increment("bulkhead." + name + "." + reason + "." + priority.name().toLowerCase());
+        return new OverloadedException(message, admission.getRetryAfterMillis());
+    }
+
+    private RequestLane laneFor(Integer bankId) {
+        if (shards != null && bankId != null) {
+            return shards[shardIndex(bankId)].getLane();
+        }
+        return sharedLane;
+    }
+
+    private int shardIndex(int bankId) {
+        // Перемешивание битов: соседние id не должны попадать в соседние шарды с одинаковым шагом
+        int hash = bankId * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+}
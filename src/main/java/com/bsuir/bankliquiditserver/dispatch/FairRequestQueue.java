@@ -0,0 +1,132 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Очередь RequestLane: строгий приоритет классов со старением и взвешенная справедливая очередь потоков внутри класса
+ * (start-time fair queueing: метка запроса = max(виртуальное время класса, метка предыдущего запроса потока) + 1/вес).
+ * Поток, приславший сотню запросов, получает исполнитель не чаще остальных потоков своего класса.
+ * Синхронизация - на стороне RequestLane.
+ */
+final class FairRequestQueue {
+
+    static final class Entry {
+        private final Runnable task;
+        private final RequestTag tag;
+        private final long enqueuedNanos;
+        private final long sequence;
+        private double startTag;
+        private double finishTag;
+        private boolean taken;
+
+        private Entry(Runnable task, RequestTag tag, long enqueuedNanos, long sequence) {
+            this.task = task;
+            this.tag = tag;
+            this.enqueuedNanos = enqueuedNanos;
+            this.sequence = sequence;
+        }
+
+        Runnable getTask() { return task; }
+        RequestTag getTag() { return tag; }
+        long getEnqueuedNanos() { return enqueuedNanos; }
+    }
+
+    // Очередь одного класса приоритета
+    private static final class PriorityClass {
+        private final PriorityQueue<Entry> byTag = new PriorityQueue<>(
+                Comparator.comparingDouble((Entry e) -> e.finishTag).thenComparingLong(e -> e.sequence));
+        private final Deque<Entry> byArrival = new ArrayDeque<>(); // Для возраста самого старого запроса; взятые удаляются лениво
+        private final Map<String, double[]> flowFinishTags = new HashMap<>(); // flowKey -> {метка последнего запроса, число в очереди}
+        private double virtualTime;
+
+        void add(Entry entry) {
+            double[] flow = flowFinishTags.computeIfAbsent(entry.tag.getFlowKey(), key -> new double[2]);
+            entry.startTag = Math.max(virtualTime, flow[0]);
+            entry.finishTag = entry.startTag + 1.0 / entry.tag.getWeight();
+            flow[0] = entry.finishTag;
+            flow[1]++;
+            byTag.add(entry);
+            byArrival.addLast(entry);
+        }
+
+        Entry poll() {
+            Entry entry = byTag.poll();
+            entry.taken = true;
+            virtualTime = Math.max(virtualTime, entry.startTag);
+            double[] flow = flowFinishTags.get(entry.tag.getFlowKey());
+            if (--flow[1] == 0) {
+                flowFinishTags.remove(entry.tag.getFlowKey()); // Простаивавший поток не копит "кредит"
+            }
+            return entry;
+        }
+
+        long oldestEnqueuedNanos() {
+            while (byArrival.peekFirst().taken) {
+                byArrival.pollFirst();
+            }
+            return byArrival.peekFirst().enqueuedNanos;
+        }
+
+        boolean isEmpty() {
+            return byTag.isEmpty();
+        }
+
+        int size() {
+            return byTag.size();
+        }
+    }
+
+    private final PriorityClass[] classes = new PriorityClass[RequestPriority.values().length];
+    private final long agingNanos;
+    private long sequence;
+
+    // agingNanos - ожидание, за которое запрос поднимается на класс выше; 0 - без старения
+    FairRequestQueue(long agingNanos) {
+        this.agingNanos = agingNanos;
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new PriorityClass();
+        }
+    }
+
+    void add(Runnable task, RequestTag tag, long nowNanos) {
+        classes[tag.getPriority().ordinal()].add(new Entry(task, tag, nowNanos, sequence++));
+    }
+
+    // null - очередь пуста
+    Entry poll(long nowNanos) {
+        PriorityClass selected = null;
+        long selectedRank = Long.MAX_VALUE;
+        for (int i = 0; i < classes.length; i++) {
+            PriorityClass priorityClass = classes[i];
+            if (priorityClass.isEmpty()) {
+                continue;
+            }
+            long rank = i;
+            if (agingNanos > 0) {
+                rank -= (nowNanos - priorityClass.oldestEnqueuedNanos()) / agingNanos;
+            }
+            if (rank < selectedRank) { // При равенстве - класс с более высоким исходным приоритетом
+                selected = priorityClass;
+                selectedRank = rank;
+            }
+        }
+        return selected != null ? selected.poll() : null;
+    }
+
+    int size() {
+        int size = 0;
+        for (PriorityClass priorityClass : classes) {
+            size += priorityClass.size();
+        }
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
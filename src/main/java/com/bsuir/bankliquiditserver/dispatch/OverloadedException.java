@@ -0,0 +1,19 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Запрос не принят или снят с очереди из-за перегрузки Bulkhead; клиенту отвечают BUSY с подсказкой, когда повторить.
+ */
+public class OverloadedException extends RejectedExecutionException {
+    private final long retryAfterMillis;
+
+    public OverloadedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
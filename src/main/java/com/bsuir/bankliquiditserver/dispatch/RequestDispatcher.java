@@ -0,0 +1,74 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.service.FinancialStatementListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выполняет запросы клиентов в Bulkhead их класса действий (ActionClass), так что тяжелые запросы
+ * одного класса не занимают потоки остальных. Поток соединения только читает запросы и ждет ответы.
+ * Кэши шардов сбрасываются при изменении отчетов банка (FinancialStatementListener).
+ */
+public class RequestDispatcher implements FinancialStatementListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestDispatcher.class);
+
+    private final Map<ActionClass, Bulkhead> bulkheads;
+
+    public RequestDispatcher(Map<ActionClass, Bulkhead> bulkheads) {
+        for (ActionClass actionClass : ActionClass.values()) {
+            if (!bulkheads.containsKey(actionClass)) {
+                throw new IllegalArgumentException("No bulkhead for action class " + actionClass);
+            }
+        }
+        this.bulkheads = new EnumMap<>(bulkheads);
+        LOGGER.info("Request dispatcher started with bulkheads {}.", this.bulkheads.keySet());
+    }
+
+    /**
+     * @throws OverloadedException Очередь класса действия заполнена или запрос отсечен при перегрузке.
+     * @throws java.util.concurrent.RejectedExecutionException Диспетчер остановлен.
+     */
+    public <T> CompletableFuture<T> submit(ActionClass actionClass, RequestTag tag, Callable<T> task) {
+        return bulkheads.get(actionClass).submit(tag, task);
+    }
+
+    public Bulkhead getBulkhead(ActionClass actionClass) {
+        return bulkheads.get(actionClass);
+    }
+
+    // Новые запросы не принимаются, принятые выполняются до конца
+    public void shutdown() {
+        bulkheads.values().forEach(Bulkhead::shutdown);
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = true;
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            terminated &= bulkhead.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        return terminated;
+    }
+
+    @Override
+    public void onStatementChanged(FinancialStatement statement) {
+        bulkheads.values().forEach(bulkhead -> bulkhead.evictBank(statement.getBankId()));
+    }
+
+    @Override
+    public void onStatementDeleted(FinancialStatement statement) {
+        bulkheads.values().forEach(bulkhead -> bulkhead.evictBank(statement.getBankId()));
+    }
+
+    @Override
+    public void onAllStatementsInvalidated() {
+        bulkheads.values().forEach(Bulkhead::clearShardCaches);
+    }
+}
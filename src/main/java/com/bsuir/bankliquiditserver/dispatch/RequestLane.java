@@ -0,0 +1,151 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Очередь задач (FairRequestQueue) и потоки, которые ее разбирают. Емкость очереди ограничивает Bulkhead, здесь она не проверяется.
+ * Служебные задачи (RequestTag.SYSTEM - сброс кэша шарда) идут вне справедливой очереди и берутся раньше любых запросов:
+ * запрос, принятый после сброса, не должен увидеть сброшенные данные, каким бы ни был его приоритет и вес.
+ */
+final class RequestLane {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestLane.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition terminated = lock.newCondition();
+    private final FairRequestQueue queue;
+    private final Deque<Runnable> systemTasks = new ArrayDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Runnable onWorkerStart;
+    private boolean shutdown;
+    private int liveWorkers;
+
+    // onWorkerStart выполняется в каждом потоке перед первой задачей
+    RequestLane(String threadName, int workerCount, long agingNanos, Runnable onWorkerStart) {
+        this.queue = new FairRequestQueue(agingNanos);
+        this.onWorkerStart = onWorkerStart;
+        this.liveWorkers = workerCount;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::workerLoop, workerCount == 1 ? threadName : threadName + "-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    // false - очередь остановлена, задача не принята
+    boolean offer(Runnable task, RequestTag tag) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                return false;
+            }
+            if (tag == RequestTag.SYSTEM) {
+                systemTasks.addLast(task);
+            } else {
+                queue.add(task, tag, System.nanoTime());
+            }
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getQueueSize() {
+        lock.lock();
+        try {
+            return queue.size() + systemTasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getActiveCount() {
+        return active.get();
+    }
+
+    // Новые задачи не принимаются, принятые выполняются
+    void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (liveWorkers > 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void workerLoop() {
+        if (onWorkerStart != null) {
+            onWorkerStart.run();
+        }
+        try {
+            Runnable task;
+            while ((task = take()) != null) {
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unhandled error in {}: {}", Thread.currentThread().getName(), e.getMessage(), e);
+                } finally {
+                    active.decrementAndGet();
+                    Thread.interrupted(); // Прерывание отмененного запроса (RequestContext.cancel) не должно задеть следующий
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                liveWorkers--;
+                terminated.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // null - очередь остановлена и пуста
+    private Runnable take() {
+        FairRequestQueue.Entry entry;
+        lock.lock();
+        try {
+            while (queue.isEmpty() && systemTasks.isEmpty()) {
+                if (shutdown) {
+                    return null;
+                }
+                notEmpty.awaitUninterruptibly();
+            }
+            if (!systemTasks.isEmpty()) {
+                return systemTasks.pollFirst();
+            }
+            entry = queue.poll(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+        entry.getTag().getPriority().getQueueWait().recordNanos(System.nanoTime() - entry.getEnqueuedNanos());
+        return entry.getTask();
+    }
+}
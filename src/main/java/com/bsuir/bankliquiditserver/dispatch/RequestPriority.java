@@ -0,0 +1,35 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+import com.bsuir.bankliquiditserver.metrics.LatencyHistogram;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+
+import java.util.Set;
+
+/**
+ * Класс приоритета запроса в очереди Bulkhead: сначала INTERACTIVE, затем NORMAL, затем BATCH.
+ * Ожидающий запрос со временем поднимается на класс выше (dispatch.scheduler.agingMs), так что BATCH не голодает.
+ */
+public enum RequestPriority {
+    INTERACTIVE,
+    NORMAL,
+    BATCH;
+
+    // Массовые и долгие действия: скрипты и загрузчики не должны задерживать интерактивных пользователей
+    private static final Set<String> BATCH_ACTIONS = Set.of("CALCULATE_PORTFOLIO", "RUN_STRESS_TEST", "CALCULATE_RATIO_TIME_SERIES",
+            "CALCULATE_BASEL_RATIOS", "CREATE_FINANCIAL_STATEMENT", "GET_ALL_AUDIT_LOGS", "GET_USER_AUDIT_LOGS");
+
+    // Время ожидания в очереди до начала выполнения (scheduler.wait.<класс>.*)
+    private final LatencyHistogram queueWait = new LatencyHistogram()
+            .registerIn(ServerMetrics.getInstance(), "scheduler.wait." + name().toLowerCase());
+
+    public static RequestPriority of(String action, ActionClass actionClass) {
+        if (action != null && BATCH_ACTIONS.contains(action.toUpperCase())) {
+            return BATCH;
+        }
+        return actionClass == ActionClass.AUTH || actionClass == ActionClass.INTERACTIVE_READ ? INTERACTIVE : NORMAL;
+    }
+
+    LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+}
@@ -0,0 +1,30 @@
+package com.bsuir.bankliquiditserver.dispatch;
+
+/**
+ * Атрибуты запроса для планирования: банк (выбор шарда), класс приоритета и поток справедливой очереди.
+ * Поток (flowKey) - пользователь или соединение; потоки одного класса получают потоки исполнителя пропорционально весу.
+ */
+public final class RequestTag {
+    // Служебные задачи (сброс кэша шарда): RequestLane выполняет их раньше любых запросов, минуя FairRequestQueue
+    static final RequestTag SYSTEM = new RequestTag(null, RequestPriority.INTERACTIVE, "system", 1.0);
+
+    private final Integer bankId;
+    private final RequestPriority priority;
+    private final String flowKey;
+    private final double weight;
+
+    public RequestTag(Integer bankId, RequestPriority priority, String flowKey, double weight) {
+        if (priority == null || flowKey == null || !(weight > 0)) {
+            throw new IllegalArgumentException("Priority and flow key are required, weight must be positive.");
+        }
+        this.bankId = bankId;
+        this.priority = priority;
+        this.flowKey = flowKey;
+        this.weight = weight;
+    }
+
+    public Integer getBankId() { return bankId; }
+    public RequestPriority getPriority() { return priority; }
+    public String getFlowKey() { return flowKey; }
+    public double getWeight() { return weight; }
+}
@@ -0,0 +1,67 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Сработавшее оповещение; отправляется клиенту без запроса (ServerResponseDTO со статусом EVENT)
+public class AlertEventDTO implements Serializable {
+    private static final long serialVersionUID = 220L;
+
+    private String eventType = "RATIO_ALERT"; // RATIO_ALERT_RESYNC - часть оповещений отброшена (клиент не успевал читать), остальные поля пусты
+    private long subscriptionId;
+    private int bankId;
+    private String bankName;
+    private int statementId;
+    private LocalDate reportDate;
+    private String statementType;
+    private String ratioName;
+    private BigDecimal value; // Значение коэффициента в новом отчете
+    private String operator;
+    private BigDecimal threshold;
+    private LocalDateTime triggeredAt;
+
+    public AlertEventDTO() {}
+
+    // Геттеры
+    public String getEventType() { return eventType; }
+    public long getSubscriptionId() { return subscriptionId; }
+    public int getBankId() { return bankId; }
+    public String getBankName() { return bankName; }
+    public int getStatementId() { return statementId; }
+    public LocalDate getReportDate() { return reportDate; }
+    public String getStatementType() { return statementType; }
+    public String getRatioName() { return ratioName; }
+    public BigDecimal getValue() { return value; }
+    public String getOperator() { return operator; }
+    public BigDecimal getThreshold() { return threshold; }
+    public LocalDateTime getTriggeredAt() { return triggeredAt; }
+
+    // Сеттеры
+    public void setEventType(String eventType) { this.eventType = eventType; }
+    public void setSubscriptionId(long subscriptionId) { this.subscriptionId = subscriptionId; }
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setBankName(String bankName) { this.bankName = bankName; }
+    public void setStatementId(int statementId) { this.statementId = statementId; }
+    public void setReportDate(LocalDate reportDate) { this.reportDate = reportDate; }
+    public void setStatementType(String statementType) { this.statementType = statementType; }
+    public void setRatioName(String ratioName) { this.ratioName = ratioName; }
+    public void setValue(BigDecimal value) { this.value = value; }
+    public void setOperator(String operator) { this.operator = operator; }
+    public void setThreshold(BigDecimal threshold) { this.threshold = threshold; }
+    public void setTriggeredAt(LocalDateTime triggeredAt) { this.triggeredAt = triggeredAt; }
+
+    @Override
+    public String toString() {
+        return "AlertEventDTO{" +
+                "subscriptionId=" + subscriptionId +
+                ", bankId=" + bankId +
+                ", statementId=" + statementId +
+                ", ratioName='" + ratioName + '\'' +
+                ", value=" + value +
+                ", operator='" + operator + '\'' +
+                ", threshold=" + threshold +
+                '}';
+    }
+}
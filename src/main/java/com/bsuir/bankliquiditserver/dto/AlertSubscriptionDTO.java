@@ -0,0 +1,48 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Подписка на оповещение: коэффициент банка пересек порог в новом отчете
+public class AlertSubscriptionDTO implements Serializable {
+    private static final long serialVersionUID = 219L;
+
+    private long subscriptionId;
+    private int bankId;
+    private String bankName;
+    private String statementType; // Тип отчетов, по которым проверяется условие
+    private String ratioName;
+    private String operator; // <, <=, >, >=
+    private BigDecimal threshold;
+
+    public AlertSubscriptionDTO() {}
+
+    // Геттеры
+    public long getSubscriptionId() { return subscriptionId; }
+    public int getBankId() { return bankId; }
+    public String getBankName() { return bankName; }
+    public String getStatementType() { return statementType; }
+    public String getRatioName() { return ratioName; }
+    public String getOperator() { return operator; }
+    public BigDecimal getThreshold() { return threshold; }
+
+    // Сеттеры
+    public void setSubscriptionId(long subscriptionId) { this.subscriptionId = subscriptionId; }
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setBankName(String bankName) { this.bankName = bankName; }
+    public void setStatementType(String statementType) { this.statementType = statementType; }
+    public void setRatioName(String ratioName) { this.ratioName = ratioName; }
+    public void setOperator(String operator) { this.operator = operator; }
+    public void setThreshold(BigDecimal threshold) { this.threshold = threshold; }
+
+    @Override
+    public String toString() {
+        return "AlertSubscriptionDTO{" +
+                "subscriptionId=" + subscriptionId +
+                ", bankId=" + bankId +
+                ", ratioName='" + ratioName + '\'' +
+                ", operator='" + operator + '\'' +
+                ", threshold=" + threshold +
+                '}';
+    }
+}
@@ -0,0 +1,49 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Результат расчета Basel III LCR и NSFR сразу по всем банкам
+public class BaselPortfolioResultDTO implements Serializable {
+    private static final long serialVersionUID = 216L;
+
+    private LocalDate asOfDate; // Запрошенная дата (null - последние отчеты)
+    private String weightsVersion; // Версия basel_weights.properties, по которой считали
+    private long calculationTimeMs;
+    private int lcrBreachCount; // Банков с LCR ниже 100%
+    private int nsfrBreachCount; // Банков с NSFR ниже 100%
+    private List<BaselRatiosResultDTO> rows = new ArrayList<>();
+
+    public BaselPortfolioResultDTO() {}
+
+    // Геттеры
+    public LocalDate getAsOfDate() { return asOfDate; }
+    public String getWeightsVersion() { return weightsVersion; }
+    public long getCalculationTimeMs() { return calculationTimeMs; }
+    public int getLcrBreachCount() { return lcrBreachCount; }
+    public int getNsfrBreachCount() { return nsfrBreachCount; }
+    public List<BaselRatiosResultDTO> getRows() { return rows; }
+    public int getBankCount() { return rows != null ? rows.size() : 0; }
+
+    // Сеттеры
+    public void setAsOfDate(LocalDate asOfDate) { this.asOfDate = asOfDate; }
+    public void setWeightsVersion(String weightsVersion) { this.weightsVersion = weightsVersion; }
+    public void setCalculationTimeMs(long calculationTimeMs) { this.calculationTimeMs = calculationTimeMs; }
+    public void setLcrBreachCount(int lcrBreachCount) { this.lcrBreachCount = lcrBreachCount; }
+    public void setNsfrBreachCount(int nsfrBreachCount) { this.nsfrBreachCount = nsfrBreachCount; }
+    public void setRows(List<BaselRatiosResultDTO> rows) { this.rows = rows; }
+
+    @Override
+    public String toString() {
+        return "BaselPortfolioResultDTO{" +
+                "asOfDate=" + asOfDate +
+                ", weightsVersion='" + weightsVersion + '\'' +
+                ", bankCount=" + getBankCount() +
+                ", lcrBreachCount=" + lcrBreachCount +
+                ", nsfrBreachCount=" + nsfrBreachCount +
+                ", calculationTimeMs=" + calculationTimeMs +
+                '}';
+    }
+}
@@ -0,0 +1,93 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Результат расчета Basel III LCR и NSFR по одному балансовому отчету банка
+public class BaselRatiosResultDTO implements Serializable {
+    private static final long serialVersionUID = 215L;
+
+    private int bankId;
+    private String bankName;
+    private int statementId;
+    private LocalDate reportDate;
+    private String weightsVersion; // Версия basel_weights.properties, по которой считали
+    private int mappedItemCount; // Сколько статей (и поддеревьев) попало в таблицу весов
+
+    // LCR = HQLA / чистый отток денежных средств за 30 дней
+    private BigDecimal hqlaLevel1;
+    private BigDecimal hqlaLevel2a;
+    private BigDecimal hqlaLevel2b;
+    private BigDecimal hqla; // С учетом ограничений на долю активов уровня 2 и 2B
+    private BigDecimal outflows;
+    private BigDecimal inflows;
+    private BigDecimal cappedInflows; // Притоки, ограниченные долей оттоков
+    private BigDecimal netCashOutflows;
+    private BigDecimal lcr; // null, если чистый отток не положителен
+    private boolean lcrCompliant; // LCR >= 100% (или нет чистого оттока)
+
+    // NSFR = доступное / требуемое стабильное фондирование
+    private BigDecimal availableStableFunding;
+    private BigDecimal requiredStableFunding;
+    private BigDecimal nsfr; // null, если требуемое фондирование равно нулю
+    private boolean nsfrCompliant; // NSFR >= 100% (или нет требуемого фондирования)
+
+    public BaselRatiosResultDTO() {}
+
+    // Геттеры
+    public int getBankId() { return bankId; }
+    public String getBankName() { return bankName; }
+    public int getStatementId() { return statementId; }
+    public LocalDate getReportDate() { return reportDate; }
+    public String getWeightsVersion() { return weightsVersion; }
+    public int getMappedItemCount() { return mappedItemCount; }
+    public BigDecimal getHqlaLevel1() { return hqlaLevel1; }
+    public BigDecimal getHqlaLevel2a() { return hqlaLevel2a; }
+    public BigDecimal getHqlaLevel2b() { return hqlaLevel2b; }
+    public BigDecimal getHqla() { return hqla; }
+    public BigDecimal getOutflows() { return outflows; }
+    public BigDecimal getInflows() { return inflows; }
+    public BigDecimal getCappedInflows() { return cappedInflows; }
+    public BigDecimal getNetCashOutflows() { return netCashOutflows; }
+    public BigDecimal getLcr() { return lcr; }
+    public boolean isLcrCompliant() { return lcrCompliant; }
+    public BigDecimal getAvailableStableFunding() { return availableStableFunding; }
+    public BigDecimal getRequiredStableFunding() { return requiredStableFunding; }
+    public BigDecimal getNsfr() { return nsfr; }
+    public boolean isNsfrCompliant() { return nsfrCompliant; }
+
+    // Сеттеры
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setBankName(String bankName) { this.bankName = bankName; }
+    public void setStatementId(int statementId) { this.statementId = statementId; }
+    public void setReportDate(LocalDate reportDate) { this.reportDate = reportDate; }
+    public void setWeightsVersion(String weightsVersion) { this.weightsVersion = weightsVersion; }
+    public void setMappedItemCount(int mappedItemCount) { this.mappedItemCount = mappedItemCount; }
+    public void setHqlaLevel1(BigDecimal hqlaLevel1) { this.hqlaLevel1 = hqlaLevel1; }
+    public void setHqlaLevel2a(BigDecimal hqlaLevel2a) { this.hqlaLevel2a = hqlaLevel2a; }
+    public void setHqlaLevel2b(BigDecimal hqlaLevel2b) { this.hqlaLevel2b = hqlaLevel2b; }
+    public void setHqla(BigDecimal hqla) { this.hqla = hqla; }
+    public void setOutflows(BigDecimal outflows) { this.outflows = outflows; }
+    public void setInflows(BigDecimal inflows) { this.inflows = inflows; }
+    public void setCappedInflows(BigDecimal cappedInflows) { this.cappedInflows = cappedInflows; }
+    public void setNetCashOutflows(BigDecimal netCashOutflows) { this.netCashOutflows = netCashOutflows; }
+    public void setLcr(BigDecimal lcr) { this.lcr = lcr; }
+    public void setLcrCompliant(boolean lcrCompliant) { this.lcrCompliant = lcrCompliant; }
+    public void setAvailableStableFunding(BigDecimal availableStableFunding) { this.availableStableFunding = availableStableFunding; }
+    public void setRequiredStableFunding(BigDecimal requiredStableFunding) { this.requiredStableFunding = requiredStableFunding; }
+    public void setNsfr(BigDecimal nsfr) { this.nsfr = nsfr; }
+    public void setNsfrCompliant(boolean nsfrCompliant) { this.nsfrCompliant = nsfrCompliant; }
+
+    @Override
+    public String toString() {
+        return "BaselRatiosResultDTO{" +
+                "bankId=" + bankId +
+                ", bankName='" + bankName + '\'' +
+                ", reportDate=" + reportDate +
+                ", lcr=" + lcr +
+                ", nsfr=" + nsfr +
+                ", weightsVersion='" + weightsVersion + '\'' +
+                '}';
+    }
+}
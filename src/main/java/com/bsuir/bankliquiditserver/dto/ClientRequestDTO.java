@@ -9,6 +9,7 @@ public class ClientRequestDTO implements Serializable {
     private String action;
     private Object payload; // Может быть Map<String, Object> или специфичный DTO для каждой команды
     private String token;   // Для авторизованных запросов
+    private Long deadlineMs; // Необязательный срок выполнения, мс от получения запроса сервером
 
     public ClientRequestDTO() {}
 
@@ -30,6 +31,8 @@ public class ClientRequestDTO implements Serializable {
     public void setPayload(Object payload) { this.payload = payload; }
     public String getToken() { return token; }
     public void setToken(String token) { this.token = token; }
+    public Long getDeadlineMs() { return deadlineMs; }
+    public void setDeadlineMs(Long deadlineMs) { this.deadlineMs = deadlineMs; }
 
     @Override
     public String toString() {
@@ -37,6 +40,7 @@ public class ClientRequestDTO implements Serializable {
                 "action='" + action + '\'' +
                 ", payloadType=" + (payload != null ? payload.getClass().getSimpleName() : "null") +
                 ", token='" + (token != null ? "present" : "null") + '\'' +
+                ", deadlineMs=" + deadlineMs +
                 '}';
     }
 }
\ No newline at end of file
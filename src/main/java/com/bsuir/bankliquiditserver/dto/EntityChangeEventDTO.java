@@ -0,0 +1,60 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Изменение сущности для подписанного клиента (ServerResponseDTO со статусом EVENT)
+public class EntityChangeEventDTO implements Serializable {
+    private static final long serialVersionUID = 307L;
+
+    private String eventType = "ENTITY_CHANGE";
+    private long sequence; // Общий для сервера номер изменения, возрастает
+    private String entityType; // BANK, FINANCIAL_STATEMENT, ANALYSIS_REPORT; null для RESYNC
+    private String changeType; // CREATED, UPDATED, DELETED; RESYNC - часть изменений пропущена, списки нужно перечитать
+    private Integer entityId;
+    private Integer bankId;
+    private Object data; // Новое состояние (как в списках GET_ALL_BANKS и т.п.); null для DELETED и RESYNC
+    private LocalDateTime changedAt;
+
+    public EntityChangeEventDTO() {}
+
+    public EntityChangeEventDTO(String entityType, String changeType, Integer entityId, Integer bankId, Object data) {
+        this.entityType = entityType;
+        this.changeType = changeType;
+        this.entityId = entityId;
+        this.bankId = bankId;
+        this.data = data;
+        this.changedAt = LocalDateTime.now();
+    }
+
+    // Геттеры
+    public String getEventType() { return eventType; }
+    public long getSequence() { return sequence; }
+    public String getEntityType() { return entityType; }
+    public String getChangeType() { return changeType; }
+    public Integer getEntityId() { return entityId; }
+    public Integer getBankId() { return bankId; }
+    public Object getData() { return data; }
+    public LocalDateTime getChangedAt() { return changedAt; }
+
+    // Сеттеры
+    public void setEventType(String eventType) { this.eventType = eventType; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+    public void setEntityType(String entityType) { this.entityType = entityType; }
+    public void setChangeType(String changeType) { this.changeType = changeType; }
+    public void setEntityId(Integer entityId) { this.entityId = entityId; }
+    public void setBankId(Integer bankId) { this.bankId = bankId; }
+    public void setData(Object data) { this.data = data; }
+    public void setChangedAt(LocalDateTime changedAt) { this.changedAt = changedAt; }
+
+    @Override
+    public String toString() {
+        return "EntityChangeEventDTO{" +
+                "sequence=" + sequence +
+                ", entityType='" + entityType + '\'' +
+                ", changeType='" + changeType + '\'' +
+                ", entityId=" + entityId +
+                ", bankId=" + bankId +
+                '}';
+    }
+}
@@ -24,6 +24,7 @@ public class FinancialStatementDTO implements Serializable {
     private String createdByUsername; // Для отображения
 
     private List<StatementItemDTO> items = new ArrayList<>();
+    private List<StatementAnomalyDTO> anomalies; // Только в ответе на создание отчета: статьи, выбивающиеся из истории банка
 
     public FinancialStatementDTO() {
     }
@@ -76,6 +77,9 @@ public class FinancialStatementDTO implements Serializable {
     public List<StatementItemDTO> getItems() { return items; }
     public void setItems(List<StatementItemDTO> items) { this.items = items; }
 
+    public List<StatementAnomalyDTO> getAnomalies() { return anomalies; }
+    public void setAnomalies(List<StatementAnomalyDTO> anomalies) { this.anomalies = anomalies; }
+
     // Метод для преобразования из сущности FinancialStatement в FinancialStatementDTO
     public static FinancialStatementDTO fromFinancialStatement(FinancialStatement statement, boolean includeItems) {
         if (statement == null) {
@@ -0,0 +1,119 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import com.bsuir.bankliquiditserver.model.Job;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Задача из очереди jobs (payload и result - JSON как есть)
+public class JobDTO implements Serializable {
+    private static final long serialVersionUID = 308L;
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobDTO.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private long id;
+    private String jobType;
+    private JsonNode payload;
+    private String status; // QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    private int priority;
+    private int attempts;
+    private int maxAttempts;
+    private LocalDateTime runAt;
+    private String lockedBy;
+    private LocalDateTime leaseUntil;
+    private int progress; // Проценты
+    private String progressMessage;
+    private String lastError;
+    private JsonNode result;
+    private String scheduleName;
+    private Integer createdByUserId;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public JobDTO() {}
+
+    public static JobDTO fromJob(Job job) {
+        JobDTO dto = new JobDTO();
+        dto.setId(job.getId());
+        dto.setJobType(job.getJobType());
+        dto.setPayload(readJson(job.getPayload(), "job payload"));
+        dto.setStatus(job.getStatus());
+        dto.setPriority(job.getPriority());
+        dto.setAttempts(job.getAttempts());
+        dto.setMaxAttempts(job.getMaxAttempts());
+        dto.setRunAt(job.getRunAt());
+        dto.setLockedBy(job.getLockedBy());
+        dto.setLeaseUntil(job.getLeaseUntil());
+        dto.setProgress(job.getProgress());
+        dto.setProgressMessage(job.getProgressMessage());
+        dto.setLastError(job.getLastError());
+        dto.setResult(readJson(job.getResult(), "job result"));
+        dto.setScheduleName(job.getScheduleName());
+        dto.setCreatedByUserId(job.getCreatedByUserId());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+
+    // JSONB колонка как есть; некорректный JSON не мешает вернуть остальные поля
+    private static JsonNode readJson(String json, String what) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readTree(json);
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Could not parse {} JSON: {}", what, e.getMessage());
+            return null;
+        }
+    }
+
+    // Геттеры
+    public long getId() { return id; }
+    public String getJobType() { return jobType; }
+    public JsonNode getPayload() { return payload; }
+    public String getStatus() { return status; }
+    public int getPriority() { return priority; }
+    public int getAttempts() { return attempts; }
+    public int getMaxAttempts() { return maxAttempts; }
+    public LocalDateTime getRunAt() { return runAt; }
+    public String getLockedBy() { return lockedBy; }
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public int getProgress() { return progress; }
+    public String getProgressMessage() { return progressMessage; }
+    public String getLastError() { return lastError; }
+    public JsonNode getResult() { return result; }
+    public String getScheduleName() { return scheduleName; }
+    public Integer getCreatedByUserId() { return createdByUserId; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+
+    // Сеттеры
+    public void setId(long id) { this.id = id; }
+    public void setJobType(String jobType) { this.jobType = jobType; }
+    public void setPayload(JsonNode payload) { this.payload = payload; }
+    public void setStatus(String status) { this.status = status; }
+    public void setPriority(int priority) { this.priority = priority; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+    public void setRunAt(LocalDateTime runAt) { this.runAt = runAt; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+    public void setProgress(int progress) { this.progress = progress; }
+    public void setProgressMessage(String progressMessage) { this.progressMessage = progressMessage; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public void setResult(JsonNode result) { this.result = result; }
+    public void setScheduleName(String scheduleName) { this.scheduleName = scheduleName; }
+    public void setCreatedByUserId(Integer createdByUserId) { this.createdByUserId = createdByUserId; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
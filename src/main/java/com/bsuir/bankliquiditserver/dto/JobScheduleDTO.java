@@ -0,0 +1,71 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import com.bsuir.bankliquiditserver.model.JobSchedule;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Периодическая задача (расписание cron)
+public class JobScheduleDTO implements Serializable {
+    private static final long serialVersionUID = 309L;
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobScheduleDTO.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private String name;
+    private String jobType;
+    private JsonNode payload;
+    private String cronExpression; // минута час день месяц день_недели
+    private boolean enabled;
+    private LocalDateTime nextRunAt;
+    private LocalDateTime lastRunAt;
+
+    public JobScheduleDTO() {}
+
+    public static JobScheduleDTO fromJobSchedule(JobSchedule schedule) {
+        JobScheduleDTO dto = new JobScheduleDTO();
+        dto.setName(schedule.getName());
+        dto.setJobType(schedule.getJobType());
+        dto.setPayload(readJson(schedule.getPayload(), "schedule payload"));
+        dto.setCronExpression(schedule.getCronExpression());
+        dto.setEnabled(schedule.isEnabled());
+        dto.setNextRunAt(schedule.getNextRunAt());
+        dto.setLastRunAt(schedule.getLastRunAt());
+        return dto;
+    }
+
+    // JSONB колонка как есть; некорректный JSON не мешает вернуть остальные поля
+    private static JsonNode readJson(String json, String what) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readTree(json);
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Could not parse {} JSON: {}", what, e.getMessage());
+            return null;
+        }
+    }
+
+    // Геттеры
+    public String getName() { return name; }
+    public String getJobType() { return jobType; }
+    public JsonNode getPayload() { return payload; }
+    public String getCronExpression() { return cronExpression; }
+    public boolean isEnabled() { return enabled; }
+    public LocalDateTime getNextRunAt() { return nextRunAt; }
+    public LocalDateTime getLastRunAt() { return lastRunAt; }
+
+    // Сеттеры
+    public void setName(String name) { this.name = name; }
+    public void setJobType(String jobType) { this.jobType = jobType; }
+    public void setPayload(JsonNode payload) { this.payload = payload; }
+    public void setCronExpression(String cronExpression) { this.cronExpression = cronExpression; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public void setNextRunAt(LocalDateTime nextRunAt) { this.nextRunAt = nextRunAt; }
+    public void setLastRunAt(LocalDateTime lastRunAt) { this.lastRunAt = lastRunAt; }
+}
@@ -3,6 +3,8 @@ package com.bsuir.bankliquiditserver.dto;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 public class LiquidityAnalysisResultDTO implements Serializable {
@@ -20,6 +22,9 @@ public class LiquidityAnalysisResultDTO implements Serializable {
     private String quickRatioInterpretation;
     private String cashRatioInterpretation;
 
+    // Все коэффициенты категории из ratio_definitions.properties, включая добавленные конфигурацией
+    private Map<String, BigDecimal> ratios = new LinkedHashMap<>();
+
     public LiquidityAnalysisResultDTO() {}
 
     // Геттеры
@@ -32,6 +37,7 @@ public class LiquidityAnalysisResultDTO implements Serializable {
     public String getCurrentRatioInterpretation() { return currentRatioInterpretation; }
     public String getQuickRatioInterpretation() { return quickRatioInterpretation; }
     public String getCashRatioInterpretation() { return cashRatioInterpretation; }
+    public Map<String, BigDecimal> getRatios() { return ratios; }
 
     // Сеттеры
     public void setBankId(int bankId) { this.bankId = bankId; }
@@ -43,6 +49,7 @@ public class LiquidityAnalysisResultDTO implements Serializable {
     public void setCurrentRatioInterpretation(String currentRatioInterpretation) { this.currentRatioInterpretation = currentRatioInterpretation; }
     public void setQuickRatioInterpretation(String quickRatioInterpretation) { this.quickRatioInterpretation = quickRatioInterpretation; }
     public void setCashRatioInterpretation(String cashRatioInterpretation) { this.cashRatioInterpretation = cashRatioInterpretation; }
+    public void setRatios(Map<String, BigDecimal> ratios) { this.ratios = ratios; }
 
     @Override
     public boolean equals(Object o) {
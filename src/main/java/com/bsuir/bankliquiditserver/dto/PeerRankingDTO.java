@@ -0,0 +1,46 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Ранжирование коэффициентов банка среди банков с балансовым отчетом на ту же дату
+public class PeerRankingDTO implements Serializable {
+    private static final long serialVersionUID = 213L;
+
+    private int bankId;
+    private String bankName;
+    private int statementId;
+    private LocalDate reportDate;
+    private String definitionsVersion; // Версия ratio_definitions.properties, по которой считали
+    private List<PeerRatioRankDTO> ratios = new ArrayList<>();
+
+    public PeerRankingDTO() {}
+
+    // Геттеры
+    public int getBankId() { return bankId; }
+    public String getBankName() { return bankName; }
+    public int getStatementId() { return statementId; }
+    public LocalDate getReportDate() { return reportDate; }
+    public String getDefinitionsVersion() { return definitionsVersion; }
+    public List<PeerRatioRankDTO> getRatios() { return ratios; }
+
+    // Сеттеры
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setBankName(String bankName) { this.bankName = bankName; }
+    public void setStatementId(int statementId) { this.statementId = statementId; }
+    public void setReportDate(LocalDate reportDate) { this.reportDate = reportDate; }
+    public void setDefinitionsVersion(String definitionsVersion) { this.definitionsVersion = definitionsVersion; }
+    public void setRatios(List<PeerRatioRankDTO> ratios) { this.ratios = ratios; }
+
+    @Override
+    public String toString() {
+        return "PeerRankingDTO{" +
+                "bankId=" + bankId +
+                ", bankName='" + bankName + '\'' +
+                ", reportDate=" + reportDate +
+                ", ratios=" + ratios +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Положение коэффициента банка среди всех банков на ту же дату отчета
+public class PeerRatioRankDTO implements Serializable {
+    private static final long serialVersionUID = 214L;
+
+    private String ratioName;
+    private BigDecimal value; // null - коэффициент банка не определен
+    private Integer rank; // 1 - наибольшее значение; равные значения делят лучший ранг
+    private int peerCount; // Банков с определенным коэффициентом на эту дату
+    private BigDecimal percentile; // Доля банков с меньшим значением (равные - наполовину), 0..100
+    private Integer quartile; // 1 - нижняя четверть, 4 - верхняя
+    private BigDecimal peerMin;
+    private BigDecimal peerQ1;
+    private BigDecimal peerMedian;
+    private BigDecimal peerQ3;
+    private BigDecimal peerMax;
+
+    public PeerRatioRankDTO() {}
+
+    // Геттеры
+    public String getRatioName() { return ratioName; }
+    public BigDecimal getValue() { return value; }
+    public Integer getRank() { return rank; }
+    public int getPeerCount() { return peerCount; }
+    public BigDecimal getPercentile() { return percentile; }
+    public Integer getQuartile() { return quartile; }
+    public BigDecimal getPeerMin() { return peerMin; }
+    public BigDecimal getPeerQ1() { return peerQ1; }
+    public BigDecimal getPeerMedian() { return peerMedian; }
+    public BigDecimal getPeerQ3() { return peerQ3; }
+    public BigDecimal getPeerMax() { return peerMax; }
+
+    // Сеттеры
+    public void setRatioName(String ratioName) { this.ratioName = ratioName; }
+    public void setValue(BigDecimal value) { this.value = value; }
+    public void setRank(Integer rank) { this.rank = rank; }
+    public void setPeerCount(int peerCount) { this.peerCount = peerCount; }
+    public void setPercentile(BigDecimal percentile) { this.percentile = percentile; }
+    public void setQuartile(Integer quartile) { this.quartile = quartile; }
+    public void setPeerMin(BigDecimal peerMin) { this.peerMin = peerMin; }
+    public void setPeerQ1(BigDecimal peerQ1) { this.peerQ1 = peerQ1; }
+    public void setPeerMedian(BigDecimal peerMedian) { this.peerMedian = peerMedian; }
+    public void setPeerQ3(BigDecimal peerQ3) { this.peerQ3 = peerQ3; }
+    public void setPeerMax(BigDecimal peerMax) { this.peerMax = peerMax; }
+
+    @Override
+    public String toString() {
+        return "PeerRatioRankDTO{" +
+                "ratioName='" + ratioName + '\'' +
+                ", value=" + value +
+                ", rank=" + rank +
+                ", peerCount=" + peerCount +
+                ", percentile=" + percentile +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Результат расчета коэффициентов сразу по всем банкам
+public class PortfolioAnalysisResultDTO implements Serializable {
+    private static final long serialVersionUID = 203L;
+
+    private LocalDate asOfDate; // Запрошенная дата (null - последние отчеты)
+    private String definitionsVersion; // Версия ratio_definitions.properties, по которой считали
+    private long calculationTimeMs;
+    private List<PortfolioRatioRowDTO> rows = new ArrayList<>();
+
+    public PortfolioAnalysisResultDTO() {}
+
+    // Геттеры
+    public LocalDate getAsOfDate() { return asOfDate; }
+    public String getDefinitionsVersion() { return definitionsVersion; }
+    public long getCalculationTimeMs() { return calculationTimeMs; }
+    public List<PortfolioRatioRowDTO> getRows() { return rows; }
+    public int getBankCount() { return rows != null ? rows.size() : 0; }
+
+    // Сеттеры
+    public void setAsOfDate(LocalDate asOfDate) { this.asOfDate = asOfDate; }
+    public void setDefinitionsVersion(String definitionsVersion) { this.definitionsVersion = definitionsVersion; }
+    public void setCalculationTimeMs(long calculationTimeMs) { this.calculationTimeMs = calculationTimeMs; }
+    public void setRows(List<PortfolioRatioRowDTO> rows) { this.rows = rows; }
+
+    @Override
+    public String toString() {
+        return "PortfolioAnalysisResultDTO{" +
+                "asOfDate=" + asOfDate +
+                ", definitionsVersion='" + definitionsVersion + '\'' +
+                ", bankCount=" + getBankCount() +
+                ", calculationTimeMs=" + calculationTimeMs +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Строка портфельного расчета: коэффициенты одного банка по его последнему отчету
+public class PortfolioRatioRowDTO implements Serializable {
+    private static final long serialVersionUID = 204L;
+
+    private int bankId;
+    private String bankName;
+    private int statementId;
+    private LocalDate reportDate; // Дата отчета, по которому посчитаны коэффициенты
+    private Map<String, BigDecimal> ratios = new LinkedHashMap<>(); // Все коэффициенты из ratio_definitions.properties
+
+    public PortfolioRatioRowDTO() {}
+
+    // Геттеры
+    public int getBankId() { return bankId; }
+    public String getBankName() { return bankName; }
+    public int getStatementId() { return statementId; }
+    public LocalDate getReportDate() { return reportDate; }
+    public Map<String, BigDecimal> getRatios() { return ratios; }
+
+    // Сеттеры
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setBankName(String bankName) { this.bankName = bankName; }
+    public void setStatementId(int statementId) { this.statementId = statementId; }
+    public void setReportDate(LocalDate reportDate) { this.reportDate = reportDate; }
+    public void setRatios(Map<String, BigDecimal> ratios) { this.ratios = ratios; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PortfolioRatioRowDTO that = (PortfolioRatioRowDTO) o;
+        return bankId == that.bankId && statementId == that.statementId && Objects.equals(reportDate, that.reportDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bankId, statementId, reportDate);
+    }
+
+    @Override
+    public String toString() {
+        return "PortfolioRatioRowDTO{" +
+                "bankId=" + bankId +
+                ", bankName='" + bankName + '\'' +
+                ", statementId=" + statementId +
+                ", reportDate=" + reportDate +
+                ", ratios=" + ratios +
+                '}';
+    }
+}
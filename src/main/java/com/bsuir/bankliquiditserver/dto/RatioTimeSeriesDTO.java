@@ -0,0 +1,64 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Динамика коэффициентов банка по периодам в колоночном виде:
+ * i-й элемент каждого списка относится к отчету reportDates[i].
+ */
+public class RatioTimeSeriesDTO implements Serializable {
+    private static final long serialVersionUID = 205L;
+
+    private int bankId;
+    private String bankName;
+    private String definitionsVersion; // Версия ratio_definitions.properties, по которой считали
+    private int movingAverageWindow; // 0 - скользящие средние не считались
+
+    private List<LocalDate> reportDates = new ArrayList<>();
+    private List<Integer> statementIds = new ArrayList<>();
+    private Map<String, List<BigDecimal>> ratios = new LinkedHashMap<>();
+    private Map<String, List<BigDecimal>> movingAverages; // null, если не запрошены
+    private Map<String, List<BigDecimal>> deltas; // Изменение к предыдущему периоду, null, если не запрошены
+
+    public RatioTimeSeriesDTO() {}
+
+    // Геттеры
+    public int getBankId() { return bankId; }
+    public String getBankName() { return bankName; }
+    public String getDefinitionsVersion() { return definitionsVersion; }
+    public int getMovingAverageWindow() { return movingAverageWindow; }
+    public List<LocalDate> getReportDates() { return reportDates; }
+    public List<Integer> getStatementIds() { return statementIds; }
+    public Map<String, List<BigDecimal>> getRatios() { return ratios; }
+    public Map<String, List<BigDecimal>> getMovingAverages() { return movingAverages; }
+    public Map<String, List<BigDecimal>> getDeltas() { return deltas; }
+    public int getPeriodCount() { return reportDates != null ? reportDates.size() : 0; }
+
+    // Сеттеры
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setBankName(String bankName) { this.bankName = bankName; }
+    public void setDefinitionsVersion(String definitionsVersion) { this.definitionsVersion = definitionsVersion; }
+    public void setMovingAverageWindow(int movingAverageWindow) { this.movingAverageWindow = movingAverageWindow; }
+    public void setReportDates(List<LocalDate> reportDates) { this.reportDates = reportDates; }
+    public void setStatementIds(List<Integer> statementIds) { this.statementIds = statementIds; }
+    public void setRatios(Map<String, List<BigDecimal>> ratios) { this.ratios = ratios; }
+    public void setMovingAverages(Map<String, List<BigDecimal>> movingAverages) { this.movingAverages = movingAverages; }
+    public void setDeltas(Map<String, List<BigDecimal>> deltas) { this.deltas = deltas; }
+
+    @Override
+    public String toString() {
+        return "RatioTimeSeriesDTO{" +
+                "bankId=" + bankId +
+                ", bankName='" + bankName + '\'' +
+                ", definitionsVersion='" + definitionsVersion + '\'' +
+                ", periodCount=" + getPeriodCount() +
+                ", movingAverageWindow=" + movingAverageWindow +
+                '}';
+    }
+}
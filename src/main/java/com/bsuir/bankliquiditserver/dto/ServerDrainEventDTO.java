@@ -0,0 +1,39 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Узел останавливается (ServerResponseDTO со статусом EVENT): уже отправленные запросы будут выполнены,
+// новые получат BUSY; клиенту следует переподключиться к другому узлу
+public class ServerDrainEventDTO implements Serializable {
+    private static final long serialVersionUID = 310L;
+
+    private String eventType = "SERVER_DRAINING";
+    private long closeAfterMs; // Не позже чем через столько соединение будет закрыто сервером
+    private LocalDateTime drainStartedAt;
+
+    public ServerDrainEventDTO() {}
+
+    public ServerDrainEventDTO(long closeAfterMs) {
+        this.closeAfterMs = closeAfterMs;
+        this.drainStartedAt = LocalDateTime.now();
+    }
+
+    // Геттеры
+    public String getEventType() { return eventType; }
+    public long getCloseAfterMs() { return closeAfterMs; }
+    public LocalDateTime getDrainStartedAt() { return drainStartedAt; }
+
+    // Сеттеры
+    public void setEventType(String eventType) { this.eventType = eventType; }
+    public void setCloseAfterMs(long closeAfterMs) { this.closeAfterMs = closeAfterMs; }
+    public void setDrainStartedAt(LocalDateTime drainStartedAt) { this.drainStartedAt = drainStartedAt; }
+
+    @Override
+    public String toString() {
+        return "ServerDrainEventDTO{" +
+                "closeAfterMs=" + closeAfterMs +
+                ", drainStartedAt=" + drainStartedAt +
+                '}';
+    }
+}
@@ -8,6 +8,7 @@ public class ServerResponseDTO implements Serializable {
     private Status status;
     private Object data;
     private String errorMessage;
+    private Long retryAfterMs; // Для BUSY: через сколько повторить запрос
 
     public enum Status {
         SUCCESS,
@@ -15,7 +16,9 @@ public class ServerResponseDTO implements Serializable {
         UNAUTHORIZED, // 401
         FORBIDDEN,    // 403
         BAD_REQUEST,  // 400
-        NOT_FOUND     // 404
+        NOT_FOUND,    // 404
+        EVENT,        // Сообщение сервера без запроса (оповещения); не является ответом на последний запрос
+        BUSY          // 503: сервер перегружен, запрос не выполнялся; повторить через retryAfterMs
     }
 
     public ServerResponseDTO() {}
@@ -49,6 +52,16 @@ public class ServerResponseDTO implements Serializable {
         return new ServerResponseDTO(Status.NOT_FOUND, null, message);
     }
 
+    public static ServerResponseDTO event(Object data) {
+        return new ServerResponseDTO(Status.EVENT, data, null);
+    }
+
+    public static ServerResponseDTO busy(String message, long retryAfterMs) {
+        ServerResponseDTO response = new ServerResponseDTO(Status.BUSY, null, message);
+        response.retryAfterMs = retryAfterMs;
+        return response;
+    }
+
 
     // Геттеры и сеттеры
     public Status getStatus() { return status; }
@@ -57,6 +70,8 @@ public class ServerResponseDTO implements Serializable {
     public void setData(Object data) { this.data = data; }
     public String getErrorMessage() { return errorMessage; }
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    public Long getRetryAfterMs() { return retryAfterMs; }
+    public void setRetryAfterMs(Long retryAfterMs) { this.retryAfterMs = retryAfterMs; }
 
     @Override
     public String toString() {
@@ -64,6 +79,7 @@ public class ServerResponseDTO implements Serializable {
                 "status=" + status +
                 ", dataPresent=" + (data != null) +
                 ", errorMessage='" + errorMessage + '\'' +
+                (retryAfterMs != null ? ", retryAfterMs=" + retryAfterMs : "") +
                 '}';
     }
 }
\ No newline at end of file
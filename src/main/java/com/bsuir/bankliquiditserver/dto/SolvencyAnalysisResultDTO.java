@@ -3,6 +3,8 @@ package com.bsuir.bankliquiditserver.dto;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 public class SolvencyAnalysisResultDTO implements Serializable {
@@ -21,6 +23,9 @@ public class SolvencyAnalysisResultDTO implements Serializable {
     private String debtToEquityRatioInterpretation;
     private String totalDebtToTotalAssetsRatioInterpretation;
 
+    // Все коэффициенты категории из ratio_definitions.properties, включая добавленные конфигурацией
+    private Map<String, BigDecimal> ratios = new LinkedHashMap<>();
+
 
     public SolvencyAnalysisResultDTO() {}
 
@@ -34,6 +39,7 @@ public class SolvencyAnalysisResultDTO implements Serializable {
     public String getEquityRatioInterpretation() { return equityRatioInterpretation; }
     public String getDebtToEquityRatioInterpretation() { return debtToEquityRatioInterpretation; }
     public String getTotalDebtToTotalAssetsRatioInterpretation() { return totalDebtToTotalAssetsRatioInterpretation; }
+    public Map<String, BigDecimal> getRatios() { return ratios; }
 
 
     // Сеттеры
@@ -46,6 +52,7 @@ public class SolvencyAnalysisResultDTO implements Serializable {
     public void setEquityRatioInterpretation(String equityRatioInterpretation) { this.equityRatioInterpretation = equityRatioInterpretation; }
     public void setDebtToEquityRatioInterpretation(String debtToEquityRatioInterpretation) { this.debtToEquityRatioInterpretation = debtToEquityRatioInterpretation; }
     public void setTotalDebtToTotalAssetsRatioInterpretation(String totalDebtToTotalAssetsRatioInterpretation) { this.totalDebtToTotalAssetsRatioInterpretation = totalDebtToTotalAssetsRatioInterpretation; }
+    public void setRatios(Map<String, BigDecimal> ratios) { this.ratios = ratios; }
 
 
     @Override
@@ -0,0 +1,71 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import com.bsuir.bankliquiditserver.model.StatementAnomaly;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Статья отчета, значение которой выбивается из истории банка
+public class StatementAnomalyDTO implements Serializable {
+    private static final long serialVersionUID = 105L;
+
+    private int statementId;
+    private String itemCode;
+    private String itemName;
+    private BigDecimal itemValue;
+    private double expectedMean; // Среднее по предыдущим отчетам банка
+    private double stdDev;
+    private double zScore; // (itemValue - expectedMean) / stdDev
+    private long sampleCount; // Число значений в истории
+    private LocalDateTime detectedAt;
+
+    public StatementAnomalyDTO() {}
+
+    public static StatementAnomalyDTO fromStatementAnomaly(StatementAnomaly anomaly) {
+        StatementAnomalyDTO dto = new StatementAnomalyDTO();
+        dto.setStatementId(anomaly.getStatementId());
+        dto.setItemCode(anomaly.getItemCode());
+        dto.setItemName(anomaly.getItemName());
+        dto.setItemValue(anomaly.getItemValue());
+        dto.setExpectedMean(anomaly.getExpectedMean());
+        dto.setStdDev(anomaly.getStdDev());
+        dto.setZScore(anomaly.getZScore());
+        dto.setSampleCount(anomaly.getSampleCount());
+        dto.setDetectedAt(anomaly.getDetectedAt());
+        return dto;
+    }
+
+    // Геттеры
+    public int getStatementId() { return statementId; }
+    public String getItemCode() { return itemCode; }
+    public String getItemName() { return itemName; }
+    public BigDecimal getItemValue() { return itemValue; }
+    public double getExpectedMean() { return expectedMean; }
+    public double getStdDev() { return stdDev; }
+    public double getZScore() { return zScore; }
+    public long getSampleCount() { return sampleCount; }
+    public LocalDateTime getDetectedAt() { return detectedAt; }
+
+    // Сеттеры
+    public void setStatementId(int statementId) { this.statementId = statementId; }
+    public void setItemCode(String itemCode) { this.itemCode = itemCode; }
+    public void setItemName(String itemName) { this.itemName = itemName; }
+    public void setItemValue(BigDecimal itemValue) { this.itemValue = itemValue; }
+    public void setExpectedMean(double expectedMean) { this.expectedMean = expectedMean; }
+    public void setStdDev(double stdDev) { this.stdDev = stdDev; }
+    public void setZScore(double zScore) { this.zScore = zScore; }
+    public void setSampleCount(long sampleCount) { this.sampleCount = sampleCount; }
+    public void setDetectedAt(LocalDateTime detectedAt) { this.detectedAt = detectedAt; }
+
+    @Override
+    public String toString() {
+        return "StatementAnomalyDTO{" +
+                "statementId=" + statementId +
+                ", itemCode='" + itemCode + '\'' +
+                ", itemValue=" + itemValue +
+                ", expectedMean=" + expectedMean +
+                ", zScore=" + zScore +
+                '}';
+    }
+}
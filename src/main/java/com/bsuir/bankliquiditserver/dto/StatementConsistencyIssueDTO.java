@@ -0,0 +1,64 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import com.bsuir.bankliquiditserver.analysis.StatementRollup;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Одна несогласованность в дереве статей отчета
+public class StatementConsistencyIssueDTO implements Serializable {
+    private static final long serialVersionUID = 104L;
+
+    private String issueType; // TOTAL_MISMATCH, UNKNOWN_PARENT, CYCLE
+    private int itemId;
+    private String itemCode;
+    private String itemName;
+    private BigDecimal declaredValue;
+    private BigDecimal childrenSum; // Для TOTAL_MISMATCH - сумма значений детей (рассчитываемых - по их суммам)
+    private BigDecimal difference; // declaredValue - childrenSum
+
+    public StatementConsistencyIssueDTO() {}
+
+    public static StatementConsistencyIssueDTO fromIssue(StatementRollup.Issue issue) {
+        StatementConsistencyIssueDTO dto = new StatementConsistencyIssueDTO();
+        dto.setIssueType(issue.getType().name());
+        dto.setItemId(issue.getItem().getId());
+        dto.setItemCode(issue.getItem().getItemCode());
+        dto.setItemName(issue.getItem().getItemName());
+        dto.setDeclaredValue(issue.getDeclaredValue());
+        dto.setChildrenSum(issue.getChildrenSum());
+        if (issue.getChildrenSum() != null) {
+            dto.setDifference(issue.getDeclaredValue().subtract(issue.getChildrenSum()));
+        }
+        return dto;
+    }
+
+    // Геттеры
+    public String getIssueType() { return issueType; }
+    public int getItemId() { return itemId; }
+    public String getItemCode() { return itemCode; }
+    public String getItemName() { return itemName; }
+    public BigDecimal getDeclaredValue() { return declaredValue; }
+    public BigDecimal getChildrenSum() { return childrenSum; }
+    public BigDecimal getDifference() { return difference; }
+
+    // Сеттеры
+    public void setIssueType(String issueType) { this.issueType = issueType; }
+    public void setItemId(int itemId) { this.itemId = itemId; }
+    public void setItemCode(String itemCode) { this.itemCode = itemCode; }
+    public void setItemName(String itemName) { this.itemName = itemName; }
+    public void setDeclaredValue(BigDecimal declaredValue) { this.declaredValue = declaredValue; }
+    public void setChildrenSum(BigDecimal childrenSum) { this.childrenSum = childrenSum; }
+    public void setDifference(BigDecimal difference) { this.difference = difference; }
+
+    @Override
+    public String toString() {
+        return "StatementConsistencyIssueDTO{" +
+                "issueType='" + issueType + '\'' +
+                ", itemId=" + itemId +
+                ", itemCode='" + itemCode + '\'' +
+                ", declaredValue=" + declaredValue +
+                ", childrenSum=" + childrenSum +
+                '}';
+    }
+}
@@ -0,0 +1,50 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Результат проверки согласованности итогов в дереве статей отчета (CHECK_STATEMENT_CONSISTENCY)
+public class StatementConsistencyReportDTO implements Serializable {
+    private static final long serialVersionUID = 103L;
+
+    private int statementId;
+    private int bankId;
+    private LocalDate reportDate;
+    private String statementType;
+    private int itemCount;
+    private int rootCount; // Статьи верхнего уровня (без родителя)
+    private List<StatementConsistencyIssueDTO> issues = new ArrayList<>();
+
+    public StatementConsistencyReportDTO() {}
+
+    // Геттеры
+    public int getStatementId() { return statementId; }
+    public int getBankId() { return bankId; }
+    public LocalDate getReportDate() { return reportDate; }
+    public String getStatementType() { return statementType; }
+    public int getItemCount() { return itemCount; }
+    public int getRootCount() { return rootCount; }
+    public List<StatementConsistencyIssueDTO> getIssues() { return issues; }
+    public boolean isConsistent() { return issues == null || issues.isEmpty(); }
+
+    // Сеттеры
+    public void setStatementId(int statementId) { this.statementId = statementId; }
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setReportDate(LocalDate reportDate) { this.reportDate = reportDate; }
+    public void setStatementType(String statementType) { this.statementType = statementType; }
+    public void setItemCount(int itemCount) { this.itemCount = itemCount; }
+    public void setRootCount(int rootCount) { this.rootCount = rootCount; }
+    public void setIssues(List<StatementConsistencyIssueDTO> issues) { this.issues = issues; }
+
+    @Override
+    public String toString() {
+        return "StatementConsistencyReportDTO{" +
+                "statementId=" + statementId +
+                ", itemCount=" + itemCount +
+                ", rootCount=" + rootCount +
+                ", issues=" + (issues != null ? issues.size() : 0) +
+                '}';
+    }
+}
@@ -0,0 +1,55 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Результат стресс-теста по одному банку
+public class StressBankResultDTO implements Serializable {
+    private static final long serialVersionUID = 211L;
+
+    private int bankId;
+    private String bankName;
+    private int statementId;
+    private LocalDate reportDate;
+    private Map<String, BigDecimal> baseRatios = new LinkedHashMap<>(); // Коэффициенты без шоков
+    private List<StressRatioDistributionDTO> ratios = new ArrayList<>();
+    private int breachedScenarioCount; // Сценариев, в которых нарушена хотя бы одна граница
+    private List<String> missingTargets = new ArrayList<>(); // Цели шоков, которых нет в отчете банка
+
+    public StressBankResultDTO() {}
+
+    // Геттеры
+    public int getBankId() { return bankId; }
+    public String getBankName() { return bankName; }
+    public int getStatementId() { return statementId; }
+    public LocalDate getReportDate() { return reportDate; }
+    public Map<String, BigDecimal> getBaseRatios() { return baseRatios; }
+    public List<StressRatioDistributionDTO> getRatios() { return ratios; }
+    public int getBreachedScenarioCount() { return breachedScenarioCount; }
+    public List<String> getMissingTargets() { return missingTargets; }
+
+    // Сеттеры
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setBankName(String bankName) { this.bankName = bankName; }
+    public void setStatementId(int statementId) { this.statementId = statementId; }
+    public void setReportDate(LocalDate reportDate) { this.reportDate = reportDate; }
+    public void setBaseRatios(Map<String, BigDecimal> baseRatios) { this.baseRatios = baseRatios; }
+    public void setRatios(List<StressRatioDistributionDTO> ratios) { this.ratios = ratios; }
+    public void setBreachedScenarioCount(int breachedScenarioCount) { this.breachedScenarioCount = breachedScenarioCount; }
+    public void setMissingTargets(List<String> missingTargets) { this.missingTargets = missingTargets; }
+
+    @Override
+    public String toString() {
+        return "StressBankResultDTO{" +
+                "bankId=" + bankId +
+                ", bankName='" + bankName + '\'' +
+                ", reportDate=" + reportDate +
+                ", breachedScenarioCount=" + breachedScenarioCount +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Ось сетки сценариев: шок цели от fromPercent до toPercent с шагом stepPercent.
+ * Сценарии сетки - все сочетания значений по осям.
+ */
+public class StressGridAxisDTO implements Serializable {
+    private static final long serialVersionUID = 208L;
+
+    private String target; // Код статьи или @КОД
+    private BigDecimal fromPercent;
+    private BigDecimal toPercent;
+    private BigDecimal stepPercent;
+
+    public StressGridAxisDTO() {}
+
+    // Геттеры
+    public String getTarget() { return target; }
+    public BigDecimal getFromPercent() { return fromPercent; }
+    public BigDecimal getToPercent() { return toPercent; }
+    public BigDecimal getStepPercent() { return stepPercent; }
+
+    // Сеттеры
+    public void setTarget(String target) { this.target = target; }
+    public void setFromPercent(BigDecimal fromPercent) { this.fromPercent = fromPercent; }
+    public void setToPercent(BigDecimal toPercent) { this.toPercent = toPercent; }
+    public void setStepPercent(BigDecimal stepPercent) { this.stepPercent = stepPercent; }
+
+    @Override
+    public String toString() {
+        return "StressGridAxisDTO{" +
+                "target='" + target + '\'' +
+                ", fromPercent=" + fromPercent +
+                ", toPercent=" + toPercent +
+                ", stepPercent=" + stepPercent +
+                '}';
+    }
+}
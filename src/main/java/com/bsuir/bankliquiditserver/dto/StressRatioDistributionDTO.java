@@ -0,0 +1,65 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Распределение значений одного коэффициента по сценариям стресс-теста
+public class StressRatioDistributionDTO implements Serializable {
+    private static final long serialVersionUID = 210L;
+
+    private String ratioName;
+    private int evaluatedCount; // Сценариев, в которых коэффициент определен
+    private int undefinedCount; // Сценариев с нулевым знаменателем
+    private BigDecimal min;
+    private BigDecimal p05;
+    private BigDecimal p25;
+    private BigDecimal median;
+    private BigDecimal p75;
+    private BigDecimal p95;
+    private BigDecimal max;
+    private BigDecimal mean;
+    private int breachCount; // Сценариев, где значение вне границ StressThresholdDTO
+    private String worstScenario; // Только по банку: сценарий с худшим значением
+
+    public StressRatioDistributionDTO() {}
+
+    // Геттеры
+    public String getRatioName() { return ratioName; }
+    public int getEvaluatedCount() { return evaluatedCount; }
+    public int getUndefinedCount() { return undefinedCount; }
+    public BigDecimal getMin() { return min; }
+    public BigDecimal getP05() { return p05; }
+    public BigDecimal getP25() { return p25; }
+    public BigDecimal getMedian() { return median; }
+    public BigDecimal getP75() { return p75; }
+    public BigDecimal getP95() { return p95; }
+    public BigDecimal getMax() { return max; }
+    public BigDecimal getMean() { return mean; }
+    public int getBreachCount() { return breachCount; }
+    public String getWorstScenario() { return worstScenario; }
+
+    // Сеттеры
+    public void setRatioName(String ratioName) { this.ratioName = ratioName; }
+    public void setEvaluatedCount(int evaluatedCount) { this.evaluatedCount = evaluatedCount; }
+    public void setUndefinedCount(int undefinedCount) { this.undefinedCount = undefinedCount; }
+    public void setMin(BigDecimal min) { this.min = min; }
+    public void setP05(BigDecimal p05) { this.p05 = p05; }
+    public void setP25(BigDecimal p25) { this.p25 = p25; }
+    public void setMedian(BigDecimal median) { this.median = median; }
+    public void setP75(BigDecimal p75) { this.p75 = p75; }
+    public void setP95(BigDecimal p95) { this.p95 = p95; }
+    public void setMax(BigDecimal max) { this.max = max; }
+    public void setMean(BigDecimal mean) { this.mean = mean; }
+    public void setBreachCount(int breachCount) { this.breachCount = breachCount; }
+    public void setWorstScenario(String worstScenario) { this.worstScenario = worstScenario; }
+
+    @Override
+    public String toString() {
+        return "StressRatioDistributionDTO{" +
+                "ratioName='" + ratioName + '\'' +
+                ", evaluatedCount=" + evaluatedCount +
+                ", median=" + median +
+                ", breachCount=" + breachCount +
+                '}';
+    }
+}
@@ -0,0 +1,31 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+// Именованный сценарий стресс-теста (набор одновременных шоков)
+public class StressScenarioDTO implements Serializable {
+    private static final long serialVersionUID = 207L;
+
+    private String name;
+    private List<StressShockDTO> shocks = new ArrayList<>();
+
+    public StressScenarioDTO() {}
+
+    // Геттеры
+    public String getName() { return name; }
+    public List<StressShockDTO> getShocks() { return shocks; }
+
+    // Сеттеры
+    public void setName(String name) { this.name = name; }
+    public void setShocks(List<StressShockDTO> shocks) { this.shocks = shocks; }
+
+    @Override
+    public String toString() {
+        return "StressScenarioDTO{" +
+                "name='" + name + '\'' +
+                ", shocks=" + shocks +
+                '}';
+    }
+}
@@ -0,0 +1,32 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Шок сценария стресс-теста: изменение статьи (или поддерева) в процентах
+public class StressShockDTO implements Serializable {
+    private static final long serialVersionUID = 206L;
+
+    private String target; // Код статьи или @КОД - статья вместе с потомками по parent_item_id
+    private BigDecimal percent; // Например, -20 - уменьшение на 20%
+
+    public StressShockDTO() {}
+
+    public StressShockDTO(String target, BigDecimal percent) {
+        this.target = target;
+        this.percent = percent;
+    }
+
+    // Геттеры
+    public String getTarget() { return target; }
+    public BigDecimal getPercent() { return percent; }
+
+    // Сеттеры
+    public void setTarget(String target) { this.target = target; }
+    public void setPercent(BigDecimal percent) { this.percent = percent; }
+
+    @Override
+    public String toString() {
+        return target + " " + (percent != null ? percent.toPlainString() : "?") + "%";
+    }
+}
@@ -0,0 +1,59 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Итог стресс-теста: распределения коэффициентов по всем парам "сценарий x банк" и по каждому банку
+public class StressTestResultDTO implements Serializable {
+    private static final long serialVersionUID = 212L;
+
+    private LocalDate asOfDate; // null - последние отчеты
+    private String definitionsVersion;
+    private int scenarioCount;
+    private long evaluationCount; // scenarioCount * число банков
+    private long calculationTimeMs;
+    private Map<String, StressThresholdDTO> thresholds = new LinkedHashMap<>();
+    private List<StressRatioDistributionDTO> distributions = new ArrayList<>(); // По всему портфелю
+    private List<StressBankResultDTO> banks = new ArrayList<>();
+    private List<Integer> missingBankIds = new ArrayList<>(); // Запрошенные банки без балансового отчета
+
+    public StressTestResultDTO() {}
+
+    // Геттеры
+    public LocalDate getAsOfDate() { return asOfDate; }
+    public String getDefinitionsVersion() { return definitionsVersion; }
+    public int getScenarioCount() { return scenarioCount; }
+    public long getEvaluationCount() { return evaluationCount; }
+    public long getCalculationTimeMs() { return calculationTimeMs; }
+    public Map<String, StressThresholdDTO> getThresholds() { return thresholds; }
+    public List<StressRatioDistributionDTO> getDistributions() { return distributions; }
+    public List<StressBankResultDTO> getBanks() { return banks; }
+    public List<Integer> getMissingBankIds() { return missingBankIds; }
+    public int getBankCount() { return banks != null ? banks.size() : 0; }
+
+    // Сеттеры
+    public void setAsOfDate(LocalDate asOfDate) { this.asOfDate = asOfDate; }
+    public void setDefinitionsVersion(String definitionsVersion) { this.definitionsVersion = definitionsVersion; }
+    public void setScenarioCount(int scenarioCount) { this.scenarioCount = scenarioCount; }
+    public void setEvaluationCount(long evaluationCount) { this.evaluationCount = evaluationCount; }
+    public void setCalculationTimeMs(long calculationTimeMs) { this.calculationTimeMs = calculationTimeMs; }
+    public void setThresholds(Map<String, StressThresholdDTO> thresholds) { this.thresholds = thresholds; }
+    public void setDistributions(List<StressRatioDistributionDTO> distributions) { this.distributions = distributions; }
+    public void setBanks(List<StressBankResultDTO> banks) { this.banks = banks; }
+    public void setMissingBankIds(List<Integer> missingBankIds) { this.missingBankIds = missingBankIds; }
+
+    @Override
+    public String toString() {
+        return "StressTestResultDTO{" +
+                "asOfDate=" + asOfDate +
+                ", definitionsVersion='" + definitionsVersion + '\'' +
+                ", scenarioCount=" + scenarioCount +
+                ", bankCount=" + getBankCount() +
+                ", calculationTimeMs=" + calculationTimeMs +
+                '}';
+    }
+}
@@ -0,0 +1,30 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Допустимые границы коэффициента в стресс-тесте; значение вне границ - нарушение (breach)
+public class StressThresholdDTO implements Serializable {
+    private static final long serialVersionUID = 209L;
+
+    private BigDecimal min; // null - без нижней границы
+    private BigDecimal max; // null - без верхней границы
+
+    public StressThresholdDTO() {}
+
+    // Геттеры
+    public BigDecimal getMin() { return min; }
+    public BigDecimal getMax() { return max; }
+
+    // Сеттеры
+    public void setMin(BigDecimal min) { this.min = min; }
+    public void setMax(BigDecimal max) { this.max = max; }
+
+    @Override
+    public String toString() {
+        return "StressThresholdDTO{" +
+                "min=" + min +
+                ", max=" + max +
+                '}';
+    }
+}
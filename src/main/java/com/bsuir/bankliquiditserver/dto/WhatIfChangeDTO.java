@@ -0,0 +1,38 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Изменение статьи в расчете "что если": задается ровно одно из delta, percent, value
+public class WhatIfChangeDTO implements Serializable {
+    private static final long serialVersionUID = 217L;
+
+    private String itemCode;
+    private BigDecimal delta; // Прибавить к значению
+    private BigDecimal percent; // Изменить на процент, например 10 - рост на 10%
+    private BigDecimal value; // Новое значение
+
+    public WhatIfChangeDTO() {}
+
+    // Геттеры
+    public String getItemCode() { return itemCode; }
+    public BigDecimal getDelta() { return delta; }
+    public BigDecimal getPercent() { return percent; }
+    public BigDecimal getValue() { return value; }
+
+    // Сеттеры
+    public void setItemCode(String itemCode) { this.itemCode = itemCode; }
+    public void setDelta(BigDecimal delta) { this.delta = delta; }
+    public void setPercent(BigDecimal percent) { this.percent = percent; }
+    public void setValue(BigDecimal value) { this.value = value; }
+
+    @Override
+    public String toString() {
+        return "WhatIfChangeDTO{" +
+                "itemCode='" + itemCode + '\'' +
+                ", delta=" + delta +
+                ", percent=" + percent +
+                ", value=" + value +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.bsuir.bankliquiditserver.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Результат расчета "что если": коэффициенты отчета до и после изменения статей (в БД ничего не записывается)
+public class WhatIfResultDTO implements Serializable {
+    private static final long serialVersionUID = 218L;
+
+    private int statementId;
+    private int bankId;
+    private String bankName;
+    private LocalDate reportDate;
+    private String definitionsVersion; // Версия ratio_definitions.properties, по которой считали
+    private Map<String, BigDecimal> itemValues = new LinkedHashMap<>(); // Новые значения измененных статей
+    private Map<String, BigDecimal> baseRatios = new LinkedHashMap<>(); // Коэффициенты исходного отчета
+    private Map<String, BigDecimal> ratios = new LinkedHashMap<>(); // Коэффициенты после изменений
+    private int recomputedRatioCount; // Сколько коэффициентов пересчитано (остальные не зависят от измененных статей)
+    private boolean cached; // Подготовленная копия отчета взята из кэша
+    private long calculationTimeMicros;
+
+    public WhatIfResultDTO() {}
+
+    // Геттеры
+    public int getStatementId() { return statementId; }
+    public int getBankId() { return bankId; }
+    public String getBankName() { return bankName; }
+    public LocalDate getReportDate() { return reportDate; }
+    public String getDefinitionsVersion() { return definitionsVersion; }
+    public Map<String, BigDecimal> getItemValues() { return itemValues; }
+    public Map<String, BigDecimal> getBaseRatios() { return baseRatios; }
+    public Map<String, BigDecimal> getRatios() { return ratios; }
+    public int getRecomputedRatioCount() { return recomputedRatioCount; }
+    public boolean isCached() { return cached; }
+    public long getCalculationTimeMicros() { return calculationTimeMicros; }
+
+    // Сеттеры
+    public void setStatementId(int statementId) { this.statementId = statementId; }
+    public void setBankId(int bankId) { this.bankId = bankId; }
+    public void setBankName(String bankName) { this.bankName = bankName; }
+    public void setReportDate(LocalDate reportDate) { this.reportDate = reportDate; }
+    public void setDefinitionsVersion(String definitionsVersion) { this.definitionsVersion = definitionsVersion; }
+    public void setItemValues(Map<String, BigDecimal> itemValues) { this.itemValues = itemValues; }
+    public void setBaseRatios(Map<String, BigDecimal> baseRatios) { this.baseRatios = baseRatios; }
+    public void setRatios(Map<String, BigDecimal> ratios) { this.ratios = ratios; }
+    public void setRecomputedRatioCount(int recomputedRatioCount) { this.recomputedRatioCount = recomputedRatioCount; }
+    public void setCached(boolean cached) { this.cached = cached; }
+    public void setCalculationTimeMicros(long calculationTimeMicros) { this.calculationTimeMicros = calculationTimeMicros; }
+
+    @Override
+    public String toString() {
+        return "WhatIfResultDTO{" +
+                "statementId=" + statementId +
+                ", bankName='" + bankName + '\'' +
+                ", reportDate=" + reportDate +
+                ", changedItems=" + (itemValues != null ? itemValues.size() : 0) +
+                ", recomputedRatioCount=" + recomputedRatioCount +
+                ", calculationTimeMicros=" + calculationTimeMicros +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package com.bsuir.bankliquiditserver.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Распределение длительностей по корзинам степеней двойки (в микросекундах): запись без блокировок,
+ * перцентиль - с точностью до границы корзины (не более чем вдвое выше фактического).
+ * Значения накапливаются с запуска сервера.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 40; // 2^39 мкс - больше шести суток
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        // Корзина i: значения до 2^i мкс включительно
+        int bucket = micros <= 1 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+        buckets[bucket].increment();
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    // Верхняя граница корзины, в которую попадает перцентиль, мс; 0 - записей нет
+    public double getPercentileMillis(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(1L << i, maxMicros.get()) / 1000.0;
+            }
+        }
+        return maxMicros.get() / 1000.0;
+    }
+
+    public double getMeanMillis() {
+        long total = count.sum();
+        return total == 0 ? 0 : totalMicros.sum() / 1000.0 / total;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    // Показатели prefix.count, .meanMs, .p50Ms, .p99Ms, .maxMs в ServerMetrics
+    public LatencyHistogram registerIn(ServerMetrics metrics, String prefix) {
+        metrics.registerGauge(prefix + ".count", this::getCount);
+        metrics.registerGauge(prefix + ".meanMs", this::getMeanMillis);
+        metrics.registerGauge(prefix + ".p50Ms", () -> getPercentileMillis(50));
+        metrics.registerGauge(prefix + ".p99Ms", () -> getPercentileMillis(99));
+        metrics.registerGauge(prefix + ".maxMs", this::getMaxMillis);
+        return this;
+    }
+}
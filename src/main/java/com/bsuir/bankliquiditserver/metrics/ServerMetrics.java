@@ -0,0 +1,47 @@
+package com.bsuir.bankliquiditserver.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Паттерн Singleton: счетчики и показатели сервера, доступные администратору (GET_SERVER_METRICS)
+public class ServerMetrics {
+    private static final ServerMetrics INSTANCE = new ServerMetrics();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+    private ServerMetrics() {}
+
+    public static ServerMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // Счетчик создается при первом обращении; имена вида "analysis.singleFlight.coalesced"
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    public void add(String name, long delta) {
+        counter(name).add(delta);
+    }
+
+    // Показатель, значение которого вычисляется в момент снятия метрик (размер кэша, длина очереди и т.п.)
+    public void registerGauge(String name, Supplier<? extends Number> gauge) {
+        gauges.put(name, gauge);
+    }
+
+    // Текущие значения всех метрик, отсортированные по имени
+    public Map<String, Number> snapshot() {
+        Map<String, Number> result = new TreeMap<>();
+        counters.forEach((name, counter) -> result.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> result.put(name, gauge.get()));
+        return result;
+    }
+}
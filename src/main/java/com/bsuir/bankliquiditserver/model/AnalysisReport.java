@@ -11,7 +11,7 @@ public class AnalysisReport implements Serializable {
     private int id;
     private int bankId;
     private Bank bank; // Объект банка
-    private String reportType; // 'LIQUIDITY_ANALYSIS', 'SOLVENCY_ANALYSIS'
+    private String reportType; // 'LIQUIDITY_ANALYSIS', 'SOLVENCY_ANALYSIS', 'BASEL_III_ANALYSIS'
     private LocalDateTime analysisDate;
     private int analyzedByUserId;
     private User analyzedByUser; // Объект пользователя
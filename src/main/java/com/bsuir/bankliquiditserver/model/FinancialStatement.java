@@ -19,8 +19,10 @@ public class FinancialStatement implements Serializable {
     private LocalDateTime createdAt;
     private Integer createdByUserId; // Может быть null
     private User createdByUser; // Объект пользователя
+    private int version = 1; // Увеличивается при каждом изменении отчета
 
     private List<StatementItem> items = new ArrayList<>(); // Список статей отчета
+    private List<StatementAnomaly> anomalies = new ArrayList<>(); // Выбросы, найденные при загрузке (не хранится в financial_statements)
 
     // Конструкторы, геттеры/сеттеры, equals/hashCode/toString
     public FinancialStatement() {
@@ -104,6 +106,14 @@ public class FinancialStatement implements Serializable {
         }
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public List<StatementItem> getItems() {
         return items;
     }
@@ -112,6 +122,14 @@ public class FinancialStatement implements Serializable {
         this.items = items;
     }
 
+    public List<StatementAnomaly> getAnomalies() {
+        return anomalies;
+    }
+
+    public void setAnomalies(List<StatementAnomaly> anomalies) {
+        this.anomalies = anomalies;
+    }
+
     public void addItem(StatementItem item) {
         this.items.add(item);
         item.setStatementId(this.id); // Связываем статью с отчетом
@@ -140,6 +158,7 @@ public class FinancialStatement implements Serializable {
                 ", currency='" + currency + '\'' +
                 ", createdAt=" + createdAt +
                 ", createdByUserId=" + createdByUserId +
+                ", version=" + version +
                 ", itemsCount=" + (items != null ? items.size() : 0) +
                 '}';
     }
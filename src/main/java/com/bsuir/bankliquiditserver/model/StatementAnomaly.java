@@ -0,0 +1,139 @@
+package com.bsuir.bankliquiditserver.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Статья отчета, значение которой сильно отличается от истории банка по этому коду (таблица statement_anomalies)
+public class StatementAnomaly implements Serializable {
+    private static final long serialVersionUID = 9L;
+
+    private int id;
+    private int statementId;
+    private int bankId;
+    private String itemCode;
+    private String itemName;
+    private BigDecimal itemValue;
+    private double expectedMean; // Среднее по предыдущим отчетам банка
+    private double stdDev; // Стандартное отклонение, по которому считалась оценка
+    private double zScore; // (значение - среднее) / отклонение
+    private long sampleCount; // Сколько значений было в истории
+    private LocalDateTime detectedAt;
+
+    public StatementAnomaly() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getStatementId() {
+        return statementId;
+    }
+
+    public void setStatementId(int statementId) {
+        this.statementId = statementId;
+    }
+
+    public int getBankId() {
+        return bankId;
+    }
+
+    public void setBankId(int bankId) {
+        this.bankId = bankId;
+    }
+
+    public String getItemCode() {
+        return itemCode;
+    }
+
+    public void setItemCode(String itemCode) {
+        this.itemCode = itemCode;
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    public void setItemName(String itemName) {
+        this.itemName = itemName;
+    }
+
+    public BigDecimal getItemValue() {
+        return itemValue;
+    }
+
+    public void setItemValue(BigDecimal itemValue) {
+        this.itemValue = itemValue;
+    }
+
+    public double getExpectedMean() {
+        return expectedMean;
+    }
+
+    public void setExpectedMean(double expectedMean) {
+        this.expectedMean = expectedMean;
+    }
+
+    public double getStdDev() {
+        return stdDev;
+    }
+
+    public void setStdDev(double stdDev) {
+        this.stdDev = stdDev;
+    }
+
+    public double getZScore() {
+        return zScore;
+    }
+
+    public void setZScore(double zScore) {
+        this.zScore = zScore;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public LocalDateTime getDetectedAt() {
+        return detectedAt;
+    }
+
+    public void setDetectedAt(LocalDateTime detectedAt) {
+        this.detectedAt = detectedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StatementAnomaly that = (StatementAnomaly) o;
+        return id == that.id && statementId == that.statementId && Objects.equals(itemCode, that.itemCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, statementId, itemCode);
+    }
+
+    @Override
+    public String toString() {
+        return "StatementAnomaly{" +
+                "statementId=" + statementId +
+                ", itemCode='" + itemCode + '\'' +
+                ", itemValue=" + itemValue +
+                ", expectedMean=" + expectedMean +
+                ", zScore=" + zScore +
+                ", sampleCount=" + sampleCount +
+                '}';
+    }
+}
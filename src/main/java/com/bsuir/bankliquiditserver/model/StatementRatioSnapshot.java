@@ -0,0 +1,109 @@
+package com.bsuir.bankliquiditserver.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Рассчитанные при сохранении отчета коэффициенты (таблица statement_ratio_snapshots)
+public class StatementRatioSnapshot implements Serializable {
+    private static final long serialVersionUID = 8L;
+
+    private int statementId;
+    private String definitionsVersion; // Версия ratio_definitions.properties, по которой считали
+    private LocalDateTime computedAt;
+    private int itemCount; // Количество статей отчета на момент расчета
+    private Map<String, BigDecimal> groupSums = new LinkedHashMap<>();
+    private Map<String, BigDecimal> ratios = new LinkedHashMap<>();
+
+    // Для удобства: отчет (с банком), к которому относится снимок
+    private FinancialStatement statement;
+
+    public StatementRatioSnapshot() {
+    }
+
+    public int getStatementId() {
+        return statementId;
+    }
+
+    public void setStatementId(int statementId) {
+        this.statementId = statementId;
+    }
+
+    public String getDefinitionsVersion() {
+        return definitionsVersion;
+    }
+
+    public void setDefinitionsVersion(String definitionsVersion) {
+        this.definitionsVersion = definitionsVersion;
+    }
+
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(LocalDateTime computedAt) {
+        this.computedAt = computedAt;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public Map<String, BigDecimal> getGroupSums() {
+        return groupSums;
+    }
+
+    public void setGroupSums(Map<String, BigDecimal> groupSums) {
+        this.groupSums = groupSums;
+    }
+
+    public Map<String, BigDecimal> getRatios() {
+        return ratios;
+    }
+
+    public void setRatios(Map<String, BigDecimal> ratios) {
+        this.ratios = ratios;
+    }
+
+    public FinancialStatement getStatement() {
+        return statement;
+    }
+
+    public void setStatement(FinancialStatement statement) {
+        this.statement = statement;
+        if (statement != null) {
+            this.statementId = statement.getId();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StatementRatioSnapshot that = (StatementRatioSnapshot) o;
+        return statementId == that.statementId && Objects.equals(definitionsVersion, that.definitionsVersion);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(statementId, definitionsVersion);
+    }
+
+    @Override
+    public String toString() {
+        return "StatementRatioSnapshot{" +
+                "statementId=" + statementId +
+                ", definitionsVersion='" + definitionsVersion + '\'' +
+                ", computedAt=" + computedAt +
+                ", itemCount=" + itemCount +
+                ", ratios=" + ratios +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.dto.AlertSubscriptionDTO;
+import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Подписки на пороги коэффициентов: условия проверяются один раз при загрузке отчета, оповещения отправляются в соединение клиента
+public interface AlertService {
+
+    /**
+     * Оформляет подписку, действующую, пока открыто соединение клиента.
+     * @param sink Соединение, в которое будут отправляться оповещения.
+     * @param operator Условие: <, <=, > или >=.
+     * @param statementType Тип отчетов; null - BALANCE_SHEET.
+     * @return Оформленная подписка с ее ID.
+     * @throws ValidationException если коэффициент неизвестен, условие некорректно или превышен лимит подписок соединения.
+     * @throws EntityNotFoundException если банк не найден.
+     * @throws ServiceException при ошибке загрузки банка.
+     */
+    AlertSubscriptionDTO subscribe(AlertSink sink, int bankId, String ratioName, String operator, BigDecimal threshold,
+                                   String statementType) throws ValidationException, EntityNotFoundException, ServiceException;
+
+    /**
+     * Отменяет подписку соединения.
+     * @throws EntityNotFoundException если у соединения нет подписки с таким ID.
+     */
+    void unsubscribe(AlertSink sink, long subscriptionId) throws EntityNotFoundException;
+
+    // Снимает все подписки соединения (при отключении клиента); возвращает их количество
+    int unsubscribeAll(AlertSink sink);
+
+    List<AlertSubscriptionDTO> getSubscriptions(AlertSink sink);
+
+    /**
+     * Проверяет подписки на банк отчета и ставит сработавшие оповещения в очередь на отправку.
+     * Без подписок на банк - одна проверка по индексу.
+     * @param statement Загруженный отчет со статьями.
+     * @param ratios Коэффициенты отчета, если они уже рассчитаны (снимок); null - рассчитать по статьям при необходимости.
+     */
+    void onStatementIngested(FinancialStatement statement, Map<String, BigDecimal> ratios);
+
+    // Новые отправки не запускаются; уже поставленные в очереди соединений доотправляются
+    void stop();
+
+    // Ждет, пока очереди после stop() будут отправлены; false - время вышло
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+}
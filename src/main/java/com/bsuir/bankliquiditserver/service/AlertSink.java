@@ -0,0 +1,13 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.dto.AlertEventDTO;
+
+/**
+ * Получатель оповещений - соединение клиента, оформившего подписку.
+ * Вызывается из потока рассылки оповещений, а не из потока, обрабатывающего запросы клиента.
+ */
+public interface AlertSink {
+
+    // false, если доставить не удалось (соединение закрыто); подписки получателя после этого снимаются
+    boolean push(AlertEventDTO event);
+}
@@ -1,14 +1,27 @@
 package com.bsuir.bankliquiditserver.service;
 
+import com.bsuir.bankliquiditserver.dto.BaselPortfolioResultDTO;
+import com.bsuir.bankliquiditserver.dto.BaselRatiosResultDTO;
 import com.bsuir.bankliquiditserver.dto.LiquidityAnalysisResultDTO;
+import com.bsuir.bankliquiditserver.dto.PeerRankingDTO;
+import com.bsuir.bankliquiditserver.dto.PortfolioAnalysisResultDTO;
+import com.bsuir.bankliquiditserver.dto.RatioTimeSeriesDTO;
 import com.bsuir.bankliquiditserver.dto.SolvencyAnalysisResultDTO;
+import com.bsuir.bankliquiditserver.dto.StressGridAxisDTO;
+import com.bsuir.bankliquiditserver.dto.StressScenarioDTO;
+import com.bsuir.bankliquiditserver.dto.StressTestResultDTO;
+import com.bsuir.bankliquiditserver.dto.StressThresholdDTO;
+import com.bsuir.bankliquiditserver.dto.WhatIfChangeDTO;
+import com.bsuir.bankliquiditserver.dto.WhatIfResultDTO;
 import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
 import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
 import com.bsuir.bankliquiditserver.model.AnalysisReport;
 import com.bsuir.bankliquiditserver.model.User; // Для указания, кто выполнил анализ
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 public interface AnalysisService {
 
@@ -36,6 +49,109 @@ public interface AnalysisService {
      */
     SolvencyAnalysisResultDTO calculateSolvency(int bankId, LocalDate reportDate, User currentUser, String ipAddress) throws EntityNotFoundException, ServiceException;
 
+    /**
+     * Рассчитывает все коэффициенты по последним балансовым отчетам всех банков (портфельный расчет).
+     * Отчеты и их статьи загружаются несколькими запросами на весь портфель, расчет идет параллельно.
+     * @param asOfDate Для каждого банка берется последний отчет с датой не позже этой. Если null, берется последний.
+     * @param currentUser Пользователь, выполняющий анализ.
+     * @param ipAddress IP-адрес клиента.
+     * @return DTO с таблицей коэффициентов по банкам.
+     * @throws ServiceException если произошла ошибка в процессе анализа.
+     */
+    PortfolioAnalysisResultDTO calculatePortfolio(LocalDate asOfDate, User currentUser, String ipAddress) throws ServiceException;
+
+    /**
+     * Рассчитывает динамику всех коэффициентов банка по его балансовым отчетам за период.
+     * Отчеты со статьями загружаются одним запросом, коэффициенты считаются за один проход по периодам.
+     * @param bankId ID банка.
+     * @param fromDate Начало периода (включительно). Если null, без ограничения.
+     * @param toDate Конец периода (включительно). Если null, без ограничения.
+     * @param movingAverageWindow Окно скользящего среднего в периодах. 0 - не считать.
+     * @param includeDeltas Добавить изменения к предыдущему периоду.
+     * @param currentUser Пользователь, выполняющий анализ.
+     * @param ipAddress IP-адрес клиента.
+     * @return DTO с рядами коэффициентов.
+     * @throws EntityNotFoundException если банк не найден.
+     * @throws ServiceException если произошла ошибка в процессе анализа.
+     */
+    RatioTimeSeriesDTO calculateRatioTimeSeries(int bankId, LocalDate fromDate, LocalDate toDate, int movingAverageWindow,
+                                                boolean includeDeltas, User currentUser, String ipAddress)
+            throws EntityNotFoundException, ServiceException;
+
+    /**
+     * Стресс-тест: пересчитывает все коэффициенты по последним балансовым отчетам банков для каждого сценария шоков.
+     * Пары "сценарий x банк" считаются параллельно в double по примитивным копиям отчетов; в ответ возвращаются
+     * распределения коэффициентов и число нарушений границ, а не значения по каждому сценарию.
+     * @param bankIds Банки для расчета. Если null или пусто - все банки.
+     * @param asOfDate Для каждого банка берется последний отчет с датой не позже этой. Если null, берется последний.
+     * @param scenarios Явно заданные сценарии (может быть null).
+     * @param grid Оси сетки сценариев: добавляются все сочетания значений (может быть null).
+     * @param thresholds Границы коэффициентов по именам (может быть null).
+     * @param currentUser Пользователь, выполняющий анализ.
+     * @param ipAddress IP-адрес клиента.
+     * @return DTO с распределениями коэффициентов по портфелю и по банкам.
+     * @throws ValidationException если сценарии заданы некорректно или расчет превышает допустимый объем.
+     * @throws ServiceException если произошла ошибка в процессе анализа.
+     */
+    StressTestResultDTO runStressTest(List<Integer> bankIds, LocalDate asOfDate, List<StressScenarioDTO> scenarios,
+                                      List<StressGridAxisDTO> grid, Map<String, StressThresholdDTO> thresholds,
+                                      User currentUser, String ipAddress) throws ValidationException, ServiceException;
+
+    /**
+     * Положение коэффициентов банка среди всех банков с балансовым отчетом на ту же дату: ранг, перцентиль, квартиль.
+     * Считается по индексу, который обновляется при изменении отчетов, за O(log n) на коэффициент.
+     * @param bankId ID банка.
+     * @param reportDate Дата отчета. Если null, берется последний отчет банка.
+     * @param ratioName Имя коэффициента. Если null, все коэффициенты.
+     * @param currentUser Пользователь, выполняющий анализ.
+     * @param ipAddress IP-адрес клиента.
+     * @return DTO с рангами коэффициентов.
+     * @throws EntityNotFoundException если отчет банка не найден.
+     * @throws ValidationException если коэффициент с таким именем не определен.
+     * @throws ServiceException если произошла ошибка в процессе анализа.
+     */
+    PeerRankingDTO getPeerRanking(int bankId, LocalDate reportDate, String ratioName, User currentUser, String ipAddress)
+            throws EntityNotFoundException, ValidationException, ServiceException;
+
+    /**
+     * Расчет "что если": коэффициенты отчета после изменения нескольких статей, без записи в БД.
+     * Подготовленная копия отчета кэшируется; пересчитываются только группы с измененными статьями
+     * и зависящие от них коэффициенты.
+     * @param statementId ID исходного отчета.
+     * @param changes Изменения статей, применяются по порядку (несколько изменений одной статьи складываются).
+     * @return DTO с коэффициентами до и после изменений.
+     * @throws EntityNotFoundException если отчет не найден.
+     * @throws ValidationException если изменения заданы некорректно или статьи нет в отчете.
+     * @throws ServiceException если произошла ошибка в процессе анализа.
+     */
+    WhatIfResultDTO calculateWhatIf(int statementId, List<WhatIfChangeDTO> changes)
+            throws EntityNotFoundException, ValidationException, ServiceException;
+
+    /**
+     * Рассчитывает Basel III LCR и NSFR по балансовому отчету банка: статьи сопоставляются уровням HQLA,
+     * коэффициентам оттока/притока и стабильного фондирования по таблице весов basel_weights.properties.
+     * Отчет со статьями загружается одним запросом, взвешенные суммы считаются за один проход по статьям.
+     * @param bankId ID банка.
+     * @param reportDate Дата отчета. Если null, берется последний отчет.
+     * @param currentUser Пользователь, выполняющий анализ.
+     * @param ipAddress IP-адрес клиента.
+     * @return DTO с компонентами и значениями LCR и NSFR.
+     * @throws EntityNotFoundException если банк или подходящий финансовый отчет не найдены.
+     * @throws ServiceException если произошла ошибка в процессе анализа.
+     */
+    BaselRatiosResultDTO calculateBaselRatios(int bankId, LocalDate reportDate, User currentUser, String ipAddress)
+            throws EntityNotFoundException, ServiceException;
+
+    /**
+     * Рассчитывает Basel III LCR и NSFR по последним балансовым отчетам всех банков (портфельный расчет).
+     * @param asOfDate Для каждого банка берется последний отчет с датой не позже этой. Если null, берется последний.
+     * @param currentUser Пользователь, выполняющий анализ.
+     * @param ipAddress IP-адрес клиента.
+     * @return DTO с LCR и NSFR по банкам и числом нарушений нормативов.
+     * @throws ServiceException если произошла ошибка в процессе анализа.
+     */
+    BaselPortfolioResultDTO calculateBaselPortfolio(LocalDate asOfDate, User currentUser, String ipAddress) throws ServiceException;
+
     /**
      * Сохраняет результаты анализа ликвидности.
      * @param resultDTO DTO с результатами.
@@ -54,6 +170,15 @@ public interface AnalysisService {
      */
     AnalysisReport saveSolvencyAnalysisReport(SolvencyAnalysisResultDTO resultDTO, User analyzedBy) throws ServiceException;
 
+    /**
+     * Сохраняет результаты расчета Basel III LCR и NSFR.
+     * @param resultDTO DTO с результатами.
+     * @param analyzedBy Пользователь, выполнивший анализ.
+     * @return Сохраненный объект AnalysisReport.
+     * @throws ServiceException при ошибке сохранения.
+     */
+    AnalysisReport saveBaselAnalysisReport(BaselRatiosResultDTO resultDTO, User analyzedBy) throws ServiceException;
+
     /**
      * Получает сохраненный отчет по анализу по его ID.
      * @param reportId ID отчета.
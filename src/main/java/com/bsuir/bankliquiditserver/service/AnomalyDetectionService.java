@@ -0,0 +1,29 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.model.StatementAnomaly;
+
+import java.util.List;
+
+// Проверка значений статей нового отчета по истории банка (item_value_stats)
+public interface AnomalyDetectionService {
+
+    /**
+     * Оценивает статьи отчета по накопленным среднему и отклонению банка для каждого кода статьи,
+     * сохраняет найденные выбросы и добавляет значения отчета в статистику.
+     * Работает за O(число статей): один запрос статистик по кодам статей и одно пакетное обновление.
+     * @param statement Сохраненный отчет со статьями.
+     * @return Выбросы (пустой список, если их нет или истории недостаточно).
+     * @throws ServiceException при ошибке чтения или сохранения статистики.
+     */
+    List<StatementAnomaly> scoreAndRecord(FinancialStatement statement) throws ServiceException;
+
+    /**
+     * Выбросы, найденные при загрузке отчета, по убыванию |z|.
+     * @param statementId ID отчета.
+     * @return Список выбросов.
+     * @throws ServiceException при ошибке загрузки.
+     */
+    List<StatementAnomaly> getAnomalies(int statementId) throws ServiceException;
+}
@@ -59,6 +59,11 @@ public interface AuditService {
      */
     List<AuditLogEntry> getAuditLogsByPeriod(LocalDateTime startTime, LocalDateTime endTime) throws ServiceException;
 
-    // Возможно, понадобится метод для очистки старых логов (с осторожностью!)
-    // void purgeOldAuditLogs(LocalDateTime beforeDate) throws ServiceException;
+    /**
+     * Удаляет записи аудита старше указанного момента, не больше batchSize за вызов
+     * (короткие транзакции не блокируют запись новых событий надолго).
+     * @return число удаленных записей; меньше batchSize - старых записей больше нет.
+     * @throws ServiceException если произошла ошибка при удалении.
+     */
+    int purgeOldAuditLogs(LocalDateTime beforeDate, int batchSize) throws ServiceException;
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подписки клиентов на изменения банков, отчетов банка и отчетов анализа вместо периодического перечитывания списков.
+ * Сервисы публикуют изменения после успешной записи в БД; каждому подписанному соединению они доставляются
+ * через его ограниченную очередь. При переполнении очереди накопленные изменения отбрасываются и клиенту
+ * отправляется одно событие RESYNC.
+ */
+public interface EntityChangeService {
+    String BANK = "BANK";
+    String FINANCIAL_STATEMENT = "FINANCIAL_STATEMENT";
+    String ANALYSIS_REPORT = "ANALYSIS_REPORT";
+
+    String CREATED = "CREATED";
+    String UPDATED = "UPDATED";
+    String DELETED = "DELETED";
+    String RESYNC = "RESYNC";
+
+    /**
+     * Подписывает соединение на изменения сущностей типа entityType.
+     * @param bankId Только сущности этого банка (для BANK - только этот банк); null - все.
+     * @throws ValidationException если тип неизвестен или превышен лимит подписок соединения.
+     */
+    void subscribe(EntityChangeSink sink, String entityType, Integer bankId) throws ValidationException;
+
+    // false, если такой подписки не было
+    boolean unsubscribe(EntityChangeSink sink, String entityType, Integer bankId);
+
+    // Снимает все подписки соединения (при отключении клиента); возвращает их количество
+    int unsubscribeAll(EntityChangeSink sink);
+
+    // Подписки соединения в виде "ТИП:bankId" ("ТИП:*" - все банки)
+    List<String> getSubscriptions(EntityChangeSink sink);
+
+    /**
+     * Публикует изменение. Вызывается после успешной записи в БД; не блокируется на отправке.
+     * @param data Новое состояние сущности (для DELETED - null).
+     */
+    void publish(String entityType, String changeType, int entityId, Integer bankId, Object data);
+
+    // Новые отправки не запускаются; уже поставленные в очереди соединений доотправляются
+    void stop();
+
+    // Ждет, пока очереди после stop() будут отправлены; false - время вышло
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,13 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.dto.EntityChangeEventDTO;
+
+/**
+ * Получатель изменений сущностей - соединение клиента с подписками SUBSCRIBE.
+ * Вызывается из потока рассылки, по одному событию за раз для каждого получателя.
+ */
+public interface EntityChangeSink {
+
+    // false, если доставить не удалось (соединение закрыто); подписки получателя после этого снимаются
+    boolean push(EntityChangeEventDTO event);
+}
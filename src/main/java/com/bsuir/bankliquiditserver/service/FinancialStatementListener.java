@@ -0,0 +1,21 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+
+/**
+ * Подписчик на изменения финансовых отчетов (регистрируется в FinancialStatementService).
+ * Вызывается синхронно после успешного изменения в БД, в потоке, выполнившем изменение.
+ * Изменения, сделанные другими узлами, приходят через InvalidationBus из его потока; в них у отчета
+ * заполнены только id, bankId, reportDate и statementType.
+ */
+public interface FinancialStatementListener {
+
+    // Отчет создан или изменен; statement - состояние после изменения
+    void onStatementChanged(FinancialStatement statement);
+
+    // Отчет удален; statement - состояние перед удалением
+    void onStatementDeleted(FinancialStatement statement);
+
+    // Изменения могли быть пропущены (потеря связи с шиной инвалидации): все производные от отчетов данные недействительны
+    void onAllStatementsInvalidated();
+}
@@ -1,6 +1,7 @@
 package com.bsuir.bankliquiditserver.service;
 
 import com.bsuir.bankliquiditserver.dto.FinancialStatementDTO; // Создадим этот DTO
+import com.bsuir.bankliquiditserver.dto.StatementConsistencyReportDTO;
 import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
 import com.bsuir.bankliquiditserver.exception.ServiceException;
 import com.bsuir.bankliquiditserver.exception.ValidationException;
@@ -22,6 +23,9 @@ public interface FinancialStatementService {
 
     List<FinancialStatement> getFinancialStatementsByBank(int bankId) throws ServiceException;
 
+    // Последний отчет банка заданного типа сразу с банком и статьями (один запрос к БД)
+    FinancialStatement getLatestFinancialStatementWithItems(int bankId, String statementType) throws EntityNotFoundException, ServiceException;
+
     // Получение списка отчетов для банка, но только метаданные (без статей)
     List<FinancialStatementDTO> getFinancialStatementOverviewsByBank(int bankId) throws ServiceException;
 
@@ -33,6 +37,12 @@ public interface FinancialStatementService {
 
     void deleteFinancialStatement(int statementId) throws EntityNotFoundException, ServiceException;
 
+    // Проверка дерева статей (parent_item_id): итоги равны суммам детей, нет циклов и ссылок на чужие статьи
+    StatementConsistencyReportDTO checkStatementConsistency(int statementId) throws EntityNotFoundException, ServiceException;
+
+    // Подписка на создание/изменение/удаление отчетов (например, для сброса кэшей анализа)
+    void addStatementListener(FinancialStatementListener listener);
+
     // Возможно, методы для управления отдельными статьями, но чаще отчет загружается/сохраняется целиком
     // void addStatementItem(int statementId, StatementItemDTO itemDto) throws ...
     // void updateStatementItem(int itemId, StatementItemDTO itemDto) throws ...
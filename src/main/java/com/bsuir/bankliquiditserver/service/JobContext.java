@@ -0,0 +1,23 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.model.Job;
+
+import java.util.Map;
+
+// Выполняемая задача глазами JobHandler
+public interface JobContext {
+
+    Job getJob();
+
+    // Параметры задачи (jobs.payload); пустая карта, если их нет
+    Map<String, Object> getPayload();
+
+    /**
+     * Сообщает прогресс (0-100). Запись в БД не чаще раза в секунду; вместе с ней продлевается аренда
+     * и обнаруживается отмена задачи.
+     */
+    void reportProgress(int percent, String message);
+
+    // Задача отменена (CANCEL_JOB) или аренда потеряна: результат уже не будет сохранен
+    boolean isCancelled();
+}
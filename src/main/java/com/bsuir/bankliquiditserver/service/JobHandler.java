@@ -0,0 +1,21 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+
+// Исполнитель задач одного типа из очереди jobs (регистрируется в JobWorkerPool)
+public interface JobHandler {
+
+    // Тип задач (jobs.job_type), которые выполняет исполнитель
+    String getJobType();
+
+    /**
+     * Выполняет задачу в потоке исполнителя очереди. Долгая работа должна периодически вызывать
+     * context.reportProgress и прекращаться, если context.isCancelled().
+     * Задача может быть выполнена повторно (после ошибки или потери аренды), поэтому выполнение должно быть идемпотентным.
+     * @return Результат, сохраняемый в jobs.result как JSON; null - без результата.
+     * @throws ValidationException если параметры задачи некорректны (задача не повторяется).
+     * @throws ServiceException при ошибке выполнения (задача повторяется с задержкой, пока не исчерпаны попытки).
+     */
+    Object execute(JobContext context) throws ValidationException, ServiceException;
+}
@@ -0,0 +1,58 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.model.Job;
+import com.bsuir.bankliquiditserver.model.JobSchedule;
+import com.bsuir.bankliquiditserver.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Очередь фоновых задач (таблица jobs), общая для всех узлов, и расписания их периодического запуска
+public interface JobService {
+
+    /**
+     * Ставит задачу в очередь; ее выполнит первый освободившийся исполнитель любого узла.
+     * @param jobType Тип задачи (см. getJobTypes).
+     * @param payload Параметры задачи; null - без параметров.
+     * @param priority Больше - раньше.
+     * @param maxAttempts Число попыток; null - по умолчанию из конфигурации.
+     * @param runAt Не раньше этого момента; null - сразу.
+     * @param createdBy Пользователь, поставивший задачу.
+     * @throws ValidationException если тип задачи неизвестен или параметры некорректны.
+     * @throws ServiceException при ошибке сохранения.
+     */
+    Job enqueue(String jobType, Map<String, Object> payload, int priority, Integer maxAttempts, LocalDateTime runAt, User createdBy)
+            throws ValidationException, ServiceException;
+
+    Job getJob(long jobId) throws EntityNotFoundException, ServiceException;
+
+    /**
+     * Последние задачи, новые первыми.
+     * @param status Статус (QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED); null - любой.
+     */
+    List<Job> getJobs(String status, int limit) throws ValidationException, ServiceException;
+
+    /**
+     * Отменяет задачу в очереди или выполняющуюся (исполнитель узнает об отмене при следующем продлении аренды).
+     * @throws EntityNotFoundException если задачи нет.
+     * @throws ValidationException если задача уже завершена.
+     */
+    void cancelJob(long jobId) throws EntityNotFoundException, ValidationException, ServiceException;
+
+    List<JobSchedule> getSchedules() throws ServiceException;
+
+    /**
+     * Создает или изменяет расписание. Первый запуск рассчитывается планировщиком по времени БД.
+     * @param cronExpression 5 полей cron: минута час день месяц день_недели.
+     * @throws ValidationException если тип задачи неизвестен или выражение некорректно.
+     */
+    JobSchedule saveSchedule(String name, String jobType, Map<String, Object> payload, String cronExpression, boolean enabled)
+            throws ValidationException, ServiceException;
+
+    // Типы задач, для которых есть исполнители
+    List<String> getJobTypes();
+}
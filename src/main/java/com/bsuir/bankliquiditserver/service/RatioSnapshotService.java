@@ -0,0 +1,37 @@
+package com.bsuir.bankliquiditserver.service;
+
+import com.bsuir.bankliquiditserver.analysis.RatioDefinitionSet;
+import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.model.StatementRatioSnapshot;
+
+import java.time.LocalDate;
+
+// Снимки коэффициентов отчетов (statement_ratio_snapshots): считаются при сохранении отчета, а не при каждом анализе
+public interface RatioSnapshotService {
+
+    /**
+     * Рассчитывает коэффициенты отчета по текущей версии определений и сохраняет снимок.
+     * Снимки отчета по другим версиям определений удаляются.
+     * @param statement Отчет с загруженными статьями.
+     * @return Сохраненный снимок.
+     * @throws ServiceException при ошибке сохранения.
+     */
+    StatementRatioSnapshot refreshSnapshot(FinancialStatement statement) throws ServiceException;
+
+    /**
+     * Находит отчет банка вместе со снимком коэффициентов для указанной версии определений (один запрос).
+     * Если снимка этой версии нет (отчет создан до появления снимков, изменились статьи или формулы),
+     * он рассчитывается по статьям и сохраняется.
+     * @param bankId ID банка.
+     * @param reportDate Дата отчета. Если null, берется последний.
+     * @param statementType Тип отчета.
+     * @param definitions Версия определений, по которой нужен снимок.
+     * @return Снимок с заполненным statement (и банком).
+     * @throws EntityNotFoundException если отчет не найден.
+     * @throws ServiceException при ошибке загрузки или расчета.
+     */
+    StatementRatioSnapshot getSnapshot(int bankId, LocalDate reportDate, String statementType, RatioDefinitionSet definitions)
+            throws EntityNotFoundException, ServiceException;
+}
@@ -1,10 +1,25 @@
 package com.bsuir.bankliquiditserver.service; // или com.bsuir.bankliquiditserver.factory
 
+import com.bsuir.bankliquiditserver.analysis.BaselCalculator;
+import com.bsuir.bankliquiditserver.analysis.RatioDefinitionSet;
+import com.bsuir.bankliquiditserver.config.ConfigurationManager;
+import com.bsuir.bankliquiditserver.config.ReloadableProperties;
 import com.bsuir.bankliquiditserver.dao.*;
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import com.bsuir.bankliquiditserver.db.InvalidationBus;
+import com.bsuir.bankliquiditserver.dispatch.ActionClass;
+import com.bsuir.bankliquiditserver.dispatch.AdmissionController;
+import com.bsuir.bankliquiditserver.dispatch.Bulkhead;
+import com.bsuir.bankliquiditserver.dispatch.RequestDispatcher;
 import com.bsuir.bankliquiditserver.service.impl.*;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
 // Паттерн Factory Method (или простой статический доступ к синглтонам сервисов)
 public class ServiceFactory {
+    private static final ConfigurationManager CONFIG = ConfigurationManager.getInstance();
 
     // --- DAO Instances ---
     // DAO не обязательно должны быть синглтонами, если они stateless.
@@ -16,16 +31,104 @@ public class ServiceFactory {
     private static final StatementItemDao STATEMENT_ITEM_DAO = new StatementItemDao();
     private static final AnalysisReportDao ANALYSIS_REPORT_DAO = new AnalysisReportDao();
     private static final AuditLogDao AUDIT_LOG_DAO = new AuditLogDao();
+    private static final StatementRatioSnapshotDao STATEMENT_RATIO_SNAPSHOT_DAO = new StatementRatioSnapshotDao();
+    private static final ItemValueStatsDao ITEM_VALUE_STATS_DAO = new ItemValueStatsDao();
+    private static final StatementAnomalyDao STATEMENT_ANOMALY_DAO = new StatementAnomalyDao();
+    private static final JobDao JOB_DAO = new JobDao();
+    private static final JobScheduleDao JOB_SCHEDULE_DAO = new JobScheduleDao();
+
+    // --- Конфигурация анализа (перечитывается "на горячую") ---
+    private static final ReloadableProperties<RatioDefinitionSet> RATIO_DEFINITIONS = new ReloadableProperties<>(
+            CONFIG.getProperty("analysis.ratioDefinitions", "ratio_definitions.properties"),
+            RatioDefinitionSet::fromProperties,
+            CONFIG.getIntProperty("analysis.ratioDefinitions.reloadIntervalMs", 5000));
+    private static final ReloadableProperties<BaselCalculator> BASEL_WEIGHTS = new ReloadableProperties<>(
+            CONFIG.getProperty("analysis.baselWeights", "basel_weights.properties"),
+            BaselCalculator::fromProperties,
+            CONFIG.getIntProperty("analysis.baselWeights.reloadIntervalMs", 5000));
+    // Отдельный пул для расчетов по многим банкам, чтобы не занимать общий ForkJoinPool
+    private static final ForkJoinPool ANALYSIS_POOL = new ForkJoinPool(
+            CONFIG.getIntProperty("analysis.parallelism", Runtime.getRuntime().availableProcessors()));
+    private static final AnalysisResultCache ANALYSIS_RESULT_CACHE = new AnalysisResultCache(
+            CONFIG.getIntProperty("analysis.resultCache.maxBytes", 16 * 1024 * 1024),
+            CONFIG.getIntProperty("analysis.resultCache.ttlSeconds", 600) * 1000L);
+    private static final WhatIfStatementCache WHAT_IF_CACHE = new WhatIfStatementCache(
+            CONFIG.getIntProperty("analysis.whatIfCache.maxBytes", 32 * 1024 * 1024),
+            CONFIG.getIntProperty("analysis.whatIfCache.ttlSeconds", 1800) * 1000L);
+    // Изменения отчетов, сделанные другими узлами, доходят до тех же кэшей через LISTEN/NOTIFY
+    private static final InvalidationBus INVALIDATION_BUS = new InvalidationBus(
+            DatabaseConnector.getApplicationName(), CONFIG.getIntProperty("invalidation.pollIntervalMs", 500));
+    private static final StatementInvalidationRelay STATEMENT_INVALIDATION_RELAY = new StatementInvalidationRelay();
 
     // --- Service Instances (обычно синглтоны) ---
+    private static final EntityChangeService ENTITY_CHANGE_SERVICE = new EntityChangeServiceImpl(
+            CONFIG.getIntProperty("entityChanges.queueCapacity", 256),
+            CONFIG.getIntProperty("entityChanges.maxSubscriptionsPerConnection", 50),
+            CONFIG.getIntProperty("entityChanges.dispatchThreads", 2));
     private static final UserService USER_SERVICE = new UserServiceImpl(USER_DAO, ROLE_DAO);
     private static final RoleService ROLE_SERVICE = new RoleServiceImpl(ROLE_DAO, USER_DAO);
-    private static final BankService BANK_SERVICE = new BankServiceImpl(BANK_DAO, FINANCIAL_STATEMENT_DAO);
+    private static final BankService BANK_SERVICE = new BankServiceImpl(BANK_DAO, FINANCIAL_STATEMENT_DAO, ENTITY_CHANGE_SERVICE);
     private static final AuditService AUDIT_SERVICE = new AuditServiceImpl(AUDIT_LOG_DAO, USER_DAO);
+    private static final RatioSnapshotService RATIO_SNAPSHOT_SERVICE =
+            new RatioSnapshotServiceImpl(STATEMENT_RATIO_SNAPSHOT_DAO, STATEMENT_ITEM_DAO, RATIO_DEFINITIONS);
+    private static final AnomalyDetectionService ANOMALY_DETECTION_SERVICE =
+            new AnomalyDetectionServiceImpl(ITEM_VALUE_STATS_DAO, STATEMENT_ANOMALY_DAO,
+                    CONFIG.getDoubleProperty("anomaly.zThreshold", 4.0),
+                    CONFIG.getIntProperty("anomaly.minSamples", 4),
+                    CONFIG.getDoubleProperty("anomaly.minRelativeStdDev", 0.01));
+    private static final AlertService ALERT_SERVICE = new AlertServiceImpl(BANK_DAO, RATIO_DEFINITIONS,
+            CONFIG.getIntProperty("alerts.maxSubscriptionsPerConnection", 100),
+            CONFIG.getIntProperty("alerts.queueCapacity", 256),
+            CONFIG.getIntProperty("alerts.dispatchThreads", 2));
     private static final FinancialStatementService FINANCIAL_STATEMENT_SERVICE =
-            new FinancialStatementServiceImpl(FINANCIAL_STATEMENT_DAO, STATEMENT_ITEM_DAO, BANK_DAO, USER_DAO);
+            new FinancialStatementServiceImpl(FINANCIAL_STATEMENT_DAO, STATEMENT_ITEM_DAO, BANK_DAO, USER_DAO, RATIO_SNAPSHOT_SERVICE,
+                    ANOMALY_DETECTION_SERVICE, ALERT_SERVICE, ENTITY_CHANGE_SERVICE);
+    private static final PeerRankingIndex PEER_RANKING_INDEX =
+            new PeerRankingIndex(STATEMENT_RATIO_SNAPSHOT_DAO, RATIO_SNAPSHOT_SERVICE, RATIO_DEFINITIONS);
     private static final AnalysisService ANALYSIS_SERVICE =
-            new AnalysisServiceImpl(FINANCIAL_STATEMENT_SERVICE, ANALYSIS_REPORT_DAO, BANK_DAO, AUDIT_SERVICE);
+            new AnalysisServiceImpl(FINANCIAL_STATEMENT_SERVICE, ANALYSIS_REPORT_DAO, BANK_DAO, AUDIT_SERVICE,
+                    FINANCIAL_STATEMENT_DAO, STATEMENT_ITEM_DAO, RATIO_DEFINITIONS, RATIO_SNAPSHOT_SERVICE, ANALYSIS_POOL,
+                    ANALYSIS_RESULT_CACHE, CONFIG.getIntProperty("analysis.stressTest.maxEvaluations", 500_000),
+                    PEER_RANKING_INDEX, BASEL_WEIGHTS, WHAT_IF_CACHE, ENTITY_CHANGE_SERVICE);
+    // Фоновые задачи: исполнители этого узла забирают задачи из общей таблицы jobs
+    private static final JobWorkerPool JOB_WORKER_POOL = new JobWorkerPool(JOB_DAO, JOB_SCHEDULE_DAO, DatabaseConnector.getApplicationName(),
+            CONFIG.getIntProperty("jobs.workerThreads", 2),
+            CONFIG.getIntProperty("jobs.pollIntervalMs", 1000),
+            CONFIG.getIntProperty("jobs.leaseSeconds", 60),
+            CONFIG.getIntProperty("jobs.retryBaseSeconds", 10),
+            CONFIG.getIntProperty("jobs.retryMaxSeconds", 900),
+            CONFIG.getIntProperty("jobs.schedulerIntervalMs", 15000),
+            CONFIG.getIntProperty("jobs.finishedRetentionDays", 30));
+    private static final JobService JOB_SERVICE = new JobServiceImpl(JOB_DAO, JOB_SCHEDULE_DAO, JOB_WORKER_POOL,
+            CONFIG.getIntProperty("jobs.defaultMaxAttempts", 3));
+
+    // Запросы клиентов выполняются в Bulkhead своего класса действий (dispatch.bulkhead.*)
+    private static final RequestDispatcher REQUEST_DISPATCHER = createRequestDispatcher();
+
+    static {
+        // Кэш результатов анализа сбрасывается при изменении отчетов
+        FINANCIAL_STATEMENT_SERVICE.addStatementListener(ANALYSIS_RESULT_CACHE);
+        FINANCIAL_STATEMENT_SERVICE.addStatementListener(WHAT_IF_CACHE);
+        // Индекс рангов получает изменения отчетов и применяет их перед следующим запросом
+        FINANCIAL_STATEMENT_SERVICE.addStatementListener(PEER_RANKING_INDEX);
+
+        STATEMENT_INVALIDATION_RELAY.addStatementListener(ANALYSIS_RESULT_CACHE);
+        STATEMENT_INVALIDATION_RELAY.addStatementListener(WHAT_IF_CACHE);
+        STATEMENT_INVALIDATION_RELAY.addStatementListener(PEER_RANKING_INDEX);
+        FINANCIAL_STATEMENT_SERVICE.addStatementListener(REQUEST_DISPATCHER);
+        STATEMENT_INVALIDATION_RELAY.addStatementListener(REQUEST_DISPATCHER);
+        INVALIDATION_BUS.addListener(STATEMENT_INVALIDATION_RELAY);
+        if (Boolean.parseBoolean(CONFIG.getProperty("invalidation.enabled", "true"))) {
+            INVALIDATION_BUS.start();
+        }
+
+        JOB_WORKER_POOL.registerHandler(new AuditRetentionJobHandler(AUDIT_SERVICE, CONFIG.getIntProperty("jobs.auditRetention.batchSize", 1000)));
+        JOB_WORKER_POOL.registerHandler(new SnapshotBackfillJobHandler(STATEMENT_RATIO_SNAPSHOT_DAO, RATIO_SNAPSHOT_SERVICE, RATIO_DEFINITIONS));
+        JOB_WORKER_POOL.registerHandler(new PortfolioRecalculationJobHandler(ANALYSIS_SERVICE));
+        if (Boolean.parseBoolean(CONFIG.getProperty("jobs.enabled", "true"))) {
+            JOB_WORKER_POOL.start();
+        }
+    }
 
 
     // --- Getters for Services ---
@@ -53,6 +156,52 @@ public class ServiceFactory {
         return AUDIT_SERVICE;
     }
 
+    public static AnomalyDetectionService getAnomalyDetectionService() {
+        return ANOMALY_DETECTION_SERVICE;
+    }
+
+    public static AlertService getAlertService() {
+        return ALERT_SERVICE;
+    }
+
+    public static JobService getJobService() {
+        return JOB_SERVICE;
+    }
+
+    public static JobWorkerPool getJobWorkerPool() {
+        return JOB_WORKER_POOL;
+    }
+
+    public static RequestDispatcher getRequestDispatcher() {
+        return REQUEST_DISPATCHER;
+    }
+
+    public static InvalidationBus getInvalidationBus() {
+        return INVALIDATION_BUS;
+    }
+
+    public static EntityChangeService getEntityChangeService() {
+        return ENTITY_CHANGE_SERVICE;
+    }
+
     // Приватный конструктор, чтобы запретить создание экземпляров фабрики, если все методы статические
     private ServiceFactory() {}
+
+    private static RequestDispatcher createRequestDispatcher() {
+        // С привязкой к банкам у каждого Bulkhead есть однопоточные шарды со своим кэшем банков (запросы с bankId)
+        int maxCachedBanks = Boolean.parseBoolean(CONFIG.getProperty("dispatch.bankShards.enabled", "false"))
+                ? CONFIG.getIntProperty("dispatch.bankShards.maxCachedBanks", 256) : 0;
+        long agingMillis = CONFIG.getIntProperty("dispatch.scheduler.agingMs", 2000);
+        long admissionTargetMillis = CONFIG.getIntProperty("dispatch.admission.targetMs", 100);
+        long admissionIntervalMillis = CONFIG.getIntProperty("dispatch.admission.intervalMs", 1000);
+        Map<ActionClass, Bulkhead> bulkheads = new EnumMap<>(ActionClass.class);
+        for (ActionClass actionClass : ActionClass.values()) {
+            String prefix = "dispatch.bulkhead." + actionClass.getConfigKey();
+            bulkheads.put(actionClass, new Bulkhead(actionClass.getConfigKey(),
+                    CONFIG.getIntProperty(prefix + ".threads", actionClass.getDefaultThreads()),
+                    CONFIG.getIntProperty(prefix + ".queueCapacity", actionClass.getDefaultQueueCapacity()),
+                    maxCachedBanks, agingMillis, new AdmissionController(admissionTargetMillis, admissionIntervalMillis)));
+        }
+        return new RequestDispatcher(bulkheads);
+    }
 }
\ No newline at end of file
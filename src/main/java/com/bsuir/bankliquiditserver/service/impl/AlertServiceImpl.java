@@ -0,0 +1,312 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.analysis.RatioDefinitionSet;
+import com.bsuir.bankliquiditserver.config.ReloadableProperties;
+import com.bsuir.bankliquiditserver.dao.BankDao;
+import com.bsuir.bankliquiditserver.dto.AlertEventDTO;
+import com.bsuir.bankliquiditserver.dto.AlertSubscriptionDTO;
+import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import com.bsuir.bankliquiditserver.model.Bank;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.service.AlertService;
+import com.bsuir.bankliquiditserver.service.AlertSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Подписки хранятся в памяти, в индексе bankId -> коэффициент -> подписки, и живут, пока открыто соединение клиента.
+ * При загрузке отчета проверяются только подписки на его банк и только по тем коэффициентам, на которые кто-то подписан;
+ * коэффициенты берутся из снимка, рассчитанного при сохранении. Отправка выполняется отдельными потоками,
+ * чтобы медленный клиент не задерживал загрузку отчета, через ограниченную очередь соединения (PushQueue).
+ * При переполнении очереди клиент получает RATIO_ALERT_RESYNC - значения коэффициентов нужно перечитать.
+ */
+public class AlertServiceImpl implements AlertService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlertServiceImpl.class);
+    private static final String DEFAULT_STATEMENT_TYPE = "BALANCE_SHEET";
+    private static final String RESYNC_EVENT_TYPE = "RATIO_ALERT_RESYNC";
+
+    // Условие подписки
+    enum Operator {
+        LT("<"), LE("<="), GT(">"), GE(">=");
+
+        final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean test(BigDecimal value, BigDecimal threshold) {
+            int cmp = value.compareTo(threshold);
+            return switch (this) {
+                case LT -> cmp < 0;
+                case LE -> cmp <= 0;
+                case GT -> cmp > 0;
+                case GE -> cmp >= 0;
+            };
+        }
+
+        static Operator parse(String text) throws ValidationException {
+            if (text != null) {
+                for (Operator operator : values()) {
+                    if (operator.symbol.equals(text.trim()) || operator.name().equalsIgnoreCase(text.trim())) {
+                        return operator;
+                    }
+                }
+            }
+            throw new ValidationException("operator must be one of <, <=, >, >=: " + text);
+        }
+    }
+
+    private static final class Subscription {
+        final long id;
+        final Subscriber subscriber;
+        final int bankId;
+        final String bankName;
+        final String statementType;
+        final String ratioName;
+        final Operator operator;
+        final BigDecimal threshold;
+
+        Subscription(long id, Subscriber subscriber, Bank bank, String statementType, String ratioName, Operator operator, BigDecimal threshold) {
+            this.id = id;
+            this.subscriber = subscriber;
+            this.bankId = bank.getId();
+            this.bankName = bank.getName();
+            this.statementType = statementType;
+            this.ratioName = ratioName;
+            this.operator = operator;
+            this.threshold = threshold;
+        }
+
+        AlertSubscriptionDTO toDTO() {
+            AlertSubscriptionDTO dto = new AlertSubscriptionDTO();
+            dto.setSubscriptionId(id);
+            dto.setBankId(bankId);
+            dto.setBankName(bankName);
+            dto.setStatementType(statementType);
+            dto.setRatioName(ratioName);
+            dto.setOperator(operator.symbol);
+            dto.setThreshold(threshold);
+            return dto;
+        }
+    }
+
+    // Соединение с подписками и очередью неотправленных оповещений
+    private final class Subscriber {
+        private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+        final PushQueue<AlertEventDTO> queue;
+
+        Subscriber(AlertSink sink) {
+            this.queue = new PushQueue<>("alerts", queueCapacity, dispatcher, sink::push, () -> {
+                AlertEventDTO resync = new AlertEventDTO();
+                resync.setEventType(RESYNC_EVENT_TYPE);
+                resync.setTriggeredAt(LocalDateTime.now());
+                return resync;
+            }, () -> {
+                int removed = unsubscribeAll(sink);
+                LOGGER.info("Alert connection closed, {} subscription(s) removed.", removed);
+            });
+        }
+
+        // Проверка лимита и добавление - под одной блокировкой; false - лимит исчерпан
+        synchronized boolean add(Subscription subscription) {
+            if (subscriptions.size() >= maxSubscriptionsPerSink) {
+                return false;
+            }
+            subscriptions.put(subscription.id, subscription);
+            return true;
+        }
+    }
+
+    private final BankDao bankDao;
+    private final ReloadableProperties<RatioDefinitionSet> ratioDefinitions;
+    private final int maxSubscriptionsPerSink;
+    private final int queueCapacity;
+    private final ExecutorService dispatcher;
+
+    private final Map<Integer, Map<String, List<Subscription>>> byBank = new ConcurrentHashMap<>();
+    private final Map<AlertSink, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    public AlertServiceImpl(BankDao bankDao,
+                            ReloadableProperties<RatioDefinitionSet> ratioDefinitions,
+                            int maxSubscriptionsPerSink,
+                            int queueCapacity,
+                            int dispatchThreads) {
+        this.bankDao = bankDao;
+        this.ratioDefinitions = ratioDefinitions;
+        this.maxSubscriptionsPerSink = maxSubscriptionsPerSink;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatchThreads), runnable -> {
+            Thread thread = new Thread(runnable, "alert-dispatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ServerMetrics.getInstance().registerGauge("alerts.subscriptions", activeCount::get);
+    }
+
+    @Override
+    public AlertSubscriptionDTO subscribe(AlertSink sink, int bankId, String ratioName, String operatorText, BigDecimal threshold,
+                                          String statementType) throws ValidationException, EntityNotFoundException, ServiceException {
+        if (ratioName == null || ratioDefinitions.get().getRatioIndex(ratioName) < 0) {
+            throw new ValidationException("Unknown ratio: " + ratioName + ". Available: " + ratioDefinitions.get().getRatioNames());
+        }
+        if (threshold == null) {
+            throw new ValidationException("threshold is required.");
+        }
+        Operator operator = Operator.parse(operatorText);
+        Bank bank;
+        try {
+            bank = bankDao.findById(bankId).orElseThrow(() -> new EntityNotFoundException("Bank", bankId));
+        } catch (SQLException e) {
+            LOGGER.error("Error fetching bank with id {}: {}", bankId, e.getMessage(), e);
+            throw new ServiceException("Failed to retrieve bank details.", e);
+        }
+
+        Subscriber subscriber = subscribers.computeIfAbsent(sink, Subscriber::new);
+        Subscription subscription = new Subscription(nextId.incrementAndGet(), subscriber, bank,
+                statementType != null ? statementType : DEFAULT_STATEMENT_TYPE, ratioName, operator, threshold);
+        if (!subscriber.add(subscription)) {
+            throw new ValidationException("Too many alert subscriptions for this connection (limit " + maxSubscriptionsPerSink + ").");
+        }
+        // Добавление и удаление - внутри compute по bankId, чтобы не добавить в список, который удаляется из индекса
+        byBank.compute(bankId, (id, byRatio) -> {
+            Map<String, List<Subscription>> target = byRatio != null ? byRatio : new ConcurrentHashMap<>();
+            target.computeIfAbsent(ratioName, name -> new CopyOnWriteArrayList<>()).add(subscription);
+            return target;
+        });
+        activeCount.incrementAndGet();
+        if (subscriber.queue.isClosed()) {
+            removeFromIndex(subscription); // Соединение закрылось, пока подписка добавлялась в индекс
+        }
+        LOGGER.info("Alert subscription {} added: bank {}, {} {} {}.", subscription.id, bankId, ratioName, operator.symbol, threshold);
+        return subscription.toDTO();
+    }
+
+    @Override
+    public void unsubscribe(AlertSink sink, long subscriptionId) throws EntityNotFoundException {
+        Subscriber subscriber = subscribers.get(sink);
+        Subscription subscription = subscriber != null ? subscriber.subscriptions.remove(subscriptionId) : null;
+        if (subscription == null) {
+            throw new EntityNotFoundException("AlertSubscription", subscriptionId);
+        }
+        removeFromIndex(subscription);
+    }
+
+    @Override
+    public int unsubscribeAll(AlertSink sink) {
+        Subscriber subscriber = subscribers.remove(sink);
+        if (subscriber == null) {
+            return 0;
+        }
+        subscriber.queue.close();
+        subscriber.subscriptions.values().forEach(this::removeFromIndex);
+        return subscriber.subscriptions.size();
+    }
+
+    @Override
+    public List<AlertSubscriptionDTO> getSubscriptions(AlertSink sink) {
+        Subscriber subscriber = subscribers.get(sink);
+        if (subscriber == null) {
+            return Collections.emptyList();
+        }
+        List<AlertSubscriptionDTO> result = new ArrayList<>();
+        subscriber.subscriptions.values().forEach(subscription -> result.add(subscription.toDTO()));
+        return result;
+    }
+
+    private void removeFromIndex(Subscription subscription) {
+        byBank.computeIfPresent(subscription.bankId, (bankId, byRatio) -> {
+            byRatio.computeIfPresent(subscription.ratioName, (name, list) -> {
+                if (list.remove(subscription)) {
+                    activeCount.decrementAndGet();
+                }
+                return list.isEmpty() ? null : list;
+            });
+            return byRatio.isEmpty() ? null : byRatio;
+        });
+    }
+
+    @Override
+    public void onStatementIngested(FinancialStatement statement, Map<String, BigDecimal> ratios) {
+        Map<String, List<Subscription>> byRatio = byBank.get(statement.getBankId());
+        if (byRatio == null || byRatio.isEmpty()) {
+            return;
+        }
+        Map<String, BigDecimal> values = ratios;
+        if (values == null) {
+            // Снимок не сохранился - считаем по статьям отчета
+            values = ratioDefinitions.get().evaluate(statement.getItems()).asMap();
+        }
+
+        List<Subscription> triggered = new ArrayList<>();
+        for (Map.Entry<String, List<Subscription>> entry : byRatio.entrySet()) {
+            BigDecimal value = values.get(entry.getKey());
+            if (value == null) {
+                continue; // Коэффициент не определен (нулевой знаменатель) или отсутствует в текущих формулах
+            }
+            for (Subscription subscription : entry.getValue()) {
+                if (subscription.statementType.equals(statement.getStatementType()) && subscription.operator.test(value, subscription.threshold)) {
+                    triggered.add(subscription);
+                }
+            }
+        }
+        if (triggered.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Subscription subscription : triggered) {
+            AlertEventDTO event = toEvent(subscription, statement, values.get(subscription.ratioName), now);
+            subscription.subscriber.queue.offer(event);
+        }
+        ServerMetrics.getInstance().add("alerts.triggered", triggered.size());
+        LOGGER.info("{} alert(s) triggered by statement {} of bank {}.", triggered.size(), statement.getId(), statement.getBankId());
+    }
+
+    private AlertEventDTO toEvent(Subscription subscription, FinancialStatement statement, BigDecimal value, LocalDateTime now) {
+        AlertEventDTO event = new AlertEventDTO();
+        event.setSubscriptionId(subscription.id);
+        event.setBankId(statement.getBankId());
+        event.setBankName(statement.getBank() != null ? statement.getBank().getName() : subscription.bankName);
+        event.setStatementId(statement.getId());
+        event.setReportDate(statement.getReportDate());
+        event.setStatementType(statement.getStatementType());
+        event.setRatioName(subscription.ratioName);
+        event.setValue(value);
+        event.setOperator(subscription.operator.symbol);
+        event.setThreshold(subscription.threshold);
+        event.setTriggeredAt(now);
+        return event;
+    }
+
+    @Override
+    public void stop() {
+        dispatcher.shutdown();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return dispatcher.awaitTermination(timeout, unit);
+    }
+}
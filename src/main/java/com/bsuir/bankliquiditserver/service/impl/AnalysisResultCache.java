@@ -0,0 +1,131 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.dto.LiquidityAnalysisResultDTO;
+import com.bsuir.bankliquiditserver.dto.SolvencyAnalysisResultDTO;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.service.FinancialStatementListener;
+import com.bsuir.bankliquiditserver.util.BoundedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш рассчитанных результатов анализа (LiquidityAnalysisResultDTO и т.п.).
+ * Результаты хранятся по ключу (statementId, версия отчета, тип анализа). Чтобы попадание не требовало запроса к БД,
+ * отдельно запоминается, какой отчет (id и версия) отвечает на запрос (bankId, reportDate, statementType).
+ * Записи сбрасываются при изменении/удалении отчета (FinancialStatementListener), TTL - страховка от изменений в обход сервиса.
+ */
+public class AnalysisResultCache implements FinancialStatementListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisResultCache.class);
+
+    private static final long REF_WEIGHT = 64; // Примерный размер записи "запрос -> отчет"
+    private static final long RESULT_BASE_WEIGHT = 512; // DTO без карты коэффициентов
+    private static final long RATIO_ENTRY_WEIGHT = 96; // Одна пара "имя коэффициента -> BigDecimal"
+
+    private final BoundedCache<String, Object> results;
+    // "bankId|reportDate|statementType" -> {statementId, version}; reportDate "null" - последний отчет
+    private final BoundedCache<String, int[]> statementRefs;
+    // Увеличивается при каждом изменении отчетов; ссылка запоминается, только если изменений за время расчета не было
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AnalysisResultCache(long maxBytes, long ttlMillis) {
+        this.results = new BoundedCache<>(maxBytes, ttlMillis, AnalysisResultCache::estimateWeight);
+        this.statementRefs = new BoundedCache<>(maxBytes / 8, ttlMillis, ref -> REF_WEIGHT);
+
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        metrics.registerGauge("analysis.resultCache.hits", hits::sum);
+        metrics.registerGauge("analysis.resultCache.misses", misses::sum);
+        metrics.registerGauge("analysis.resultCache.hitRatio", this::getHitRatio);
+        metrics.registerGauge("analysis.resultCache.size", results::size);
+        metrics.registerGauge("analysis.resultCache.weightBytes", results::getWeight);
+        metrics.registerGauge("analysis.resultCache.evictions", results::getEvictionCount);
+        metrics.registerGauge("analysis.resultCache.expirations", results::getExpirationCount);
+    }
+
+    // Значение "поколения" до начала расчета; передается в put
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    // Кэшированный результат или null
+    public <T> T find(int bankId, LocalDate reportDate, String statementType, String analysisType, Class<T> resultType) {
+        int[] ref = statementRefs.get(refKey(bankId, reportDate, statementType));
+        Object result = ref != null ? results.get(resultKey(ref[0], ref[1], analysisType)) : null;
+        if (!resultType.isInstance(result)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return resultType.cast(result);
+    }
+
+    public void put(int bankId, LocalDate reportDate, FinancialStatement statement, String analysisType,
+                    Object result, long generationAtStart) {
+        // Ключ с версией: результат по устаревшей версии отчета просто не будет найден
+        results.put(resultKey(statement.getId(), statement.getVersion(), analysisType), result);
+        if (generation.get() == generationAtStart) {
+            statementRefs.put(refKey(bankId, reportDate, statement.getStatementType()),
+                    new int[]{statement.getId(), statement.getVersion()});
+        }
+    }
+
+    @Override
+    public void onStatementChanged(FinancialStatement statement) {
+        invalidate(statement);
+    }
+
+    @Override
+    public void onStatementDeleted(FinancialStatement statement) {
+        invalidate(statement);
+    }
+
+    @Override
+    public void onAllStatementsInvalidated() {
+        generation.incrementAndGet();
+        results.invalidateIf((key, value) -> true);
+        statementRefs.invalidateIf((key, ref) -> true);
+        LOGGER.info("Analysis result cache flushed.");
+    }
+
+    private void invalidate(FinancialStatement statement) {
+        generation.incrementAndGet();
+        String statementPrefix = statement.getId() + ":";
+        String bankPrefix = statement.getBankId() + "|";
+        int removed = results.invalidateIf((key, value) -> key.startsWith(statementPrefix));
+        // Для банка мог смениться "последний" отчет; ссылки на этот отчет могли быть и от другого банка (смена bankId)
+        statementRefs.invalidateIf((key, ref) -> key.startsWith(bankPrefix) || ref[0] == statement.getId());
+        LOGGER.debug("Analysis result cache invalidated for statement {} ({} results removed).", statement.getId(), removed);
+    }
+
+    public double getHitRatio() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private static String refKey(int bankId, LocalDate reportDate, String statementType) {
+        return bankId + "|" + reportDate + "|" + statementType;
+    }
+
+    private static String resultKey(int statementId, int version, String analysisType) {
+        return statementId + ":" + version + ":" + analysisType;
+    }
+
+    // Примерный размер результата в памяти, для ограничения кэша по объему
+    private static long estimateWeight(Object result) {
+        Map<String, ?> ratios = null;
+        if (result instanceof LiquidityAnalysisResultDTO) {
+            ratios = ((LiquidityAnalysisResultDTO) result).getRatios();
+        } else if (result instanceof SolvencyAnalysisResultDTO) {
+            ratios = ((SolvencyAnalysisResultDTO) result).getRatios();
+        }
+        return RESULT_BASE_WEIGHT + (ratios != null ? ratios.size() * RATIO_ENTRY_WEIGHT : 0);
+    }
+}
@@ -1,15 +1,47 @@
 package com.bsuir.bankliquiditserver.service.impl;
 
+import com.bsuir.bankliquiditserver.analysis.BaselCalculator;
+import com.bsuir.bankliquiditserver.analysis.RatioDefinitionSet;
+import com.bsuir.bankliquiditserver.analysis.RatioValues;
+import com.bsuir.bankliquiditserver.analysis.StressScenarioSet;
+import com.bsuir.bankliquiditserver.analysis.StressStatement;
+import com.bsuir.bankliquiditserver.analysis.WhatIfStatement;
+import com.bsuir.bankliquiditserver.config.ReloadableProperties;
 import com.bsuir.bankliquiditserver.dao.AnalysisReportDao;
 import com.bsuir.bankliquiditserver.dao.BankDao;
+import com.bsuir.bankliquiditserver.dao.FinancialStatementDao;
+import com.bsuir.bankliquiditserver.dao.StatementItemDao;
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import com.bsuir.bankliquiditserver.db.RequestContext;
+import com.bsuir.bankliquiditserver.dto.AnalysisReportDTO;
+import com.bsuir.bankliquiditserver.dto.BaselPortfolioResultDTO;
+import com.bsuir.bankliquiditserver.dto.BaselRatiosResultDTO;
 import com.bsuir.bankliquiditserver.dto.LiquidityAnalysisResultDTO;
+import com.bsuir.bankliquiditserver.dto.PeerRankingDTO;
+import com.bsuir.bankliquiditserver.dto.PortfolioAnalysisResultDTO;
+import com.bsuir.bankliquiditserver.dto.PortfolioRatioRowDTO;
+import com.bsuir.bankliquiditserver.dto.RatioTimeSeriesDTO;
 import com.bsuir.bankliquiditserver.dto.SolvencyAnalysisResultDTO;
+import com.bsuir.bankliquiditserver.dto.StressBankResultDTO;
+import com.bsuir.bankliquiditserver.dto.StressGridAxisDTO;
+import com.bsuir.bankliquiditserver.dto.StressRatioDistributionDTO;
+import com.bsuir.bankliquiditserver.dto.StressScenarioDTO;
+import com.bsuir.bankliquiditserver.dto.StressShockDTO;
+import com.bsuir.bankliquiditserver.dto.StressTestResultDTO;
+import com.bsuir.bankliquiditserver.dto.StressThresholdDTO;
+import com.bsuir.bankliquiditserver.dto.WhatIfChangeDTO;
+import com.bsuir.bankliquiditserver.dto.WhatIfResultDTO;
 import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
 import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
 import com.bsuir.bankliquiditserver.model.*; // Bank, FinancialStatement, StatementItem, User, AnalysisReport
 import com.bsuir.bankliquiditserver.service.AnalysisService;
 import com.bsuir.bankliquiditserver.service.AuditService;
+import com.bsuir.bankliquiditserver.service.EntityChangeService;
 import com.bsuir.bankliquiditserver.service.FinancialStatementService;
+import com.bsuir.bankliquiditserver.service.RatioSnapshotService;
+import com.bsuir.bankliquiditserver.util.SingleFlight;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -20,65 +52,109 @@ import java.math.RoundingMode;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class AnalysisServiceImpl implements AnalysisService {
     private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisServiceImpl.class);
-    private static final int DEFAULT_SCALE = 4; // Точность для коэффициентов
+    private static final int STRESS_CHUNK_SIZE = 256; // Сценариев в одной задаче пула
 
     private final FinancialStatementService financialStatementService;
     private final AnalysisReportDao analysisReportDao;
     private final BankDao bankDao;
     private final AuditService auditService;
+    private final FinancialStatementDao financialStatementDao; // Пакетная загрузка отчетов для портфельного расчета
+    private final StatementItemDao statementItemDao;
+    private final ReloadableProperties<RatioDefinitionSet> ratioDefinitions; // Формулы коэффициентов (ratio_definitions.properties)
+    private final RatioSnapshotService ratioSnapshotService; // Снимки коэффициентов, рассчитанные при сохранении отчетов
+    private final ForkJoinPool analysisPool; // Пул для параллельного расчета по многим банкам
+    private final AnalysisResultCache resultCache; // Готовые результаты CALCULATE_LIQUIDITY/SOLVENCY
+    private final long maxStressEvaluations; // Предел числа пар "сценарий x банк" в одном стресс-тесте
+    private final PeerRankingIndex peerRankingIndex; // Ранги коэффициентов банков по датам
+    private final ReloadableProperties<BaselCalculator> baselWeights; // Таблица весов LCR/NSFR (basel_weights.properties)
+    private final WhatIfStatementCache whatIfCache; // Подготовленные копии отчетов для WHAT_IF
+    private final EntityChangeService entityChangeService; // Изменения списков отчетов анализа для подписанных клиентов
     private final ObjectMapper objectMapper; // Для сериализации reportData в JSON
-
-    // === Константы для кодов или имен статей баланса ===
-    // !!! ВАЖНО: Эти значения нужно будет адаптировать под твою структуру фин. отчетов !!!
-    // Это только примеры!
-    private static final List<String> CURRENT_ASSETS_CODES = Arrays.asList("CA01", "CA02", "CA03", "DEBT_S", "INV01"); // ДС, Краткоср. фин. влож., Деб. задолж., Запасы
-    private static final List<String> INVENTORY_CODES = Arrays.asList("INV01", "INV02"); // Запасы
-    private static final List<String> CASH_AND_EQUIVALENTS_CODES = Arrays.asList("CA01", "CA02"); // ДС и эквиваленты
-    private static final List<String> CURRENT_LIABILITIES_CODES = Arrays.asList("CL01", "CL02", "CREDIT_S"); // Краткоср. кредиты, Кред. задолж.
-    private static final List<String> TOTAL_ASSETS_CODES = Arrays.asList("TOTAL_ASSETS_BALANCE"); // Валюта баланса (итог актива)
-    private static final List<String> TOTAL_EQUITY_CODES = Arrays.asList("EQUITY01", "EQUITY02"); // Собственный капитал
-    private static final List<String> TOTAL_LIABILITIES_CODES = Arrays.asList("CL01", "CL02", "LL01"); // Все обязательства (краткосрочные + долгосрочные)
+    // Объединение одновременных одинаковых расчетов (ключ - bankId|reportDate)
+    private final SingleFlight<String, LiquidityAnalysisResultDTO> liquidityFlight = new SingleFlight<>();
+    private final SingleFlight<String, SolvencyAnalysisResultDTO> solvencyFlight = new SingleFlight<>();
 
 
     public AnalysisServiceImpl(FinancialStatementService financialStatementService,
                                AnalysisReportDao analysisReportDao,
                                BankDao bankDao,
-                               AuditService auditService) {
+                               AuditService auditService,
+                               FinancialStatementDao financialStatementDao,
+                               StatementItemDao statementItemDao,
+                               ReloadableProperties<RatioDefinitionSet> ratioDefinitions,
+                               RatioSnapshotService ratioSnapshotService,
+                               ForkJoinPool analysisPool,
+                               AnalysisResultCache resultCache,
+                               long maxStressEvaluations,
+                               PeerRankingIndex peerRankingIndex,
+                               ReloadableProperties<BaselCalculator> baselWeights,
+                               WhatIfStatementCache whatIfCache,
+                               EntityChangeService entityChangeService) {
         this.financialStatementService = financialStatementService;
         this.analysisReportDao = analysisReportDao;
         this.bankDao = bankDao;
         this.auditService = auditService;
+        this.financialStatementDao = financialStatementDao;
+        this.statementItemDao = statementItemDao;
+        this.ratioDefinitions = ratioDefinitions;
+        this.ratioSnapshotService = ratioSnapshotService;
+        this.analysisPool = analysisPool;
+        this.resultCache = resultCache;
+        this.maxStressEvaluations = maxStressEvaluations;
+        this.peerRankingIndex = peerRankingIndex;
+        this.baselWeights = baselWeights;
+        this.whatIfCache = whatIfCache;
+        this.entityChangeService = entityChangeService;
         this.objectMapper = new ObjectMapper().findAndRegisterModules(); // Для Java 8 Date/Time
+
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        metrics.registerGauge("analysis.liquidity.executions", liquidityFlight::getExecutionCount);
+        metrics.registerGauge("analysis.liquidity.coalesced", liquidityFlight::getCoalescedCount);
+        metrics.registerGauge("analysis.solvency.executions", solvencyFlight::getExecutionCount);
+        metrics.registerGauge("analysis.solvency.coalesced", solvencyFlight::getCoalescedCount);
+        metrics.registerGauge("analysis.liquidity.ownerAborts", liquidityFlight::getOwnerAbortCount);
+        metrics.registerGauge("analysis.solvency.ownerAborts", solvencyFlight::getOwnerAbortCount);
     }
 
     @Override
     public LiquidityAnalysisResultDTO calculateLiquidity(int bankId, LocalDate reportDate, User currentUser, String ipAddress)
             throws EntityNotFoundException, ServiceException {
-        FinancialStatement statement = getRelevantFinancialStatement(bankId, reportDate, "BALANCE_SHEET");
-        Bank bank = statement.getBank(); // Банк уже должен быть загружен в statement
-        if (bank == null) { // Дополнительная проверка
-            try {
-                bank = bankDao.findById(bankId).orElseThrow(() -> new EntityNotFoundException("Bank", bankId));
-            } catch (SQLException e) { throw new ServiceException("Failed to load bank details", e); }
-        }
+        // Одновременные одинаковые запросы разделяют одно вычисление; аудит - по каждому вызывающему
+        LiquidityAnalysisResultDTO result = coalesce(liquidityFlight, bankId + "|" + reportDate, () -> computeLiquidity(bankId, reportDate));
+        auditService.logUserAction(currentUser, "CALCULATE_LIQUIDITY",
+                "Liquidity calculated for bank: " + result.getBankName() + ", report date: " + result.getReportDate(), ipAddress, true);
+        return result;
+    }
 
-        List<StatementItem> items = statement.getItems();
-        if (items == null || items.isEmpty()) {
-            throw new ServiceException("Financial statement for bank " + bank.getName() + " on " + statement.getReportDate() + " contains no items.");
+    private LiquidityAnalysisResultDTO computeLiquidity(int bankId, LocalDate reportDate) throws EntityNotFoundException, ServiceException {
+        long cacheGeneration = resultCache.currentGeneration();
+        LiquidityAnalysisResultDTO cached = resultCache.find(bankId, reportDate, "BALANCE_SHEET", "LIQUIDITY", LiquidityAnalysisResultDTO.class);
+        if (cached != null) {
+            return cached;
         }
 
-        BigDecimal currentAssets = sumItemsByCodes(items, CURRENT_ASSETS_CODES);
-        BigDecimal inventories = sumItemsByCodes(items, INVENTORY_CODES);
-        BigDecimal cashAndEquivalents = sumItemsByCodes(items, CASH_AND_EQUIVALENTS_CODES);
-        BigDecimal currentLiabilities = sumItemsByCodes(items, CURRENT_LIABILITIES_CODES);
+        // Коэффициенты берутся из снимка, рассчитанного при сохранении отчета (одна строка из БД)
+        RatioDefinitionSet definitions = ratioDefinitions.get();
+        StatementRatioSnapshot snapshot = getNonEmptySnapshot(bankId, reportDate, "BALANCE_SHEET", definitions);
+        FinancialStatement statement = snapshot.getStatement();
+        Bank bank = statement.getBank(); // Банк загружен тем же запросом, что и снимок
+        RatioValues ratios = definitions.restore(snapshot.getGroupSums(), snapshot.getRatios());
 
         LiquidityAnalysisResultDTO result = new LiquidityAnalysisResultDTO();
         result.setBankId(bank.getId());
@@ -86,34 +162,19 @@ public class AnalysisServiceImpl implements AnalysisService {
         result.setReportDate(statement.getReportDate());
 
         // Current Ratio = Current Assets / Current Liabilities
-        if (currentLiabilities.compareTo(BigDecimal.ZERO) != 0) {
-            result.setCurrentRatio(currentAssets.divide(currentLiabilities, DEFAULT_SCALE, RoundingMode.HALF_UP));
-        } else {
-            result.setCurrentRatio(null); // или BigDecimal.ZERO, или большое число в зависимости от политики
-            LOGGER.warn("Current Liabilities are zero for bank {}, date {}. Current Ratio cannot be calculated meaningfully.", bankId, statement.getReportDate());
-        }
-
         // Quick Ratio = (Current Assets - Inventories) / Current Liabilities
-        if (currentLiabilities.compareTo(BigDecimal.ZERO) != 0) {
-            BigDecimal quickAssets = currentAssets.subtract(inventories);
-            result.setQuickRatio(quickAssets.divide(currentLiabilities, DEFAULT_SCALE, RoundingMode.HALF_UP));
-        } else {
-            result.setQuickRatio(null);
-        }
-
         // Cash Ratio = Cash & Equivalents / Current Liabilities
-        if (currentLiabilities.compareTo(BigDecimal.ZERO) != 0) {
-            result.setCashRatio(cashAndEquivalents.divide(currentLiabilities, DEFAULT_SCALE, RoundingMode.HALF_UP));
-        } else {
-            result.setCashRatio(null);
+        result.setCurrentRatio(ratios.get("CURRENT_RATIO"));
+        result.setQuickRatio(ratios.get("QUICK_RATIO"));
+        result.setCashRatio(ratios.get("CASH_RATIO"));
+        result.setRatios(ratios.byCategory("LIQUIDITY"));
+        if (result.getCurrentRatio() == null) { // null, если краткосрочные обязательства равны нулю
+            LOGGER.warn("Current Ratio cannot be calculated meaningfully for bank {}, date {} (zero Current Liabilities?).", bankId, statement.getReportDate());
         }
 
         // Интерпретации (пример)
         interpretLiquidityRatios(result);
-
-        auditService.logUserAction(currentUser, "CALCULATE_LIQUIDITY",
-                "Liquidity calculated for bank: " + bank.getName() + ", report date: " + statement.getReportDate(), ipAddress, true);
-
+        resultCache.put(bankId, reportDate, statement, "LIQUIDITY", result, cacheGeneration);
         return result;
     }
 
@@ -121,23 +182,25 @@ public class AnalysisServiceImpl implements AnalysisService {
     @Override
     public SolvencyAnalysisResultDTO calculateSolvency(int bankId, LocalDate reportDate, User currentUser, String ipAddress)
             throws EntityNotFoundException, ServiceException {
-        FinancialStatement statement = getRelevantFinancialStatement(bankId, reportDate, "BALANCE_SHEET");
-        Bank bank = statement.getBank();
-        if (bank == null) {
-            try {
-                bank = bankDao.findById(bankId).orElseThrow(() -> new EntityNotFoundException("Bank", bankId));
-            } catch (SQLException e) { throw new ServiceException("Failed to load bank details", e); }
-        }
-
+        SolvencyAnalysisResultDTO result = coalesce(solvencyFlight, bankId + "|" + reportDate, () -> computeSolvency(bankId, reportDate));
+        auditService.logUserAction(currentUser, "CALCULATE_SOLVENCY",
+                "Solvency calculated for bank: " + result.getBankName() + ", report date: " + result.getReportDate(), ipAddress, true);
+        return result;
+    }
 
-        List<StatementItem> items = statement.getItems();
-        if (items == null || items.isEmpty()) {
-            throw new ServiceException("Financial statement for bank " + bank.getName() + " on " + statement.getReportDate() + " contains no items.");
+    private SolvencyAnalysisResultDTO computeSolvency(int bankId, LocalDate reportDate) throws EntityNotFoundException, ServiceException {
+        long cacheGeneration = resultCache.currentGeneration();
+        SolvencyAnalysisResultDTO cached = resultCache.find(bankId, reportDate, "BALANCE_SHEET", "SOLVENCY", SolvencyAnalysisResultDTO.class);
+        if (cached != null) {
+            return cached;
         }
 
-        BigDecimal totalAssets = sumItemsByCodes(items, TOTAL_ASSETS_CODES);
-        BigDecimal totalEquity = sumItemsByCodes(items, TOTAL_EQUITY_CODES);
-        BigDecimal totalLiabilities = sumItemsByCodes(items, TOTAL_LIABILITIES_CODES); // Или (Total Assets - Total Equity)
+        // Коэффициенты берутся из снимка, рассчитанного при сохранении отчета (одна строка из БД)
+        RatioDefinitionSet definitions = ratioDefinitions.get();
+        StatementRatioSnapshot snapshot = getNonEmptySnapshot(bankId, reportDate, "BALANCE_SHEET", definitions);
+        FinancialStatement statement = snapshot.getStatement();
+        Bank bank = statement.getBank(); // Банк загружен тем же запросом, что и снимок
+        RatioValues ratios = definitions.restore(snapshot.getGroupSums(), snapshot.getRatios());
 
         SolvencyAnalysisResultDTO result = new SolvencyAnalysisResultDTO();
         result.setBankId(bank.getId());
@@ -145,54 +208,700 @@ public class AnalysisServiceImpl implements AnalysisService {
         result.setReportDate(statement.getReportDate());
 
         // Equity Ratio = Total Equity / Total Assets
-        if (totalAssets.compareTo(BigDecimal.ZERO) != 0) {
-            result.setEquityRatio(totalEquity.divide(totalAssets, DEFAULT_SCALE, RoundingMode.HALF_UP));
-        } else {
-            result.setEquityRatio(null);
+        // Debt to Equity Ratio = Total Liabilities / Total Equity
+        result.setEquityRatio(ratios.get("EQUITY_RATIO"));
+        result.setDebtToEquityRatio(ratios.get("DEBT_TO_EQUITY_RATIO"));
+        result.setTotalDebtToTotalAssetsRatio(ratios.get("TOTAL_DEBT_TO_TOTAL_ASSETS_RATIO"));
+        result.setRatios(ratios.byCategory("SOLVENCY"));
+        if (result.getEquityRatio() == null) {
             LOGGER.warn("Total Assets are zero for bank {}, date {}. Equity Ratio cannot be calculated.", bankId, statement.getReportDate());
         }
-
-        // Debt to Equity Ratio = Total Liabilities / Total Equity
-        if (totalEquity.compareTo(BigDecimal.ZERO) != 0) {
-            result.setDebtToEquityRatio(totalLiabilities.divide(totalEquity, DEFAULT_SCALE, RoundingMode.HALF_UP));
-        } else {
-            result.setDebtToEquityRatio(null);
+        if (result.getDebtToEquityRatio() == null) {
             LOGGER.warn("Total Equity is zero for bank {}, date {}. Debt to Equity Ratio cannot be calculated meaningfully.", bankId, statement.getReportDate());
         }
 
         interpretSolvencyRatios(result);
+        resultCache.put(bankId, reportDate, statement, "SOLVENCY", result, cacheGeneration);
+        return result;
+    }
 
-        auditService.logUserAction(currentUser, "CALCULATE_SOLVENCY",
-                "Solvency calculated for bank: " + bank.getName() + ", report date: " + statement.getReportDate(), ipAddress, true);
+    /**
+     * Выполняет вычисление через single-flight: вызывающие с тем же ключом получают один и тот же объект результата,
+     * поэтому результат после возврата не изменяется (только сериализуется в ответ).
+     * Чужое вычисление ждем не дольше срока своего запроса; отмена запроса прерывает ожидание (interrupt).
+     * Вычисление идет под контекстом первого вызывающего: если его отменили или истек его срок, остальные
+     * не получают его ошибку, а повторяют вычисление под своим контекстом.
+     */
+    private <T> T coalesce(SingleFlight<String, T> flight, String key, Callable<T> computation)
+            throws EntityNotFoundException, ServiceException {
+        RequestContext context = RequestContext.current();
+        try {
+            return flight.execute(key, computation, context != null ? context.getRemainingMillis() : Long.MAX_VALUE,
+                    () -> context != null && (context.isCancelled() || context.isDeadlineExceeded()));
+        } catch (TimeoutException e) {
+            ServerMetrics.getInstance().increment("analysis.singleFlight.joinTimeouts");
+            throw new ServiceException("Request deadline exceeded while waiting for an identical calculation.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Analysis was interrupted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EntityNotFoundException) throw (EntityNotFoundException) cause;
+            if (cause instanceof ServiceException) throw (ServiceException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new ServiceException("Analysis failed.", cause);
+        }
+    }
+
+    @Override
+    public PortfolioAnalysisResultDTO calculatePortfolio(LocalDate asOfDate, User currentUser, String ipAddress) throws ServiceException {
+        long startedAt = System.currentTimeMillis();
+
+        // Два запроса на весь портфель вместо 4-6 запросов на каждый банк
+        List<FinancialStatement> statements;
+        Map<Integer, List<StatementItem>> itemsByStatement;
+        try {
+            statements = financialStatementDao.findLatestPerBank("BALANCE_SHEET", asOfDate);
+            itemsByStatement = statementItemDao.findByStatementIds(
+                    statements.stream().map(FinancialStatement::getId).collect(Collectors.toList()));
+        } catch (SQLException e) {
+            LOGGER.error("Error loading portfolio statements as of {}: {}", asOfDate, e.getMessage(), e);
+            throw new ServiceException("Failed to load financial statements for portfolio analysis.", e);
+        }
+
+        RatioDefinitionSet definitions = ratioDefinitions.get(); // Одна версия формул на весь расчет
+        List<PortfolioRatioRowDTO> rows;
+        try {
+            // parallelStream внутри задачи пула выполняется потоками этого пула, а не общего ForkJoinPool
+            rows = analysisPool.submit(() -> statements.parallelStream()
+                    .map(statement -> toPortfolioRow(statement,
+                            itemsByStatement.getOrDefault(statement.getId(), Collections.emptyList()), definitions))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Portfolio analysis was interrupted.", e);
+        } catch (ExecutionException e) {
+            LOGGER.error("Error calculating portfolio ratios as of {}: {}", asOfDate, e.getCause().getMessage(), e.getCause());
+            throw new ServiceException("Failed to calculate portfolio ratios.", e.getCause());
+        }
+
+        PortfolioAnalysisResultDTO result = new PortfolioAnalysisResultDTO();
+        result.setAsOfDate(asOfDate);
+        result.setDefinitionsVersion(definitions.getVersion());
+        result.setRows(rows);
+        result.setCalculationTimeMs(System.currentTimeMillis() - startedAt);
+        LOGGER.info("Portfolio ratios calculated for {} banks in {} ms.", rows.size(), result.getCalculationTimeMs());
+
+        auditService.logUserAction(currentUser, "CALCULATE_PORTFOLIO",
+                "Portfolio ratios calculated for " + rows.size() + " banks, as of: " + (asOfDate != null ? asOfDate : "latest"), ipAddress, true);
+        return result;
+    }
+
+    @Override
+    public RatioTimeSeriesDTO calculateRatioTimeSeries(int bankId, LocalDate fromDate, LocalDate toDate, int movingAverageWindow,
+                                                       boolean includeDeltas, User currentUser, String ipAddress)
+            throws EntityNotFoundException, ServiceException {
+        List<FinancialStatement> statements;
+        Bank bank;
+        try {
+            statements = financialStatementDao.findByBankIdAndTypeWithItems(bankId, "BALANCE_SHEET", fromDate, toDate);
+            if (!statements.isEmpty()) {
+                bank = statements.get(0).getBank(); // Банк пришел тем же запросом
+            } else {
+                // Пустой ряд - только если банк существует
+                bank = bankDao.findById(bankId).orElseThrow(() -> new EntityNotFoundException("Bank", bankId));
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error loading statements for ratio time series of bank {}: {}", bankId, e.getMessage(), e);
+            throw new ServiceException("Failed to load financial statements for time series analysis.", e);
+        }
+
+        RatioDefinitionSet definitions = ratioDefinitions.get(); // Одна версия формул на весь ряд
+        int ratioCount = definitions.getRatioCount();
+        int periods = statements.size();
+
+        List<List<BigDecimal>> values = newColumns(ratioCount, periods);
+        List<List<BigDecimal>> averages = movingAverageWindow > 0 ? newColumns(ratioCount, periods) : null;
+        List<List<BigDecimal>> deltas = includeDeltas ? newColumns(ratioCount, periods) : null;
+        // Скользящее среднее: кольцевой буфер последних значений и их сумма по каждому коэффициенту
+        BigDecimal[][] window = movingAverageWindow > 0 ? new BigDecimal[ratioCount][movingAverageWindow] : null;
+        BigDecimal[] windowSums = new BigDecimal[ratioCount];
+        int[] windowNulls = new int[ratioCount]; // Сколько неопределенных значений сейчас в окне
+        Arrays.fill(windowSums, BigDecimal.ZERO);
+        BigDecimal[] previous = new BigDecimal[ratioCount];
+
+        RatioTimeSeriesDTO result = new RatioTimeSeriesDTO();
+        for (int period = 0; period < periods; period++) {
+            FinancialStatement statement = statements.get(period);
+            result.getReportDates().add(statement.getReportDate());
+            result.getStatementIds().add(statement.getId());
+            RatioValues ratios = definitions.evaluate(statement.getItems());
+
+            for (int r = 0; r < ratioCount; r++) {
+                BigDecimal value = ratios.get(definitions.getRatioName(r));
+                values.get(r).add(value);
+
+                if (deltas != null) {
+                    deltas.get(r).add(value != null && previous[r] != null ? value.subtract(previous[r]) : null);
+                }
+                previous[r] = value;
+
+                if (window != null) {
+                    int slot = period % movingAverageWindow;
+                    if (period >= movingAverageWindow) { // Вытесняем самое старое значение окна
+                        BigDecimal evicted = window[r][slot];
+                        if (evicted == null) windowNulls[r]--;
+                        else windowSums[r] = windowSums[r].subtract(evicted);
+                    }
+                    window[r][slot] = value;
+                    if (value == null) windowNulls[r]++;
+                    else windowSums[r] = windowSums[r].add(value);
+                    // Среднее только по полному окну без пропусков
+                    boolean defined = period >= movingAverageWindow - 1 && windowNulls[r] == 0;
+                    averages.get(r).add(defined
+                            ? windowSums[r].divide(BigDecimal.valueOf(movingAverageWindow), RatioDefinitionSet.DEFAULT_SCALE, RoundingMode.HALF_UP)
+                            : null);
+                }
+            }
+        }
+
+        result.setBankId(bankId);
+        result.setBankName(bank.getName());
+        result.setDefinitionsVersion(definitions.getVersion());
+        result.setMovingAverageWindow(Math.max(movingAverageWindow, 0));
+        result.setRatios(toRatioMap(definitions, values));
+        result.setMovingAverages(averages != null ? toRatioMap(definitions, averages) : null);
+        result.setDeltas(deltas != null ? toRatioMap(definitions, deltas) : null);
+
+        auditService.logUserAction(currentUser, "CALCULATE_RATIO_TIME_SERIES",
+                "Ratio time series calculated for bank: " + bank.getName() + ", periods: " + periods +
+                        ", from: " + (fromDate != null ? fromDate : "-") + ", to: " + (toDate != null ? toDate : "-"), ipAddress, true);
+        return result;
+    }
+
+    @Override
+    public StressTestResultDTO runStressTest(List<Integer> bankIds, LocalDate asOfDate, List<StressScenarioDTO> scenarios,
+                                             List<StressGridAxisDTO> grid, Map<String, StressThresholdDTO> thresholds,
+                                             User currentUser, String ipAddress) throws ValidationException, ServiceException {
+        long startedAt = System.currentTimeMillis();
+        RatioDefinitionSet definitions = ratioDefinitions.get(); // Одна версия формул на весь расчет
+        StressScenarioSet scenarioSet = buildScenarioSet(scenarios, grid);
+        int ratioCount = definitions.getRatioCount();
+        double[] minBound = new double[ratioCount];
+        double[] maxBound = new double[ratioCount];
+        Arrays.fill(minBound, Double.NEGATIVE_INFINITY);
+        Arrays.fill(maxBound, Double.POSITIVE_INFINITY);
+        Map<String, StressThresholdDTO> checkedThresholds = thresholds != null ? thresholds : Collections.emptyMap();
+        for (Map.Entry<String, StressThresholdDTO> entry : checkedThresholds.entrySet()) {
+            int r = definitions.getRatioIndex(entry.getKey());
+            if (r < 0) {
+                throw new ValidationException("Unknown ratio in thresholds: " + entry.getKey());
+            }
+            StressThresholdDTO threshold = entry.getValue();
+            if (threshold != null && threshold.getMin() != null) minBound[r] = threshold.getMin().doubleValue();
+            if (threshold != null && threshold.getMax() != null) maxBound[r] = threshold.getMax().doubleValue();
+        }
+
+        // Последние отчеты банков и их статьи - два запроса, как в портфельном расчете
+        List<FinancialStatement> statements;
+        Map<Integer, List<StatementItem>> itemsByStatement;
+        List<Integer> missingBankIds = new ArrayList<>();
+        try {
+            statements = financialStatementDao.findLatestPerBank("BALANCE_SHEET", asOfDate);
+            if (bankIds != null && !bankIds.isEmpty()) {
+                Map<Integer, FinancialStatement> byBank = statements.stream()
+                        .collect(Collectors.toMap(FinancialStatement::getBankId, fs -> fs));
+                statements = new ArrayList<>();
+                for (Integer bankId : new LinkedHashSet<>(bankIds)) {
+                    FinancialStatement statement = byBank.get(bankId);
+                    if (statement != null) statements.add(statement);
+                    else missingBankIds.add(bankId);
+                }
+            }
+            long evaluations = (long) scenarioSet.size() * statements.size();
+            if (evaluations > maxStressEvaluations) {
+                throw new ValidationException("Stress test is too large: " + scenarioSet.size() + " scenarios x " + statements.size() +
+                        " banks exceeds the limit of " + maxStressEvaluations + " evaluations.");
+            }
+            itemsByStatement = statementItemDao.findByStatementIds(
+                    statements.stream().map(FinancialStatement::getId).collect(Collectors.toList()));
+        } catch (SQLException e) {
+            LOGGER.error("Error loading statements for stress test as of {}: {}", asOfDate, e.getMessage(), e);
+            throw new ServiceException("Failed to load financial statements for stress test.", e);
+        }
+
+        int bankCount = statements.size();
+        int scenarioCount = scenarioSet.size();
+        // values[r][bank * scenarioCount + s]; каждая задача пишет в свой отрезок, синхронизация не нужна
+        double[][] values = new double[ratioCount][bankCount * scenarioCount];
+        int chunksPerBank = (scenarioCount + STRESS_CHUNK_SIZE - 1) / STRESS_CHUNK_SIZE;
+        List<FinancialStatement> loaded = statements;
+        StressStatement[] compiled;
+        try {
+            compiled = analysisPool.submit(() -> {
+                StressStatement[] prepared = IntStream.range(0, bankCount).parallel()
+                        .mapToObj(b -> StressStatement.compile(
+                                itemsByStatement.getOrDefault(loaded.get(b).getId(), Collections.emptyList()), definitions, scenarioSet))
+                        .toArray(StressStatement[]::new);
+                IntStream.range(0, bankCount * chunksPerBank).parallel().forEach(task -> {
+                    int bank = task / chunksPerBank;
+                    int from = (task % chunksPerBank) * STRESS_CHUNK_SIZE;
+                    prepared[bank].evaluate(scenarioSet, from, Math.min(from + STRESS_CHUNK_SIZE, scenarioCount),
+                            values, bank * scenarioCount);
+                });
+                return prepared;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Stress test was interrupted.", e);
+        } catch (ExecutionException e) {
+            LOGGER.error("Error running stress test as of {}: {}", asOfDate, e.getCause().getMessage(), e.getCause());
+            throw new ServiceException("Failed to run stress test.", e.getCause());
+        }
+
+        StressTestResultDTO result = new StressTestResultDTO();
+        for (int r = 0; r < ratioCount; r++) {
+            result.getDistributions().add(summarizeStress(definitions.getRatioName(r), values[r], 0, bankCount * scenarioCount,
+                    minBound[r], maxBound[r], null));
+        }
+        for (int b = 0; b < bankCount; b++) {
+            FinancialStatement statement = statements.get(b);
+            StressBankResultDTO bankResult = new StressBankResultDTO();
+            bankResult.setBankId(statement.getBankId());
+            bankResult.setBankName(statement.getBank() != null ? statement.getBank().getName() : null);
+            bankResult.setStatementId(statement.getId());
+            bankResult.setReportDate(statement.getReportDate());
+            bankResult.setBaseRatios(definitions.evaluate(
+                    itemsByStatement.getOrDefault(statement.getId(), Collections.emptyList())).asMap());
+            int offset = b * scenarioCount;
+            for (int r = 0; r < ratioCount; r++) {
+                bankResult.getRatios().add(summarizeStress(definitions.getRatioName(r), values[r], offset, offset + scenarioCount,
+                        minBound[r], maxBound[r], scenarioSet));
+            }
+            int breached = 0;
+            for (int s = 0; s < scenarioCount; s++) {
+                for (int r = 0; r < ratioCount; r++) {
+                    double value = values[r][offset + s];
+                    if (value < minBound[r] || value > maxBound[r]) { // NaN не считается нарушением
+                        breached++;
+                        break;
+                    }
+                }
+            }
+            bankResult.setBreachedScenarioCount(breached);
+            for (int t = 0; t < scenarioSet.getTargetCount(); t++) {
+                if (!compiled[b].hasTarget(t)) {
+                    bankResult.getMissingTargets().add(scenarioSet.getTarget(t));
+                }
+            }
+            result.getBanks().add(bankResult);
+        }
+
+        long evaluations = (long) scenarioCount * bankCount;
+        result.setAsOfDate(asOfDate);
+        result.setDefinitionsVersion(definitions.getVersion());
+        result.setScenarioCount(scenarioCount);
+        result.setEvaluationCount(evaluations);
+        result.setThresholds(new LinkedHashMap<>(checkedThresholds));
+        result.setMissingBankIds(missingBankIds);
+        result.setCalculationTimeMs(System.currentTimeMillis() - startedAt);
+        ServerMetrics.getInstance().increment("analysis.stressTest.runs");
+        ServerMetrics.getInstance().add("analysis.stressTest.evaluations", evaluations);
+        LOGGER.info("Stress test: {} scenarios x {} banks calculated in {} ms.", scenarioCount, bankCount, result.getCalculationTimeMs());
+
+        auditService.logUserAction(currentUser, "RUN_STRESS_TEST",
+                "Stress test run: " + scenarioCount + " scenarios, " + bankCount + " banks, as of: " +
+                        (asOfDate != null ? asOfDate : "latest"), ipAddress, true);
+        return result;
+    }
+
+    @Override
+    public PeerRankingDTO getPeerRanking(int bankId, LocalDate reportDate, String ratioName, User currentUser, String ipAddress)
+            throws EntityNotFoundException, ValidationException, ServiceException {
+        if (ratioName != null && ratioDefinitions.get().getRatioIndex(ratioName) < 0) {
+            throw new ValidationException("Unknown ratio: " + ratioName);
+        }
+        PeerRankingDTO result = peerRankingIndex.getRanking(bankId, reportDate, ratioName);
+        auditService.logUserAction(currentUser, "GET_PEER_RANKING",
+                "Peer ranking retrieved for bank: " + result.getBankName() + ", report date: " + result.getReportDate() +
+                        (ratioName != null ? ", ratio: " + ratioName : ""), ipAddress, true);
+        return result;
+    }
+
+    @Override
+    public WhatIfResultDTO calculateWhatIf(int statementId, List<WhatIfChangeDTO> changes)
+            throws EntityNotFoundException, ValidationException, ServiceException {
+        long startedAt = System.nanoTime();
+        if (changes == null || changes.isEmpty()) {
+            throw new ValidationException("At least one item change is required.");
+        }
+        RatioDefinitionSet definitions = ratioDefinitions.get();
+        WhatIfStatementCache.Entry entry = whatIfCache.get(statementId);
+        // Копия, подготовленная по прежней версии формул, не подходит
+        boolean cached = entry != null && entry.getCompiled().getDefinitions() == definitions;
+        if (!cached) {
+            entry = loadWhatIfEntry(statementId, definitions);
+        }
+        WhatIfStatement compiled = entry.getCompiled();
+
+        Map<String, BigDecimal> newValues = new LinkedHashMap<>();
+        for (WhatIfChangeDTO change : changes) {
+            String itemCode = change.getItemCode() != null ? change.getItemCode().trim() : null;
+            if (!compiled.hasItem(itemCode)) {
+                throw new ValidationException("Item not found in statement " + statementId + ": " + change.getItemCode());
+            }
+            int specified = (change.getDelta() != null ? 1 : 0) + (change.getPercent() != null ? 1 : 0) + (change.getValue() != null ? 1 : 0);
+            if (specified != 1) {
+                throw new ValidationException("Exactly one of delta, percent or value is required for item " + itemCode + ".");
+            }
+            BigDecimal current = newValues.containsKey(itemCode) ? newValues.get(itemCode) : compiled.getValue(itemCode);
+            BigDecimal updated;
+            if (change.getValue() != null) {
+                updated = change.getValue();
+            } else if (change.getDelta() != null) {
+                updated = current.add(change.getDelta());
+            } else {
+                if (change.getPercent().compareTo(BigDecimal.valueOf(-100)) < 0) { // Как и в стресс-тесте, знак статьи не меняем
+                    throw new ValidationException("Change percent must not be less than -100 for item " + itemCode + ".");
+                }
+                updated = current.add(current.multiply(change.getPercent()).movePointLeft(2)).setScale(2, RoundingMode.HALF_UP);
+            }
+            newValues.put(itemCode, updated);
+        }
+        WhatIfStatement.Result outcome = compiled.apply(newValues);
+
+        FinancialStatement statement = entry.getStatement();
+        WhatIfResultDTO result = new WhatIfResultDTO();
+        result.setStatementId(statement.getId());
+        result.setBankId(statement.getBankId());
+        result.setBankName(statement.getBank() != null ? statement.getBank().getName() : null);
+        result.setReportDate(statement.getReportDate());
+        result.setDefinitionsVersion(definitions.getVersion());
+        result.setItemValues(newValues);
+        result.setBaseRatios(compiled.getBase().asMap());
+        result.setRatios(outcome.getValues().asMap());
+        result.setRecomputedRatioCount(outcome.getRecomputedRatioCount());
+        result.setCached(cached);
+        result.setCalculationTimeMicros((System.nanoTime() - startedAt) / 1000);
+        // Аудит не пишется: расчет интерактивный и не должен ничего записывать в БД
+        ServerMetrics.getInstance().increment("analysis.whatIf.calculations");
+        LOGGER.debug("What-if for statement {}: {} items changed, {} ratios recomputed in {} us.", statementId, newValues.size(),
+                outcome.getRecomputedRatioCount(), result.getCalculationTimeMicros());
         return result;
     }
 
-    private FinancialStatement getRelevantFinancialStatement(int bankId, LocalDate reportDate, String statementType)
+    private WhatIfStatementCache.Entry loadWhatIfEntry(int statementId, RatioDefinitionSet definitions)
             throws EntityNotFoundException, ServiceException {
+        long cacheGeneration = whatIfCache.currentGeneration();
         FinancialStatement statement;
-        if (reportDate != null) {
-            statement = financialStatementService.getFinancialStatementByBankDateAndType(bankId, reportDate, statementType);
-        } else {
-            // Логика получения последнего отчета для банка данного типа
-            List<FinancialStatement> statements = financialStatementService.getFinancialStatementsByBank(bankId);
-            statement = statements.stream()
-                    .filter(s -> statementType.equals(s.getStatementType()))
-                    .max(java.util.Comparator.comparing(FinancialStatement::getReportDate))
-                    .orElseThrow(() -> new EntityNotFoundException(
-                            String.format("No '%s' found for bank ID %d.", statementType, bankId)));
+        try {
+            // Кэшируем - значит, не с отстающей реплики
+            statement = DatabaseConnector.withPrimaryReads(() -> financialStatementDao.findByIdWithDetails(statementId))
+                    .orElseThrow(() -> new EntityNotFoundException("FinancialStatement", statementId));
+        } catch (SQLException e) {
+            LOGGER.error("Error loading statement {} for what-if analysis: {}", statementId, e.getMessage(), e);
+            throw new ServiceException("Failed to load financial statement for what-if analysis.", e);
+        }
+        List<StatementItem> items = statement.getItems() != null ? statement.getItems() : Collections.emptyList();
+        WhatIfStatement compiled = WhatIfStatement.compile(items, definitions);
+        statement.setItems(Collections.emptyList()); // Статьи уже в подготовленной копии; в кэше держим только заголовок
+        WhatIfStatementCache.Entry entry = new WhatIfStatementCache.Entry(statement, compiled);
+        whatIfCache.put(entry, cacheGeneration);
+        return entry;
+    }
+
+    @Override
+    public BaselRatiosResultDTO calculateBaselRatios(int bankId, LocalDate reportDate, User currentUser, String ipAddress)
+            throws EntityNotFoundException, ServiceException {
+        // Отчет вместе с банком и статьями - один запрос
+        FinancialStatement statement;
+        try {
+            if (reportDate != null) {
+                List<FinancialStatement> statements =
+                        financialStatementDao.findByBankIdAndTypeWithItems(bankId, "BALANCE_SHEET", reportDate, reportDate);
+                statement = statements.isEmpty() ? null : statements.get(statements.size() - 1);
+            } else {
+                statement = financialStatementDao.findLatestByBankIdAndTypeWithItems(bankId, "BALANCE_SHEET").orElse(null);
+            }
+            if (statement == null) {
+                bankDao.findById(bankId).orElseThrow(() -> new EntityNotFoundException("Bank", bankId));
+                throw new EntityNotFoundException("Balance sheet for bank " + bankId +
+                        (reportDate != null ? " on " + reportDate : "") + " not found.");
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error loading balance sheet for Basel ratios of bank {}: {}", bankId, e.getMessage(), e);
+            throw new ServiceException("Failed to load financial statement for Basel III analysis.", e);
+        }
+        if (statement.getItems() == null || statement.getItems().isEmpty()) {
+            throw new ServiceException("Financial statement for bank " + statement.getBank().getName() + " on " + statement.getReportDate() + " contains no items.");
+        }
+
+        BaselRatiosResultDTO result = toBaselResult(statement, statement.getItems(), baselWeights.get());
+        auditService.logUserAction(currentUser, "CALCULATE_BASEL_RATIOS",
+                "Basel III ratios calculated for bank: " + result.getBankName() + ", report date: " + result.getReportDate() +
+                        ", LCR: " + result.getLcr() + ", NSFR: " + result.getNsfr(), ipAddress, true);
+        return result;
+    }
+
+    @Override
+    public BaselPortfolioResultDTO calculateBaselPortfolio(LocalDate asOfDate, User currentUser, String ipAddress) throws ServiceException {
+        long startedAt = System.currentTimeMillis();
+
+        // Два запроса на весь портфель, как в calculatePortfolio
+        List<FinancialStatement> statements;
+        Map<Integer, List<StatementItem>> itemsByStatement;
+        try {
+            statements = financialStatementDao.findLatestPerBank("BALANCE_SHEET", asOfDate);
+            itemsByStatement = statementItemDao.findByStatementIds(
+                    statements.stream().map(FinancialStatement::getId).collect(Collectors.toList()));
+        } catch (SQLException e) {
+            LOGGER.error("Error loading portfolio statements for Basel ratios as of {}: {}", asOfDate, e.getMessage(), e);
+            throw new ServiceException("Failed to load financial statements for Basel III portfolio analysis.", e);
+        }
+
+        BaselCalculator calculator = baselWeights.get(); // Одна версия весов на весь расчет
+        List<BaselRatiosResultDTO> rows;
+        try {
+            rows = analysisPool.submit(() -> statements.parallelStream()
+                    .map(statement -> toBaselResult(statement,
+                            itemsByStatement.getOrDefault(statement.getId(), Collections.emptyList()), calculator))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Basel III portfolio analysis was interrupted.", e);
+        } catch (ExecutionException e) {
+            LOGGER.error("Error calculating Basel ratios as of {}: {}", asOfDate, e.getCause().getMessage(), e.getCause());
+            throw new ServiceException("Failed to calculate Basel III portfolio ratios.", e.getCause());
+        }
+
+        BaselPortfolioResultDTO result = new BaselPortfolioResultDTO();
+        result.setAsOfDate(asOfDate);
+        result.setWeightsVersion(calculator.getVersion());
+        result.setRows(rows);
+        result.setLcrBreachCount((int) rows.stream().filter(row -> !row.isLcrCompliant()).count());
+        result.setNsfrBreachCount((int) rows.stream().filter(row -> !row.isNsfrCompliant()).count());
+        result.setCalculationTimeMs(System.currentTimeMillis() - startedAt);
+        LOGGER.info("Basel III ratios calculated for {} banks in {} ms.", rows.size(), result.getCalculationTimeMs());
+
+        auditService.logUserAction(currentUser, "CALCULATE_BASEL_PORTFOLIO",
+                "Basel III ratios calculated for " + rows.size() + " banks, as of: " + (asOfDate != null ? asOfDate : "latest") +
+                        ", LCR breaches: " + result.getLcrBreachCount() + ", NSFR breaches: " + result.getNsfrBreachCount(), ipAddress, true);
+        return result;
+    }
+
+    private BaselRatiosResultDTO toBaselResult(FinancialStatement statement, List<StatementItem> items, BaselCalculator calculator) {
+        BaselCalculator.BaselValues values = calculator.calculate(items);
+        BaselRatiosResultDTO result = new BaselRatiosResultDTO();
+        result.setBankId(statement.getBankId());
+        result.setBankName(statement.getBank() != null ? statement.getBank().getName() : null);
+        result.setStatementId(statement.getId());
+        result.setReportDate(statement.getReportDate());
+        result.setWeightsVersion(values.getVersion());
+        result.setMappedItemCount(values.getMappedItemCount());
+
+        result.setHqlaLevel1(baselAmount(values.getSum(BaselCalculator.HQLA_1)));
+        result.setHqlaLevel2a(baselAmount(values.getSum(BaselCalculator.HQLA_2A)));
+        result.setHqlaLevel2b(baselAmount(values.getSum(BaselCalculator.HQLA_2B)));
+        result.setHqla(baselAmount(values.getHqla()));
+        result.setOutflows(baselAmount(values.getSum(BaselCalculator.OUTFLOW)));
+        result.setInflows(baselAmount(values.getSum(BaselCalculator.INFLOW)));
+        result.setCappedInflows(baselAmount(values.getCappedInflows()));
+        result.setNetCashOutflows(baselAmount(values.getNetCashOutflows()));
+        result.setLcr(values.getLcr());
+        // Без чистого оттока покрывать нечего - норматив считается выполненным
+        result.setLcrCompliant(values.getLcr() != null ? values.getLcr().compareTo(BigDecimal.ONE) >= 0 : values.getNetCashOutflows().signum() <= 0);
+
+        result.setAvailableStableFunding(baselAmount(values.getSum(BaselCalculator.ASF)));
+        result.setRequiredStableFunding(baselAmount(values.getSum(BaselCalculator.RSF)));
+        result.setNsfr(values.getNsfr());
+        result.setNsfrCompliant(values.getNsfr() == null || values.getNsfr().compareTo(BigDecimal.ONE) >= 0);
+        if (values.getMappedItemCount() == 0) {
+            LOGGER.warn("No items of statement {} (bank {}) match the Basel weight table {}.", statement.getId(), statement.getBankId(), values.getVersion());
+        }
+        return result;
+    }
+
+    // Суммы в денежных единицах - с точностью статей отчета
+    private BigDecimal baselAmount(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Явные сценарии и все сочетания значений по осям сетки
+    private StressScenarioSet buildScenarioSet(List<StressScenarioDTO> scenarios, List<StressGridAxisDTO> grid) throws ValidationException {
+        StressScenarioSet.Builder builder = StressScenarioSet.builder();
+        try {
+            if (scenarios != null) {
+                for (StressScenarioDTO scenario : scenarios) {
+                    builder.startScenario(scenario.getName() != null ? scenario.getName() : "SCENARIO_" + (builder.scenarioCount() + 1));
+                    for (StressShockDTO shock : scenario.getShocks() != null ? scenario.getShocks() : Collections.<StressShockDTO>emptyList()) {
+                        if (shock.getPercent() == null) {
+                            throw new ValidationException("Shock percent is required for target " + shock.getTarget() + ".");
+                        }
+                        builder.addShock(shock.getTarget(), shock.getPercent().doubleValue());
+                    }
+                }
+            }
+            if (grid != null && !grid.isEmpty()) {
+                List<List<BigDecimal>> axisValues = new ArrayList<>();
+                long combinations = 1;
+                for (StressGridAxisDTO axis : grid) {
+                    List<BigDecimal> points = gridPoints(axis);
+                    combinations *= points.size();
+                    if (builder.scenarioCount() + combinations > maxStressEvaluations) {
+                        throw new ValidationException("Stress test grid is too large: more than " + maxStressEvaluations + " scenarios.");
+                    }
+                    axisValues.add(points);
+                }
+                // Перебор сочетаний "счетчиком": последняя ось меняется быстрее всех
+                int[] position = new int[grid.size()];
+                for (long combination = 0; combination < combinations; combination++) {
+                    StringBuilder name = new StringBuilder();
+                    for (int a = 0; a < grid.size(); a++) {
+                        BigDecimal percent = axisValues.get(a).get(position[a]);
+                        name.append(a > 0 ? "; " : "").append(grid.get(a).getTarget().trim()).append(' ')
+                                .append(percent.signum() > 0 ? "+" : "").append(percent.stripTrailingZeros().toPlainString()).append('%');
+                    }
+                    builder.startScenario(name.toString());
+                    for (int a = 0; a < grid.size(); a++) {
+                        builder.addShock(grid.get(a).getTarget(), axisValues.get(a).get(position[a]).doubleValue());
+                    }
+                    for (int a = grid.size() - 1; a >= 0 && ++position[a] == axisValues.get(a).size(); a--) {
+                        position[a] = 0;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new ValidationException(e.getMessage());
+        }
+        if (builder.scenarioCount() == 0) {
+            throw new ValidationException("At least one scenario or grid axis is required.");
+        }
+        if (builder.scenarioCount() > maxStressEvaluations) {
+            throw new ValidationException("Too many stress scenarios: " + builder.scenarioCount() + ", limit " + maxStressEvaluations + ".");
+        }
+        return builder.build();
+    }
+
+    private List<BigDecimal> gridPoints(StressGridAxisDTO axis) throws ValidationException {
+        if (axis.getTarget() == null || axis.getFromPercent() == null || axis.getToPercent() == null) {
+            throw new ValidationException("Grid axis requires target, fromPercent and toPercent.");
+        }
+        BigDecimal step = axis.getStepPercent();
+        if (axis.getFromPercent().compareTo(axis.getToPercent()) > 0) {
+            throw new ValidationException("Grid axis fromPercent must not exceed toPercent for " + axis.getTarget() + ".");
+        }
+        if (axis.getFromPercent().compareTo(axis.getToPercent()) != 0 && (step == null || step.signum() <= 0)) {
+            throw new ValidationException("Grid axis stepPercent must be positive for " + axis.getTarget() + ".");
+        }
+        List<BigDecimal> points = new ArrayList<>();
+        BigDecimal value = axis.getFromPercent();
+        do {
+            points.add(value);
+            if (points.size() > maxStressEvaluations) {
+                throw new ValidationException("Grid axis has too many points: " + axis.getTarget() + ".");
+            }
+            value = step != null ? value.add(step) : value;
+        } while (step != null && step.signum() > 0 && value.compareTo(axis.getToPercent()) <= 0);
+        return points;
+    }
+
+    /**
+     * Распределение значений коэффициента на отрезке [from, to) массива результатов стресс-теста.
+     * Если передан набор сценариев, отрезок - сценарии одного банка, и определяется худший сценарий:
+     * с минимальным значением, а при заданной только верхней границе - с максимальным.
+     */
+    private StressRatioDistributionDTO summarizeStress(String ratioName, double[] column, int from, int to,
+                                                       double minBound, double maxBound, StressScenarioSet scenarioSet) {
+        double[] defined = new double[to - from];
+        int count = 0, breaches = 0, worst = -1;
+        boolean worstIsMax = minBound == Double.NEGATIVE_INFINITY && maxBound != Double.POSITIVE_INFINITY;
+        double sum = 0.0;
+        for (int i = from; i < to; i++) {
+            double value = column[i];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            defined[count++] = value;
+            sum += value;
+            if (value < minBound || value > maxBound) {
+                breaches++;
+            }
+            if (worst < 0 || (worstIsMax ? value > column[worst] : value < column[worst])) {
+                worst = i;
+            }
+        }
+        StressRatioDistributionDTO distribution = new StressRatioDistributionDTO();
+        distribution.setRatioName(ratioName);
+        distribution.setEvaluatedCount(count);
+        distribution.setUndefinedCount(to - from - count);
+        distribution.setBreachCount(breaches);
+        if (count == 0) {
+            return distribution;
         }
-        // Убедимся, что статьи загружены
-        return financialStatementService.getFinancialStatementWithItemsById(statement.getId());
+        Arrays.sort(defined, 0, count);
+        distribution.setMin(stressDecimal(defined[0]));
+        distribution.setP05(stressDecimal(quantile(defined, count, 0.05)));
+        distribution.setP25(stressDecimal(quantile(defined, count, 0.25)));
+        distribution.setMedian(stressDecimal(quantile(defined, count, 0.5)));
+        distribution.setP75(stressDecimal(quantile(defined, count, 0.75)));
+        distribution.setP95(stressDecimal(quantile(defined, count, 0.95)));
+        distribution.setMax(stressDecimal(defined[count - 1]));
+        distribution.setMean(stressDecimal(sum / count));
+        if (scenarioSet != null) {
+            distribution.setWorstScenario(scenarioSet.getName(worst - from));
+        }
+        return distribution;
     }
 
+    // Квантиль по отсортированным значениям с линейной интерполяцией
+    private double quantile(double[] sorted, int count, double q) {
+        double position = q * (count - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(lower + 1, count - 1);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (position - lower);
+    }
 
-    private BigDecimal sumItemsByCodes(List<StatementItem> items, List<String> targetCodes) {
-        return items.stream()
-                .filter(item -> targetCodes.contains(item.getItemCode()) || targetCodes.contains(item.getItemName())) // Поиск по коду или имени
-                .map(StatementItem::getItemValue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private BigDecimal stressDecimal(double value) {
+        return Double.isFinite(value) ? BigDecimal.valueOf(value).setScale(RatioDefinitionSet.DEFAULT_SCALE, RoundingMode.HALF_UP) : null;
     }
 
+    private List<List<BigDecimal>> newColumns(int count, int capacity) {
+        List<List<BigDecimal>> columns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            columns.add(new ArrayList<>(capacity));
+        }
+        return columns;
+    }
+
+    private Map<String, List<BigDecimal>> toRatioMap(RatioDefinitionSet definitions, List<List<BigDecimal>> columns) {
+        Map<String, List<BigDecimal>> map = new LinkedHashMap<>();
+        for (int r = 0; r < columns.size(); r++) {
+            map.put(definitions.getRatioName(r), columns.get(r));
+        }
+        return map;
+    }
+
+    private PortfolioRatioRowDTO toPortfolioRow(FinancialStatement statement, List<StatementItem> items, RatioDefinitionSet definitions) {
+        PortfolioRatioRowDTO row = new PortfolioRatioRowDTO();
+        row.setBankId(statement.getBankId());
+        row.setBankName(statement.getBank() != null ? statement.getBank().getName() : null);
+        row.setStatementId(statement.getId());
+        row.setReportDate(statement.getReportDate());
+        row.setRatios(definitions.evaluate(items).asMap());
+        return row;
+    }
+
+    private StatementRatioSnapshot getNonEmptySnapshot(int bankId, LocalDate reportDate, String statementType, RatioDefinitionSet definitions)
+            throws EntityNotFoundException, ServiceException {
+        StatementRatioSnapshot snapshot = ratioSnapshotService.getSnapshot(bankId, reportDate, statementType, definitions);
+        if (snapshot.getItemCount() == 0) {
+            FinancialStatement statement = snapshot.getStatement();
+            throw new ServiceException("Financial statement for bank " + statement.getBank().getName() + " on " + statement.getReportDate() + " contains no items.");
+        }
+        return snapshot;
+    }
+
+
     // Методы для интерпретации (можно вынести в отдельный класс/сервис)
     private void interpretLiquidityRatios(LiquidityAnalysisResultDTO result) {
         if (result.getCurrentRatio() != null) {
@@ -242,6 +951,7 @@ public class AnalysisServiceImpl implements AnalysisService {
         try {
             AnalysisReport savedReport = analysisReportDao.save(report);
             auditService.logUserAction(analyzedBy, "SAVE_LIQUIDITY_REPORT", "Liquidity report saved, ID: " + savedReport.getId(), null, true);
+            publishReportChange(savedReport);
             return savedReport;
         } catch (SQLException e) {
             LOGGER.error("Error saving liquidity analysis report for bankId {}: {}", resultDTO.getBankId(), e.getMessage(), e);
@@ -278,6 +988,7 @@ public class AnalysisServiceImpl implements AnalysisService {
         try {
             AnalysisReport savedReport = analysisReportDao.save(report);
             auditService.logUserAction(analyzedBy, "SAVE_SOLVENCY_REPORT", "Solvency report saved, ID: " + savedReport.getId(), null, true);
+            publishReportChange(savedReport);
             return savedReport;
         } catch (SQLException e) {
             LOGGER.error("Error saving solvency analysis report for bankId {}: {}", resultDTO.getBankId(), e.getMessage(), e);
@@ -286,6 +997,41 @@ public class AnalysisServiceImpl implements AnalysisService {
     }
 
 
+    @Override
+    public AnalysisReport saveBaselAnalysisReport(BaselRatiosResultDTO resultDTO, User analyzedBy) throws ServiceException {
+        AnalysisReport report = new AnalysisReport();
+        report.setBankId(resultDTO.getBankId());
+        try {
+            bankDao.findById(resultDTO.getBankId()).ifPresent(report::setBank);
+        } catch (SQLException e) {
+            LOGGER.warn("Could not set Bank object for analysis report of bankId {}: {}", resultDTO.getBankId(), e.getMessage());
+        }
+
+        report.setReportType("BASEL_III_ANALYSIS");
+        report.setAnalysisDate(LocalDateTime.now());
+        report.setAnalyzedByUserId(analyzedBy.getId());
+        report.setAnalyzedByUser(analyzedBy);
+        // Для LCR/NSFR отдельных колонок нет: все компоненты хранятся в report_data
+
+        try {
+            report.setReportData(objectMapper.writeValueAsString(resultDTO));
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Error serializing BaselRatiosResultDTO to JSON for bankId {}: {}", resultDTO.getBankId(), e.getMessage(), e);
+            throw new ServiceException("Failed to serialize analysis data.", e);
+        }
+
+        try {
+            AnalysisReport savedReport = analysisReportDao.save(report);
+            auditService.logUserAction(analyzedBy, "SAVE_BASEL_REPORT", "Basel III report saved, ID: " + savedReport.getId(), null, true);
+            publishReportChange(savedReport);
+            return savedReport;
+        } catch (SQLException e) {
+            LOGGER.error("Error saving Basel III analysis report for bankId {}: {}", resultDTO.getBankId(), e.getMessage(), e);
+            throw new ServiceException("Failed to save Basel III analysis report.", e);
+        }
+    }
+
+
     @Override
     public AnalysisReport getAnalysisReportById(int reportId) throws EntityNotFoundException, ServiceException {
         try {
@@ -331,16 +1077,23 @@ public class AnalysisServiceImpl implements AnalysisService {
 
     @Override
     public void deleteAnalysisReport(int reportId, User currentUser, String ipAddress) throws EntityNotFoundException, ServiceException {
+        DatabaseConnector.pinToPrimary(); // Проверки перед записью - по основной БД, не по реплике
         try {
-            if (!analysisReportDao.findById(reportId).isPresent()){
-                throw new EntityNotFoundException("AnalysisReport", reportId);
-            }
+            AnalysisReport report = analysisReportDao.findById(reportId)
+                    .orElseThrow(() -> new EntityNotFoundException("AnalysisReport", reportId));
             analysisReportDao.deleteById(reportId);
             auditService.logUserAction(currentUser, "DELETE_ANALYSIS_REPORT", "Analysis report deleted, ID: " + reportId, ipAddress, true);
             LOGGER.info("AnalysisReport deleted with ID: {}", reportId);
+            entityChangeService.publish(EntityChangeService.ANALYSIS_REPORT, EntityChangeService.DELETED, reportId, report.getBankId(), null);
         } catch (SQLException e) {
             LOGGER.error("Error deleting analysis report with ID {}: {}", reportId, e.getMessage(), e);
             throw new ServiceException("Failed to delete analysis report.", e);
         }
     }
+
+    // Изменение в том же виде, что и элемент GET_BANK_ANALYSIS_REPORTS
+    private void publishReportChange(AnalysisReport report) {
+        entityChangeService.publish(EntityChangeService.ANALYSIS_REPORT, EntityChangeService.CREATED, report.getId(), report.getBankId(),
+                AnalysisReportDTO.fromAnalysisReport(report));
+    }
 }
\ No newline at end of file
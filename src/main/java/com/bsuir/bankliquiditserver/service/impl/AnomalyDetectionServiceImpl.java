@@ -0,0 +1,121 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.analysis.RunningStats;
+import com.bsuir.bankliquiditserver.dao.ItemValueStatsDao;
+import com.bsuir.bankliquiditserver.dao.StatementAnomalyDao;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.model.StatementAnomaly;
+import com.bsuir.bankliquiditserver.model.StatementItem;
+import com.bsuir.bankliquiditserver.service.AnomalyDetectionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class AnomalyDetectionServiceImpl implements AnomalyDetectionService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnomalyDetectionServiceImpl.class);
+
+    private final ItemValueStatsDao itemValueStatsDao;
+    private final StatementAnomalyDao statementAnomalyDao;
+    private final double zThreshold; // |z| не меньше порога - выброс
+    private final int minSamples; // Меньше значений в истории - статья не оценивается
+    // Нижняя граница отклонения как доля |среднего|: при почти постоянной истории любое изменение давало бы огромный z
+    private final double minRelativeStdDev;
+
+    public AnomalyDetectionServiceImpl(ItemValueStatsDao itemValueStatsDao,
+                                       StatementAnomalyDao statementAnomalyDao,
+                                       double zThreshold,
+                                       int minSamples,
+                                       double minRelativeStdDev) {
+        this.itemValueStatsDao = itemValueStatsDao;
+        this.statementAnomalyDao = statementAnomalyDao;
+        this.zThreshold = zThreshold;
+        this.minSamples = minSamples;
+        this.minRelativeStdDev = minRelativeStdDev;
+    }
+
+    @Override
+    public List<StatementAnomaly> scoreAndRecord(FinancialStatement statement) throws ServiceException {
+        List<StatementItem> items = statement.getItems() != null ? statement.getItems() : Collections.emptyList();
+        Set<String> codes = new LinkedHashSet<>();
+        for (StatementItem item : items) {
+            if (item.getItemCode() != null && item.getItemValue() != null) {
+                codes.add(item.getItemCode());
+            }
+        }
+        if (codes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            Map<String, RunningStats> history = itemValueStatsDao.findByBankAndCodes(statement.getBankId(), statement.getStatementType(), codes);
+            List<StatementAnomaly> anomalies = new ArrayList<>();
+            Map<String, RunningStats> batch = new HashMap<>();
+            LocalDateTime now = LocalDateTime.now();
+            for (StatementItem item : items) {
+                if (item.getItemCode() == null || item.getItemValue() == null) {
+                    continue;
+                }
+                double value = item.getItemValue().doubleValue();
+                // Оценка - по истории до этого отчета; значения отчета добавляются в статистику после
+                RunningStats stats = history.get(item.getItemCode());
+                if (stats != null && stats.getCount() >= minSamples) {
+                    double stdDev = Math.max(stats.getStdDev(), Math.abs(stats.getMean()) * minRelativeStdDev);
+                    double zScore = stdDev > 0 ? (value - stats.getMean()) / stdDev : 0.0;
+                    if (stdDev > 0 && Math.abs(zScore) >= zThreshold) {
+                        anomalies.add(toAnomaly(statement, item, stats, stdDev, zScore, now));
+                    }
+                }
+                batch.computeIfAbsent(item.getItemCode(), code -> new RunningStats()).add(value);
+            }
+
+            statementAnomalyDao.saveAll(anomalies);
+            itemValueStatsDao.mergeAll(statement.getBankId(), statement.getStatementType(), batch);
+            ServerMetrics.getInstance().add("anomaly.itemsScored", batch.size());
+            ServerMetrics.getInstance().add("anomaly.detected", anomalies.size());
+            if (!anomalies.isEmpty()) {
+                LOGGER.warn("{} anomalous items in statement {} (bank {}): {}", anomalies.size(), statement.getId(), statement.getBankId(), anomalies);
+            }
+            return anomalies;
+        } catch (SQLException e) {
+            LOGGER.error("Error scoring statement {} for anomalies: {}", statement.getId(), e.getMessage(), e);
+            throw new ServiceException("Failed to score financial statement for anomalies.", e);
+        }
+    }
+
+    @Override
+    public List<StatementAnomaly> getAnomalies(int statementId) throws ServiceException {
+        try {
+            return statementAnomalyDao.findByStatementId(statementId);
+        } catch (SQLException e) {
+            LOGGER.error("Error fetching anomalies for statement {}: {}", statementId, e.getMessage(), e);
+            throw new ServiceException("Failed to fetch statement anomalies.", e);
+        }
+    }
+
+    private StatementAnomaly toAnomaly(FinancialStatement statement, StatementItem item, RunningStats stats,
+                                       double stdDev, double zScore, LocalDateTime detectedAt) {
+        StatementAnomaly anomaly = new StatementAnomaly();
+        anomaly.setStatementId(statement.getId());
+        anomaly.setBankId(statement.getBankId());
+        anomaly.setItemCode(item.getItemCode());
+        anomaly.setItemName(item.getItemName());
+        anomaly.setItemValue(item.getItemValue());
+        anomaly.setExpectedMean(stats.getMean());
+        anomaly.setStdDev(stdDev);
+        anomaly.setZScore(zScore);
+        anomaly.setSampleCount(stats.getCount());
+        anomaly.setDetectedAt(detectedAt);
+        return anomaly;
+    }
+}
@@ -0,0 +1,61 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.service.AuditService;
+import com.bsuir.bankliquiditserver.service.JobContext;
+import com.bsuir.bankliquiditserver.service.JobHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Удаление записей аудита старше retentionDays дней (по умолчанию 365), пакетами по batchSize
+public class AuditRetentionJobHandler implements JobHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditRetentionJobHandler.class);
+    public static final String JOB_TYPE = "AUDIT_RETENTION";
+    private static final int DEFAULT_RETENTION_DAYS = 365;
+
+    private final AuditService auditService;
+    private final int batchSize;
+
+    public AuditRetentionJobHandler(AuditService auditService, int batchSize) {
+        this.auditService = auditService;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public String getJobType() {
+        return JOB_TYPE;
+    }
+
+    @Override
+    public Object execute(JobContext context) throws ValidationException, ServiceException {
+        Object retentionParam = context.getPayload().getOrDefault("retentionDays", DEFAULT_RETENTION_DAYS);
+        if (!(retentionParam instanceof Number) || ((Number) retentionParam).intValue() < 1) {
+            throw new ValidationException("retentionDays must be a positive number: " + retentionParam);
+        }
+        int retentionDays = ((Number) retentionParam).intValue();
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+
+        long total = 0;
+        int deleted;
+        do {
+            if (context.isCancelled()) {
+                break;
+            }
+            deleted = auditService.purgeOldAuditLogs(before, batchSize);
+            total += deleted;
+            context.reportProgress(0, total + " audit log entries deleted"); // Сколько осталось - неизвестно
+        } while (deleted == batchSize);
+        LOGGER.info("Audit retention: {} entries older than {} deleted.", total, before);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("retentionDays", retentionDays);
+        result.put("deletedBefore", before);
+        result.put("deleted", total);
+        return result;
+    }
+}
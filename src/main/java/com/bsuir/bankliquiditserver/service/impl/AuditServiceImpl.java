@@ -125,6 +125,18 @@ public class AuditServiceImpl implements AuditService {
         }
     }
 
+    @Override
+    public int purgeOldAuditLogs(LocalDateTime beforeDate, int batchSize) throws ServiceException {
+        try {
+            int deleted = auditLogDao.deleteOlderThan(beforeDate, batchSize);
+            LOGGER.debug("Purged {} audit log entries older than {}.", deleted, beforeDate);
+            return deleted;
+        } catch (SQLException e) {
+            LOGGER.error("Error purging audit logs older than {}: {}", beforeDate, e.getMessage(), e);
+            throw new ServiceException("Failed to purge old audit logs.", e);
+        }
+    }
+
     private void enrichLogsWithUserDetails(List<AuditLogEntry> logs) {
         if (userDao == null) return; // Если UserDao не предоставлен, пропускаем обогащение
 
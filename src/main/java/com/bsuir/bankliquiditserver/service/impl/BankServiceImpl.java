@@ -3,11 +3,13 @@ package com.bsuir.bankliquiditserver.service.impl;
 import com.bsuir.bankliquiditserver.dao.BankDao;
 import com.bsuir.bankliquiditserver.dao.FinancialStatementDao; // Для проверки связанных отчетов перед удалением
 import com.bsuir.bankliquiditserver.dao.AnalysisReportDao; // Для проверки связанных анализов перед удалением
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
 import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
 import com.bsuir.bankliquiditserver.exception.ServiceException;
 import com.bsuir.bankliquiditserver.exception.ValidationException;
 import com.bsuir.bankliquiditserver.model.Bank;
 import com.bsuir.bankliquiditserver.service.BankService;
+import com.bsuir.bankliquiditserver.service.EntityChangeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,10 +24,12 @@ public class BankServiceImpl implements BankService {
     private final BankDao bankDao;
     private final FinancialStatementDao financialStatementDao; // Для проверки при удалении
     // private final AnalysisReportDao analysisReportDao; // Понадобится, если будем проверять и отчеты анализа
+    private final EntityChangeService entityChangeService; // Изменения банков для подписанных клиентов
 
-    public BankServiceImpl(BankDao bankDao, FinancialStatementDao financialStatementDao) {
+    public BankServiceImpl(BankDao bankDao, FinancialStatementDao financialStatementDao, EntityChangeService entityChangeService) {
         this.bankDao = bankDao;
         this.financialStatementDao = financialStatementDao;
+        this.entityChangeService = entityChangeService;
     }
 
     @Override
@@ -55,6 +59,7 @@ public class BankServiceImpl implements BankService {
 
             Bank savedBank = bankDao.save(newBank);
             LOGGER.info("Bank created: {}", savedBank);
+            entityChangeService.publish(EntityChangeService.BANK, EntityChangeService.CREATED, savedBank.getId(), savedBank.getId(), savedBank);
             return savedBank;
         } catch (SQLException e) {
             LOGGER.error("Error creating bank '{}': {}", name, e.getMessage(), e);
@@ -131,6 +136,7 @@ public class BankServiceImpl implements BankService {
         if (newName == null || newName.trim().isEmpty()) {
             throw new ValidationException("Bank name cannot be empty for update.");
         }
+        DatabaseConnector.pinToPrimary(); // Проверки перед записью - по основной БД, не по реплике
 
         try {
             Bank existingBank = bankDao.findById(id)
@@ -165,6 +171,7 @@ public class BankServiceImpl implements BankService {
 
             bankDao.update(existingBank);
             LOGGER.info("Bank updated: {}", existingBank);
+            entityChangeService.publish(EntityChangeService.BANK, EntityChangeService.UPDATED, id, id, existingBank);
         } catch (SQLException e) {
             LOGGER.error("Error updating bank with id {}: {}", id, e.getMessage(), e);
             if ("23505".equals(e.getSQLState())) { // unique_violation
@@ -180,6 +187,7 @@ public class BankServiceImpl implements BankService {
 
     @Override
     public void deleteBank(int id) throws EntityNotFoundException, ServiceException {
+        DatabaseConnector.pinToPrimary(); // Проверки перед записью - по основной БД, не по реплике
         try {
             Bank bankToDelete = bankDao.findById(id)
                     .orElseThrow(() -> new EntityNotFoundException("Bank", id));
@@ -198,6 +206,7 @@ public class BankServiceImpl implements BankService {
 
             bankDao.deleteById(id);
             LOGGER.info("Bank deleted: {}", bankToDelete);
+            entityChangeService.publish(EntityChangeService.BANK, EntityChangeService.DELETED, id, id, null);
         } catch (SQLException e) {
             LOGGER.error("Error deleting bank with id {}: {}", id, e.getMessage(), e);
             // Если в БД настроены внешние ключи с RESTRICT, то ошибка 23503 будет выброшена
@@ -0,0 +1,168 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.dto.EntityChangeEventDTO;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import com.bsuir.bankliquiditserver.service.EntityChangeService;
+import com.bsuir.bankliquiditserver.service.EntityChangeSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Подписки хранятся в памяти в индексе "ТИП:bankId" -> соединения ("ТИП:*" - все банки).
+ * События доставляются через ограниченную очередь соединения (PushQueue): при ее переполнении
+ * клиент получает RESYNC и перечитывает списки целиком.
+ */
+public class EntityChangeServiceImpl implements EntityChangeService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityChangeServiceImpl.class);
+    private static final Set<String> ENTITY_TYPES = Set.of(BANK, FINANCIAL_STATEMENT, ANALYSIS_REPORT);
+
+    // Соединение с подписками и очередью неотправленных событий
+    private final class Subscriber {
+        final Set<String> topics = ConcurrentHashMap.newKeySet();
+        final PushQueue<EntityChangeEventDTO> queue;
+
+        Subscriber(EntityChangeSink sink) {
+            this.queue = new PushQueue<>("entityChanges", queueCapacity, dispatcher, sink::push, () -> {
+                EntityChangeEventDTO resync = new EntityChangeEventDTO(null, RESYNC, null, null, null);
+                resync.setSequence(sequence.get());
+                return resync;
+            }, () -> {
+                int removed = unsubscribeAll(sink);
+                LOGGER.info("Entity change connection closed, {} subscription(s) removed.", removed);
+            });
+        }
+
+        // Проверка лимита и добавление - под одной блокировкой; false - подписка уже есть
+        synchronized boolean add(String topic) throws ValidationException {
+            if (topics.contains(topic)) {
+                return false;
+            }
+            if (topics.size() >= maxSubscriptionsPerSink) {
+                throw new ValidationException("Too many subscriptions for this connection (limit " + maxSubscriptionsPerSink + ").");
+            }
+            return topics.add(topic);
+        }
+    }
+
+    private final int queueCapacity;
+    private final int maxSubscriptionsPerSink;
+    private final ExecutorService dispatcher;
+    private final Map<String, Set<Subscriber>> byTopic = new ConcurrentHashMap<>();
+    private final Map<EntityChangeSink, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public EntityChangeServiceImpl(int queueCapacity, int maxSubscriptionsPerSink, int dispatchThreads) {
+        this.queueCapacity = queueCapacity;
+        this.maxSubscriptionsPerSink = maxSubscriptionsPerSink;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatchThreads), runnable -> {
+            Thread thread = new Thread(runnable, "entity-change-dispatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ServerMetrics.getInstance().registerGauge("entityChanges.subscribers", subscribers::size);
+    }
+
+    private static String topic(String entityType, Integer bankId) {
+        return entityType + ":" + (bankId != null ? bankId.toString() : "*");
+    }
+
+    @Override
+    public void subscribe(EntityChangeSink sink, String entityType, Integer bankId) throws ValidationException {
+        if (entityType == null || !ENTITY_TYPES.contains(entityType)) {
+            throw new ValidationException("entityType must be one of " + ENTITY_TYPES + ": " + entityType);
+        }
+        Subscriber subscriber = subscribers.computeIfAbsent(sink, Subscriber::new);
+        String topic = topic(entityType, bankId);
+        if (subscriber.add(topic)) {
+            byTopic.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            LOGGER.debug("Entity change subscription added: {}", topic);
+        }
+    }
+
+    @Override
+    public boolean unsubscribe(EntityChangeSink sink, String entityType, Integer bankId) {
+        Subscriber subscriber = subscribers.get(sink);
+        String topic = topic(entityType, bankId);
+        if (subscriber == null || !subscriber.topics.remove(topic)) {
+            return false;
+        }
+        removeFromIndex(topic, subscriber);
+        return true;
+    }
+
+    @Override
+    public int unsubscribeAll(EntityChangeSink sink) {
+        Subscriber subscriber = subscribers.remove(sink);
+        if (subscriber == null) {
+            return 0;
+        }
+        subscriber.queue.close();
+        int count = 0;
+        for (String topic : subscriber.topics) {
+            removeFromIndex(topic, subscriber);
+            count++;
+        }
+        return count;
+    }
+
+    private void removeFromIndex(String topic, Subscriber subscriber) {
+        byTopic.computeIfPresent(topic, (t, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @Override
+    public List<String> getSubscriptions(EntityChangeSink sink) {
+        Subscriber subscriber = subscribers.get(sink);
+        return subscriber != null ? new ArrayList<>(subscriber.topics) : Collections.emptyList();
+    }
+
+    @Override
+    public void publish(String entityType, String changeType, int entityId, Integer bankId, Object data) {
+        Set<Subscriber> all = byTopic.get(topic(entityType, null));
+        Set<Subscriber> ofBank = bankId != null ? byTopic.get(topic(entityType, bankId)) : null;
+        if ((all == null || all.isEmpty()) && (ofBank == null || ofBank.isEmpty())) {
+            return;
+        }
+        Set<Subscriber> targets = new LinkedHashSet<>();
+        if (all != null) {
+            targets.addAll(all);
+        }
+        if (ofBank != null) {
+            targets.addAll(ofBank);
+        }
+
+        EntityChangeEventDTO event = new EntityChangeEventDTO(entityType, changeType, entityId, bankId, data);
+        event.setSequence(sequence.incrementAndGet());
+        for (Subscriber subscriber : targets) {
+            subscriber.queue.offer(event);
+        }
+        ServerMetrics.getInstance().increment("entityChanges.published");
+    }
+
+    @Override
+    public void stop() {
+        dispatcher.shutdown();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return dispatcher.awaitTermination(timeout, unit);
+    }
+}
@@ -1,10 +1,15 @@
 package com.bsuir.bankliquiditserver.service.impl;
 
+import com.bsuir.bankliquiditserver.analysis.StatementRollup;
 import com.bsuir.bankliquiditserver.dao.BankDao;
 import com.bsuir.bankliquiditserver.dao.FinancialStatementDao;
 import com.bsuir.bankliquiditserver.dao.StatementItemDao;
 import com.bsuir.bankliquiditserver.dao.UserDao;
+import com.bsuir.bankliquiditserver.db.DatabaseConnector;
+import com.bsuir.bankliquiditserver.dispatch.BankShard;
 import com.bsuir.bankliquiditserver.dto.FinancialStatementDTO;
+import com.bsuir.bankliquiditserver.dto.StatementConsistencyIssueDTO;
+import com.bsuir.bankliquiditserver.dto.StatementConsistencyReportDTO;
 import com.bsuir.bankliquiditserver.dto.StatementItemDTO;
 import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
 import com.bsuir.bankliquiditserver.exception.ServiceException;
@@ -12,8 +17,14 @@ import com.bsuir.bankliquiditserver.exception.ValidationException;
 import com.bsuir.bankliquiditserver.model.Bank;
 import com.bsuir.bankliquiditserver.model.FinancialStatement;
 import com.bsuir.bankliquiditserver.model.StatementItem;
+import com.bsuir.bankliquiditserver.model.StatementRatioSnapshot;
 import com.bsuir.bankliquiditserver.model.User;
+import com.bsuir.bankliquiditserver.service.AlertService;
+import com.bsuir.bankliquiditserver.service.AnomalyDetectionService;
+import com.bsuir.bankliquiditserver.service.EntityChangeService;
+import com.bsuir.bankliquiditserver.service.FinancialStatementListener;
 import com.bsuir.bankliquiditserver.service.FinancialStatementService;
+import com.bsuir.bankliquiditserver.service.RatioSnapshotService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +34,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class FinancialStatementServiceImpl implements FinancialStatementService {
@@ -32,21 +45,35 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
     private final StatementItemDao statementItemDao;
     private final BankDao bankDao;
     private final UserDao userDao; // Для получения информации о пользователе
+    private final RatioSnapshotService ratioSnapshotService; // Коэффициенты считаются сразу при сохранении отчета
+    private final AnomalyDetectionService anomalyDetectionService; // Проверка статей по истории банка при загрузке
+    private final AlertService alertService; // Оповещения подписчиков о порогах коэффициентов
+    private final EntityChangeService entityChangeService; // Изменения списков отчетов для подписанных клиентов
+    private final List<FinancialStatementListener> listeners = new CopyOnWriteArrayList<>();
 
     public FinancialStatementServiceImpl(FinancialStatementDao financialStatementDao,
                                          StatementItemDao statementItemDao,
                                          BankDao bankDao,
-                                         UserDao userDao) {
+                                         UserDao userDao,
+                                         RatioSnapshotService ratioSnapshotService,
+                                         AnomalyDetectionService anomalyDetectionService,
+                                         AlertService alertService,
+                                         EntityChangeService entityChangeService) {
         this.financialStatementDao = financialStatementDao;
         this.statementItemDao = statementItemDao;
         this.bankDao = bankDao;
         this.userDao = userDao;
+        this.ratioSnapshotService = ratioSnapshotService;
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.alertService = alertService;
+        this.entityChangeService = entityChangeService;
     }
 
     @Override
     public FinancialStatement createFinancialStatement(FinancialStatementDTO statementDto, User createdByUser)
             throws ValidationException, ServiceException, EntityNotFoundException {
         validateFinancialStatementDTO(statementDto, true);
+        DatabaseConnector.pinToPrimary(); // Проверки перед записью - по основной БД, не по реплике
 
         Bank bank; // Объявляем переменную здесь
         try {
@@ -99,6 +126,22 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
                 savedStatement.setItems(itemsToSave); // Добавляем сохраненные статьи в объект
                 LOGGER.info("{} StatementItems saved for statement ID: {}", itemsToSave.size(), savedStatement.getId());
             }
+            try {
+                savedStatement.setAnomalies(anomalyDetectionService.scoreAndRecord(savedStatement));
+            } catch (ServiceException e) {
+                // Загрузку отчета не блокируем; значения этого отчета в историю не попадут
+                LOGGER.warn("Anomaly check for statement ID {} failed: {}", savedStatement.getId(), e.getMessage());
+            }
+            StatementRatioSnapshot snapshot = null;
+            try {
+                snapshot = ratioSnapshotService.refreshSnapshot(savedStatement);
+            } catch (ServiceException e) {
+                // Отчет уже сохранен; снимок будет рассчитан при первом анализе
+                LOGGER.warn("Ratio snapshot for statement ID {} not saved: {}", savedStatement.getId(), e.getMessage());
+            }
+            notifyListeners(listener -> listener.onStatementChanged(savedStatement));
+            publishChange(EntityChangeService.CREATED, savedStatement);
+            alertService.onStatementIngested(savedStatement, snapshot != null ? snapshot.getRatios() : null);
             return savedStatement;
         } catch (SQLException e) {
             LOGGER.error("Error saving financial statement or its items for bankId {}: {}", statementDto.getBankId(), e.getMessage(), e);
@@ -128,14 +171,41 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
 
     @Override
     public FinancialStatement getFinancialStatementWithItemsById(int statementId) throws EntityNotFoundException, ServiceException {
-        FinancialStatement statement = getFinancialStatementById(statementId); // Получаем основные данные
         try {
-            List<StatementItem> items = statementItemDao.findByStatementId(statementId);
-            statement.setItems(items);
+            // Отчет, банк, автор и статьи одним запросом
+            return financialStatementDao.findByIdWithDetails(statementId)
+                    .orElseThrow(() -> new EntityNotFoundException("FinancialStatement", statementId));
+        } catch (SQLException e) {
+            LOGGER.error("Error fetching financial statement with items for id {}: {}", statementId, e.getMessage(), e);
+            throw new ServiceException("Failed to fetch financial statement.", e);
+        }
+    }
+
+    @Override
+    public FinancialStatement getLatestFinancialStatementWithItems(int bankId, String statementType) throws EntityNotFoundException, ServiceException {
+        // В шарде банка последний отчет со статьями держится в кэше шарда до изменения отчетов банка
+        BankShard shard = BankShard.current();
+        String cacheKey = "latestStatement:" + statementType;
+        if (shard != null) {
+            FinancialStatement cached = shard.getCached(bankId, cacheKey, FinancialStatement.class);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        try {
+            // Заполнение кэша шарда - из основной БД, не с отстающей реплики
+            Optional<FinancialStatement> latest = shard != null
+                    ? DatabaseConnector.withPrimaryReads(() -> financialStatementDao.findLatestByBankIdAndTypeWithItems(bankId, statementType))
+                    : financialStatementDao.findLatestByBankIdAndTypeWithItems(bankId, statementType);
+            FinancialStatement statement = latest.orElseThrow(() -> new EntityNotFoundException(
+                            String.format("No '%s' found for bank ID %d.", statementType, bankId)));
+            if (shard != null) {
+                shard.putCached(bankId, cacheKey, statement);
+            }
             return statement;
         } catch (SQLException e) {
-            LOGGER.error("Error fetching statement items for statement id {}: {}", statementId, e.getMessage(), e);
-            throw new ServiceException("Failed to fetch statement items.", e);
+            LOGGER.error("Error fetching latest financial statement for bank id {}, type {}: {}", bankId, statementType, e.getMessage(), e);
+            throw new ServiceException("Failed to fetch financial statement.", e);
         }
     }
 
@@ -214,6 +284,7 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
     public void updateFinancialStatementMetadata(int statementId, FinancialStatementDTO statementDto, User updatedByUser)
             throws ValidationException, EntityNotFoundException, ServiceException {
         validateFinancialStatementDTO(statementDto, false); // false - id должен быть
+        DatabaseConnector.pinToPrimary(); // Проверки перед записью - по основной БД, не по реплике
 
         FinancialStatement existingStatement;
         Bank bankForUpdate; // Новая переменная для банка, который будет в обновляемом отчете
@@ -248,6 +319,13 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
         }
 
         // Теперь обновляем существующий отчет данными из DTO, используя загруженный bankForUpdate
+        int previousBankId = existingStatement.getBankId();
+        // Состояние до изменения - те же поля, что в уведомлении об изменении с другого узла (строка OLD)
+        FinancialStatement previousState = new FinancialStatement();
+        previousState.setId(statementId);
+        previousState.setBankId(previousBankId);
+        previousState.setReportDate(existingStatement.getReportDate());
+        previousState.setStatementType(existingStatement.getStatementType());
         existingStatement.setBankId(bankForUpdate.getId());
         existingStatement.setBank(bankForUpdate); // Присваиваем объект Bank
         existingStatement.setReportDate(statementDto.getReportDate());
@@ -263,6 +341,18 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
         try {
             financialStatementDao.update(existingStatement);
             LOGGER.info("FinancialStatement metadata updated for ID: {}", statementId);
+            if (previousBankId != existingStatement.getBankId()) {
+                // Данные старого банка тоже устарели: его "последний" отчет мог быть этим
+                notifyListeners(listener -> listener.onStatementChanged(previousState));
+            }
+            notifyListeners(listener -> listener.onStatementChanged(existingStatement));
+            if (previousBankId != existingStatement.getBankId()) {
+                // Отчет перенесен в другой банк: для подписчиков старого банка он удален
+                entityChangeService.publish(EntityChangeService.FINANCIAL_STATEMENT, EntityChangeService.DELETED, statementId, previousBankId, null);
+                publishChange(EntityChangeService.CREATED, existingStatement);
+            } else {
+                publishChange(EntityChangeService.UPDATED, existingStatement);
+            }
         } catch (SQLException e) {
             LOGGER.error("Error updating financial statement metadata for ID {}: {}", statementId, e.getMessage(), e);
             // Обработка уникальных ключей, если update может их нарушить (например, если уникальный ключ включает другие поля, не только id)
@@ -276,11 +366,11 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
 
     @Override
     public void deleteFinancialStatement(int statementId) throws EntityNotFoundException, ServiceException {
+        DatabaseConnector.pinToPrimary(); // Проверки перед записью - по основной БД, не по реплике
         try {
             // Сначала проверяем, существует ли такой отчет
-            if (!financialStatementDao.findById(statementId).isPresent()) {
-                throw new EntityNotFoundException("FinancialStatement", statementId);
-            }
+            FinancialStatement statement = financialStatementDao.findById(statementId)
+                    .orElseThrow(() -> new EntityNotFoundException("FinancialStatement", statementId));
 
             // Статьи отчета должны удаляться каскадно (ON DELETE CASCADE в БД)
             // Либо удаляем их явно здесь перед удалением самого отчета:
@@ -288,6 +378,8 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
 
             financialStatementDao.deleteById(statementId);
             LOGGER.info("FinancialStatement deleted with ID: {}", statementId);
+            notifyListeners(listener -> listener.onStatementDeleted(statement));
+            entityChangeService.publish(EntityChangeService.FINANCIAL_STATEMENT, EntityChangeService.DELETED, statementId, statement.getBankId(), null);
         } catch (SQLException e) {
             LOGGER.error("Error deleting financial statement with ID {}: {}", statementId, e.getMessage(), e);
             if ("23503".equals(e.getSQLState())) { // foreign_key_violation (например, AnalysisReport ссылается на него)
@@ -297,6 +389,49 @@ public class FinancialStatementServiceImpl implements FinancialStatementService
         }
     }
 
+    @Override
+    public StatementConsistencyReportDTO checkStatementConsistency(int statementId) throws EntityNotFoundException, ServiceException {
+        FinancialStatement statement = getFinancialStatementWithItemsById(statementId);
+        StatementRollup rollup = StatementRollup.build(statement.getItems());
+
+        StatementConsistencyReportDTO report = new StatementConsistencyReportDTO();
+        report.setStatementId(statement.getId());
+        report.setBankId(statement.getBankId());
+        report.setReportDate(statement.getReportDate());
+        report.setStatementType(statement.getStatementType());
+        report.setItemCount(rollup.size());
+        report.setRootCount(rollup.getRootCount());
+        report.setIssues(rollup.getIssues().stream()
+                .map(StatementConsistencyIssueDTO::fromIssue)
+                .collect(Collectors.toList()));
+        if (!rollup.isConsistent()) {
+            LOGGER.info("FinancialStatement ID {} has {} consistency issues.", statementId, report.getIssues().size());
+        }
+        return report;
+    }
+
+    @Override
+    public void addStatementListener(FinancialStatementListener listener) {
+        listeners.add(listener);
+    }
+
+    // Изменение в том же виде, что и элемент GET_BANK_FINANCIAL_STATEMENTS (без статей)
+    private void publishChange(String changeType, FinancialStatement statement) {
+        entityChangeService.publish(EntityChangeService.FINANCIAL_STATEMENT, changeType, statement.getId(), statement.getBankId(),
+                FinancialStatementDTO.fromFinancialStatement(statement, false));
+    }
+
+    private void notifyListeners(Consumer<FinancialStatementListener> event) {
+        for (FinancialStatementListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                // Изменение уже записано в БД; ошибка подписчика не должна превращать его в ошибку запроса
+                LOGGER.warn("Financial statement listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        }
+    }
+
     private void validateFinancialStatementDTO(FinancialStatementDTO dto, boolean isNew) throws ValidationException {
         if (dto == null) {
             throw new ValidationException("Financial statement data cannot be null.");
@@ -0,0 +1,172 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.dao.JobDao;
+import com.bsuir.bankliquiditserver.dao.JobScheduleDao;
+import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import com.bsuir.bankliquiditserver.model.Job;
+import com.bsuir.bankliquiditserver.model.JobSchedule;
+import com.bsuir.bankliquiditserver.model.User;
+import com.bsuir.bankliquiditserver.service.JobService;
+import com.bsuir.bankliquiditserver.util.CronExpression;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class JobServiceImpl implements JobService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobServiceImpl.class);
+    private static final Set<String> STATUSES = Set.of("QUEUED", "RUNNING", "SUCCEEDED", "FAILED", "CANCELLED");
+    private static final int MAX_ATTEMPTS_LIMIT = 20;
+    private static final int MAX_LIST_LIMIT = 500;
+
+    private final JobDao jobDao;
+    private final JobScheduleDao jobScheduleDao;
+    private final JobWorkerPool workerPool;
+    private final int defaultMaxAttempts;
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    public JobServiceImpl(JobDao jobDao, JobScheduleDao jobScheduleDao, JobWorkerPool workerPool, int defaultMaxAttempts) {
+        this.jobDao = jobDao;
+        this.jobScheduleDao = jobScheduleDao;
+        this.workerPool = workerPool;
+        this.defaultMaxAttempts = defaultMaxAttempts;
+    }
+
+    @Override
+    public Job enqueue(String jobType, Map<String, Object> payload, int priority, Integer maxAttempts, LocalDateTime runAt, User createdBy)
+            throws ValidationException, ServiceException {
+        validateJobType(jobType);
+        int attempts = maxAttempts != null ? maxAttempts : defaultMaxAttempts;
+        if (attempts < 1 || attempts > MAX_ATTEMPTS_LIMIT) {
+            throw new ValidationException("maxAttempts must be between 1 and " + MAX_ATTEMPTS_LIMIT + ".");
+        }
+
+        Job job = new Job();
+        job.setJobType(jobType);
+        job.setPayload(toJson(payload));
+        job.setPriority(priority);
+        job.setMaxAttempts(attempts);
+        job.setRunAt(runAt);
+        job.setCreatedByUserId(createdBy != null ? createdBy.getId() : null);
+        try {
+            Job saved = jobDao.insert(job);
+            ServerMetrics.getInstance().increment("jobs.enqueued");
+            LOGGER.info("Job {} ({}) enqueued, priority {}.", saved.getId(), jobType, priority);
+            workerPool.wakeUp();
+            return saved;
+        } catch (SQLException e) {
+            LOGGER.error("Error enqueueing job {}: {}", jobType, e.getMessage(), e);
+            throw new ServiceException("Failed to enqueue job.", e);
+        }
+    }
+
+    @Override
+    public Job getJob(long jobId) throws EntityNotFoundException, ServiceException {
+        try {
+            return jobDao.findById(jobId).orElseThrow(() -> new EntityNotFoundException("Job", jobId));
+        } catch (SQLException e) {
+            LOGGER.error("Error fetching job with id {}: {}", jobId, e.getMessage(), e);
+            throw new ServiceException("Failed to retrieve job.", e);
+        }
+    }
+
+    @Override
+    public List<Job> getJobs(String status, int limit) throws ValidationException, ServiceException {
+        if (status != null && !STATUSES.contains(status)) {
+            throw new ValidationException("status must be one of " + STATUSES + ": " + status);
+        }
+        try {
+            return jobDao.findRecent(status, Math.max(1, Math.min(limit, MAX_LIST_LIMIT)));
+        } catch (SQLException e) {
+            LOGGER.error("Error fetching jobs (status {}): {}", status, e.getMessage(), e);
+            throw new ServiceException("Failed to retrieve jobs.", e);
+        }
+    }
+
+    @Override
+    public void cancelJob(long jobId) throws EntityNotFoundException, ValidationException, ServiceException {
+        try {
+            if (jobDao.cancel(jobId)) {
+                LOGGER.info("Job {} cancelled.", jobId);
+                return;
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error cancelling job {}: {}", jobId, e.getMessage(), e);
+            throw new ServiceException("Failed to cancel job.", e);
+        }
+        Job job = getJob(jobId);
+        throw new ValidationException("Job " + jobId + " is already " + job.getStatus() + ".");
+    }
+
+    @Override
+    public List<JobSchedule> getSchedules() throws ServiceException {
+        try {
+            return jobScheduleDao.findAll();
+        } catch (SQLException e) {
+            LOGGER.error("Error fetching job schedules: {}", e.getMessage(), e);
+            throw new ServiceException("Failed to retrieve job schedules.", e);
+        }
+    }
+
+    @Override
+    public JobSchedule saveSchedule(String name, String jobType, Map<String, Object> payload, String cronExpression, boolean enabled)
+            throws ValidationException, ServiceException {
+        if (name == null || name.isBlank()) {
+            throw new ValidationException("Schedule name is required.");
+        }
+        validateJobType(jobType);
+        try {
+            CronExpression.parse(cronExpression).next(LocalDateTime.now());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new ValidationException(e.getMessage());
+        }
+
+        JobSchedule schedule = new JobSchedule();
+        schedule.setName(name.trim());
+        schedule.setJobType(jobType);
+        schedule.setPayload(toJson(payload));
+        schedule.setCronExpression(cronExpression.trim());
+        schedule.setEnabled(enabled);
+        schedule.setNextRunAt(null); // Рассчитает планировщик по времени БД
+        try {
+            jobScheduleDao.upsert(schedule);
+            LOGGER.info("Job schedule saved: {}", schedule);
+            return schedule;
+        } catch (SQLException e) {
+            LOGGER.error("Error saving job schedule {}: {}", name, e.getMessage(), e);
+            throw new ServiceException("Failed to save job schedule.", e);
+        }
+    }
+
+    @Override
+    public List<String> getJobTypes() {
+        return workerPool.getJobTypes();
+    }
+
+    private void validateJobType(String jobType) throws ValidationException {
+        if (jobType == null || !workerPool.getJobTypes().contains(jobType)) {
+            throw new ValidationException("jobType must be one of " + workerPool.getJobTypes() + ": " + jobType);
+        }
+    }
+
+    private String toJson(Map<String, Object> payload) throws ValidationException {
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Job payload is not serializable: " + e.getOriginalMessage());
+        }
+    }
+}
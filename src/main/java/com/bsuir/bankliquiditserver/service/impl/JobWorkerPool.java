@@ -0,0 +1,368 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.dao.JobDao;
+import com.bsuir.bankliquiditserver.dao.JobScheduleDao;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import com.bsuir.bankliquiditserver.model.Job;
+import com.bsuir.bankliquiditserver.model.JobSchedule;
+import com.bsuir.bankliquiditserver.service.JobContext;
+import com.bsuir.bankliquiditserver.service.JobHandler;
+import com.bsuir.bankliquiditserver.util.CronExpression;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Исполнители очереди jobs на этом узле. Каждый поток забирает задачу (FOR UPDATE SKIP LOCKED), держит аренду,
+ * пока выполняет ее, и записывает результат или ошибку; если задач нет, ждет pollIntervalMs или wakeUp().
+ * Служебный поток продлевает аренды выполняющихся задач, возвращает в очередь задачи с истекшей арендой
+ * (упавшие узлы) и ставит в очередь задачи наступивших расписаний - последнее делает только узел,
+ * взявший advisory lock планировщика.
+ */
+public class JobWorkerPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobWorkerPool.class);
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+    private static final long PROGRESS_FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long FINISHED_PURGE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    // Задача, выполняющаяся в одном из потоков этого узла
+    private final class RunningJob implements JobContext {
+        final Job job;
+        final String workerId;
+        final Map<String, Object> payload;
+        private volatile int progress;
+        private volatile String progressMessage;
+        private volatile boolean cancelled;
+        private long lastFlushNanos = System.nanoTime();
+
+        RunningJob(Job job, String workerId, Map<String, Object> payload) {
+            this.job = job;
+            this.workerId = workerId;
+            this.payload = payload;
+        }
+
+        @Override
+        public Job getJob() {
+            return job;
+        }
+
+        @Override
+        public Map<String, Object> getPayload() {
+            return payload;
+        }
+
+        @Override
+        public void reportProgress(int percent, String message) {
+            progress = Math.max(0, Math.min(100, percent));
+            progressMessage = message;
+            if (System.nanoTime() - lastFlushNanos >= PROGRESS_FLUSH_INTERVAL_NANOS) {
+                flush();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        // Продлевает аренду и записывает прогресс; из потока задачи и из служебного потока
+        synchronized void flush() {
+            if (cancelled) {
+                return;
+            }
+            lastFlushNanos = System.nanoTime();
+            try {
+                if (!jobDao.renewLease(job.getId(), workerId, leaseSeconds, progress, progressMessage)) {
+                    cancelled = true;
+                    LOGGER.warn("Job {} was cancelled or its lease was lost.", job.getId());
+                }
+            } catch (SQLException e) {
+                // Аренда еще действует; следующая попытка - при следующем продлении
+                LOGGER.warn("Could not renew lease of job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private final JobDao jobDao;
+    private final JobScheduleDao jobScheduleDao;
+    private final String nodeName;
+    private final int threads;
+    private final int pollIntervalMs;
+    private final int leaseSeconds;
+    private final long retryBaseSeconds;
+    private final long retryMaxSeconds;
+    private final int schedulerIntervalMs;
+    private final int finishedRetentionDays;
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private final Map<String, JobHandler> handlers = new ConcurrentHashMap<>();
+    private final Set<RunningJob> runningJobs = ConcurrentHashMap.newKeySet();
+    private final Object wakeUpMonitor = new Object();
+    private final List<Thread> workers = new ArrayList<>();
+    private ScheduledExecutorService housekeeping;
+    private volatile boolean running;
+    private long lastFinishedPurgeMs;
+
+    public JobWorkerPool(JobDao jobDao, JobScheduleDao jobScheduleDao, String nodeName, int threads, int pollIntervalMs,
+                         int leaseSeconds, long retryBaseSeconds, long retryMaxSeconds, int schedulerIntervalMs, int finishedRetentionDays) {
+        this.jobDao = jobDao;
+        this.jobScheduleDao = jobScheduleDao;
+        this.nodeName = nodeName;
+        this.threads = Math.max(0, threads);
+        this.pollIntervalMs = Math.max(10, pollIntervalMs);
+        this.leaseSeconds = Math.max(3, leaseSeconds);
+        this.retryBaseSeconds = Math.max(1, retryBaseSeconds);
+        this.retryMaxSeconds = Math.max(this.retryBaseSeconds, retryMaxSeconds);
+        this.schedulerIntervalMs = Math.max(1000, schedulerIntervalMs);
+        this.finishedRetentionDays = finishedRetentionDays;
+        ServerMetrics.getInstance().registerGauge("jobs.running", runningJobs::size);
+    }
+
+    public void registerHandler(JobHandler handler) {
+        handlers.put(handler.getJobType(), handler);
+    }
+
+    public List<String> getJobTypes() {
+        List<String> types = new ArrayList<>(handlers.keySet());
+        Collections.sort(types);
+        return types;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        workers.clear();
+        for (int i = 1; i <= threads; i++) {
+            String workerId = nodeName + "#" + i;
+            Thread worker = new Thread(() -> workerLoop(workerId), "job-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        housekeeping = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewIntervalMs = leaseSeconds * 1000L / 3; // Две попытки продления до истечения аренды
+        housekeeping.scheduleWithFixedDelay(this::renewAndReclaim, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+        housekeeping.scheduleWithFixedDelay(this::enqueueScheduled, 0, schedulerIntervalMs, TimeUnit.MILLISECONDS);
+        LOGGER.info("Job workers started: {} thread(s), job types {}.", threads, getJobTypes());
+    }
+
+    // Новые задачи не забираются; выполняющиеся продолжаются, их аренда продлевается до awaitTermination
+    public synchronized void stop() {
+        running = false;
+        wakeUp();
+    }
+
+    // Ждет, пока исполнители после stop() завершат текущие задачи; false - время вышло (их аренда истечет, задачи заберут другие узлы)
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        List<Thread> stopping;
+        synchronized (this) {
+            stopping = new ArrayList<>(workers);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (Thread worker : stopping) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis > 0) {
+                    worker.join(remainingMillis);
+                }
+                if (worker.isAlive()) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            stopHousekeeping(); // Дальше аренда не продлевается: незавершенные задачи заберут другие узлы
+        }
+    }
+
+    private synchronized void stopHousekeeping() {
+        if (housekeeping != null) {
+            housekeeping.shutdownNow();
+        }
+    }
+
+    // Будит ждущих исполнителей (задача поставлена этим узлом)
+    public void wakeUp() {
+        synchronized (wakeUpMonitor) {
+            wakeUpMonitor.notifyAll();
+        }
+    }
+
+    private void workerLoop(String workerId) {
+        while (running) {
+            Optional<Job> claimed = Optional.empty();
+            if (!handlers.isEmpty()) {
+                try {
+                    claimed = jobDao.claimNext(workerId, handlers.keySet(), leaseSeconds);
+                } catch (SQLException e) {
+                    LOGGER.warn("Job worker {} could not claim a job: {}", workerId, e.getMessage());
+                }
+            }
+            if (claimed.isPresent()) {
+                execute(claimed.get(), workerId);
+                continue;
+            }
+            synchronized (wakeUpMonitor) {
+                try {
+                    wakeUpMonitor.wait(pollIntervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void execute(Job job, String workerId) {
+        ServerMetrics.getInstance().increment("jobs.started");
+        LOGGER.info("Job {} ({}) started by {}, attempt {}/{}.", job.getId(), job.getJobType(), workerId, job.getAttempts(), job.getMaxAttempts());
+        long startedAt = System.currentTimeMillis();
+        RunningJob context = null;
+        try {
+            JobHandler handler = handlers.get(job.getJobType());
+            if (handler == null) {
+                throw new ValidationException("No handler for job type " + job.getJobType());
+            }
+            context = new RunningJob(job, workerId, parsePayload(job));
+            runningJobs.add(context);
+            Object result = handler.execute(context);
+            if (context.isCancelled()) {
+                LOGGER.info("Job {} stopped: cancelled or lease lost, result discarded.", job.getId());
+            } else if (jobDao.complete(job.getId(), workerId, toJson(result))) {
+                ServerMetrics.getInstance().increment("jobs.succeeded");
+                LOGGER.info("Job {} ({}) succeeded in {} ms.", job.getId(), job.getJobType(), System.currentTimeMillis() - startedAt);
+            } else {
+                LOGGER.warn("Job {} finished after its lease was lost, result discarded.", job.getId());
+            }
+        } catch (ValidationException e) {
+            recordFailure(job, workerId, e, false);
+        } catch (ServiceException | SQLException | RuntimeException e) {
+            recordFailure(job, workerId, e, true);
+        } finally {
+            if (context != null) {
+                runningJobs.remove(context);
+            }
+        }
+    }
+
+    private void recordFailure(Job job, String workerId, Exception error, boolean retryable) {
+        // Экспоненциальная задержка: base, 2*base, 4*base, ... но не больше max
+        long delay = Math.min(retryMaxSeconds, retryBaseSeconds << Math.min(30, Math.max(0, job.getAttempts() - 1)));
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        try {
+            Optional<String> status = jobDao.fail(job.getId(), workerId, message, retryable, delay);
+            if (status.isEmpty()) {
+                LOGGER.warn("Job {} failed after its lease was lost: {}", job.getId(), message);
+            } else if ("QUEUED".equals(status.get())) {
+                ServerMetrics.getInstance().increment("jobs.retried");
+                LOGGER.warn("Job {} ({}) failed, retry in {} s: {}", job.getId(), job.getJobType(), delay, message);
+            } else {
+                ServerMetrics.getInstance().increment("jobs.failed");
+                LOGGER.error("Job {} ({}) failed permanently after {} attempt(s): {}", job.getId(), job.getJobType(), job.getAttempts(), message, error);
+            }
+        } catch (SQLException e) {
+            // Аренда истечет, и задачу повторит любой узел
+            LOGGER.error("Could not record failure of job {}: {}", job.getId(), e.getMessage(), e);
+        }
+    }
+
+    private void renewAndReclaim() {
+        try {
+            runningJobs.forEach(RunningJob::flush);
+            int reclaimed = jobDao.requeueExpired();
+            if (reclaimed > 0) {
+                ServerMetrics.getInstance().add("jobs.leasesExpired", reclaimed);
+                LOGGER.warn("{} job(s) with expired leases returned to the queue.", reclaimed);
+                wakeUp();
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.warn("Job lease housekeeping failed: {}", e.getMessage());
+        }
+    }
+
+    private void enqueueScheduled() {
+        try {
+            int enqueued = jobScheduleDao.enqueueDue(this::nextRunAt);
+            if (enqueued < 0) {
+                return; // Планировщик сейчас на другом узле
+            }
+            if (enqueued > 0) {
+                ServerMetrics.getInstance().add("jobs.scheduled", enqueued);
+                LOGGER.info("{} scheduled job(s) enqueued.", enqueued);
+                wakeUp();
+            }
+            purgeFinishedJobs();
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.warn("Job scheduler tick failed: {}", e.getMessage());
+        }
+    }
+
+    private LocalDateTime nextRunAt(JobSchedule schedule, LocalDateTime now) {
+        try {
+            return CronExpression.parse(schedule.getCronExpression()).next(now);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            LOGGER.error("Job schedule '{}' disabled: {}", schedule.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Завершенные задачи хранятся finishedRetentionDays дней; чистит узел, на котором сейчас планировщик
+    private void purgeFinishedJobs() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (finishedRetentionDays <= 0 || now - lastFinishedPurgeMs < FINISHED_PURGE_INTERVAL_MS) {
+            return;
+        }
+        lastFinishedPurgeMs = now;
+        int deleted = jobDao.deleteFinishedBefore(LocalDateTime.now().minusDays(finishedRetentionDays));
+        if (deleted > 0) {
+            LOGGER.info("{} finished job(s) older than {} days deleted.", deleted, finishedRetentionDays);
+        }
+    }
+
+    private Map<String, Object> parsePayload(Job job) throws ValidationException {
+        if (job.getPayload() == null) {
+            return Collections.emptyMap();
+        }
+        try {
+            Map<String, Object> payload = objectMapper.readValue(job.getPayload(), PAYLOAD_TYPE);
+            return payload != null ? payload : Collections.emptyMap();
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Malformed payload of job " + job.getId() + ": " + e.getOriginalMessage());
+        }
+    }
+
+    private String toJson(Object result) throws ServiceException {
+        if (result == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new ServiceException("Failed to serialize job result.", e);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.analysis.RatioDefinitionSet;
+import com.bsuir.bankliquiditserver.config.ReloadableProperties;
+import com.bsuir.bankliquiditserver.dao.StatementRatioSnapshotDao;
+import com.bsuir.bankliquiditserver.dto.PeerRankingDTO;
+import com.bsuir.bankliquiditserver.dto.PeerRatioRankDTO;
+import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.model.StatementRatioSnapshot;
+import com.bsuir.bankliquiditserver.service.FinancialStatementListener;
+import com.bsuir.bankliquiditserver.service.RatioSnapshotService;
+import com.bsuir.bankliquiditserver.util.OrderStatisticTreap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс для ранжирования коэффициентов банка среди всех банков на ту же дату (балансовые отчеты).
+ * Для каждой пары (коэффициент, дата отчета) хранится дерево порядковых статистик по значениям банков,
+ * поэтому ранг, перцентиль и квартили считаются за O(log n).
+ * Индекс строится при первом запросе из снимков коэффициентов (один запрос к БД), затем обновляется по событиям
+ * FinancialStatementListener: изменения копятся в очереди и применяются перед следующим запросом,
+ * чтобы не замедлять сохранение отчетов. Смена версии формул приводит к полной перестройке.
+ */
+public class PeerRankingIndex implements FinancialStatementListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PeerRankingIndex.class);
+    private static final String STATEMENT_TYPE = "BALANCE_SHEET";
+    private static final int PERCENTILE_SCALE = 2;
+
+    // Значение коэффициента банка; bankId различает равные значения
+    private static final class PeerValue {
+        final BigDecimal value;
+        final int bankId;
+
+        PeerValue(BigDecimal value, int bankId) {
+            this.value = value;
+            this.bankId = bankId;
+        }
+    }
+
+    private static final Comparator<PeerValue> PEER_ORDER =
+            Comparator.<PeerValue, BigDecimal>comparing(v -> v.value).thenComparingInt(v -> v.bankId);
+
+    // Проиндексированный отчет: что удалить из деревьев при его изменении
+    private static final class IndexedStatement {
+        final int statementId;
+        final int bankId;
+        final String bankName;
+        final LocalDate reportDate;
+        final Map<String, BigDecimal> ratios;
+
+        IndexedStatement(FinancialStatement statement, Map<String, BigDecimal> ratios) {
+            this.statementId = statement.getId();
+            this.bankId = statement.getBankId();
+            this.bankName = statement.getBank() != null ? statement.getBank().getName() : null;
+            this.reportDate = statement.getReportDate();
+            this.ratios = ratios;
+        }
+    }
+
+    // Событие из FinancialStatementListener (копия нужных полей: объект отчета может меняться дальше)
+    private static final class Change {
+        final int statementId;
+        final int bankId;
+        final LocalDate reportDate;
+        final String statementType;
+        final boolean deleted;
+
+        Change(FinancialStatement statement, boolean deleted) {
+            this.statementId = statement.getId();
+            this.bankId = statement.getBankId();
+            this.reportDate = statement.getReportDate();
+            this.statementType = statement.getStatementType();
+            this.deleted = deleted;
+        }
+    }
+
+    private final StatementRatioSnapshotDao snapshotDao;
+    private final RatioSnapshotService ratioSnapshotService;
+    private final ReloadableProperties<RatioDefinitionSet> ratioDefinitions;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, OrderStatisticTreap<PeerValue>> trees = new HashMap<>(); // "ratio|reportDate"
+    private final Map<Integer, IndexedStatement> byStatementId = new HashMap<>();
+    private final Map<Integer, TreeMap<LocalDate, IndexedStatement>> byBank = new HashMap<>();
+    private final ConcurrentLinkedQueue<Change> pending = new ConcurrentLinkedQueue<>();
+    private volatile String builtVersion; // null - индекс не построен (или требует перестройки)
+    private volatile int indexedCount;
+
+    public PeerRankingIndex(StatementRatioSnapshotDao snapshotDao,
+                            RatioSnapshotService ratioSnapshotService,
+                            ReloadableProperties<RatioDefinitionSet> ratioDefinitions) {
+        this.snapshotDao = snapshotDao;
+        this.ratioSnapshotService = ratioSnapshotService;
+        this.ratioDefinitions = ratioDefinitions;
+        ServerMetrics.getInstance().registerGauge("analysis.peerRanking.statements", () -> indexedCount);
+        ServerMetrics.getInstance().registerGauge("analysis.peerRanking.pending", pending::size);
+    }
+
+    @Override
+    public void onStatementChanged(FinancialStatement statement) {
+        pending.add(new Change(statement, false));
+    }
+
+    @Override
+    public void onStatementDeleted(FinancialStatement statement) {
+        pending.add(new Change(statement, true));
+    }
+
+    @Override
+    public void onAllStatementsInvalidated() {
+        builtVersion = null; // Перестраивается целиком при следующем запросе
+    }
+
+    /**
+     * Ранжирование коэффициентов банка по его отчету на дату (или последнему, если reportDate == null).
+     * @param ratioName Только этот коэффициент; null - все.
+     */
+    public PeerRankingDTO getRanking(int bankId, LocalDate reportDate, String ratioName)
+            throws EntityNotFoundException, ServiceException {
+        RatioDefinitionSet definitions = ratioDefinitions.get();
+        ensureCurrent(definitions);
+
+        lock.readLock().lock();
+        try {
+            TreeMap<LocalDate, IndexedStatement> statements = byBank.get(bankId);
+            IndexedStatement statement = statements == null ? null
+                    : reportDate != null ? statements.get(reportDate) : statements.lastEntry().getValue();
+            if (statement == null) {
+                throw reportDate != null
+                        ? new EntityNotFoundException(String.format("FinancialStatement for bankId %d, date %s, type %s not found", bankId, reportDate, STATEMENT_TYPE))
+                        : new EntityNotFoundException(String.format("No '%s' found for bank ID %d.", STATEMENT_TYPE, bankId));
+            }
+
+            PeerRankingDTO result = new PeerRankingDTO();
+            result.setBankId(statement.bankId);
+            result.setBankName(statement.bankName);
+            result.setStatementId(statement.statementId);
+            result.setReportDate(statement.reportDate);
+            result.setDefinitionsVersion(builtVersion);
+            for (String name : definitions.getRatioNames()) {
+                if (ratioName == null || ratioName.equals(name)) {
+                    result.getRatios().add(rank(name, statement));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private PeerRatioRankDTO rank(String ratioName, IndexedStatement statement) {
+        PeerRatioRankDTO dto = new PeerRatioRankDTO();
+        dto.setRatioName(ratioName);
+        OrderStatisticTreap<PeerValue> tree = trees.get(treeKey(ratioName, statement.reportDate));
+        int peers = tree != null ? tree.size() : 0;
+        dto.setPeerCount(peers);
+        if (peers == 0) {
+            return dto;
+        }
+        dto.setPeerMin(tree.select(0).value);
+        dto.setPeerQ1(quantile(tree, 0.25));
+        dto.setPeerMedian(quantile(tree, 0.5));
+        dto.setPeerQ3(quantile(tree, 0.75));
+        dto.setPeerMax(tree.select(peers - 1).value);
+
+        BigDecimal value = statement.ratios.get(ratioName);
+        dto.setValue(value);
+        if (value == null) {
+            return dto;
+        }
+        int less = tree.rank(new PeerValue(value, Integer.MIN_VALUE));
+        int lessOrEqual = tree.rank(new PeerValue(value, Integer.MAX_VALUE));
+        dto.setRank(peers - lessOrEqual + 1);
+        // Перцентиль "средним рангом": равные значения учитываются наполовину
+        BigDecimal percentile = BigDecimal.valueOf(2L * less + (lessOrEqual - less))
+                .multiply(BigDecimal.valueOf(50))
+                .divide(BigDecimal.valueOf(peers), PERCENTILE_SCALE, RoundingMode.HALF_UP);
+        dto.setPercentile(percentile);
+        dto.setQuartile(Math.min(4, percentile.intValue() / 25 + 1));
+        return dto;
+    }
+
+    // Квантиль значений дерева с линейной интерполяцией: два обращения select по O(log n)
+    private BigDecimal quantile(OrderStatisticTreap<PeerValue> tree, double q) {
+        double position = q * (tree.size() - 1);
+        int lower = (int) Math.floor(position);
+        BigDecimal low = tree.select(lower).value;
+        if (lower + 1 >= tree.size() || position == lower) {
+            return low;
+        }
+        BigDecimal high = tree.select(lower + 1).value;
+        return low.add(high.subtract(low).multiply(BigDecimal.valueOf(position - lower)))
+                .setScale(RatioDefinitionSet.DEFAULT_SCALE, RoundingMode.HALF_UP);
+    }
+
+    // Строит индекс или применяет накопленные изменения
+    private void ensureCurrent(RatioDefinitionSet definitions) throws ServiceException {
+        if (definitions.getVersion().equals(builtVersion) && pending.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!definitions.getVersion().equals(builtVersion)) {
+                rebuild(definitions);
+            }
+            applyPending(definitions);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild(RatioDefinitionSet definitions) throws ServiceException {
+        long startedAt = System.currentTimeMillis();
+        trees.clear();
+        byStatementId.clear();
+        byBank.clear();
+        builtVersion = null;
+        pending.clear(); // Все изменения до этого момента войдут в загрузку ниже
+
+        List<StatementRatioSnapshot> snapshots;
+        try {
+            snapshots = snapshotDao.findAllWithStatements(STATEMENT_TYPE, definitions.getVersion());
+        } catch (SQLException e) {
+            LOGGER.error("Error loading ratio snapshots for peer ranking: {}", e.getMessage(), e);
+            throw new ServiceException("Failed to load ratios for peer ranking.", e);
+        }
+        int calculated = 0;
+        for (StatementRatioSnapshot snapshot : snapshots) {
+            StatementRatioSnapshot actual = snapshot;
+            if (snapshot.getDefinitionsVersion() == null) {
+                // Снимка этой версии нет - считаем и сохраняем (один раз, дальше он будет в БД)
+                FinancialStatement statement = snapshot.getStatement();
+                try {
+                    actual = ratioSnapshotService.getSnapshot(statement.getBankId(), statement.getReportDate(), STATEMENT_TYPE, definitions);
+                    calculated++;
+                } catch (EntityNotFoundException e) {
+                    continue; // Удален во время перестройки
+                }
+            }
+            index(actual.getStatement(), actual.getRatios());
+        }
+        builtVersion = definitions.getVersion();
+        LOGGER.info("Peer ranking index built for {} statements ({} snapshots calculated) in {} ms, definitions version {}.",
+                byStatementId.size(), calculated, System.currentTimeMillis() - startedAt, builtVersion);
+    }
+
+    private void applyPending(RatioDefinitionSet definitions) throws ServiceException {
+        Change change;
+        while ((change = pending.poll()) != null) {
+            unindex(change.statementId);
+            if (change.deleted || !STATEMENT_TYPE.equals(change.statementType)) {
+                continue;
+            }
+            try {
+                StatementRatioSnapshot snapshot = ratioSnapshotService.getSnapshot(change.bankId, change.reportDate, STATEMENT_TYPE, definitions);
+                unindex(snapshot.getStatementId()); // На случай, если id отчета отличается от события
+                index(snapshot.getStatement(), snapshot.getRatios());
+            } catch (EntityNotFoundException e) {
+                LOGGER.debug("Statement {} changed and is no longer found, skipped in peer ranking.", change.statementId);
+            } catch (ServiceException e) {
+                builtVersion = null; // Изменение потеряно - при следующем запросе индекс перестраивается целиком
+                throw e;
+            }
+        }
+    }
+
+    private void index(FinancialStatement statement, Map<String, BigDecimal> ratios) {
+        IndexedStatement indexed = new IndexedStatement(statement, ratios);
+        // Один отчет банка на дату: прежний (например, после смены даты другого отчета) вытесняется
+        IndexedStatement replaced = byBank.computeIfAbsent(indexed.bankId, id -> new TreeMap<>()).get(indexed.reportDate);
+        if (replaced != null) {
+            unindex(replaced.statementId);
+        }
+        byStatementId.put(indexed.statementId, indexed);
+        byBank.computeIfAbsent(indexed.bankId, id -> new TreeMap<>()).put(indexed.reportDate, indexed);
+        ratios.forEach((name, value) -> {
+            if (value != null) {
+                trees.computeIfAbsent(treeKey(name, indexed.reportDate), k -> new OrderStatisticTreap<>(PEER_ORDER))
+                        .add(new PeerValue(value, indexed.bankId));
+            }
+        });
+        indexedCount = byStatementId.size();
+    }
+
+    private void unindex(int statementId) {
+        IndexedStatement indexed = byStatementId.remove(statementId);
+        if (indexed == null) {
+            return;
+        }
+        TreeMap<LocalDate, IndexedStatement> statements = byBank.get(indexed.bankId);
+        if (statements != null && statements.get(indexed.reportDate) == indexed) {
+            statements.remove(indexed.reportDate);
+            if (statements.isEmpty()) {
+                byBank.remove(indexed.bankId);
+            }
+        }
+        indexed.ratios.forEach((name, value) -> {
+            String key = treeKey(name, indexed.reportDate);
+            OrderStatisticTreap<PeerValue> tree = trees.get(key);
+            if (value != null && tree != null) {
+                tree.remove(new PeerValue(value, indexed.bankId));
+                if (tree.isEmpty()) {
+                    trees.remove(key);
+                }
+            }
+        });
+        indexedCount = byStatementId.size();
+    }
+
+    private static String treeKey(String ratioName, LocalDate reportDate) {
+        return ratioName + "|" + reportDate;
+    }
+}
@@ -0,0 +1,39 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.service.AnalysisService;
+import com.bsuir.bankliquiditserver.service.JobContext;
+import com.bsuir.bankliquiditserver.service.JobHandler;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+// CALCULATE_PORTFOLIO в фоне: результат (коэффициенты всех банков на asOfDate или последние) сохраняется в jobs.result
+public class PortfolioRecalculationJobHandler implements JobHandler {
+    public static final String JOB_TYPE = "PORTFOLIO_RECALCULATION";
+
+    private final AnalysisService analysisService;
+
+    public PortfolioRecalculationJobHandler(AnalysisService analysisService) {
+        this.analysisService = analysisService;
+    }
+
+    @Override
+    public String getJobType() {
+        return JOB_TYPE;
+    }
+
+    @Override
+    public Object execute(JobContext context) throws ValidationException, ServiceException {
+        Object dateParam = context.getPayload().get("asOfDate");
+        LocalDate asOfDate;
+        try {
+            asOfDate = dateParam != null ? LocalDate.parse(dateParam.toString()) : null;
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("asOfDate must be yyyy-MM-dd: " + dateParam);
+        }
+        context.reportProgress(0, "Calculating portfolio ratios");
+        return analysisService.calculatePortfolio(asOfDate, null, null); // В аудите - как системное действие
+    }
+}
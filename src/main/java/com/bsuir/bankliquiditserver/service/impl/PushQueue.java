@@ -0,0 +1,133 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Очередь неотправленных событий одного соединения клиента (оповещения, изменения сущностей).
+ * Хранит не больше capacity событий; ее разбирает пул рассылки, одновременно - не больше одного потока на соединение,
+ * поэтому порядок событий сохраняется. Если клиент не успевает читать и очередь переполняется, накопленные события
+ * отбрасываются, новые не ставятся в очередь до отправки события resync: получив его, клиент перечитывает данные целиком.
+ * Так память на медленного клиента ограничена, а публикующий поток никогда не ждет.
+ */
+final class PushQueue<E> implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PushQueue.class);
+    private static final int DRAIN_BATCH = 64; // Событий за один запуск, чтобы один клиент не занимал поток рассылки
+
+    private final String metricPrefix;
+    private final int capacity;
+    private final ExecutorService dispatcher;
+    private final Predicate<E> sender; // false - соединение закрыто
+    private final Supplier<E> resyncEvent;
+    private final Runnable onDisconnect;
+    private final ArrayDeque<E> queue = new ArrayDeque<>();
+    private boolean overflowed; // События отброшены, следующим отправляется resync
+    private boolean scheduled;  // Задача разбора очереди поставлена в пул
+    private boolean closed;
+
+    /**
+     * @param metricPrefix Префикс счетчиков ServerMetrics (overflows, dropped, delivered, undelivered).
+     * @param onDisconnect Вызывается в потоке рассылки, если отправка не удалась (соединение закрыто).
+     */
+    PushQueue(String metricPrefix, int capacity, ExecutorService dispatcher,
+              Predicate<E> sender, Supplier<E> resyncEvent, Runnable onDisconnect) {
+        this.metricPrefix = metricPrefix;
+        this.capacity = capacity;
+        this.dispatcher = dispatcher;
+        this.sender = sender;
+        this.resyncEvent = resyncEvent;
+        this.onDisconnect = onDisconnect;
+    }
+
+    // Ставит событие в очередь и при необходимости - очередь на разбор; не блокируется на отправке
+    void offer(E event) {
+        if (enqueue(event) && !submit()) {
+            LOGGER.warn("Push dispatch for {} rejected, queue closed.", metricPrefix);
+            close();
+        }
+    }
+
+    // true - очередь нужно поставить на разбор
+    private synchronized boolean enqueue(E event) {
+        if (closed) {
+            return false;
+        }
+        if (!overflowed) {
+            if (queue.size() >= capacity) {
+                queue.clear();
+                overflowed = true;
+                ServerMetrics.getInstance().increment(metricPrefix + ".overflows");
+                LOGGER.warn("Push queue {} overflow for a subscriber, sending RESYNC.", metricPrefix);
+            } else {
+                queue.add(event);
+            }
+        } else {
+            ServerMetrics.getInstance().increment(metricPrefix + ".dropped");
+        }
+        if (scheduled) {
+            return false;
+        }
+        scheduled = true;
+        return true;
+    }
+
+    // Следующее событие; null - очередь пуста, задача разбора завершается
+    private synchronized E poll() {
+        if (closed) {
+            scheduled = false;
+            return null;
+        }
+        if (overflowed) {
+            overflowed = false;
+            return resyncEvent.get();
+        }
+        E next = queue.poll();
+        if (next == null) {
+            scheduled = false;
+        }
+        return next;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    private boolean submit() {
+        try {
+            dispatcher.execute(this);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void run() {
+        int sent = 0;
+        E event;
+        while ((event = poll()) != null) {
+            if (!sender.test(event)) {
+                ServerMetrics.getInstance().increment(metricPrefix + ".undelivered");
+                onDisconnect.run();
+                return;
+            }
+            ServerMetrics.getInstance().increment(metricPrefix + ".delivered");
+            // Остальное - следующим запуском, после других клиентов; пул остановлен (shutdown) - доотправляем здесь
+            if (++sent % DRAIN_BATCH == 0 && submit()) {
+                return;
+            }
+        }
+    }
+}
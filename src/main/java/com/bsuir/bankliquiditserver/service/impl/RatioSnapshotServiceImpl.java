@@ -0,0 +1,103 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.analysis.RatioDefinitionSet;
+import com.bsuir.bankliquiditserver.analysis.RatioValues;
+import com.bsuir.bankliquiditserver.config.ReloadableProperties;
+import com.bsuir.bankliquiditserver.dao.StatementItemDao;
+import com.bsuir.bankliquiditserver.dao.StatementRatioSnapshotDao;
+import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.model.StatementItem;
+import com.bsuir.bankliquiditserver.model.StatementRatioSnapshot;
+import com.bsuir.bankliquiditserver.service.RatioSnapshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class RatioSnapshotServiceImpl implements RatioSnapshotService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RatioSnapshotServiceImpl.class);
+
+    private final StatementRatioSnapshotDao snapshotDao;
+    private final StatementItemDao statementItemDao;
+    private final ReloadableProperties<RatioDefinitionSet> ratioDefinitions;
+
+    public RatioSnapshotServiceImpl(StatementRatioSnapshotDao snapshotDao,
+                                    StatementItemDao statementItemDao,
+                                    ReloadableProperties<RatioDefinitionSet> ratioDefinitions) {
+        this.snapshotDao = snapshotDao;
+        this.statementItemDao = statementItemDao;
+        this.ratioDefinitions = ratioDefinitions;
+        // Смена формул делает старые снимки неактуальными; пересчет - лениво, при первом запросе отчета
+        ratioDefinitions.addReloadListener(definitions ->
+                LOGGER.info("Ratio definitions changed to version {}, snapshots will be recalculated on demand.", definitions.getVersion()));
+    }
+
+    @Override
+    public StatementRatioSnapshot refreshSnapshot(FinancialStatement statement) throws ServiceException {
+        StatementRatioSnapshot snapshot = compute(statement, statement.getItems(), ratioDefinitions.get());
+        save(snapshot);
+        return snapshot;
+    }
+
+    @Override
+    public StatementRatioSnapshot getSnapshot(int bankId, LocalDate reportDate, String statementType, RatioDefinitionSet definitions)
+            throws EntityNotFoundException, ServiceException {
+        StatementRatioSnapshot snapshot;
+        try {
+            snapshot = snapshotDao.findWithStatement(bankId, reportDate, statementType, definitions.getVersion())
+                    .orElseThrow(() -> reportDate != null
+                            ? new EntityNotFoundException(String.format("FinancialStatement for bankId %d, date %s, type %s not found", bankId, reportDate, statementType))
+                            : new EntityNotFoundException(String.format("No '%s' found for bank ID %d.", statementType, bankId)));
+        } catch (SQLException e) {
+            LOGGER.error("Error loading ratio snapshot for bank {}, date {}: {}", bankId, reportDate, e.getMessage(), e);
+            throw new ServiceException("Failed to load financial statement ratios.", e);
+        }
+        if (snapshot.getDefinitionsVersion() != null) {
+            return snapshot; // Попадание: одна строка по первичному ключу снимка
+        }
+
+        FinancialStatement statement = snapshot.getStatement();
+        LOGGER.debug("No ratio snapshot of version {} for statement {}, calculating.", definitions.getVersion(), statement.getId());
+        List<StatementItem> items;
+        try {
+            items = statementItemDao.findByStatementId(statement.getId());
+        } catch (SQLException e) {
+            LOGGER.error("Error fetching statement items for statement id {}: {}", statement.getId(), e.getMessage(), e);
+            throw new ServiceException("Failed to fetch statement items.", e);
+        }
+        StatementRatioSnapshot computed = compute(statement, items, definitions);
+        try {
+            save(computed);
+        } catch (ServiceException e) {
+            // Снимок - только ускорение: результат расчета отдаем, даже если сохранить его не удалось
+            LOGGER.warn("Ratio snapshot for statement {} was calculated but not saved: {}", statement.getId(), e.getMessage());
+        }
+        return computed;
+    }
+
+    private StatementRatioSnapshot compute(FinancialStatement statement, List<StatementItem> items, RatioDefinitionSet definitions) {
+        RatioValues values = definitions.evaluate(items);
+        StatementRatioSnapshot snapshot = new StatementRatioSnapshot();
+        snapshot.setStatement(statement);
+        snapshot.setDefinitionsVersion(definitions.getVersion());
+        snapshot.setComputedAt(LocalDateTime.now());
+        snapshot.setItemCount(items.size());
+        snapshot.setGroupSums(values.groupSumsAsMap());
+        snapshot.setRatios(values.asMap());
+        return snapshot;
+    }
+
+    private void save(StatementRatioSnapshot snapshot) throws ServiceException {
+        try {
+            snapshotDao.saveReplacingOtherVersions(snapshot);
+        } catch (SQLException e) {
+            LOGGER.error("Error saving ratio snapshot for statement {}: {}", snapshot.getStatementId(), e.getMessage(), e);
+            throw new ServiceException("Failed to save financial statement ratios.", e);
+        }
+    }
+}
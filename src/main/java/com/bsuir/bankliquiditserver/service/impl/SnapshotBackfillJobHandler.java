@@ -0,0 +1,95 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.analysis.RatioDefinitionSet;
+import com.bsuir.bankliquiditserver.config.ReloadableProperties;
+import com.bsuir.bankliquiditserver.dao.StatementRatioSnapshotDao;
+import com.bsuir.bankliquiditserver.exception.EntityNotFoundException;
+import com.bsuir.bankliquiditserver.exception.ServiceException;
+import com.bsuir.bankliquiditserver.exception.ValidationException;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.model.StatementRatioSnapshot;
+import com.bsuir.bankliquiditserver.service.JobContext;
+import com.bsuir.bankliquiditserver.service.JobHandler;
+import com.bsuir.bankliquiditserver.service.RatioSnapshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Расчет недостающих снимков коэффициентов по текущей версии определений (отчеты, загруженные до появления
+ * снимков, или все отчеты после изменения формул), чтобы анализ не считал их при первом запросе.
+ * Повторный запуск пересчитывает только то, что еще не рассчитано.
+ */
+public class SnapshotBackfillJobHandler implements JobHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotBackfillJobHandler.class);
+    public static final String JOB_TYPE = "SNAPSHOT_BACKFILL";
+    private static final String DEFAULT_STATEMENT_TYPE = "BALANCE_SHEET";
+
+    private final StatementRatioSnapshotDao snapshotDao;
+    private final RatioSnapshotService ratioSnapshotService;
+    private final ReloadableProperties<RatioDefinitionSet> ratioDefinitions;
+
+    public SnapshotBackfillJobHandler(StatementRatioSnapshotDao snapshotDao, RatioSnapshotService ratioSnapshotService,
+                                      ReloadableProperties<RatioDefinitionSet> ratioDefinitions) {
+        this.snapshotDao = snapshotDao;
+        this.ratioSnapshotService = ratioSnapshotService;
+        this.ratioDefinitions = ratioDefinitions;
+    }
+
+    @Override
+    public String getJobType() {
+        return JOB_TYPE;
+    }
+
+    @Override
+    public Object execute(JobContext context) throws ValidationException, ServiceException {
+        Object typeParam = context.getPayload().getOrDefault("statementType", DEFAULT_STATEMENT_TYPE);
+        if (!(typeParam instanceof String)) {
+            throw new ValidationException("statementType must be a string: " + typeParam);
+        }
+        String statementType = (String) typeParam;
+        RatioDefinitionSet definitions = ratioDefinitions.get(); // Одна версия формул на весь запуск
+
+        List<FinancialStatement> missing;
+        try {
+            missing = snapshotDao.findAllWithStatements(statementType, definitions.getVersion()).stream()
+                    .filter(snapshot -> snapshot.getDefinitionsVersion() == null)
+                    .map(StatementRatioSnapshot::getStatement)
+                    .collect(Collectors.toList());
+        } catch (SQLException e) {
+            LOGGER.error("Error loading statements without snapshots, type {}: {}", statementType, e.getMessage(), e);
+            throw new ServiceException("Failed to load statements for snapshot backfill.", e);
+        }
+
+        int refreshed = 0;
+        int skipped = 0;
+        for (FinancialStatement statement : missing) {
+            if (context.isCancelled()) {
+                break;
+            }
+            try {
+                ratioSnapshotService.getSnapshot(statement.getBankId(), statement.getReportDate(), statementType, definitions);
+                refreshed++;
+            } catch (EntityNotFoundException e) {
+                skipped++; // Отчет удален, пока шла задача
+            }
+            context.reportProgress((refreshed + skipped) * 100 / missing.size(),
+                    (refreshed + skipped) + " of " + missing.size() + " snapshots");
+        }
+        LOGGER.info("Snapshot backfill ({}, definitions {}): {} of {} missing snapshots calculated.",
+                statementType, definitions.getVersion(), refreshed, missing.size());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statementType", statementType);
+        result.put("definitionsVersion", definitions.getVersion());
+        result.put("missing", missing.size());
+        result.put("refreshed", refreshed);
+        result.put("skipped", skipped);
+        return result;
+    }
+}
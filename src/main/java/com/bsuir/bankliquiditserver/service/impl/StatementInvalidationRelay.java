@@ -0,0 +1,52 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.db.InvalidationBus;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.service.FinancialStatementListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Передает изменения отчетов, сделанные другими узлами (InvalidationBus), тем же FinancialStatementListener,
+ * что получают локальные изменения от FinancialStatementService. Отчет в событии содержит только поля из уведомления.
+ */
+public class StatementInvalidationRelay implements InvalidationBus.Listener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementInvalidationRelay.class);
+    private static final String ENTITY_TYPE = "FINANCIAL_STATEMENT";
+
+    private final List<FinancialStatementListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addStatementListener(FinancialStatementListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onInvalidation(InvalidationBus.Invalidation invalidation) {
+        if (!ENTITY_TYPE.equals(invalidation.getEntityType())) {
+            return;
+        }
+        FinancialStatement statement = new FinancialStatement();
+        statement.setId(invalidation.getEntityId());
+        if (invalidation.getBankId() != null) {
+            statement.setBankId(invalidation.getBankId());
+        }
+        statement.setReportDate(invalidation.getReportDate());
+        statement.setStatementType(invalidation.getStatementType());
+        for (FinancialStatementListener listener : listeners) {
+            if (invalidation.isDeleted()) {
+                listener.onStatementDeleted(statement);
+            } else {
+                listener.onStatementChanged(statement);
+            }
+        }
+        LOGGER.debug("Remote change of statement {} relayed to {} listener(s).", statement.getId(), listeners.size());
+    }
+
+    @Override
+    public void onResync() {
+        listeners.forEach(FinancialStatementListener::onAllStatementsInvalidated);
+    }
+}
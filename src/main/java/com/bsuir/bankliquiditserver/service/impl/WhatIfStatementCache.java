@@ -0,0 +1,89 @@
+package com.bsuir.bankliquiditserver.service.impl;
+
+import com.bsuir.bankliquiditserver.analysis.WhatIfStatement;
+import com.bsuir.bankliquiditserver.metrics.ServerMetrics;
+import com.bsuir.bankliquiditserver.model.FinancialStatement;
+import com.bsuir.bankliquiditserver.service.FinancialStatementListener;
+import com.bsuir.bankliquiditserver.util.BoundedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш подготовленных копий отчетов для WHAT_IF (по statementId). Повторные запросы "что если" по тому же отчету
+ * не обращаются к БД и не пересчитывают исходные суммы групп.
+ * Записи сбрасываются при изменении/удалении отчета (FinancialStatementListener), TTL - страховка от изменений в обход сервиса.
+ */
+public class WhatIfStatementCache implements FinancialStatementListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhatIfStatementCache.class);
+
+    private static final long ENTRY_BASE_WEIGHT = 512;
+    private static final long ITEM_WEIGHT = 96; // Значение статьи, ее группы и запись в индексе по коду
+
+    // Отчет без статей (банк, дата) и его подготовленная копия
+    public static final class Entry {
+        private final FinancialStatement statement;
+        private final WhatIfStatement compiled;
+
+        public Entry(FinancialStatement statement, WhatIfStatement compiled) {
+            this.statement = statement;
+            this.compiled = compiled;
+        }
+
+        public FinancialStatement getStatement() { return statement; }
+        public WhatIfStatement getCompiled() { return compiled; }
+    }
+
+    private final BoundedCache<Integer, Entry> entries;
+    // Увеличивается при каждом изменении отчетов; запись кладется, только если изменений за время подготовки не было
+    private final AtomicLong generation = new AtomicLong();
+
+    public WhatIfStatementCache(long maxBytes, long ttlMillis) {
+        this.entries = new BoundedCache<>(maxBytes, ttlMillis, entry -> ENTRY_BASE_WEIGHT + entry.getCompiled().size() * ITEM_WEIGHT);
+
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        metrics.registerGauge("analysis.whatIfCache.hitRatio", entries::getHitRatio);
+        metrics.registerGauge("analysis.whatIfCache.size", entries::size);
+        metrics.registerGauge("analysis.whatIfCache.weightBytes", entries::getWeight);
+    }
+
+    // Значение "поколения" до загрузки отчета; передается в put
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    // Запись или null
+    public Entry get(int statementId) {
+        return entries.get(statementId);
+    }
+
+    public void put(Entry entry, long generationAtStart) {
+        if (generation.get() == generationAtStart) {
+            entries.put(entry.getStatement().getId(), entry);
+        }
+    }
+
+    @Override
+    public void onStatementChanged(FinancialStatement statement) {
+        invalidate(statement);
+    }
+
+    @Override
+    public void onStatementDeleted(FinancialStatement statement) {
+        invalidate(statement);
+    }
+
+    @Override
+    public void onAllStatementsInvalidated() {
+        generation.incrementAndGet();
+        entries.invalidateIf((statementId, entry) -> true);
+        LOGGER.info("What-if cache flushed.");
+    }
+
+    private void invalidate(FinancialStatement statement) {
+        generation.incrementAndGet();
+        entries.invalidate(statement.getId());
+        LOGGER.debug("What-if cache invalidated for statement {}.", statement.getId());
+    }
+}
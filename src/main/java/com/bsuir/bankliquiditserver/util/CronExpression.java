@@ -0,0 +1,135 @@
+package com.bsuir.bankliquiditserver.util;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * Расписание в формате cron из 5 полей: минута (0-59), час (0-23), день месяца (1-31), месяц (1-12),
+ * день недели (0-7, 0 и 7 - воскресенье). В поле допускаются "*", число, диапазон "a-b", шаг "/n" и списки через запятую.
+ * Как в cron, если ограничены и день месяца, и день недели, подходит день, совпавший с любым из них.
+ * Неизменяем, потокобезопасен.
+ */
+public final class CronExpression {
+    private static final int MAX_YEARS_AHEAD = 5; // "30 0 31 2 *" никогда не наступит - не искать бесконечно
+
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean dayOfMonthRestricted;
+    private final boolean dayOfWeekRestricted;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        this.daysOfWeek = parseField(fields[4], 0, 7);
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        this.dayOfMonthRestricted = !fields[2].equals("*");
+        this.dayOfWeekRestricted = !fields[4].equals("*");
+    }
+
+    /**
+     * @throws IllegalArgumentException если выражение некорректно.
+     */
+    public static CronExpression parse(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Cron expression is required.");
+        }
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression must have 5 fields (minute hour day month weekday): " + expression);
+        }
+        return new CronExpression(expression.trim(), fields);
+    }
+
+    private static BitSet parseField(String field, int min, int max) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            String range = part;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max, part);
+                range = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (range.equals("*")) {
+                from = min;
+                to = max;
+            } else if (range.contains("-")) {
+                String[] bounds = range.split("-", 2);
+                from = parseNumber(bounds[0], min, max, part);
+                to = parseNumber(bounds[1], min, max, part);
+                if (from > to) {
+                    throw new IllegalArgumentException("Invalid cron range: " + part);
+                }
+            } else {
+                from = parseNumber(range, min, max, part);
+                to = slash >= 0 ? max : from; // "5/15" - с 5 до конца с шагом 15
+            }
+            for (int value = from; value <= to; value += step) {
+                values.set(value);
+            }
+        }
+        return values;
+    }
+
+    private static int parseNumber(String text, int min, int max, String part) {
+        int value;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron field: " + part);
+        }
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("Cron value " + value + " out of range " + min + "-" + max + ": " + part);
+        }
+        return value;
+    }
+
+    /**
+     * Ближайший момент срабатывания строго после указанного (с точностью до минуты).
+     * @throws IllegalStateException если выражение не срабатывает в ближайшие годы (например, 31 февраля).
+     */
+    public LocalDateTime next(LocalDateTime after) {
+        LocalDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        LocalDateTime limit = time.plusYears(MAX_YEARS_AHEAD);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).toLocalDate().atStartOfDay().plusMonths(1);
+            } else if (!dayMatches(time)) {
+                time = time.toLocalDate().atStartOfDay().plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        throw new IllegalStateException("Cron expression never fires: " + expression);
+    }
+
+    private boolean dayMatches(LocalDateTime time) {
+        boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(time.getDayOfWeek().getValue() % 7); // DayOfWeek: 7 - воскресенье
+        if (dayOfMonthRestricted && dayOfWeekRestricted) {
+            return dayOfMonth || dayOfWeek;
+        }
+        return dayOfMonth && dayOfWeek;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,181 @@
+package com.bsuir.bankliquiditserver.util;
+
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Упорядоченное множество с порядковыми статистиками (декартово дерево, treap): вставка, удаление,
+ * ранг элемента и k-й по порядку элемент - за O(log n) в среднем. Каждый узел хранит размер своего поддерева.
+ * Порядок задает компаратор; он должен быть строгим (равные по компаратору элементы считаются одним).
+ * Не потокобезопасен.
+ */
+public class OrderStatisticTreap<T> {
+
+    private static final class Node<T> {
+        final T value;
+        final int priority;
+        int size = 1;
+        Node<T> left;
+        Node<T> right;
+
+        Node(T value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    private final Comparator<? super T> comparator;
+    private Node<T> root;
+
+    public OrderStatisticTreap(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    // false, если такой элемент уже есть
+    public boolean add(T value) {
+        if (contains(value)) {
+            return false;
+        }
+        root = insert(root, new Node<>(value, ThreadLocalRandom.current().nextInt()));
+        return true;
+    }
+
+    // false, если элемента не было
+    public boolean remove(T value) {
+        int before = size();
+        root = delete(root, value);
+        return size() < before;
+    }
+
+    public boolean contains(T value) {
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(value, node.value);
+            if (cmp == 0) {
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Число элементов строго меньше probe. Сам probe может и не входить в множество,
+     * поэтому, подобрав probe, можно считать элементы меньше/не больше произвольного значения.
+     */
+    public int rank(T probe) {
+        int rank = 0;
+        Node<T> node = root;
+        while (node != null) {
+            if (comparator.compare(probe, node.value) <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    // k-й по возрастанию элемент, k от 0
+    public T select(int k) {
+        if (k < 0 || k >= size()) {
+            throw new IndexOutOfBoundsException("Index " + k + " out of bounds for size " + size());
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (k < leftSize) {
+                node = node.left;
+            } else if (k == leftSize) {
+                return node.value;
+            } else {
+                k -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> created) {
+        if (node == null) {
+            return created;
+        }
+        if (created.priority > node.priority) {
+            // Новый узел становится корнем этого поддерева: делим поддерево по его значению
+            split(node, created.value, created);
+            return update(created);
+        }
+        if (comparator.compare(created.value, node.value) < 0) {
+            node.left = insert(node.left, created);
+        } else {
+            node.right = insert(node.right, created);
+        }
+        return update(node);
+    }
+
+    // Делит поддерево на элементы меньше value (в target.left) и больше (в target.right)
+    private void split(Node<T> node, T value, Node<T> target) {
+        if (node == null) {
+            target.left = null;
+            target.right = null;
+            return;
+        }
+        Node<T> parts = new Node<>(null, 0);
+        if (comparator.compare(node.value, value) < 0) {
+            split(node.right, value, parts);
+            node.right = parts.left;
+            target.left = update(node);
+            target.right = parts.right;
+        } else {
+            split(node.left, value, parts);
+            node.left = parts.right;
+            target.left = parts.left;
+            target.right = update(node);
+        }
+    }
+
+    private Node<T> delete(Node<T> node, T value) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(value, node.value);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = delete(node.left, value);
+        } else {
+            node.right = delete(node.right, value);
+        }
+        return update(node);
+    }
+
+    // Все элементы left меньше всех элементов right
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private Node<T> update(Node<T> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+}
@@ -0,0 +1,108 @@
+package com.bsuir.bankliquiditserver.util;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Объединение одинаковых одновременных вычислений ("single flight"): пока вычисление по ключу выполняется,
+ * остальные вызовы с тем же ключом не запускают свое, а ждут и получают тот же результат (или ту же ошибку,
+ * кроме отмены или срока самого вычислявшего).
+ * Результат не кэшируется: следующий вызов после завершения вычисления запускает новое.
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder ownerAborts = new LongAdder();
+
+    /**
+     * Выполняет вычисление или присоединяется к уже выполняющемуся с тем же ключом.
+     * Чужое вычисление ждет не дольше joinTimeoutMillis (Long.MAX_VALUE - без ограничения): зависшее вычисление
+     * не должно держать потоки всех присоединившихся дольше их собственного срока.
+     * Вычисление идет в потоке первого вызывающего и может оборваться из-за него самого (отмена, срок запроса).
+     * ownerAborted проверяется в потоке вычисления при ошибке: если он вернул true, ошибка достается только
+     * вычислявшему, а присоединившиеся один раз повторяют вызов (запускают вычисление сами или присоединяются к новому).
+     * @throws ExecutionException с исходным исключением вычисления в getCause().
+     * @throws InterruptedException если поток прервали во время ожидания чужого вычисления.
+     * @throws TimeoutException если чужое вычисление не завершилось за joinTimeoutMillis.
+     */
+    public V execute(K key, Callable<V> computation, long joinTimeoutMillis, BooleanSupplier ownerAborted)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        long deadlineNanos = joinTimeoutMillis == Long.MAX_VALUE ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(joinTimeoutMillis);
+        boolean retried = false;
+        while (true) {
+            CompletableFuture<V> own = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+            if (existing == null) {
+                return compute(key, own, computation, ownerAborted);
+            }
+
+            coalesced.increment();
+            try {
+                return joinTimeoutMillis == Long.MAX_VALUE
+                        ? existing.get()
+                        : existing.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof OwnerAbortedException)) {
+                    throw e;
+                }
+                if (retried) {
+                    throw new ExecutionException(e.getCause().getCause());
+                }
+                retried = true;
+                ownerAborts.increment();
+            }
+        }
+    }
+
+    private V compute(K key, CompletableFuture<V> own, Callable<V> computation, BooleanSupplier ownerAborted)
+            throws ExecutionException {
+        executions.increment();
+        try {
+            V value = computation.call();
+            own.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Ошибка из-за отмены или срока вычислявшего не касается присоединившихся
+            own.completeExceptionally(ownerAborted.getAsBoolean() ? new OwnerAbortedException(e) : e);
+            throw new ExecutionException(e);
+        } finally {
+            inFlight.remove(key, own); // Ждущие уже держат ссылку на future
+        }
+    }
+
+    // Обертка ошибки вычисления, оборванного из-за вызвавшего его запроса
+    private static final class OwnerAbortedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        OwnerAbortedException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    // Сколько вычислений реально запущено
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    // Сколько присоединившихся повторили вызов из-за отмены или срока вычислявшего
+    public long getOwnerAbortCount() {
+        return ownerAborts.sum();
+    }
+
+    // Сколько вызовов получили результат чужого вычисления
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -1,7 +1,11 @@
 DROP TABLE IF EXISTS audit_log;
 DROP TABLE IF EXISTS analysis_reports;
+DROP TABLE IF EXISTS statement_anomalies;
+DROP TABLE IF EXISTS item_value_stats;
+DROP TABLE IF EXISTS statement_ratio_snapshots;
 DROP TABLE IF EXISTS statement_items;
 DROP TABLE IF EXISTS financial_statements;
+DROP TABLE IF EXISTS jobs, job_schedules;
 DROP TABLE IF EXISTS users;
 DROP TABLE IF EXISTS roles;
 DROP TABLE IF EXISTS banks;
@@ -38,6 +42,7 @@ CREATE TABLE financial_statements (
                                       currency VARCHAR(3) DEFAULT 'BYN',
                                       created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                                       created_by_user_id INTEGER,
+                                      version INTEGER NOT NULL DEFAULT 1, -- увеличивается при каждом UPDATE отчета
                                       UNIQUE (bank_id, report_date, statement_type),
                                       FOREIGN KEY (bank_id) REFERENCES banks(id) ON DELETE CASCADE,
                                       FOREIGN KEY (created_by_user_id) REFERENCES users(id) ON DELETE SET NULL
@@ -53,9 +58,72 @@ CREATE TABLE statement_items (
                                  FOREIGN KEY (statement_id) REFERENCES financial_statements(id) ON DELETE CASCADE,
                                  FOREIGN KEY (parent_item_id) REFERENCES statement_items(id) ON DELETE SET NULL
 );
+-- Поиск последнего отчета банка заданного типа (ORDER BY report_date DESC LIMIT 1) и выборки отчетов банка по периоду
+CREATE INDEX idx_financial_statements_bank_type_date ON financial_statements(bank_id, statement_type, report_date DESC);
+
 CREATE INDEX idx_statement_items_statement_id ON statement_items(statement_id);
 CREATE INDEX idx_statement_items_item_name ON statement_items(item_name);
 
+-- Коэффициенты, рассчитанные при сохранении отчета, по версии ratio_definitions.properties
+CREATE TABLE statement_ratio_snapshots (
+                                           statement_id INTEGER NOT NULL,
+                                           definitions_version VARCHAR(64) NOT NULL,
+                                           computed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                           item_count INTEGER NOT NULL,
+                                           group_sums JSONB NOT NULL,
+                                           ratios JSONB NOT NULL,
+                                           PRIMARY KEY (statement_id, definitions_version),
+                                           FOREIGN KEY (statement_id) REFERENCES financial_statements(id) ON DELETE CASCADE
+);
+
+-- Любое изменение статей делает снимки отчета недействительными; сервер пересчитает их при следующем запросе
+CREATE OR REPLACE FUNCTION invalidate_statement_ratio_snapshots() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM statement_ratio_snapshots WHERE statement_id = OLD.statement_id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        DELETE FROM statement_ratio_snapshots WHERE statement_id = NEW.statement_id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_statement_items_invalidate_snapshots
+    AFTER INSERT OR UPDATE OR DELETE ON statement_items
+    FOR EACH ROW EXECUTE FUNCTION invalidate_statement_ratio_snapshots();
+
+-- Среднее и дисперсия значений статей по всем загруженным отчетам банка (алгоритм Уэлфорда):
+-- новый отчет оценивается по одной строке на код статьи, без просмотра истории
+CREATE TABLE item_value_stats (
+                                  bank_id INTEGER NOT NULL,
+                                  statement_type VARCHAR(50) NOT NULL,
+                                  item_code VARCHAR(50) NOT NULL,
+                                  sample_count BIGINT NOT NULL,
+                                  mean DOUBLE PRECISION NOT NULL,
+                                  m2 DOUBLE PRECISION NOT NULL, -- Сумма квадратов отклонений от среднего
+                                  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                  PRIMARY KEY (bank_id, statement_type, item_code),
+                                  FOREIGN KEY (bank_id) REFERENCES banks(id) ON DELETE CASCADE
+);
+
+-- Статьи, значения которых при загрузке отчета сильно отклонились от истории банка
+CREATE TABLE statement_anomalies (
+                                     id SERIAL PRIMARY KEY,
+                                     statement_id INTEGER NOT NULL,
+                                     bank_id INTEGER NOT NULL,
+                                     item_code VARCHAR(50) NOT NULL,
+                                     item_name VARCHAR(255),
+                                     item_value DECIMAL(18, 2) NOT NULL,
+                                     expected_mean DOUBLE PRECISION NOT NULL,
+                                     std_dev DOUBLE PRECISION NOT NULL,
+                                     z_score DOUBLE PRECISION NOT NULL,
+                                     sample_count BIGINT NOT NULL,
+                                     detected_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                     FOREIGN KEY (statement_id) REFERENCES financial_statements(id) ON DELETE CASCADE
+);
+CREATE INDEX idx_statement_anomalies_statement_id ON statement_anomalies(statement_id);
+
 CREATE TABLE analysis_reports (
                                   id SERIAL PRIMARY KEY,
                                   bank_id INTEGER NOT NULL,
@@ -83,10 +151,111 @@ CREATE TABLE audit_log (
                            FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE SET NULL
 );
 
+-- Очередь фоновых задач: любой узел забирает задачу через FOR UPDATE SKIP LOCKED и держит ее,
+-- пока продлевает аренду (lease_until); задачу с истекшей арендой снова забирает любой узел
+CREATE TABLE jobs (
+                      id BIGSERIAL PRIMARY KEY,
+                      job_type VARCHAR(50) NOT NULL, -- 'AUDIT_RETENTION', 'SNAPSHOT_BACKFILL', 'PORTFOLIO_RECALCULATION'
+                      payload JSONB,
+                      status VARCHAR(20) NOT NULL DEFAULT 'QUEUED', -- 'QUEUED', 'RUNNING', 'SUCCEEDED', 'FAILED', 'CANCELLED'
+                      priority INTEGER NOT NULL DEFAULT 0, -- Больше - раньше
+                      attempts INTEGER NOT NULL DEFAULT 0,
+                      max_attempts INTEGER NOT NULL DEFAULT 3,
+                      run_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, -- Не раньше (отложенный запуск и повтор после ошибки)
+                      locked_by VARCHAR(100), -- Исполнитель: application_name узла и номер потока
+                      lease_until TIMESTAMP,
+                      progress INTEGER NOT NULL DEFAULT 0, -- Проценты
+                      progress_message VARCHAR(255),
+                      last_error TEXT,
+                      result JSONB,
+                      schedule_name VARCHAR(100), -- Расписание, поставившее задачу
+                      created_by_user_id INTEGER,
+                      created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                      started_at TIMESTAMP,
+                      finished_at TIMESTAMP,
+                      FOREIGN KEY (created_by_user_id) REFERENCES users(id) ON DELETE SET NULL
+);
+CREATE INDEX idx_jobs_queued ON jobs(priority DESC, run_at, id) WHERE status = 'QUEUED';
+CREATE INDEX idx_jobs_running_lease ON jobs(lease_until) WHERE status = 'RUNNING';
+CREATE INDEX idx_jobs_created_at ON jobs(created_at);
+
+-- Периодические задачи (cron из 5 полей: минута час день месяц день_недели); ставит их в очередь
+-- один узел за раз - тот, что взял advisory lock планировщика
+CREATE TABLE job_schedules (
+                               name VARCHAR(100) PRIMARY KEY,
+                               job_type VARCHAR(50) NOT NULL,
+                               payload JSONB,
+                               cron_expression VARCHAR(100) NOT NULL,
+                               enabled BOOLEAN NOT NULL DEFAULT TRUE,
+                               next_run_at TIMESTAMP, -- NULL - рассчитать при следующей проверке
+                               last_run_at TIMESTAMP
+);
+
+-- Шина инвалидации кэшей между узлами: изменение строки отправляет NOTIFY в канал entity_invalidation
+-- (уходит при фиксации транзакции, одинаковые сообщения одной транзакции объединяются).
+-- Формат: application_name|ТИП|I/U/D|id[|bank_id|report_date|statement_type]; узел пропускает свои сообщения
+CREATE OR REPLACE FUNCTION notify_entity_invalidation() RETURNS TRIGGER AS $$
+DECLARE
+    entity_id INTEGER;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        entity_id := OLD.id;
+    ELSE
+        entity_id := NEW.id;
+    END IF;
+    PERFORM pg_notify('entity_invalidation',
+                      concat_ws('|', current_setting('application_name'), TG_ARGV[0], left(TG_OP, 1), entity_id));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION notify_statement_invalidation() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM pg_notify('entity_invalidation',
+                          concat_ws('|', current_setting('application_name'), 'FINANCIAL_STATEMENT', left(TG_OP, 1),
+                                    OLD.id, OLD.bank_id, OLD.report_date, OLD.statement_type));
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM pg_notify('entity_invalidation',
+                          concat_ws('|', current_setting('application_name'), 'FINANCIAL_STATEMENT', left(TG_OP, 1),
+                                    NEW.id, NEW.bank_id, NEW.report_date, NEW.statement_type));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Изменение статей - изменение отчета (при каскадном удалении отчета строки уже нет, сообщение отправит отчет)
+CREATE OR REPLACE FUNCTION notify_statement_items_invalidation() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('entity_invalidation',
+                      concat_ws('|', current_setting('application_name'), 'FINANCIAL_STATEMENT', 'U',
+                                fs.id, fs.bank_id, fs.report_date, fs.statement_type))
+    FROM financial_statements fs
+    WHERE fs.id = CASE WHEN TG_OP = 'DELETE' THEN OLD.statement_id ELSE NEW.statement_id END;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_roles_notify AFTER INSERT OR UPDATE OR DELETE ON roles
+    FOR EACH ROW EXECUTE FUNCTION notify_entity_invalidation('ROLE');
+CREATE TRIGGER trg_banks_notify AFTER INSERT OR UPDATE OR DELETE ON banks
+    FOR EACH ROW EXECUTE FUNCTION notify_entity_invalidation('BANK');
+CREATE TRIGGER trg_users_notify AFTER INSERT OR UPDATE OR DELETE ON users
+    FOR EACH ROW EXECUTE FUNCTION notify_entity_invalidation('USER');
+CREATE TRIGGER trg_financial_statements_notify AFTER INSERT OR UPDATE OR DELETE ON financial_statements
+    FOR EACH ROW EXECUTE FUNCTION notify_statement_invalidation();
+CREATE TRIGGER trg_statement_items_notify AFTER INSERT OR UPDATE OR DELETE ON statement_items
+    FOR EACH ROW EXECUTE FUNCTION notify_statement_items_invalidation();
+
 INSERT INTO roles (role_name) VALUES ('ADMIN'), ('ANALYST'), ('GUEST');
 
 INSERT INTO users (username, password_hash, full_name, email, role_id)
 VALUES ('admin', 'hashed_admin_password', 'Administrator', 'admin@bank.com', (SELECT id FROM roles WHERE role_name = 'ADMIN'));
 
 INSERT INTO banks (name, registration_number, address)
-VALUES ('My First Commercial Bank', 'MFB-12345', 'Minsk, Nezavisimosti Ave. 1');
\ No newline at end of file
+VALUES ('My First Commercial Bank', 'MFB-12345', 'Minsk, Nezavisimosti Ave. 1');
+
+INSERT INTO job_schedules (name, job_type, payload, cron_expression)
+VALUES ('audit-retention', 'AUDIT_RETENTION', '{"retentionDays": 365}', '0 3 * * *'),
+       ('snapshot-backfill', 'SNAPSHOT_BACKFILL', '{"statementType": "BALANCE_SHEET"}', '30 2 * * *');
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.bsuir.bankliquiditserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void joinerRecomputesWhenOwnerIsCancelled() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch ownerStarted = new CountDownLatch(1);
+        CountDownLatch releaseOwner = new CountDownLatch(1);
+        AtomicBoolean ownerCancelled = new AtomicBoolean();
+        IllegalStateException cancellation = new IllegalStateException("canceling statement due to user request");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> owner = executor.submit(() -> flight.execute("key", () -> {
+                ownerStarted.countDown();
+                releaseOwner.await();
+                throw cancellation;
+            }, Long.MAX_VALUE, ownerCancelled::get));
+            assertTrue(ownerStarted.await(5, TimeUnit.SECONDS));
+
+            // Присоединившийся без срока
+            Future<String> joiner = executor.submit(() -> flight.execute("key", () -> "result", Long.MAX_VALUE, () -> false));
+            while (flight.getCoalescedCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            ownerCancelled.set(true);
+            releaseOwner.countDown();
+
+            ExecutionException ownerFailure = assertThrows(ExecutionException.class, () -> owner.get(5, TimeUnit.SECONDS));
+            assertSame(cancellation, ownerFailure.getCause().getCause());
+            assertEquals("result", joiner.get(5, TimeUnit.SECONDS));
+            assertEquals(2, flight.getExecutionCount());
+            assertEquals(1, flight.getOwnerAbortCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void joinerSharesOrdinaryFailure() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch ownerStarted = new CountDownLatch(1);
+        CountDownLatch releaseOwner = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("statement not found");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> owner = executor.submit(() -> flight.execute("key", () -> {
+                ownerStarted.countDown();
+                releaseOwner.await();
+                throw failure;
+            }, Long.MAX_VALUE, () -> false));
+            assertTrue(ownerStarted.await(5, TimeUnit.SECONDS));
+
+            Future<String> joiner = executor.submit(() -> flight.execute("key", () -> "result", Long.MAX_VALUE, () -> false));
+            while (flight.getCoalescedCount() == 0) {
+                Thread.sleep(1);
+            }
+            releaseOwner.countDown();
+
+            assertThrows(ExecutionException.class, () -> owner.get(5, TimeUnit.SECONDS));
+            ExecutionException joinerFailure = assertThrows(ExecutionException.class, () -> joiner.get(5, TimeUnit.SECONDS));
+            assertSame(failure, joinerFailure.getCause().getCause());
+            assertEquals(1, flight.getExecutionCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}